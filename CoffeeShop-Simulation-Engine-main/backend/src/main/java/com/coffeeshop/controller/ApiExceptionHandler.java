@@ -0,0 +1,45 @@
+package com.coffeeshop.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bad request input (unknown store or drink, invalid pool size...) is a 400,
+ * not a 500; a lookup of something that isn't there is a 404. Work turned
+ * away because a bounded queue is full is a 429; a simulation cancelled
+ * while its caller waited for it is a 409.
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> badRequest(IllegalArgumentException e) {
+        return Map.of("error", String.valueOf(e.getMessage()));
+    }
+
+    @ExceptionHandler(NoSuchElementException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public Map<String, String> notFound(NoSuchElementException e) {
+        return Map.of("error", String.valueOf(e.getMessage()));
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public Map<String, String> tooManyRequests(RejectedExecutionException e) {
+        return Map.of("error", String.valueOf(e.getMessage()));
+    }
+
+    @ExceptionHandler(CancellationException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Map<String, String> cancelled(CancellationException e) {
+        return Map.of("error", String.valueOf(e.getMessage()));
+    }
+}
@@ -0,0 +1,61 @@
+package com.coffeeshop.controller;
+
+import com.coffeeshop.service.BaristaScheduler;
+import com.coffeeshop.service.StoreRegistry;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latency and queue-depth percentiles for a store's live scheduler (HDR-style
+ * histograms, p50/p90/p99/p99.9). Queue depth is sampled once a second, so its
+ * percentiles are shares of time. Every endpoint takes ?storeId=, default "main".
+ */
+@RestController
+@RequestMapping("/api/metrics")
+@CrossOrigin(origins = "*")
+public class MetricsController {
+
+    private final StoreRegistry storeRegistry;
+
+    public MetricsController(StoreRegistry storeRegistry) {
+        this.storeRegistry = storeRegistry;
+    }
+
+    @GetMapping
+    public Map<String, Object> getMetrics(@RequestParam(defaultValue = StoreRegistry.DEFAULT_STORE) String storeId) {
+        BaristaScheduler baristaScheduler = storeRegistry.existing(storeId);
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("waitTimeMillis", baristaScheduler.getWaitTimeHistogram().summary());
+        metrics.put("prepTimeMillis", baristaScheduler.getPrepTimeHistogram().summary());
+        metrics.put("queueDepth", baristaScheduler.getQueueDepthHistogram().summary());
+        return metrics;
+    }
+
+    @GetMapping("/wait-time")
+    public Map<String, Object> getWaitTime(@RequestParam(defaultValue = StoreRegistry.DEFAULT_STORE) String storeId) {
+        BaristaScheduler baristaScheduler = storeRegistry.existing(storeId);
+        return baristaScheduler.getWaitTimeHistogram().summary();
+    }
+
+    @GetMapping("/prep-time")
+    public Map<String, Object> getPrepTime(@RequestParam(defaultValue = StoreRegistry.DEFAULT_STORE) String storeId) {
+        BaristaScheduler baristaScheduler = storeRegistry.existing(storeId);
+        return baristaScheduler.getPrepTimeHistogram().summary();
+    }
+
+    @GetMapping("/queue-depth")
+    public Map<String, Object> getQueueDepth(@RequestParam(defaultValue = StoreRegistry.DEFAULT_STORE) String storeId) {
+        BaristaScheduler baristaScheduler = storeRegistry.existing(storeId);
+        return baristaScheduler.getQueueDepthHistogram().summary();
+    }
+
+    // The same samples per minute, for the last hour
+    @GetMapping("/queue-depth/per-minute")
+    public List<BaristaScheduler.QueueDepthMinute> getQueueDepthPerMinute(
+            @RequestParam(defaultValue = StoreRegistry.DEFAULT_STORE) String storeId) {
+        return storeRegistry.existing(storeId).getQueueDepthPerMinute();
+    }
+}
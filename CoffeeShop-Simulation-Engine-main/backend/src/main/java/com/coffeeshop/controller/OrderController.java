@@ -3,29 +3,52 @@ package com.coffeeshop.controller;
 import com.coffeeshop.model.Barista;
 import com.coffeeshop.model.DrinkType;
 import com.coffeeshop.model.Order;
-import com.coffeeshop.service.BaristaScheduler;
+import com.coffeeshop.service.LiveStatistics;
+import com.coffeeshop.service.QueueFilter;
+import com.coffeeshop.service.QueuePage;
+import com.coffeeshop.service.QueuePosition;
+import com.coffeeshop.service.StoreRegistry;
+import com.coffeeshop.service.CompletedHistory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.NoSuchElementException;
 
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*") // Allow frontend to access
 public class OrderController {
 
-    private final BaristaScheduler baristaScheduler;
+    private static final int MAX_COMPLETED_LIMIT = 10_000;
+    private static final int MAX_QUEUE_PAGE_LIMIT = 500;
 
-    public OrderController(BaristaScheduler baristaScheduler) {
-        this.baristaScheduler = baristaScheduler;
+    private final StoreRegistry storeRegistry;
+    private final ObjectMapper objectMapper;
+
+    public OrderController(StoreRegistry storeRegistry, ObjectMapper objectMapper) {
+        this.storeRegistry = storeRegistry;
+        this.objectMapper = objectMapper;
+    }
+
+    // Every endpoint takes ?storeId=, defaulting to the "main" store. Placing an
+    // order creates the store; reading one that doesn't exist is a 404
+    @GetMapping("/stores")
+    public List<String> getStores() {
+        return storeRegistry.storeIds();
     }
 
     @PostMapping("/orders")
-    public Order placeOrder(@RequestBody Map<String, Object> payload) {
+    public Order placeOrder(@RequestParam(defaultValue = StoreRegistry.DEFAULT_STORE) String storeId,
+            @RequestBody Map<String, Object> payload) {
         String customerName = (String) payload.get("customerName");
         boolean isLoyal = (boolean) payload.getOrDefault("isLoyal", false);
         List<String> drinkNames = (List<String>) payload.get("drinks");
@@ -35,66 +58,100 @@ public class OrderController {
                 .toList();
 
         Order order = new Order(customerName, drinks, isLoyal);
-        baristaScheduler.addOrder(order);
+        storeRegistry.store(storeId).addOrder(order); // only after parsing, so a bad request creates no store
         return order;
     }
 
+    // Completed orders in a time range, oldest first (ISO date-times, both optional)
+    @GetMapping("/orders/completed")
+    public List<Order> getCompletedOrders(@RequestParam(defaultValue = StoreRegistry.DEFAULT_STORE) String storeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "1000") int limit) {
+        if (limit < 1 || limit > MAX_COMPLETED_LIMIT)
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_COMPLETED_LIMIT);
+        return storeRegistry.existing(storeId).getCompletedOrders(from, to, limit);
+    }
+
+    // Per-minute aggregates, kept longer than the orders themselves
+    @GetMapping("/orders/completed/per-minute")
+    public List<CompletedHistory.Minute> getCompletedPerMinute(
+            @RequestParam(defaultValue = StoreRegistry.DEFAULT_STORE) String storeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return storeRegistry.existing(storeId).getCompletedPerMinute(from, to);
+    }
+
+    // Live updates for the dashboard (server-sent events named "update"), see LiveFeed
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(defaultValue = StoreRegistry.DEFAULT_STORE) String storeId) {
+        return storeRegistry.existing(storeId).subscribe();
+    }
+
     @GetMapping("/queue")
-    public List<Order> getQueue() {
-        return baristaScheduler.getQueue();
+    public List<Order> getQueue(@RequestParam(defaultValue = StoreRegistry.DEFAULT_STORE) String storeId) {
+        return storeRegistry.existing(storeId).getQueue();
+    }
+
+    // One page of the queue in priority order, optionally filtered and with only
+    // the requested order fields (e.g. fields=id,customerName,etaSeconds)
+    @GetMapping("/queue/page")
+    public Map<String, Object> getQueuePage(@RequestParam(defaultValue = StoreRegistry.DEFAULT_STORE) String storeId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "false") boolean loyal,
+            @RequestParam(defaultValue = "false") boolean slaAtRisk,
+            @RequestParam(required = false) DrinkType drink,
+            @RequestParam(required = false) List<String> fields) {
+        if (limit < 1 || limit > MAX_QUEUE_PAGE_LIMIT)
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_QUEUE_PAGE_LIMIT);
+        QueuePage page = storeRegistry.existing(storeId).getQueuePage(cursor, limit,
+                new QueueFilter(loyal, slaAtRisk, drink));
+        List<Map<String, Object>> orders = new ArrayList<>(page.orders().size());
+        for (QueuePage.Entry entry : page.orders())
+            orders.add(project(entry, fields));
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("orders", orders);
+        body.put("nextCursor", page.nextCursor());
+        body.put("queueSize", page.queueSize());
+        return body;
+    }
+
+    // Order JSON plus its position, cut down to the requested fields, if any
+    private Map<String, Object> project(QueuePage.Entry entry, List<String> fields) {
+        Map<String, Object> all = objectMapper.convertValue(entry.order(), new TypeReference<LinkedHashMap<String, Object>>() {
+        });
+        all.put("position", entry.position());
+        if (fields == null || fields.isEmpty())
+            return all;
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (String field : fields) {
+            if (!all.containsKey(field))
+                throw new IllegalArgumentException("Unknown order field: " + field);
+            projected.put(field, all.get(field));
+        }
+        return projected;
+    }
+
+    // Position and ETA of one waiting order; 404 once it is no longer waiting
+    @GetMapping("/queue/{orderId}")
+    public QueuePosition getQueuePosition(@RequestParam(defaultValue = StoreRegistry.DEFAULT_STORE) String storeId,
+            @PathVariable String orderId) {
+        QueuePosition position = storeRegistry.existing(storeId).getQueuePosition(orderId);
+        if (position == null)
+            throw new NoSuchElementException("Order " + orderId + " is not waiting in store " + storeId);
+        return position;
     }
 
     @GetMapping("/baristas")
-    public List<Barista> getBaristas() {
-        return baristaScheduler.getBaristas();
+    public List<Barista> getBaristas(@RequestParam(defaultValue = StoreRegistry.DEFAULT_STORE) String storeId) {
+        return storeRegistry.existing(storeId).getBaristas();
     }
 
     @GetMapping("/stats")
-    public Map<String, Object> getStats() {
-        List<Order> completed = baristaScheduler.getCompletedOrders();
-        List<Order> active = baristaScheduler.getQueue();
-        int ordersServed = completed.size();
-
-        // Calculate stats even if ordersServed is 0 (because we might have active
-        // violations)
-
-        double avgWaitSeconds = completed.stream()
-                .mapToLong(o -> Duration.between(o.getArrivalTime(), o.getCompletionTime()).getSeconds())
-                .average()
-                .orElse(0.0);
-
-        long maxWaitSecondsCompleted = completed.stream()
-                .mapToLong(o -> Duration.between(o.getArrivalTime(), o.getCompletionTime()).getSeconds())
-                .max()
-                .orElse(0);
-
-        // Check active max wait too (to show worst case currently in lobby)
-        long maxWaitSecondsActive = active.stream()
-                .mapToLong(o -> Duration.between(o.getArrivalTime(), LocalDateTime.now()).getSeconds())
-                .max()
-                .orElse(0);
-
-        long maxWaitSeconds = Math.max(maxWaitSecondsCompleted, maxWaitSecondsActive);
-
-        // SLA Violations: Completed (>10min) + Active (>10min)
-        long slaViolationsCompleted = completed.stream()
-                .mapToLong(o -> Duration.between(o.getArrivalTime(), o.getCompletionTime()).getSeconds())
-                .filter(seconds -> seconds > 600)
-                .count();
-
-        long slaViolationsActive = active.stream()
-                .mapToLong(o -> Duration.between(o.getArrivalTime(), LocalDateTime.now()).getSeconds())
-                .filter(seconds -> seconds > 600)
-                .count();
-
-        // Convert to minutes for display
-        String avgWaitStr = String.format("%.1f min", avgWaitSeconds / 60.0);
-        String maxWaitStr = String.format("%.1f min", maxWaitSeconds / 60.0);
-
-        return Map.of(
-                "avgWaitTime", avgWaitStr,
-                "ordersServed", ordersServed,
-                "maxWaitTime", maxWaitStr,
-                "slaViolations", slaViolationsCompleted + slaViolationsActive);
+    public Map<String, Object> getStats(@RequestParam(defaultValue = StoreRegistry.DEFAULT_STORE) String storeId) {
+        // Running aggregates maintained by the store's scheduler: O(1) regardless of history size
+        LiveStatistics.Snapshot stats = storeRegistry.existing(storeId).getStatistics();
+        return stats.display(LocalDateTime.now());
     }
 }
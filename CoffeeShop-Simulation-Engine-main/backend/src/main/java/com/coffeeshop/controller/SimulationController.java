@@ -1,10 +1,30 @@
 package com.coffeeshop.controller;
 
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.BatchSimulationResult;
+import com.coffeeshop.model.BatchingGainResult;
+import com.coffeeshop.model.PolicyComparisonResult;
+import com.coffeeshop.model.ScenarioFile;
+import com.coffeeshop.model.SimOrderPage;
+import com.coffeeshop.model.SimulationJob;
+import com.coffeeshop.model.SimulationRunSummary;
 import com.coffeeshop.model.TestCase;
+import com.coffeeshop.service.CsvExporter;
+import com.coffeeshop.service.ScenarioLibrary;
+import com.coffeeshop.service.SimulationJobs;
 import com.coffeeshop.service.SimulationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.stream.IntStream;
 
 @RestController
 //defines base url
@@ -13,18 +33,184 @@ import java.util.List;
 public class SimulationController {
 
     private final SimulationService simulationService;
+    private final CsvExporter csvExporter;
+    private final ScenarioLibrary scenarioLibrary;
+    private final SimulationJobs simulationJobs;
+    private final int maxSeeds;
 
-    public SimulationController(SimulationService simulationService) {
+    public SimulationController(SimulationService simulationService, CsvExporter csvExporter,
+            ScenarioLibrary scenarioLibrary, SimulationJobs simulationJobs,
+            @Value("${coffeeshop.simulation.max-seeds:1000}") int maxSeeds) {
         this.simulationService = simulationService;
+        this.csvExporter = csvExporter;
+        this.scenarioLibrary = scenarioLibrary;
+        this.simulationJobs = simulationJobs;
+        this.maxSeeds = maxSeeds;
     }
-//matches the frontends post call
+//matches the frontends post call; baristas = optional pool size (all-round baristas) instead of the configured pool,
+//policy = optional scheduling policy instead of the configured one. Runs as a job and waits for it, so it shares the
+//job threads and queue (429 if the queue is full) rather than taking cores from the live stores
     @PostMapping("/run")
-    public TestCase runSimulation(@RequestParam(defaultValue = "1") int testId) {
-        return simulationService.runSimulation(testId);//calls logic
+    public TestCase runSimulation(@RequestParam(defaultValue = "1") int testId,
+            @RequestParam(required = false) Integer baristas,
+            @RequestParam(required = false) String policy) {
+        return simulationJobs.run(scenario(testId), pool(baristas), policy);//calls logic
+    }
+//sweeps scenarios x seeds, returns per-run and aggregated stats; a job waited for, like /run
+    @PostMapping("/batch")
+    public BatchSimulationResult runBatch(@RequestParam(required = false) List<Integer> testIds,
+            @RequestParam(defaultValue = "100") int seeds,
+            @RequestParam(required = false) Integer baristas,
+            @RequestParam(required = false) String policy) {
+        return simulationJobs.batch(scenarios(testIds), seeds(seeds), pool(baristas), policy);
+    }
+//runs several scheduling policies on the same seeded scenarios; all policies by default; a job waited for, like /run
+    @PostMapping("/compare")
+    public PolicyComparisonResult comparePolicies(@RequestParam(required = false) List<String> policies,
+            @RequestParam(required = false) List<Integer> testIds,
+            @RequestParam(defaultValue = "20") int seeds,
+            @RequestParam(required = false) Integer baristas) {
+        if (policies == null || policies.isEmpty())
+            policies = simulationService.policyNames();
+        return simulationJobs.compare(policies, scenarios(testIds), seeds(seeds), pool(baristas));
+    }
+//same seeded scenarios without and with drink batching; throughput gain per scenario; a job waited for, like /run
+    @PostMapping("/batching-gain")
+    public BatchingGainResult batchingGain(@RequestParam(required = false) List<Integer> testIds,
+            @RequestParam(defaultValue = "20") int seeds,
+            @RequestParam(required = false) Integer baristas,
+            @RequestParam(required = false) String policy) {
+        return simulationJobs.batchingGain(scenarios(testIds), seeds(seeds), pool(baristas), policy);
+    }
+//same as /run in the background: returns the queued job to poll; 429 if the job queue is full
+    @PostMapping("/jobs/run")
+    public SimulationJob submitRun(@RequestParam(defaultValue = "1") int testId,
+            @RequestParam(required = false) Integer baristas,
+            @RequestParam(required = false) String policy) {
+        return simulationJobs.submitRun(scenario(testId), pool(baristas), policy);
+    }
+//same as /batch in the background
+    @PostMapping("/jobs/batch")
+    public SimulationJob submitBatch(@RequestParam(required = false) List<Integer> testIds,
+            @RequestParam(defaultValue = "100") int seeds,
+            @RequestParam(required = false) Integer baristas,
+            @RequestParam(required = false) String policy) {
+        return simulationJobs.submitBatch(scenarios(testIds), seeds(seeds), pool(baristas), policy);
+    }
+//same as /compare in the background
+    @PostMapping("/jobs/compare")
+    public SimulationJob submitCompare(@RequestParam(required = false) List<String> policies,
+            @RequestParam(required = false) List<Integer> testIds,
+            @RequestParam(defaultValue = "20") int seeds,
+            @RequestParam(required = false) Integer baristas) {
+        if (policies == null || policies.isEmpty())
+            policies = simulationService.policyNames();
+        return simulationJobs.submitCompare(policies, scenarios(testIds), seeds(seeds), pool(baristas));
+    }
+//state, progress (percent, events per second) and, once done, the result of a job
+    @GetMapping("/jobs/{jobId}")
+    public SimulationJob getJob(@PathVariable String jobId) {
+        return simulationJobs.get(jobId);
+    }
+
+    @GetMapping("/jobs")
+    public List<SimulationJob> getJobs() {
+        return simulationJobs.list();
+    }
+//cancels a queued or running job; it stops within a few thousand events
+    @DeleteMapping("/jobs/{jobId}")
+    public SimulationJob cancelJob(@PathVariable String jobId) {
+        return simulationJobs.cancel(jobId);
+    }
+
+//names accepted by policy= and policies=
+    @GetMapping("/policies")
+    public List<String> getPolicies() {
+        return simulationService.policyNames();
+    }
+//streams the latest run of a test as CSV (gzip=true for .csv.gz); 404 if it hasn't been run
+    @GetMapping("/{testId}/export")
+    public ResponseEntity<StreamingResponseBody> exportCsv(@PathVariable int testId,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        return csv(simulationService.getRun(testId), "simulation_results_test" + testId, gzip);
+    }
+//pages the latest run's orders with their results, in arrival order; from/to = arrival window (HH:mm[:ss]),
+//barista = barista ID, slaBreached = only (un)breached orders; 404 if it hasn't been run
+    @GetMapping("/{testId}/orders")
+    public SimOrderPage getOrders(@PathVariable int testId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime to,
+            @RequestParam(required = false) String barista,
+            @RequestParam(required = false) Boolean slaBreached,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "100") int limit) {
+        return simulationService.getOrderPage(testId, from, to, barista, slaBreached, offset, limit);
+    }
+//saves a generated scenario as a binary order stream (default seed and volume unless given)
+    @PostMapping("/scenarios/{name}")
+    public ScenarioFile saveScenario(@PathVariable String name,
+            @RequestParam(defaultValue = "1") int testId,
+            @RequestParam(required = false) Integer seed,
+            @RequestParam(required = false) Integer orders) throws IOException {
+        return scenarioLibrary.save(name, scenario(testId), seed, orders);
+    }
+
+    @GetMapping("/scenarios")
+    public List<ScenarioFile> getScenarios() throws IOException {
+        return scenarioLibrary.list();
+    }
+//replays a saved order stream; results are saved next to it, the summary is returned
+    @PostMapping("/scenarios/{name}/replay")
+    public SimulationRunSummary replayScenario(@PathVariable String name,
+            @RequestParam(required = false) Integer baristas,
+            @RequestParam(required = false) String policy) throws IOException {
+        return scenarioLibrary.replay(name, pool(baristas), policy);
+    }
+//streams the last replay's results as CSV, like /{testId}/export
+    @GetMapping("/scenarios/{name}/results")
+    public ResponseEntity<StreamingResponseBody> exportScenarioResults(@PathVariable String name,
+            @RequestParam(defaultValue = "false") boolean gzip) throws IOException {
+        return csv(scenarioLibrary.results(name), "scenario_results_" + name, gzip);
+    }
+
+    private ResponseEntity<StreamingResponseBody> csv(TestCase testCase, String basename, boolean gzip) {
+        String filename = basename + (gzip ? ".csv.gz" : ".csv");
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                        : MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(out -> csvExporter.writeResults(testCase, out, gzip));
     }
 //matches the frontend get call
     @GetMapping("/history")
     public List<TestCase> getHistory() {
         return simulationService.getHistory();
     }
+
+    // All scenarios by default; 400 for a test that doesn't exist
+    private static List<Integer> scenarios(List<Integer> testIds) {
+        if (testIds == null || testIds.isEmpty())
+            return IntStream.rangeClosed(1, SimulationService.SCENARIO_COUNT).boxed().toList();
+        for (int testId : testIds)
+            scenario(testId);
+        return testIds;
+    }
+
+    private static int scenario(int testId) {
+        if (testId < 1 || testId > SimulationService.SCENARIO_COUNT)
+            throw new IllegalArgumentException("testId must be between 1 and " + SimulationService.SCENARIO_COUNT);
+        return testId;
+    }
+
+    // Seeds per scenario, capped so one request can't queue millions of runs
+    private int seeds(int seeds) {
+        if (seeds < 1 || seeds > maxSeeds)
+            throw new IllegalArgumentException("seeds must be between 1 and " + maxSeeds);
+        return seeds;
+    }
+
+    // null = the configured pool
+    private static List<BaristaProfile> pool(Integer baristas) {
+        return baristas == null ? null : BaristaProfile.uniform(baristas);
+    }
 }
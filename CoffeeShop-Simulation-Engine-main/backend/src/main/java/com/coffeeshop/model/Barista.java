@@ -2,12 +2,20 @@ package com.coffeeshop.model;
 
 import lombok.Data;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
 @Data
 public class Barista {
     private String id; // e.g., "Barista 1"
     private boolean isBusy;
     private Order currentOrder;
+    private List<Order> batchedOrders = new ArrayList<>(); // made together with currentOrder (drink batching)
     private long busyUntilEpochMillis; // When they will be free
+    private double speedMultiplier = 1.0; // 2.0 = twice as fast
+    private Set<DrinkType> skills = EnumSet.allOf(DrinkType.class); // drinks this station can make
 
     public Barista(String id) {
         this.id = id;
@@ -15,4 +23,25 @@ public class Barista {
         this.currentOrder = null;
         this.busyUntilEpochMillis = 0;
     }
+
+    public Barista(BaristaProfile profile) {
+        this(profile.getId());
+        this.speedMultiplier = profile.getSpeedMultiplier();
+        this.skills = profile.getSkills();
+    }
+
+    /**
+     * Detached copy for readers; the scheduler keeps mutating the original.
+     */
+    public Barista copy() {
+        Barista c = new Barista(id);
+        c.isBusy = isBusy;
+        c.currentOrder = currentOrder == null ? null : currentOrder.copy();
+        for (Order o : batchedOrders)
+            c.batchedOrders.add(o.copy());
+        c.busyUntilEpochMillis = busyUntilEpochMillis;
+        c.speedMultiplier = speedMultiplier;
+        c.skills = skills; // never modified after construction
+        return c;
+    }
 }
@@ -0,0 +1,54 @@
+package com.coffeeshop.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Static description of one barista station: who it is, how fast it works and
+ * which drinks it can make.
+ */
+@Data
+public class BaristaProfile {
+    private String id; // e.g., "Barista 1"
+    private double speedMultiplier; // 2.0 = twice as fast as the standard prep time
+    private Set<DrinkType> skills; // drinks this station can make
+
+    public BaristaProfile(String id, double speedMultiplier, Set<DrinkType> skills) {
+        if (!(speedMultiplier > 0))
+            throw new IllegalArgumentException("Speed multiplier of " + id + " must be positive: " + speedMultiplier);
+        if (skills.isEmpty())
+            throw new IllegalArgumentException(id + " has no drink skills");
+        this.id = id;
+        this.speedMultiplier = speedMultiplier;
+        this.skills = EnumSet.copyOf(skills);
+    }
+
+    /**
+     * "Barista 1" .. "Barista {count}", standard speed, every drink.
+     */
+    public static List<BaristaProfile> uniform(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("At least one barista is needed: " + count);
+        if (count > Short.MAX_VALUE)
+            throw new IllegalArgumentException("At most " + Short.MAX_VALUE + " baristas: " + count);
+        List<BaristaProfile> profiles = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++)
+            profiles.add(new BaristaProfile("Barista " + i, 1.0, EnumSet.allOf(DrinkType.class)));
+        return profiles;
+    }
+
+    public int skillMask() {
+        return DrinkType.maskOf(skills);
+    }
+
+    /**
+     * Prep time at this station's speed, in the unit of {@code standardPrep}.
+     */
+    public long prepTime(long standardPrep) {
+        return speedMultiplier == 1.0 ? standardPrep : Math.round(standardPrep / speedMultiplier);
+    }
+}
@@ -0,0 +1,13 @@
+package com.coffeeshop.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchSimulationResult {
+    private List<SimulationRunSummary> runs; // in (testId, seed) order
+    private List<ScenarioStatistics> scenarios;
+    private int parallelism;
+    private long elapsedMillis;
+}
@@ -0,0 +1,18 @@
+package com.coffeeshop.model;
+
+import lombok.Data;
+
+/**
+ * One scenario without and with drink batching, averaged over its seeds.
+ */
+@Data
+public class BatchingGain {
+    private int testNumber;
+    private double unbatchedThroughputPerHour; // orders per hour
+    private double batchedThroughputPerHour;
+    private double throughputGainPercent;
+    private double unbatchedMeanSlaViolations;
+    private double batchedMeanSlaViolations;
+    private double unbatchedMeanWaitTimeP99; // minutes
+    private double batchedMeanWaitTimeP99;
+}
@@ -0,0 +1,17 @@
+package com.coffeeshop.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The same seeded order streams simulated without and with drink batching.
+ */
+@Data
+public class BatchingGainResult {
+    private String policy;
+    private int seedsPerTest;
+    private List<BatchingGain> scenarios; // by test number
+    private int parallelism;
+    private long elapsedMillis;
+}
@@ -1,5 +1,7 @@
 package com.coffeeshop.model;
 
+import java.util.Collection;
+
 public enum DrinkType {
     COLD_BREW(1, 120),
     ESPRESSO(2, 150),
@@ -8,6 +10,9 @@ public enum DrinkType {
     LATTE(4, 200),
     SPECIALTY_MOCHA(6, 250);
 
+    // Drink sets as bitmasks over ordinals, e.g. barista skills
+    public static final int ALL_MASK = (1 << values().length) - 1;
+
     private final int prepTimeMinutes;
     private final int priceInRupees;
 
@@ -23,4 +28,15 @@ public enum DrinkType {
     public int getPriceInRupees() {
         return priceInRupees;
     }
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public static int maskOf(Collection<DrinkType> drinks) {
+        int mask = 0;
+        for (DrinkType drink : drinks)
+            mask |= drink.bit();
+        return mask;
+    }
 }
@@ -31,6 +31,45 @@ public class Order {
         this.priorityScore = 0.0;
     }
 
+    /**
+     * Pre-built order with a known ID and arrival, e.g. a generated simulation
+     * order.
+     */
+    public Order(String id, String customerName, List<DrinkType> drinks, boolean isLoyal,
+            LocalDateTime arrivalTime) {
+        this.id = id;
+        this.customerName = customerName;
+        this.drinks = drinks;
+        this.isLoyal = isLoyal;
+        this.arrivalTime = arrivalTime;
+        this.status = OrderStatus.WAITING;
+        this.priorityScore = 0.0;
+    }
+
+    private Order() {
+    }
+
+    /**
+     * Detached copy for readers; the scheduler keeps mutating the original.
+     */
+    public Order copy() {
+        Order c = new Order();
+        c.id = id;
+        c.customerName = customerName;
+        c.drinks = drinks;
+        c.arrivalTime = arrivalTime;
+        c.status = status;
+        c.priorityScore = priorityScore;
+        c.isLoyal = isLoyal;
+        c.startTime = startTime;
+        c.completionTime = completionTime;
+        c.etaSeconds = etaSeconds;
+        c.priorityReason = priorityReason;
+        c.warningAlertSent = warningAlertSent;
+        c.breachAlertSent = breachAlertSent;
+        return c;
+    }
+
     public boolean isWarningAlertSent() {
         return warningAlertSent;
     }
@@ -0,0 +1,19 @@
+package com.coffeeshop.model;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scheduling policies run head-to-head on the same seeded order streams.
+ */
+@Data
+public class PolicyComparisonResult {
+    private List<String> policies;
+    private int seedsPerTest;
+    private List<ScenarioStatistics> scenarios; // by test number, then policy
+    private Map<Integer, String> bestPolicyByScenario; // test number -> policy
+    private int parallelism;
+    private long elapsedMillis;
+}
@@ -0,0 +1,15 @@
+package com.coffeeshop.model;
+
+import lombok.Data;
+
+/**
+ * A saved order stream that can be replayed by name.
+ */
+@Data
+public class ScenarioFile {
+    private String name;
+    private int testNumber;
+    private int orders;
+    private long sizeBytes;
+    private boolean hasResults; // a replay's results were saved next to it
+}
@@ -0,0 +1,22 @@
+package com.coffeeshop.model;
+
+import lombok.Data;
+
+/**
+ * One scenario aggregated over all seeds of a batch run, for one scheduling
+ * policy.
+ */
+@Data
+public class ScenarioStatistics {
+    private int testNumber;
+    private String policy;
+    private int runs;
+    private double meanSlaViolations;
+    private double stdDevSlaViolations;
+    private double slaViolationsCi95Low; // 95% confidence interval of the mean
+    private double slaViolationsCi95High;
+    private double meanAvgWaitTime; // minutes
+    private double meanWaitTimeP99; // minutes
+    private double worstMaxWaitTime; // minutes, across all seeds
+    private double meanThroughputPerHour; // orders per hour
+}
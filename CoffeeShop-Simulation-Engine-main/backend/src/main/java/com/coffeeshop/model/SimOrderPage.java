@@ -0,0 +1,17 @@
+package com.coffeeshop.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A page of a simulation run's orders matching a filter, in arrival order.
+ */
+@Data
+public class SimOrderPage {
+    private int testNumber;
+    private int total; // orders matching the filter
+    private int offset;
+    private Integer nextOffset; // null on the last page
+    private List<SimOrderResult> orders;
+}
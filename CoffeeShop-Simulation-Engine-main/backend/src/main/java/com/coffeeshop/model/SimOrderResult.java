@@ -0,0 +1,24 @@
+package com.coffeeshop.model;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * One order of a simulation run with its outcome.
+ */
+@Data
+public class SimOrderResult {
+    private String id;
+    private String customerName;
+    private DrinkType drink;
+    private boolean loyal;
+    private LocalDateTime arrivalTime;
+    private LocalDateTime startTime;
+    private LocalDateTime completionTime;
+    private double waitMinutes; // arrival -> completion
+    private boolean slaBreached; // waited more than 10 minutes
+    private double priorityScore; // when picked up
+    private String priorityReason;
+    private String barista; // who made it
+}
@@ -0,0 +1,253 @@
+package com.coffeeshop.model;
+
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Columnar store for the orders of one simulation run.
+ * <p>
+ * Every per-order field lives in a primitive array indexed by the order's
+ * position in the generated arrival sequence (which is also arrival order), so
+ * a simulated order costs ~28 bytes instead of a few hundred for an
+ * {@link Order} with its strings, list and LocalDateTimes. Ids and customer
+ * names are derived from the index. {@link Order} objects are only built when
+ * results leave the engine, one at a time, via {@link #order} or
+ * {@link #asOrderList}.
+ * <p>
+ * The input columns never change once the orders are added, so
+ * {@link #inputs} and {@link #newRun} share them between stores: generated
+ * orders are kept as inputs only (~9 bytes an order) and every run over them
+ * gets its own result columns.
+ */
+public class SimOrderStore {
+
+    // Reason codes, see REASON_LABELS
+    public static final byte REASON_STANDARD = 0;
+    public static final byte REASON_QUICK_ORDER = 1;
+    public static final byte REASON_GOLD_MEMBER = 2;
+    public static final byte REASON_URGENT = 3;
+
+    private static final String[] REASON_LABELS = {
+            "Standard Queue",
+            "⚡ Quick Order Bonus",
+            "👑 Gold Member Priority",
+            "⚠️ Urgent: Approaching Timeout!"
+    };
+    private static final DrinkType[] DRINK_TYPES = DrinkType.values();
+
+    private final int testNumber;
+    private final LocalDateTime base; // 7:00 AM of the run, relative second 0
+    private int size;
+
+    // Inputs, filled by add(); shared by the stores of inputs() and newRun()
+    private final int[] arrivalSeconds;
+    private final int[] prepSeconds;
+    private final byte[] drink; // DrinkType ordinal
+    private final BitSet loyal;
+
+    // Outputs, filled by complete(); null in a store of inputs()
+    private final int[] startSeconds;
+    private final int[] completionSeconds;
+    private final double[] priorityScore;
+    private final byte[] reason;
+    private final short[] barista; // index in the run's barista pool
+    private boolean inputsShared;
+
+    public SimOrderStore(int testNumber, LocalDateTime base, int capacity) {
+        this.testNumber = testNumber;
+        this.base = base;
+        this.arrivalSeconds = new int[capacity];
+        this.prepSeconds = new int[capacity];
+        this.drink = new byte[capacity];
+        this.loyal = new BitSet(capacity);
+        this.startSeconds = new int[capacity];
+        this.completionSeconds = new int[capacity];
+        this.priorityScore = new double[capacity];
+        this.reason = new byte[capacity];
+        this.barista = new short[capacity];
+    }
+
+    // Same inputs as from, no more to be added; result columns for resultCapacity orders, or none
+    private SimOrderStore(SimOrderStore from, int resultCapacity) {
+        this.testNumber = from.testNumber;
+        this.base = from.base;
+        this.size = from.size;
+        this.arrivalSeconds = from.arrivalSeconds;
+        this.prepSeconds = from.prepSeconds;
+        this.drink = from.drink;
+        this.loyal = from.loyal;
+        boolean results = resultCapacity >= 0;
+        this.startSeconds = results ? new int[resultCapacity] : null;
+        this.completionSeconds = results ? new int[resultCapacity] : null;
+        this.priorityScore = results ? new double[resultCapacity] : null;
+        this.reason = results ? new byte[resultCapacity] : null;
+        this.barista = results ? new short[resultCapacity] : null;
+        this.inputsShared = true;
+    }
+
+    /**
+     * The same orders without room for results, to keep and start runs from
+     * with {@link #newRun}. No more orders can be added to either store.
+     */
+    public SimOrderStore inputs() {
+        inputsShared = true;
+        return new SimOrderStore(this, -1);
+    }
+
+    /**
+     * The same orders with empty results, for another run over them.
+     */
+    public SimOrderStore newRun() {
+        inputsShared = true;
+        return new SimOrderStore(this, size);
+    }
+
+    /**
+     * Appends a generated order; arrivals must be added in non-decreasing order.
+     */
+    public int add(DrinkType drinkType, boolean isLoyal, int arrivalSecond) {
+        if (inputsShared)
+            throw new IllegalStateException("Orders are shared with another store");
+        int i = size++;
+        arrivalSeconds[i] = arrivalSecond;
+        prepSeconds[i] = drinkType.getPrepTimeMinutes() * 60; // min to sec
+        drink[i] = (byte) drinkType.ordinal();
+        if (isLoyal)
+            loyal.set(i);
+        return i;
+    }
+
+    /**
+     * Records the outcome of order {@code i}: when a barista picked it up, when
+     * it was done, the score/reason it was picked with and who made it.
+     */
+    public void complete(int i, int startSecond, int completionSecond, double score, byte reasonCode,
+            int baristaIndex) {
+        startSeconds[i] = startSecond;
+        completionSeconds[i] = completionSecond;
+        priorityScore[i] = score;
+        reason[i] = reasonCode;
+        barista[i] = (short) baristaIndex;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getTestNumber() {
+        return testNumber;
+    }
+
+    public LocalDateTime getBase() {
+        return base;
+    }
+
+    public int arrivalSeconds(int i) {
+        return arrivalSeconds[i];
+    }
+
+    public int prepSeconds(int i) {
+        return prepSeconds[i];
+    }
+
+    public int prepMinutes(int i) {
+        return DRINK_TYPES[drink[i]].getPrepTimeMinutes();
+    }
+
+    public DrinkType drink(int i) {
+        return DRINK_TYPES[drink[i]];
+    }
+
+    public int drinkOrdinal(int i) {
+        return drink[i];
+    }
+
+    public boolean isLoyal(int i) {
+        return loyal.get(i);
+    }
+
+    public int startSeconds(int i) {
+        return startSeconds[i];
+    }
+
+    public int completionSeconds(int i) {
+        return completionSeconds[i];
+    }
+
+    public double priorityScore(int i) {
+        return priorityScore[i];
+    }
+
+    public int barista(int i) {
+        return barista[i];
+    }
+
+    public byte reasonCode(int i) {
+        return reason[i];
+    }
+
+    public String priorityReason(int i) {
+        return REASON_LABELS[reason[i]];
+    }
+
+    public static String reasonLabel(byte reasonCode) {
+        return REASON_LABELS[reasonCode];
+    }
+
+    public String orderId(int i) {
+        return String.valueOf(1000 * testNumber + i); // 1001, 1002...
+    }
+
+    public String customerName(int i) {
+        return "Test" + testNumber + "-Cust" + (i + 1);
+    }
+
+    /**
+     * Number of orders per drink, indexed by {@link DrinkType#ordinal()}.
+     */
+    public int[] drinkCounts() {
+        int[] counts = new int[DRINK_TYPES.length];
+        for (int i = 0; i < size; i++)
+            counts[drink[i]]++;
+        return counts;
+    }
+
+    /**
+     * Builds a standalone {@link Order} for order {@code i}.
+     */
+    public Order order(int i) {
+        Order o = new Order(orderId(i), customerName(i), List.of(drink(i)), isLoyal(i),
+                base.plusSeconds(arrivalSeconds[i]));
+        o.setStatus(OrderStatus.COMPLETED);
+        o.setStartTime(base.plusSeconds(startSeconds[i]));
+        o.setCompletionTime(base.plusSeconds(completionSeconds[i]));
+        o.setPriorityScore(priorityScore[i]);
+        o.setPriorityReason(priorityReason(i));
+        return o;
+    }
+
+    /**
+     * Read-only list view in arrival order; each {@code get} materializes a
+     * fresh {@link Order}, so serializing the list never holds more than one.
+     */
+    public List<Order> asOrderList() {
+        return new OrderListView();
+    }
+
+    private class OrderListView extends AbstractList<Order> implements RandomAccess {
+        @Override
+        public Order get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return order(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
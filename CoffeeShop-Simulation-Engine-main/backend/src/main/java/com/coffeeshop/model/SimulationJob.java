@@ -0,0 +1,34 @@
+package com.coffeeshop.model;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * A simulation submitted to run in the background, as of when it was polled.
+ */
+@Data
+public class SimulationJob {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED,
+        CANCELLED
+    }
+
+    private String id;
+    private String type; // run, batch, compare or batching-gain
+    private State state;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long ordersTotal; // over all of its runs
+    private long ordersDone;
+    private double percentComplete;
+    private long eventsProcessed; // engine events: arrivals and baristas becoming free
+    private double eventsPerSecond; // since the job started
+    private String error; // why it failed
+    private Object result; // once done: TestCase, BatchSimulationResult, PolicyComparisonResult or BatchingGainResult
+}
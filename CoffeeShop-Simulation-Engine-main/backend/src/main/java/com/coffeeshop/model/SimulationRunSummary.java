@@ -0,0 +1,19 @@
+package com.coffeeshop.model;
+
+import lombok.Data;
+
+/**
+ * Headline numbers of one simulation run in a batch (no per-order detail).
+ */
+@Data
+public class SimulationRunSummary {
+    private int testNumber;
+    private String policy;
+    private int seed;
+    private int totalOrders;
+    private double avgWaitTime; // minutes
+    private double maxWaitTime; // minutes
+    private double waitTimeP99; // minutes
+    private int slaViolations;
+    private double throughputPerHour;
+}
@@ -1,25 +1,58 @@
 package com.coffeeshop.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Data
 public class TestCase {
     private String id;
     private int testNumber;
+    private String policy; // scheduling policy the run ranked its queue with
     private int totalOrders;
     private double avgWaitTime; // minutes
     private double maxWaitTime; // minutes
-    private int barista1Count;
-    private int barista2Count;
-    private int barista3Count;
+    private double waitTimeP50; // minutes
+    private double waitTimeP90; // minutes
+    private double waitTimeP99; // minutes
+    private double waitTimeP999; // minutes
+    private long queueDepthP50; // orders waiting when a barista picks up
+    private long queueDepthP99;
+    private Map<String, Integer> baristaCounts; // orders per barista, in barista order
     private int slaViolations;
-    private List<Order> orders;
+    private double throughputPerHour; // orders, first arrival to last completion
+    // Per-order results stay server side; they are paged by /api/simulation/{testId}/orders
+    @JsonIgnore
+    private List<Order> orders; // lazy view over orderStore for simulated runs
+    @JsonIgnore
+    private SimOrderStore orderStore; // columnar per-order results of a simulated run
 
     public TestCase(int testNumber, int totalOrders) {
         this.id = UUID.randomUUID().toString();
         this.testNumber = testNumber;
         this.totalOrders = totalOrders;
     }
+
+    /**
+     * Copy with the metrics only, without the per-order results.
+     */
+    public TestCase summary() {
+        TestCase c = new TestCase(testNumber, totalOrders);
+        c.id = id;
+        c.policy = policy;
+        c.avgWaitTime = avgWaitTime;
+        c.maxWaitTime = maxWaitTime;
+        c.waitTimeP50 = waitTimeP50;
+        c.waitTimeP90 = waitTimeP90;
+        c.waitTimeP99 = waitTimeP99;
+        c.waitTimeP999 = waitTimeP999;
+        c.queueDepthP50 = queueDepthP50;
+        c.queueDepthP99 = queueDepthP99;
+        c.baristaCounts = baristaCounts;
+        c.slaViolations = slaViolations;
+        c.throughputPerHour = throughputPerHour;
+        return c;
+    }
 }
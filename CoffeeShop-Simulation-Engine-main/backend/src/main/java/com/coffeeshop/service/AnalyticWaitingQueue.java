@@ -0,0 +1,315 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Order;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Waiting queue that never rescans its orders.
+ * <p>
+ * Under a {@link SchedulingPolicy} an order's score is
+ * {@code intercept + slope * wait}, where the slope is the same for every order
+ * on the same side of the policy's urgency cliff (480s for WEIGHTED). So within
+ * each side the ranking is fixed at arrival: rank key =
+ * {@code intercept - slope * arrival}, and score(now) = {@code key + slope * now}.
+ * Orders live in one of two heaps ("rising" below the cliff, "urgent" above it);
+ * the best order is the better of the two heap tops evaluated at one shared
+ * clock. The only time an order's relative position changes is when it crosses
+ * the cliff, which is scheduled as an event at arrival + crossover, alongside the
+ * SLA warning (540s) and breach (601s, past the 600s limit) checks.
+ * <p>
+ * Per-tick cost is O(due events * log n), independent of queue length.
+ * <p>
+ * Each heap has an {@link OrderRankTree} on the same keys next to it, so the
+ * number of orders ahead of a score, and with it an order's position, is
+ * O(log n), and pages of the queue are walked without sorting it. A third tree
+ * ranks every order by its urgent key, the order a long queue ends up being
+ * served in, for ETAs.
+ */
+class AnalyticWaitingQueue implements WaitingQueue {
+
+    private enum EventKind {
+        URGENCY_CROSSOVER, SLA_CHECK
+    }
+
+    private record TimedEvent(double atSeconds, long sequence, EventKind kind, Order order) {
+    }
+
+    private static final int SLA_WARNING_SECONDS = 540;
+
+    private final SchedulingPolicy policy;
+    private final double risingSlope; // points per second
+    private final double urgentSlope;
+    private final double urgentBoost;
+    private final LocalDateTime origin = LocalDateTime.now(); // shared clock, kept small for precision
+    private final IndexedOrderQueue rising = new IndexedOrderQueue();
+    private final IndexedOrderQueue urgent = new IndexedOrderQueue();
+    private final OrderRankTree risingRanks = new OrderRankTree();
+    private final OrderRankTree urgentRanks = new OrderRankTree();
+    private final OrderRankTree onceUrgentRanks = new OrderRankTree(); // every order, by urgent key
+    private final PriorityQueue<TimedEvent> events = new PriorityQueue<>((a, b) -> a.atSeconds() != b.atSeconds()
+            ? Double.compare(a.atSeconds(), b.atSeconds())
+            : Long.compare(a.sequence(), b.sequence()));
+    private long nextSequence;
+
+    AnalyticWaitingQueue(SchedulingPolicy policy) {
+        this.policy = policy;
+        this.risingSlope = (double) policy.risingSlope() / policy.unitsPerPoint();
+        this.urgentSlope = (double) policy.urgentSlope() / policy.unitsPerPoint();
+        this.urgentBoost = (double) policy.urgentBoost() / policy.unitsPerPoint();
+    }
+
+    @Override
+    public void add(Order order, LocalDateTime now) {
+        double arrival = clock(order.getArrivalTime());
+        double intercept = policy.staticIntercept(order);
+        double crossover = arrival + policy.crossoverSeconds();
+        onceUrgentRanks.add(order, urgentKey(intercept, arrival));
+
+        if (clock(now) > crossover) {
+            addUrgent(order, urgentKey(intercept, arrival));
+        } else {
+            double key = risingKey(intercept, arrival);
+            rising.add(order, key);
+            risingRanks.add(order, key);
+            if (policy.crossoverSeconds() != SchedulingPolicy.NO_CROSSOVER)
+                schedule(crossover, EventKind.URGENCY_CROSSOVER, order);
+        }
+        if (!order.isWarningAlertSent())
+            schedule(arrival + SLA_WARNING_SECONDS, EventKind.SLA_CHECK, order);
+        if (!order.isBreachAlertSent())
+            schedule(arrival + LiveStatistics.SLA_LIMIT_SECONDS + 1, EventKind.SLA_CHECK, order); // first whole second over
+        policy.applyScore(order, clock(now) - arrival);
+    }
+
+    @Override
+    public void advance(LocalDateTime now, Consumer<Order> slaCheck) {
+        double nowSeconds = clock(now);
+        while (!events.isEmpty() && events.peek().atSeconds() <= nowSeconds) {
+            TimedEvent event = events.poll();
+            Order order = event.order();
+            if (event.kind() == EventKind.URGENCY_CROSSOVER) {
+                if (rising.remove(order.getId()) != null) {
+                    risingRanks.remove(order.getId());
+                    double arrival = clock(order.getArrivalTime());
+                    addUrgent(order, urgentKey(policy.staticIntercept(order), arrival));
+                }
+            } else if (contains(order.getId())) {
+                slaCheck.accept(order);
+            }
+        }
+    }
+
+    @Override
+    public Order poll(LocalDateTime now) {
+        double nowSeconds = clock(now);
+        IndexedOrderQueue best = pick(nowSeconds);
+        if (best == null)
+            return null;
+        Order order = best.poll();
+        (best == rising ? risingRanks : urgentRanks).remove(order.getId());
+        onceUrgentRanks.remove(order.getId());
+        policy.applyScore(order, nowSeconds - clock(order.getArrivalTime()));
+        return order;
+    }
+
+    @Override
+    public double headScore(LocalDateTime now) {
+        double nowSeconds = clock(now);
+        IndexedOrderQueue best = pick(nowSeconds);
+        if (best == null)
+            return Double.NEGATIVE_INFINITY;
+        double slope = best == rising ? risingSlope : urgentSlope;
+        return best.peekKey() + slope * nowSeconds;
+    }
+
+    @Override
+    public Order remove(String orderId) {
+        risingRanks.remove(orderId);
+        urgentRanks.remove(orderId);
+        onceUrgentRanks.remove(orderId);
+        Order removed = rising.remove(orderId);
+        return removed != null ? removed : urgent.remove(orderId);
+    }
+
+    @Override
+    public double score(String orderId, LocalDateTime now) {
+        double nowSeconds = clock(now);
+        double key = risingRanks.keyOf(orderId);
+        if (!Double.isNaN(key))
+            return key + risingSlope * nowSeconds;
+        return urgentRanks.keyOf(orderId) + urgentSlope * nowSeconds; // NaN if absent
+    }
+
+    // Its rank on its own side (ties by insertion, as in the heap), plus the
+    // orders on the other side pick() serves first: urgent ones win score ties.
+    // Scores are computed exactly as pick() computes them.
+    @Override
+    public int position(String orderId, LocalDateTime now) {
+        double nowSeconds = clock(now);
+        double risingKey = risingRanks.keyOf(orderId);
+        if (!Double.isNaN(risingKey)) {
+            double score = risingKey + risingSlope * nowSeconds;
+            return risingRanks.rank(orderId) + urgentRanks.countWhere(k -> k + urgentSlope * nowSeconds >= score) + 1;
+        }
+        double urgentKey = urgentRanks.keyOf(orderId);
+        if (!Double.isNaN(urgentKey)) {
+            double score = urgentKey + urgentSlope * nowSeconds;
+            return urgentRanks.rank(orderId) + risingRanks.countWhere(k -> k + risingSlope * nowSeconds > score) + 1;
+        }
+        return 0;
+    }
+
+    @Override
+    public int countAbove(double score, LocalDateTime now) {
+        double nowSeconds = clock(now);
+        return risingRanks.countWhere(k -> k + risingSlope * nowSeconds > score)
+                + urgentRanks.countWhere(k -> k + urgentSlope * nowSeconds > score);
+    }
+
+    @Override
+    public int countAtLeast(double score, LocalDateTime now) {
+        double nowSeconds = clock(now);
+        return risingRanks.countWhere(k -> k + risingSlope * nowSeconds >= score)
+                + urgentRanks.countWhere(k -> k + urgentSlope * nowSeconds >= score);
+    }
+
+    @Override
+    public long prepMinutesAbove(double score, LocalDateTime now) {
+        double nowSeconds = clock(now);
+        return risingRanks.prepMinutesAbove(score - risingSlope * nowSeconds)
+                + urgentRanks.prepMinutesAbove(score - urgentSlope * nowSeconds);
+    }
+
+    @Override
+    public long prepMinutesAboveOnceUrgent(double urgentScore, LocalDateTime at) {
+        return onceUrgentRanks.prepMinutesAbove(urgentScore - urgentSlope * clock(at));
+    }
+
+    @Override
+    public Iterator<Order> from(double maxScore, LocalDateTime now) {
+        double nowSeconds = clock(now);
+        return new MergedOrderIterator(List.of( // urgent first: it wins score ties
+                scored(urgentRanks.from(maxScore - urgentSlope * nowSeconds), nowSeconds),
+                scored(risingRanks.from(maxScore - risingSlope * nowSeconds), nowSeconds)),
+                o -> score(o, nowSeconds));
+    }
+
+    private Iterator<Order> scored(Iterator<Order> orders, double nowSeconds) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return orders.hasNext();
+            }
+
+            @Override
+            public Order next() {
+                Order order = orders.next();
+                policy.applyScore(order, nowSeconds - clock(order.getArrivalTime()));
+                return order;
+            }
+        };
+    }
+
+    @Override
+    public LocalDateTime nextDueEvent(LocalDateTime now) {
+        if (events.isEmpty())
+            return null;
+        return origin.plusNanos((long) Math.ceil(events.peek().atSeconds() * 1e9));
+    }
+
+    @Override
+    public boolean contains(String orderId) {
+        return rising.contains(orderId) || urgent.contains(orderId);
+    }
+
+    @Override
+    public Order get(String orderId) {
+        Order order = rising.get(orderId);
+        return order != null ? order : urgent.get(orderId);
+    }
+
+    @Override
+    public int size() {
+        return rising.size() + urgent.size();
+    }
+
+    @Override
+    public List<Order> snapshot(LocalDateTime now) {
+        return merge(now, rising.sortedSnapshot(), urgent.sortedSnapshot(), size());
+    }
+
+    @Override
+    public List<Order> head(LocalDateTime now, int limit) {
+        return merge(now, rising.top(limit), urgent.top(limit), limit);
+    }
+
+    // Scores both heaps' orders for now and merges them as pick() would; each is already in score order
+    private List<Order> merge(LocalDateTime now, List<Order> risingOrders, List<Order> urgentOrders, int limit) {
+        double nowSeconds = clock(now);
+        for (Order o : risingOrders)
+            policy.applyScore(o, nowSeconds - clock(o.getArrivalTime()));
+        for (Order o : urgentOrders)
+            policy.applyScore(o, nowSeconds - clock(o.getArrivalTime()));
+
+        List<Order> merged = new ArrayList<>(Math.min(limit, risingOrders.size() + urgentOrders.size()));
+        int r = 0, u = 0;
+        while (merged.size() < limit && (r < risingOrders.size() || u < urgentOrders.size())) {
+            if (u >= urgentOrders.size() || (r < risingOrders.size()
+                    && score(risingOrders.get(r), nowSeconds) > score(urgentOrders.get(u), nowSeconds))) {
+                merged.add(risingOrders.get(r++));
+            } else {
+                merged.add(urgentOrders.get(u++));
+            }
+        }
+        return merged;
+    }
+
+    // Score of a waiting order as pick() computes it; the policy's own scoreAt
+    // can round differently, so orders are never compared by priorityScore
+    private double score(Order order, double nowSeconds) {
+        double key = risingRanks.keyOf(order.getId());
+        return !Double.isNaN(key) ? key + risingSlope * nowSeconds
+                : urgentRanks.keyOf(order.getId()) + urgentSlope * nowSeconds;
+    }
+
+    private void addUrgent(Order order, double key) {
+        urgent.add(order, key);
+        urgentRanks.add(order, key);
+    }
+
+    // Heap whose top has the higher score at nowSeconds; urgent wins ties
+    private IndexedOrderQueue pick(double nowSeconds) {
+        if (rising.isEmpty() && urgent.isEmpty())
+            return null;
+        if (rising.isEmpty())
+            return urgent;
+        if (urgent.isEmpty())
+            return rising;
+        double risingScore = rising.peekKey() + risingSlope * nowSeconds;
+        double urgentScore = urgent.peekKey() + urgentSlope * nowSeconds;
+        return risingScore > urgentScore ? rising : urgent;
+    }
+
+    private void schedule(double atSeconds, EventKind kind, Order order) {
+        events.add(new TimedEvent(atSeconds, nextSequence++, kind, order));
+    }
+
+    private double risingKey(double intercept, double arrival) {
+        return intercept - risingSlope * arrival;
+    }
+
+    private double urgentKey(double intercept, double arrival) {
+        return intercept + urgentBoost - urgentSlope * arrival;
+    }
+
+    private double clock(LocalDateTime time) {
+        return Duration.between(origin, time).toNanos() / 1e9;
+    }
+}
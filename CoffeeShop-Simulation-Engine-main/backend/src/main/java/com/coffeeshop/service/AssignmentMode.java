@@ -0,0 +1,11 @@
+package com.coffeeshop.service;
+
+/**
+ * How the live scheduler hands waiting orders to free baristas.
+ */
+public enum AssignmentMode {
+    /** One barista at a time, lowest numbered first (original behaviour). */
+    GREEDY,
+    /** All free baristas at once, matched by skill and prep time, see {@link BatchAssignment}. */
+    MATCHING
+}
@@ -0,0 +1,300 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.DrinkType;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Who is free and when, over barista indices, for both the live scheduler
+ * (epoch millis) and the simulator (relative seconds).
+ * <p>
+ * Busy baristas sit in an indexed min-heap on the time they become free
+ * (ties: lower index first). Idle baristas are grouped by skill set, each group
+ * a min-heap of indices, so "the lowest-numbered idle barista that can make
+ * something waiting" looks at one heap top per distinct skill set (usually
+ * one). Both heaps track each barista's slot, so any barista, not just a heap
+ * top, is moved between them in O(log pool size).
+ * <p>
+ * Not thread-safe; owned by the scheduler loop or a single simulation run.
+ */
+class BaristaPool {
+
+    private final int[] skillMask; // per barista
+    private final int[] skillClass; // per barista
+    private final int[] classMask; // per skill set
+    private final long[] freeAt; // per barista, valid while busy
+
+    private final int[] busyHeap;
+    private final int[] busySlot; // barista -> slot in busyHeap, -1 if idle
+    private int busyCount;
+
+    private final int[][] idleHeap; // per skill set
+    private final int[] idleCount;
+    private final int[] idleSlot; // barista -> slot in its skill set's idleHeap, -1 if busy
+
+    BaristaPool(List<BaristaProfile> profiles) {
+        BaristaRoster.checkCoverage(profiles);
+        int n = profiles.size();
+        this.skillMask = new int[n];
+        this.skillClass = new int[n];
+        this.freeAt = new long[n];
+        this.busyHeap = new int[n];
+        this.busySlot = new int[n];
+        this.idleSlot = new int[n];
+        Arrays.fill(busySlot, -1);
+
+        Map<Integer, Integer> classes = new LinkedHashMap<>();
+        for (int b = 0; b < n; b++) {
+            skillMask[b] = profiles.get(b).skillMask();
+            skillClass[b] = classes.computeIfAbsent(skillMask[b], mask -> classes.size());
+        }
+        this.classMask = classes.keySet().stream().mapToInt(Integer::intValue).toArray();
+        this.idleHeap = new int[classMask.length][];
+        this.idleCount = new int[classMask.length];
+        for (int b = 0; b < n; b++) {
+            int c = skillClass[b];
+            if (idleHeap[c] == null)
+                idleHeap[c] = new int[n];
+            idleSlot[b] = idleCount[c];
+            idleHeap[c][idleCount[c]++] = b; // ascending, already a heap
+        }
+    }
+
+    int size() {
+        return skillMask.length;
+    }
+
+    int skillMask(int barista) {
+        return skillMask[barista];
+    }
+
+    /**
+     * True if some barista can't make every drink, i.e. waiting orders must be
+     * matched by skill.
+     */
+    boolean hasSpecialists() {
+        return classMask.length > 1 || classMask[0] != DrinkType.ALL_MASK;
+    }
+
+    boolean isBusy(int barista) {
+        return busySlot[barista] >= 0;
+    }
+
+    /**
+     * When the next busy barista frees up, or Long.MAX_VALUE if nobody is busy.
+     */
+    long nextFreeAt() {
+        return busyCount == 0 ? Long.MAX_VALUE : freeAt[busyHeap[0]];
+    }
+
+    /**
+     * Frees the busy barista that becomes free first, if that is at or before
+     * {@code now}, and returns it; -1 otherwise.
+     */
+    int releaseNext(long now) {
+        if (busyCount == 0 || freeAt[busyHeap[0]] > now)
+            return -1;
+        int barista = busyHeap[0];
+        release(barista);
+        return barista;
+    }
+
+    /**
+     * Frees a busy barista regardless of its free time (e.g. a completion timer
+     * fired a little early by the wall clock).
+     */
+    void release(int barista) {
+        int slot = busySlot[barista];
+        if (slot < 0)
+            return;
+        busySlot[barista] = -1;
+        int last = busyHeap[--busyCount];
+        if (slot < busyCount) {
+            busyHeap[slot] = last;
+            busySlot[last] = slot;
+            siftDownBusy(slot);
+            siftUpBusy(busySlot[last]);
+        }
+        int c = skillClass[barista];
+        siftUpIdle(c, idleCount[c]++, barista);
+    }
+
+    /**
+     * The lowest-numbered idle barista whose skill mask passes
+     * {@code hasWorkFor}, or -1.
+     */
+    int nextIdleFor(IntPredicate hasWorkFor) {
+        int best = -1;
+        for (int c = 0; c < classMask.length; c++) {
+            if (idleCount[c] == 0)
+                continue;
+            int candidate = idleHeap[c][0];
+            if ((best == -1 || candidate < best) && hasWorkFor.test(classMask[c]))
+                best = candidate;
+        }
+        return best;
+    }
+
+    /**
+     * The {@code limit} lowest-numbered idle baristas whose skill mask passes
+     * {@code hasWorkFor} (all of them if fewer), ascending. Walks at most
+     * {@code limit} entries of each skill set's heap, so a large idle pool
+     * costs O(skill sets * limit * log limit), not a sort of everyone idle.
+     */
+    int[] idleFor(IntPredicate hasWorkFor, int limit) {
+        int[] idle = new int[0];
+        int count = 0;
+        for (int c = 0; c < classMask.length; c++) {
+            if (idleCount[c] == 0 || !hasWorkFor.test(classMask[c]))
+                continue;
+            // Smallest first from this heap: a frontier of slots, itself a min-heap by barista
+            int[] heap = idleHeap[c];
+            int take = Math.min(limit, idleCount[c]);
+            if (idle.length < count + take)
+                idle = Arrays.copyOf(idle, count + take);
+            int[] frontier = new int[2 * take + 1];
+            int frontierSize = 0;
+            frontierSize = pushSlot(frontier, frontierSize, heap, 0);
+            for (int k = 0; k < take; k++) {
+                int slot = frontier[0];
+                frontier[0] = frontier[--frontierSize];
+                siftDownSlots(frontier, frontierSize, heap);
+                idle[count++] = heap[slot];
+                if (2 * slot + 1 < idleCount[c])
+                    frontierSize = pushSlot(frontier, frontierSize, heap, 2 * slot + 1);
+                if (2 * slot + 2 < idleCount[c])
+                    frontierSize = pushSlot(frontier, frontierSize, heap, 2 * slot + 2);
+            }
+        }
+        Arrays.sort(idle, 0, count);
+        return Arrays.copyOf(idle, Math.min(count, limit));
+    }
+
+    private static int pushSlot(int[] frontier, int size, int[] heap, int slot) {
+        int idx = size;
+        while (idx > 0 && heap[frontier[(idx - 1) >>> 1]] > heap[slot]) {
+            frontier[idx] = frontier[(idx - 1) >>> 1];
+            idx = (idx - 1) >>> 1;
+        }
+        frontier[idx] = slot;
+        return size + 1;
+    }
+
+    private static void siftDownSlots(int[] frontier, int size, int[] heap) {
+        if (size == 0)
+            return;
+        int slot = frontier[0], idx = 0;
+        while (true) {
+            int child = 2 * idx + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && heap[frontier[child + 1]] < heap[frontier[child]])
+                child++;
+            if (heap[frontier[child]] > heap[slot])
+                break;
+            frontier[idx] = frontier[child];
+            idx = child;
+        }
+        frontier[idx] = slot;
+    }
+
+    /**
+     * Marks an idle barista busy until {@code until}, in O(log pool size).
+     */
+    void occupy(int barista, long until) {
+        int slot = idleSlot[barista];
+        if (slot < 0)
+            throw new IllegalStateException("Barista " + barista + " is not idle");
+        int c = skillClass[barista];
+        int[] heap = idleHeap[c];
+        idleSlot[barista] = -1;
+        int last = heap[--idleCount[c]];
+        if (slot < idleCount[c]) {
+            // The last entry fills the hole, then sinks or rises into place
+            siftDownIdle(c, slot, last);
+            if (idleSlot[last] == slot)
+                siftUpIdle(c, slot, last);
+        }
+
+        freeAt[barista] = until;
+        busyHeap[busyCount] = barista;
+        busySlot[barista] = busyCount;
+        siftUpBusy(busyCount++);
+    }
+
+    // Places barista at or above slot idx of its skill set's idle heap
+    private void siftUpIdle(int c, int idx, int barista) {
+        int[] heap = idleHeap[c];
+        while (idx > 0) {
+            int parent = (idx - 1) >>> 1;
+            if (heap[parent] < barista)
+                break;
+            heap[idx] = heap[parent];
+            idleSlot[heap[idx]] = idx;
+            idx = parent;
+        }
+        heap[idx] = barista;
+        idleSlot[barista] = idx;
+    }
+
+    // Places barista at or below slot idx of its skill set's idle heap
+    private void siftDownIdle(int c, int idx, int barista) {
+        int[] heap = idleHeap[c];
+        int size = idleCount[c];
+        while (true) {
+            int child = 2 * idx + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && heap[child + 1] < heap[child])
+                child++;
+            if (heap[child] > barista)
+                break;
+            heap[idx] = heap[child];
+            idleSlot[heap[idx]] = idx;
+            idx = child;
+        }
+        heap[idx] = barista;
+        idleSlot[barista] = idx;
+    }
+
+    private boolean freesEarlier(int a, int b) {
+        return freeAt[a] < freeAt[b] || (freeAt[a] == freeAt[b] && a < b);
+    }
+
+    private void siftUpBusy(int idx) {
+        int barista = busyHeap[idx];
+        while (idx > 0) {
+            int parent = (idx - 1) >>> 1;
+            if (!freesEarlier(barista, busyHeap[parent]))
+                break;
+            busyHeap[idx] = busyHeap[parent];
+            busySlot[busyHeap[idx]] = idx;
+            idx = parent;
+        }
+        busyHeap[idx] = barista;
+        busySlot[barista] = idx;
+    }
+
+    private void siftDownBusy(int idx) {
+        int barista = busyHeap[idx];
+        while (true) {
+            int child = 2 * idx + 1;
+            if (child >= busyCount)
+                break;
+            if (child + 1 < busyCount && freesEarlier(busyHeap[child + 1], busyHeap[child]))
+                child++;
+            if (!freesEarlier(busyHeap[child], barista))
+                break;
+            busyHeap[idx] = busyHeap[child];
+            busySlot[busyHeap[idx]] = idx;
+            idx = child;
+        }
+        busyHeap[idx] = barista;
+        busySlot[barista] = idx;
+    }
+}
@@ -0,0 +1,76 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.DrinkType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The configured barista pool, shared by the live scheduler and as the default
+ * pool of the simulator. See coffeeshop.baristas.* in application.properties.
+ */
+@Component
+public class BaristaRoster {
+
+    private final List<BaristaProfile> profiles;
+
+    /**
+     * @param count  number of baristas
+     * @param speeds optional comma-separated speed multipliers, in barista order;
+     *               missing entries are 1.0
+     * @param skills optional comma-separated skill sets, in barista order, each
+     *               ALL or drink types joined by '+'; missing entries are ALL
+     */
+    public BaristaRoster(@Value("${coffeeshop.baristas.count:3}") int count,
+            @Value("${coffeeshop.baristas.speeds:}") String speeds,
+            @Value("${coffeeshop.baristas.skills:}") String skills) {
+        String[] speedList = split(speeds);
+        String[] skillList = split(skills);
+        if (speedList.length > count || skillList.length > count)
+            throw new IllegalArgumentException("More speeds/skills configured than the " + count + " baristas");
+
+        List<BaristaProfile> pool = new ArrayList<>(count);
+        for (BaristaProfile base : BaristaProfile.uniform(count)) {
+            int i = pool.size();
+            double speed = i < speedList.length ? Double.parseDouble(speedList[i]) : 1.0;
+            Set<DrinkType> drinks = i < skillList.length ? parseSkills(skillList[i]) : EnumSet.allOf(DrinkType.class);
+            pool.add(new BaristaProfile(base.getId(), speed, drinks));
+        }
+        this.profiles = List.copyOf(pool);
+        checkCoverage(profiles);
+    }
+
+    public List<BaristaProfile> getProfiles() {
+        return profiles;
+    }
+
+    /**
+     * Fails if some drink can't be made by any barista; such an order would
+     * wait forever.
+     */
+    static void checkCoverage(List<BaristaProfile> profiles) {
+        Set<DrinkType> uncovered = EnumSet.allOf(DrinkType.class);
+        for (BaristaProfile p : profiles)
+            uncovered.removeAll(p.getSkills());
+        if (!uncovered.isEmpty())
+            throw new IllegalArgumentException("No barista can make " + uncovered);
+    }
+
+    private static String[] split(String list) {
+        return list == null || list.isBlank() ? new String[0] : list.trim().split("\\s*,\\s*");
+    }
+
+    private static Set<DrinkType> parseSkills(String skills) {
+        if (skills.equalsIgnoreCase("ALL"))
+            return EnumSet.allOf(DrinkType.class);
+        Set<DrinkType> drinks = EnumSet.noneOf(DrinkType.class);
+        for (String name : skills.split("\\s*\\+\\s*"))
+            drinks.add(DrinkType.valueOf(name.trim().toUpperCase()));
+        return drinks;
+    }
+}
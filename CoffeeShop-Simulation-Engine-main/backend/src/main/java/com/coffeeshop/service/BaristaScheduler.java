@@ -1,167 +1,683 @@
 package com.coffeeshop.service;
 
 import com.coffeeshop.model.Barista;
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.DrinkType;
 import com.coffeeshop.model.Order;
 import com.coffeeshop.model.OrderStatus;
-import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.stream.Collectors;
-
-@Service
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Live scheduler for one store. All scheduler state (queue, baristas, history)
+ * is owned by a single writer, the {@link SchedulerLoop} thread the store is
+ * pinned to. Request threads hand orders over through the loop's lock-free
+ * inbox and read detached copies, so intake, assignment and reads never race
+ * and never share a global lock. Stores are created and pinned by
+ * {@link StoreRegistry}; several stores can share one loop.
+ * <p>
+ * With an {@link OrderJournal}, every state change is journaled on the loop and
+ * the store starts from whatever the journal recovered.
+ * <p>
+ * With a {@link LiveFeed}, events are also collected on the loop and flushed
+ * to the store's stream subscribers once per feed tick.
+ */
 public class BaristaScheduler {
 
-    private final List<Barista> baristas;
-    private final ConcurrentLinkedQueue<Order> waitingQueue;
-    private final List<Order> completedOrders; // NEW: History
-    private final PriorityCalculator priorityCalculator;
+    // Demo time scale: a drink that takes 1 min to make takes 5 s here
+    static final long PREP_MILLIS_PER_MINUTE = 5_000;
+    // Orders from the top of the queue considered per free barista in a batch
+    private static final int BATCH_CANDIDATES_PER_BARISTA = 4;
+    // Most free baristas matched in one batch (the matching is cubic in them);
+    // anyone beyond is served greedily right after, in O(log pool size) each
+    static final int MAX_BATCH_BARISTAS = 16;
+    // Queue depth is sampled on a fixed tick, not per pass, so its percentiles
+    // are time-weighted: a burst of passes doesn't outweigh a quiet minute
+    static final long QUEUE_DEPTH_SAMPLE_MILLIS = 1_000;
+    static final int QUEUE_DEPTH_MINUTES_RETAINED = 60;
+    // Longest a reader waits on the loop, so a stuck loop can't hold request threads forever
+    static final long READ_TIMEOUT_MILLIS = 5_000;
+
+    /**
+     * Queue depth over one wall-clock minute, from the samples taken in it.
+     */
+    public record QueueDepthMinute(LocalDateTime minute, long samples, double mean, long p50, long p90, long p99,
+            long max) {
+
+        static QueueDepthMinute of(long minuteStartMillis, LatencyHistogram depth) {
+            return new QueueDepthMinute(
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(minuteStartMillis), ZoneId.systemDefault()),
+                    depth.count(), depth.mean(), depth.percentile(50), depth.percentile(90), depth.percentile(99),
+                    depth.max());
+        }
+    }
 
-    public BaristaScheduler(PriorityCalculator priorityCalculator) {
-        this.priorityCalculator = priorityCalculator;
-        this.waitingQueue = new ConcurrentLinkedQueue<>();
-        this.completedOrders = new ArrayList<>();
+    private final String storeId;
+    private final List<BaristaProfile> profiles;
+    private final List<Barista> baristas; // loop thread only, same order as profiles
+    private final BaristaPool pool; // who is free and when, by index into baristas (loop thread only)
+    private volatile List<Barista> baristaView; // immutable copy published after each pass
+    private final WaitingQueue waitingQueue; // single source of truth for /api/queue and assignment
+    private final CompletedHistory history; // NEW: History, recent ring + per-minute aggregates (loop thread only)
+    private final LiveStatistics statistics = new LiveStatistics();
+    private final EtaEstimator etas; // loop thread only
+    private final LatencyHistogram waitTimeMillis = new LatencyHistogram(); // arrival -> completion
+    private final LatencyHistogram prepTimeMillis = new LatencyHistogram(); // start -> completion
+    private final LatencyHistogram queueDepth = new LatencyHistogram(); // all time, one sample per tick
+    private final LatencyHistogram queueDepthMinute = new LatencyHistogram(); // minute in progress (loop thread only)
+    private long queueDepthMinuteStart; // epoch millis (loop thread only)
+    private final ArrayDeque<QueueDepthMinute> queueDepthMinutes = new ArrayDeque<>(); // finished, oldest first
+    private final SchedulingPolicy policy;
+    private final DispatchMode dispatchMode;
+    private final AssignmentMode assignmentMode;
+    private final DrinkBatching batching; // null when drink batching is off
+    private final SchedulerLoop loop; // all scheduling work runs on this thread
+    private final OrderJournal journal; // null when journaling is off
+    private long wakeupAtMillis; // pending queue timer, 0 if none (loop thread only)
+    private final LiveFeed feed; // null when the store has no stream
+    private List<LiveFeed.Event> feedEvents = new ArrayList<>(); // since the last flush (loop thread only)
+    private Map<String, String> feedReasons = new HashMap<>(); // priority reasons last sent, by order ID
+    private long feedFlushAtMillis; // pending feed flush, 0 if none (loop thread only)
+
+    public BaristaScheduler(String storeId, SchedulingPolicy policy, List<BaristaProfile> profiles,
+            ScoringMode scoringMode, DispatchMode dispatchMode, SchedulerLoop loop) {
+        this(storeId, policy, profiles, scoringMode, dispatchMode, AssignmentMode.MATCHING, null, loop, null,
+                new CompletedHistory(CompletedHistory.DEFAULT_RECENT_CAPACITY, CompletedHistory.DEFAULT_MINUTES_RETAINED,
+                        null), null);
+    }
+
+    BaristaScheduler(String storeId, SchedulingPolicy policy, List<BaristaProfile> profiles,
+            ScoringMode scoringMode, DispatchMode dispatchMode, AssignmentMode assignmentMode, DrinkBatching batching,
+            SchedulerLoop loop, OrderJournal journal, CompletedHistory history, LiveFeed feed) {
+        this.storeId = storeId;
+        this.policy = policy;
+        this.dispatchMode = dispatchMode;
+        this.assignmentMode = assignmentMode;
+        this.batching = batching;
+        this.loop = loop;
+        this.journal = journal;
+        this.history = history;
+        this.feed = feed;
+        // Initialize the configured Baristas (coffeeshop.baristas.*)
+        this.profiles = profiles;
         this.baristas = new ArrayList<>();
-        // Initialize 3 Baristas
-        baristas.add(new Barista("Barista 1"));
-        baristas.add(new Barista("Barista 2"));
-        baristas.add(new Barista("Barista 3"));
+        for (BaristaProfile profile : profiles)
+            baristas.add(new Barista(profile));
+        this.pool = new BaristaPool(profiles);
+        this.waitingQueue = WaitingQueue.create(scoringMode, policy, pool.hasSpecialists());
+        this.etas = new EtaEstimator(waitingQueue, baristas, profiles, policy);
+        boolean recovered = journal != null && recover(); // not shared with the loop yet, safe on this thread
+        publishBaristas();
+        statistics.publish();
+        if (recovered)
+            loop.execute(this::resumeRecovered);
+        long firstSample = (System.currentTimeMillis() / QUEUE_DEPTH_SAMPLE_MILLIS + 1) * QUEUE_DEPTH_SAMPLE_MILLIS;
+        loop.scheduleAt(firstSample, () -> sampleQueueDepth(firstSample));
+    }
+
+    // Rebuild the queue, the baristas and the history from the journal
+    private boolean recover() {
+        OrderJournal.Recovered state;
+        try {
+            state = journal.recover(baristas.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover store " + storeId + " from its journal", e);
+        }
+        boolean recovered = !state.isEmpty();
+
+        // Checkpointed history already counts in the aggregates and totals;
+        // completions replayed after the checkpoint are recorded as usual
+        if (state.totals != null)
+            statistics.restoreCompletedTotals(state.totals);
+        List<Order> replayed = new ArrayList<>(state.history);
+        replayed.addAll(state.completed);
+        history.replaying(replayed); // some were spilled to disk before the restart
+        history.restore(state.history, state.minutes);
+        for (Order order : state.history)
+            recordLatencies(order);
+        for (Order order : state.completed) {
+            history.add(order);
+            statistics.orderCompleted(order);
+            recordLatencies(order);
+        }
+        for (OrderJournal.Entry entry : state.inProgress.values()) {
+            int index = entry.barista();
+            Barista barista = baristas.get(index);
+            if (barista.getCurrentOrder() != null) {
+                barista.getBatchedOrders().add(entry.order()); // same batch, same busyUntil
+                continue;
+            }
+            barista.setBusy(true);
+            barista.setCurrentOrder(entry.order());
+            barista.setBusyUntilEpochMillis(entry.busyUntilEpochMillis());
+            pool.occupy(index, entry.busyUntilEpochMillis());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> waiting = new ArrayList<>(state.waiting.values());
+        waiting.sort(Comparator.comparing(Order::getArrivalTime));
+        for (Order order : waiting) {
+            policy.updatePriority(order);
+            waitingQueue.add(order, now);
+            statistics.orderQueued(order);
+            if (order.isBreachAlertSent())
+                statistics.activeBreach(order);
+        }
+        try {
+            journal.start(checkpointState());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot checkpoint the journal of store " + storeId, e);
+        }
+        if (recovered)
+            System.out.println("[" + storeId + "] Recovered " + waiting.size() + " waiting, " + state.inProgress.size()
+                    + " in progress and " + history.recentSize() + " recent completed orders from the journal");
+        return recovered;
+    }
+
+    // First task on the loop after recovery: completion timers for the recovered
+    // work, then a pass to finish what is overdue and fill free baristas
+    private void resumeRecovered() {
+        if (dispatchMode == DispatchMode.EVENT) {
+            for (int i = 0; i < baristas.size(); i++) {
+                int index = i;
+                Barista barista = baristas.get(i);
+                Order order = barista.getCurrentOrder();
+                if (order != null)
+                    loop.scheduleAt(barista.getBusyUntilEpochMillis(), () -> onBaristaFinished(index, order));
+            }
+        }
+        scheduleOrders();
+    }
+
+    public String getStoreId() {
+        return storeId;
+    }
+
+    /**
+     * Name of the scheduling policy the store ranks its queue with.
+     */
+    public String getPolicyName() {
+        return policy.name();
     }
 
     public void addOrder(Order order) {
-        priorityCalculator.updatePriority(order);
-        waitingQueue.add(order);
+        // Score up front so the caller sees it; the order isn't shared yet
+        policy.updatePriority(order);
+        loop.execute(() -> {
+            if (journal != null)
+                journal.placed(order); // into the mapped segment, no system call
+            waitingQueue.add(order, LocalDateTime.now());
+            statistics.orderQueued(order);
+            etas.invalidate();
+            feedEvent(LiveFeed.EventType.ORDER_ADDED, order, null, null);
+            if (dispatchMode == DispatchMode.EVENT) {
+                scheduleOrders(); // assign right away if a barista is free
+            } else {
+                statistics.publish();
+                checkpointIfDue();
+            }
+        });
     }
 
     public List<Order> getQueue() {
-        return waitingQueue.stream()
-                .sorted(Comparator.comparingDouble(Order::getPriorityScore).reversed())
-                .collect(Collectors.toList());
+        return read(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Order> copies = new ArrayList<>(waitingQueue.size());
+            for (Order o : waitingQueue.snapshot(now))
+                copies.add(o.copy());
+            etas.setEtas(copies, now);
+            return copies;
+        });
     }
 
-    public List<Order> getCompletedOrders() {
-        return new ArrayList<>(completedOrders);
+    /**
+     * Up to {@code limit} waiting orders matching the filter, in priority
+     * order, starting after the cursor (null for the head of the queue).
+     * Filtered-out orders are walked over, so a page costs O(log n) per order
+     * walked.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public QueuePage getQueuePage(String cursor, int limit, QueueFilter filter) {
+        QueuePage.Cursor after = cursor == null ? null : QueuePage.Cursor.decode(cursor);
+        return read(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            double start = Double.POSITIVE_INFINITY;
+            if (after != null) {
+                double current = waitingQueue.score(after.orderId(), now);
+                start = Double.isNaN(current) ? after.score() : current;
+            }
+            List<QueuePage.Entry> entries = new ArrayList<>(Math.min(limit, waitingQueue.size()));
+            Iterator<Order> walk = waitingQueue.from(start, now);
+            boolean more = false;
+            while (walk.hasNext()) {
+                Order o = walk.next();
+                if ((after != null && o.getId().equals(after.orderId())) || !filter.matches(o, now))
+                    continue;
+                if (entries.size() == limit) {
+                    more = true;
+                    break;
+                }
+                int position = waitingQueue.position(o.getId(), now);
+                Order copy = o.copy();
+                copy.setEtaSeconds(etas.etaSeconds(o, now));
+                entries.add(new QueuePage.Entry(position, copy));
+            }
+            String next = null;
+            if (more) {
+                Order last = entries.get(entries.size() - 1).order();
+                next = new QueuePage.Cursor(last.getPriorityScore(), last.getId()).encode();
+            }
+            return new QueuePage(entries, next, waitingQueue.size());
+        });
+    }
+
+    /**
+     * Where a waiting order stands, in O(log n); null if it isn't waiting
+     * (assigned, completed or unknown).
+     */
+    public QueuePosition getQueuePosition(String orderId) {
+        return read(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            Order order = waitingQueue.get(orderId);
+            if (order == null)
+                return null;
+            return new QueuePosition(orderId, waitingQueue.position(orderId, now), etas.etaSeconds(order, now),
+                    waitingQueue.size());
+        });
+    }
+
+    /**
+     * Up to {@code limit} orders completed between {@code from} and {@code to}
+     * (inclusive, null for unbounded), oldest first. Orders evicted from the
+     * recent ring are only returned if the history spills to disk.
+     */
+    public List<Order> getCompletedOrders(LocalDateTime from, LocalDateTime to, int limit) {
+        // Index lookups on the loop; the spilled part is read on this thread.
+        // Completed orders are never modified again, so sharing them is safe.
+        return read(() -> history.range(from, to, limit)).orders(limit);
+    }
+
+    /**
+     * Per-minute aggregates of the orders completed between {@code from} and
+     * {@code to} (inclusive, null for unbounded).
+     */
+    public List<CompletedHistory.Minute> getCompletedPerMinute(LocalDateTime from, LocalDateTime to) {
+        return read(() -> history.minutes(from, to));
     }
 
     public List<Barista> getBaristas() {
-        return baristas;
+        return baristaView;
     }
 
-    @Scheduled(fixedRate = 1000) // Run every second
-    public void scheduleOrders() {
-        // 1. Update priorities for all waiting orders
-        for (Order order : waitingQueue) {
-            priorityCalculator.updatePriority(order);
-            checkSlaAlerts(order); // Check for alerts
-        }
+    /**
+     * Subscribes to this store's live feed; the first update follows right away.
+     *
+     * @throws RejectedExecutionException if the feed is at its subscriber limit
+     */
+    public SseEmitter subscribe() {
+        if (feed == null)
+            throw new IllegalStateException("Store " + storeId + " has no live feed");
+        SseEmitter emitter = feed.subscribe();
+        loop.execute(() -> requestFeedFlush(0));
+        return emitter;
+    }
 
-        // 2. Sort queue by priority
-        List<Order> sortedQueue = getQueue();
+    public LiveStatistics.Snapshot getStatistics() {
+        return statistics.snapshot();
+    }
 
-        // Update ETA (Simple approximation)
-        // Avg prep time per item approx 3 mins. 3 Baristas.
-        // Rate = 3 items / 3 mins = 1 item / min (real time).
-        // In sim time (1 min = 5 sec), rate is faster.
-        // Let's just say ETA = (Position + 1) * AvgPrepTime / NumBaristas
-        int position = 0;
-        for (Order o : sortedQueue) {
-            // simple logic: wait time = sum of prep times of people ahead / 3 baristas
-            // For demo: just arbitrary scaling
-            long eta = (position + 1) * 30L; // 30 seconds wait per person ahead roughly
+    public LatencyHistogram getWaitTimeHistogram() {
+        return waitTimeMillis;
+    }
 
-            // Fix: Ensure ETA is not 0 for visual trust
-            if (eta < 60)
-                eta = 60; // Minimum 1 min ETA in queue
+    public LatencyHistogram getPrepTimeHistogram() {
+        return prepTimeMillis;
+    }
 
-            o.setEtaSeconds(eta);
-            position++;
+    public LatencyHistogram getQueueDepthHistogram() {
+        return queueDepth;
+    }
+
+    /**
+     * Queue depth per minute over the last hour, oldest first; the minute in
+     * progress, if sampled yet, comes last.
+     */
+    public List<QueueDepthMinute> getQueueDepthPerMinute() {
+        return read(() -> {
+            List<QueueDepthMinute> minutes = new ArrayList<>(queueDepthMinutes);
+            if (queueDepthMinute.count() > 0)
+                minutes.add(QueueDepthMinute.of(queueDepthMinuteStart, queueDepthMinute));
+            return minutes;
+        });
+    }
+
+    // Runs a read on the loop and waits for it, at most READ_TIMEOUT_MILLIS;
+    // what the read threw is rethrown as it was
+    private <T> T read(Supplier<T> reader) {
+        try {
+            return loop.call(reader).orTimeout(READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException)
+                throw new IllegalStateException("Store " + storeId + " did not answer within "
+                        + READ_TIMEOUT_MILLIS + " ms");
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            if (e.getCause() instanceof Error cause)
+                throw cause;
+            throw e;
         }
+    }
+
+    // Called every second by StoreRegistry (POLLING mode only)
+    public void pollingTick() {
+        if (dispatchMode == DispatchMode.POLLING)
+            loop.execute(this::scheduleOrders);
+    }
+
+    /**
+     * One scheduling pass. Runs on the loop thread: every second in POLLING mode,
+     * or whenever an order arrives, a barista finishes or a queue timer fires in
+     * EVENT mode.
+     */
+    public void scheduleOrders() {
+        // 1. Update priorities for waiting orders. In ANALYTIC mode this only
+        // touches orders crossing the urgency cliff or an SLA threshold.
+        waitingQueue.advance(LocalDateTime.now(), this::checkSlaAlerts); // Check for alerts
+
+        // 2. ETAs are projected when the queue is read (EtaEstimator)
 
         // 3. Assign orders to free baristas
         long nowMillis = System.currentTimeMillis();
 
-        for (Barista barista : baristas) {
-            // Check if barista finished their current order
-            if (barista.isBusy() && nowMillis >= barista.getBusyUntilEpochMillis()) {
-                completeOrder(barista);
-            }
+        // Check which baristas finished their current order, earliest first
+        int finished;
+        while ((finished = pool.releaseNext(nowMillis)) >= 0) {
+            completeOrder(finished);
+        }
 
-            // Assign new order if free
-            if (!barista.isBusy() && !sortedQueue.isEmpty()) {
-                // FIX 2: HARD override assignment for emergencies
-                assignOrder(barista, sortedQueue);
+        // Assign new orders: to everyone free at once as one batch, then (or in
+        // GREEDY mode only) lowest numbered free barista first, while anyone
+        // free can make something waiting
+        if (assignmentMode == AssignmentMode.MATCHING)
+            assignBatch();
+        int free;
+        while ((free = pool.nextIdleFor(waitingQueue::hasWorkFor)) >= 0) {
+            // FIX 2: HARD override assignment for emergencies
+            assignOrder(free);
+        }
+
+        etas.invalidate(); // baristas or queue may have changed
+        publishBaristas();
+        statistics.publish();
+        if (dispatchMode == DispatchMode.EVENT)
+            armQueueWakeup();
+        checkpointIfDue();
+    }
+
+    // One queue depth sample per tick; ticks missed while the loop was busy are skipped
+    private void sampleQueueDepth(long dueMillis) {
+        long minute = dueMillis - dueMillis % 60_000;
+        if (minute != queueDepthMinuteStart) {
+            if (queueDepthMinute.count() > 0) {
+                if (queueDepthMinutes.size() == QUEUE_DEPTH_MINUTES_RETAINED)
+                    queueDepthMinutes.removeFirst();
+                queueDepthMinutes.addLast(QueueDepthMinute.of(queueDepthMinuteStart, queueDepthMinute));
+                queueDepthMinute.reset();
             }
+            queueDepthMinuteStart = minute;
         }
+        int depth = waitingQueue.size();
+        queueDepth.record(depth);
+        queueDepthMinute.record(depth);
+
+        long next = dueMillis + QUEUE_DEPTH_SAMPLE_MILLIS;
+        long now = System.currentTimeMillis();
+        while (next <= now)
+            next += QUEUE_DEPTH_SAMPLE_MILLIS;
+        long at = next;
+        loop.scheduleAt(at, () -> sampleQueueDepth(at));
+    }
+
+    private void checkpointIfDue() {
+        if (journal != null && journal.checkpointDue())
+            journal.checkpoint(checkpointState());
+    }
+
+    // Point-in-time state for a journal checkpoint; live orders are copied
+    private OrderJournal.Checkpoint checkpointState() {
+        List<OrderJournal.Entry> entries = new ArrayList<>(history.recentSize() + baristas.size()
+                + waitingQueue.size());
+        for (Order o : history.recent())
+            entries.add(new OrderJournal.Entry(o, -1, 0)); // never modified again
+        for (int i = 0; i < baristas.size(); i++) {
+            Barista b = baristas.get(i);
+            if (b.getCurrentOrder() != null)
+                entries.add(new OrderJournal.Entry(b.getCurrentOrder().copy(), i, b.getBusyUntilEpochMillis()));
+            for (Order o : b.getBatchedOrders())
+                entries.add(new OrderJournal.Entry(o.copy(), i, b.getBusyUntilEpochMillis()));
+        }
+        for (Order o : waitingQueue.snapshot(LocalDateTime.now()))
+            entries.add(new OrderJournal.Entry(o.copy(), -1, 0));
+        return new OrderJournal.Checkpoint(entries, history.minutes(null, null), statistics.completedTotals());
+    }
+
+    // Records an event for the next feed update; free when nobody is subscribed
+    private void feedEvent(LiveFeed.EventType type, Order order, String baristaId, String detail) {
+        if (feed == null || !feed.hasSubscribers())
+            return;
+        feedEvents.add(new LiveFeed.Event(type, order.getId(), order.getCustomerName(), baristaId, detail));
+        requestFeedFlush(feed.tickMillis());
+    }
+
+    // Makes sure a feed flush runs within delayMillis
+    private void requestFeedFlush(long delayMillis) {
+        long at = System.currentTimeMillis() + delayMillis;
+        if (feedFlushAtMillis != 0 && feedFlushAtMillis <= at)
+            return;
+        feedFlushAtMillis = at;
+        loop.scheduleAt(at, () -> {
+            if (feedFlushAtMillis == at) // else superseded by an earlier flush
+                flushFeed();
+        });
+    }
+
+    // One feed update: the events collected since the last one, plus the head
+    // of the queue, the baristas and the stats as they are now
+    private void flushFeed() {
+        feedFlushAtMillis = 0;
+        if (!feed.hasSubscribers()) {
+            feedEvents.clear();
+            feedReasons.clear();
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> head = new ArrayList<>(feed.queueHeadSize());
+        Map<String, String> reasons = new HashMap<>();
+        for (Order o : waitingQueue.head(now, feed.queueHeadSize())) {
+            // Reasons also change with waiting alone, so diff against the last update
+            String previous = feedReasons.get(o.getId());
+            if (previous != null && !previous.equals(o.getPriorityReason()))
+                feedEvents.add(new LiveFeed.Event(LiveFeed.EventType.PRIORITY_CHANGED, o.getId(), o.getCustomerName(),
+                        null, o.getPriorityReason()));
+            reasons.put(o.getId(), o.getPriorityReason());
+            head.add(o.copy());
+        }
+        etas.setEtas(head, now);
+        feed.publish(new LiveFeed.Update(feed.nextSeq(), storeId, now, waitingQueue.size(), head, baristaView,
+                statistics.snapshot().display(now), feedEvents));
+        feedEvents = new ArrayList<>();
+        feedReasons = reasons;
+        requestFeedFlush(feed.refreshMillis());
+    }
+
+    private void publishBaristas() {
+        List<Barista> view = new ArrayList<>(baristas.size());
+        for (Barista b : baristas)
+            view.add(b.copy());
+        baristaView = List.copyOf(view);
+    }
+
+    // Wake up when the queue next has a crossover or SLA check due
+    private void armQueueWakeup() {
+        LocalDateTime due = waitingQueue.nextDueEvent(LocalDateTime.now());
+        if (due == null)
+            return;
+        long dueMillis = due.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + 1; // never early
+        if (wakeupAtMillis == 0 || dueMillis < wakeupAtMillis) {
+            wakeupAtMillis = dueMillis;
+            loop.scheduleAt(dueMillis, () -> {
+                wakeupAtMillis = 0;
+                scheduleOrders();
+            });
+        }
+    }
+
+    private void onBaristaFinished(int index, Order order) {
+        Barista barista = baristas.get(index);
+        if (barista.getCurrentOrder() == order) {
+            pool.release(index); // the timer may beat currentTimeMillis by a hair
+            completeOrder(index);
+        }
+        scheduleOrders();
     }
 
     private void checkSlaAlerts(Order order) {
         long waitTimeSeconds = java.time.Duration.between(order.getArrivalTime(), LocalDateTime.now()).getSeconds();
 
         // 9 minutes = 540 seconds (Warning)
-        if (waitTimeSeconds >= 540 && waitTimeSeconds < 600 && !order.isWarningAlertSent()) {
-            System.out.println("🚨 MANAGER ALERT: Order " + order.getId() + " (" + order.getCustomerName()
+        if (waitTimeSeconds >= 540 && !LiveStatistics.breachesSla(waitTimeSeconds) && !order.isWarningAlertSent()) {
+            System.out.println("[" + storeId + "] 🚨 MANAGER ALERT: Order " + order.getId() + " (" + order.getCustomerName()
                     + ") is nearing SLA limit! (" + waitTimeSeconds + "s)");
             order.setWarningAlertSent(true);
+            if (journal != null)
+                journal.warningAlert(order);
+            feedEvent(LiveFeed.EventType.SLA_WARNING, order, null, waitTimeSeconds + "s");
         }
 
-        // 10 minutes = 600 seconds (Critical Breach)
-        if (waitTimeSeconds >= 600 && !order.isBreachAlertSent()) {
-            System.err.println("❌ SLA BREACHED: Order " + order.getId() + " (" + order.getCustomerName()
+        // Past 10 minutes (Critical Breach), as completed orders are counted
+        if (LiveStatistics.breachesSla(waitTimeSeconds) && !order.isBreachAlertSent()) {
+            System.err.println("[" + storeId + "] ❌ SLA BREACHED: Order " + order.getId() + " (" + order.getCustomerName()
                     + ") exceeded 10 minutes!");
             order.setBreachAlertSent(true);
+            if (journal != null)
+                journal.breachAlert(order);
+            feedEvent(LiveFeed.EventType.SLA_BREACH, order, null, waitTimeSeconds + "s");
+            statistics.activeBreach(order);
         }
     }
 
-    private void completeOrder(Barista barista) {
+    private void completeOrder(int index) {
+        Barista barista = baristas.get(index);
         if (barista.getCurrentOrder() != null) {
-            barista.getCurrentOrder().setStatus(OrderStatus.COMPLETED);
-            barista.getCurrentOrder().setCompletionTime(LocalDateTime.now());
-
-            // Add to history
-            completedOrders.add(barista.getCurrentOrder());
-
-            // Log or notify completion
-            System.out.println("Order " + barista.getCurrentOrder().getId() + " completed by " + barista.getId());
+            completeOrder(index, barista.getCurrentOrder());
+            for (Order batched : barista.getBatchedOrders())
+                completeOrder(index, batched); // made together, done together
         }
         barista.setBusy(false);
         barista.setCurrentOrder(null);
+        barista.getBatchedOrders().clear();
     }
 
-    private void assignOrder(Barista barista, List<Order> sortedQueue) {
-        // Simple logic: take the highest priority order
-        // Enhancement: We could check for workload balancing here as per reqs
-        // For now, let's stick to strict priority from the sorted list
-
-        // Find the first order that is still in WAITING status (in case of concurrency)
-        Order nextOrder = null;
-
-        // Priority Override: Check for Emergency orders (> 8 mins) explicitly first
-        // Although sortedQueue is sorted by score, we want to be ABSOLUT ELY sure
-        // that high-urgency orders (which have huge boosted scores) are picked.
-        // Since PriorityCalculator gives +50 boost to urgency > 8 min, they should be
-        // at top.
-        // The sortedQueue is trustworthy.
-
-        for (Order o : sortedQueue) {
-            if (waitingQueue.contains(o)) { // still in queue
-                nextOrder = o;
-                break;
+    private void completeOrder(int index, Order order) {
+        Barista barista = baristas.get(index);
+        order.setStatus(OrderStatus.COMPLETED);
+        order.setCompletionTime(LocalDateTime.now());
+        if (journal != null)
+            journal.completed(order, index);
+
+        // Add to history
+        history.add(order);
+        statistics.orderCompleted(order);
+        recordLatencies(order);
+        feedEvent(LiveFeed.EventType.ORDER_COMPLETED, order, barista.getId(), null);
+
+        // Log or notify completion
+        System.out.println("[" + storeId + "] Order " + order.getId() + " completed by " + barista.getId());
+    }
+
+    private void recordLatencies(Order order) {
+        waitTimeMillis.record(Duration.between(order.getArrivalTime(), order.getCompletionTime()).toMillis());
+        if (order.getStartTime() != null)
+            prepTimeMillis.record(Duration.between(order.getStartTime(), order.getCompletionTime()).toMillis());
+    }
+
+    // Several baristas free at once (a rush, or a pass after an idle spell):
+    // match them with the best orders in one go. The candidates are the top of
+    // the queue; anyone left free, e.g. a specialist whose drinks are further
+    // back or a barista past MAX_BATCH_BARISTAS, is served greedily afterwards.
+    // With drink batching, matched orders are kept out of everyone's batch, so
+    // an earlier barista can't take the order a later one was matched with
+    private void assignBatch() {
+        int[] free = pool.idleFor(waitingQueue::hasWorkFor, MAX_BATCH_BARISTAS);
+        if (free.length < 2)
+            return; // one barista: the best order it can make is the answer
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> candidates = waitingQueue.head(now, BATCH_CANDIDATES_PER_BARISTA * free.length);
+        int[] orderOf = BatchAssignment.solve(candidates, free, profiles, PREP_MILLIS_PER_MINUTE);
+        Set<String> matched = new HashSet<>();
+        for (int j = 0; j < free.length; j++) {
+            if (orderOf[j] >= 0)
+                matched.add(candidates.get(orderOf[j]).getId());
+        }
+        for (int j = 0; j < free.length; j++) {
+            if (orderOf[j] < 0)
+                continue;
+            Order order = waitingQueue.remove(candidates.get(orderOf[j]).getId()); // scored for now by head()
+            if (order == null) {
+                // Gone from the queue after all: leave the barista to the greedy pass
+                System.err.println("[" + storeId + "] Matched order " + candidates.get(orderOf[j]).getId()
+                        + " no longer waiting, " + baristas.get(free[j]).getId() + " is served greedily");
+                continue;
             }
+            startOrder(free[j], order, matched);
         }
+    }
+
+    private void assignOrder(int index) {
+        // Simple logic: take the highest priority order
+        // Enhancement: We could check for workload balancing here as per reqs
+        // For now, let's stick to strict priority from the heap
+
+        // Priority Override: under the WEIGHTED policy emergency orders (> 8 mins)
+        // get a +50 boost, so they are always at the top of the heap.
+        // Only the loop thread polls, so an order can never be handed out twice.
+        // Specialists only get orders whose drinks they can all make.
+        Order nextOrder = waitingQueue.poll(LocalDateTime.now(), pool.skillMask(index));
+        startOrder(index, nextOrder, Set.of());
+    }
 
+    // reserved: IDs of waiting orders already promised to other baristas, never batched here
+    private void startOrder(int index, Order nextOrder, Set<String> reserved) {
+        Barista barista = baristas.get(index);
         if (nextOrder != null) {
-            waitingQueue.remove(nextOrder);
+            statistics.orderDequeued(nextOrder);
             nextOrder.setStatus(OrderStatus.PROCESSING);
             nextOrder.setStartTime(LocalDateTime.now());
 
             // Log if this was an emergency assignment
             if (nextOrder.getPriorityReason() != null && nextOrder.getPriorityReason().contains("Urgent")) {
                 System.out.println(
-                        "🔥 EMERGENCY ASSIGNMENT: Order " + nextOrder.getId() + " assigned to " + barista.getId());
+                        "[" + storeId + "] 🔥 EMERGENCY ASSIGNMENT: Order " + nextOrder.getId() + " assigned to " + barista.getId());
             }
 
             barista.setBusy(true);
@@ -173,11 +689,95 @@ public class BaristaScheduler {
             // scaled down.
             // Requirement says "Espresso (2 min)". Waiting 2 mins in a demo is long.
             // let's scale: 1 min prep = 5 seconds real time.
-            int prepTimeSeconds = nextOrder.getTotalPrepTime() * 5;
+            long nowMillis = System.currentTimeMillis();
+            long prepTimeMillis = batching == null ? nextOrder.getTotalPrepTime() * PREP_MILLIS_PER_MINUTE
+                    : batchWith(index, nextOrder, nowMillis, reserved);
+
+            // Faster stations take proportionally less time
+            long busyUntil = nowMillis + profiles.get(index).prepTime(prepTimeMillis);
+            barista.setBusyUntilEpochMillis(busyUntil);
+            pool.occupy(index, busyUntil);
+            if (journal != null)
+                journal.assigned(nextOrder, index, busyUntil);
+            feedEvent(LiveFeed.EventType.ORDER_ASSIGNED, nextOrder, barista.getId(), nextOrder.getPriorityReason());
+            for (Order batched : barista.getBatchedOrders()) {
+                if (journal != null)
+                    journal.assigned(batched, index, busyUntil);
+                feedEvent(LiveFeed.EventType.ORDER_ASSIGNED, batched, barista.getId(), batched.getPriorityReason());
+                System.out.println("[" + storeId + "] Batched Order " + batched.getId() + " with " + nextOrder.getId());
+            }
+
+            if (dispatchMode == DispatchMode.EVENT) {
+                Order assigned = nextOrder;
+                loop.scheduleAt(busyUntil, () -> onBaristaFinished(index, assigned));
+            }
+
+            System.out.println("[" + storeId + "] Assigned Order " + nextOrder.getId() + " to " + barista.getId());
+        }
+    }
 
-            barista.setBusyUntilEpochMillis(System.currentTimeMillis() + (prepTimeSeconds * 1000L));
+    // Drink batching: takes waiting orders of the same batchable drink, best
+    // first from the top of the queue, into the barista's batch while nobody
+    // slips past the SLA because of it. Reserved orders are skipped. Returns the
+    // standard prep time of the whole batch
+    private long batchWith(int index, Order first, long nowMillis, Set<String> reserved) {
+        int drinkMask = DrinkType.maskOf(first.getDrinks());
+        int drinks = first.getDrinks().size();
+        if (!batching.batchable(drinkMask))
+            return first.getTotalPrepTime() * PREP_MILLIS_PER_MINUTE;
+        long singleMillis = first.getDrinks().get(0).getPrepTimeMinutes() * PREP_MILLIS_PER_MINUTE;
+        BaristaProfile profile = profiles.get(index);
+        List<Order> members = baristas.get(index).getBatchedOrders();
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Order> candidates = new ArrayList<>();
+        Iterator<Order> walk = waitingQueue.from(Double.POSITIVE_INFINITY, now);
+        for (int seen = 0; seen < batching.lookahead() && walk.hasNext(); seen++) {
+            Order o = walk.next();
+            if (DrinkType.maskOf(o.getDrinks()) == drinkMask && !reserved.contains(o.getId()))
+                candidates.add(o);
+        }
+
+        long end = nowMillis + profile.prepTime(batching.prepTime(singleMillis, drinks));
+        for (Order candidate : candidates) {
+            int with = drinks + candidate.getDrinks().size();
+            if (with > batching.maxDrinks())
+                continue;
+            long endWith = nowMillis + profile.prepTime(batching.prepTime(singleMillis, with));
+            if (batchSlips(first, members, candidate, reserved, profile, end, endWith))
+                break; // the batch only gets longer
+            Order joined = waitingQueue.remove(candidate.getId()); // scored for now by the walk
+            statistics.orderDequeued(joined);
+            joined.setStatus(OrderStatus.PROCESSING);
+            joined.setStartTime(now);
+            members.add(joined);
+            drinks = with;
+            end = endWith;
+        }
+        return batching.prepTime(singleMillis, drinks);
+    }
 
-            System.out.println("Assigned Order " + nextOrder.getId() + " to " + barista.getId());
+    // Whether adding the candidate makes a batch member, or the longest-waiting
+    // order left (served next by this barista at worst), miss the SLA it
+    // would have made. A reserved oldest order starts now elsewhere, so it
+    // doesn't wait on this batch
+    private boolean batchSlips(Order first, List<Order> members, Order candidate, Set<String> reserved,
+            BaristaProfile profile, long end, long endWith) {
+        if (DrinkBatching.slips(slaDeadlineMillis(first), end, endWith))
+            return true;
+        for (Order member : members) {
+            if (DrinkBatching.slips(slaDeadlineMillis(member), end, endWith))
+                return true;
         }
+        Order oldest = statistics.oldestWaiting();
+        if (oldest == null || oldest == candidate || reserved.contains(oldest.getId()))
+            return false;
+        long prep = profile.prepTime(oldest.getTotalPrepTime() * PREP_MILLIS_PER_MINUTE);
+        return DrinkBatching.slips(slaDeadlineMillis(oldest), end + prep, endWith + prep);
+    }
+
+    private static long slaDeadlineMillis(Order order) {
+        return order.getArrivalTime().plusSeconds(LiveStatistics.SLA_LIMIT_SECONDS)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
 }
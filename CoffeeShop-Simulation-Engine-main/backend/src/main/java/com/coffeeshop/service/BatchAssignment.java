@@ -0,0 +1,162 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hands out orders to several free baristas at once, instead of one barista
+ * at a time in barista order.
+ * <p>
+ * Greedy one-by-one assignment has two blind spots. An all-round barista
+ * earlier in the list can take the only order a specialist could make, and
+ * the specialist then stays idle while orders wait that only the all-rounder
+ * can make. And an order goes to whoever happens to be first, not to whoever
+ * makes it fastest. A batch is solved in two steps:
+ * <ol>
+ * <li>Which orders: walking the candidates in priority order, an order is
+ * taken if it can be added to a barista-to-order matching of the orders taken
+ * so far (augmenting path). This serves the highest-priority set of orders
+ * that can be started together: never a lower-priority order instead of a
+ * higher-priority one that someone free could have made.</li>
+ * <li>Who makes what: among the taken orders, the assignment with the least
+ * total prep time at the baristas' speeds (Hungarian method), so long orders
+ * go to fast stations. On ties the barista with fewer skills gets the order,
+ * keeping the versatile ones free for what only they can make, then the
+ * lower-numbered one.</li>
+ * </ol>
+ * O(k * b^2) for k candidates and b free baristas; the live scheduler keeps
+ * b to {@link BaristaScheduler#MAX_BATCH_BARISTAS} and k to a few per barista.
+ * Stateless.
+ */
+final class BatchAssignment {
+
+    private static final double INELIGIBLE = 1e15; // cost of a drink the barista can't make
+
+    private BatchAssignment() {
+    }
+
+    /**
+     * @param candidates    waiting orders, best first
+     * @param free          indices of the free baristas, ascending
+     * @param profiles      every barista's profile, by index
+     * @param prepPerMinute standard prep time of one minute of drinks, in the
+     *                      unit costs are compared in
+     * @return per free barista, the index in {@code candidates} of the order it
+     *         should make, or -1
+     */
+    static int[] solve(List<Order> candidates, int[] free, List<BaristaProfile> profiles, long prepPerMinute) {
+        int b = free.length;
+        int[] orderOf = new int[b];
+        Arrays.fill(orderOf, -1);
+        int[] masks = new int[candidates.size()];
+        for (int c = 0; c < candidates.size(); c++)
+            masks[c] = DrinkType.maskOf(candidates.get(c).getDrinks());
+
+        // 1. Highest-priority orders that can all be started at once
+        int[] taken = new int[b];
+        int takenCount = 0;
+        for (int c = 0; c < candidates.size() && takenCount < b; c++) {
+            if (augment(c, masks, free, profiles, orderOf, new boolean[b]))
+                taken[takenCount++] = c;
+        }
+        if (takenCount == 0)
+            return orderOf;
+
+        // 2. Cheapest way to make them: rows are orders, columns baristas
+        double[] tieBreak = new double[b];
+        for (int j = 0; j < b; j++)
+            tieBreak[j] = (Integer.bitCount(profiles.get(free[j]).skillMask()) * b + j) * 1e-6;
+        double[][] cost = new double[takenCount][b];
+        for (int i = 0; i < takenCount; i++) {
+            Order order = candidates.get(taken[i]);
+            for (int j = 0; j < b; j++) {
+                BaristaProfile profile = profiles.get(free[j]);
+                cost[i][j] = canMake(profile, masks[taken[i]])
+                        ? profile.prepTime(order.getTotalPrepTime() * prepPerMinute) + tieBreak[j]
+                        : INELIGIBLE;
+            }
+        }
+        int[] columnOf = hungarian(cost);
+        Arrays.fill(orderOf, -1);
+        for (int i = 0; i < takenCount; i++)
+            orderOf[columnOf[i]] = taken[i];
+        return orderOf;
+    }
+
+    // Kuhn's augmenting path from candidate c; orderOf is the matching so far
+    private static boolean augment(int c, int[] masks, int[] free, List<BaristaProfile> profiles, int[] orderOf,
+            boolean[] visited) {
+        for (int j = 0; j < free.length; j++) {
+            if (visited[j] || !canMake(profiles.get(free[j]), masks[c]))
+                continue;
+            visited[j] = true;
+            if (orderOf[j] < 0 || augment(orderOf[j], masks, free, profiles, orderOf, visited)) {
+                orderOf[j] = c;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean canMake(BaristaProfile profile, int drinkMask) {
+        return (drinkMask & ~profile.skillMask()) == 0;
+    }
+
+    // Min-cost assignment of every row to a distinct column (rows <= columns),
+    // with potentials; returns the column of each row
+    private static int[] hungarian(double[][] cost) {
+        int n = cost.length, m = cost[0].length;
+        double[] u = new double[n + 1], v = new double[m + 1];
+        int[] rowOfColumn = new int[m + 1]; // 1-based rows, 0 = unassigned
+        int[] way = new int[m + 1];
+        for (int i = 1; i <= n; i++) {
+            rowOfColumn[0] = i;
+            int j0 = 0;
+            double[] minv = new double[m + 1];
+            Arrays.fill(minv, Double.POSITIVE_INFINITY);
+            boolean[] used = new boolean[m + 1];
+            do {
+                used[j0] = true;
+                int i0 = rowOfColumn[j0], j1 = 0;
+                double delta = Double.POSITIVE_INFINITY;
+                for (int j = 1; j <= m; j++) {
+                    if (used[j])
+                        continue;
+                    double reduced = cost[i0 - 1][j - 1] - u[i0] - v[j];
+                    if (reduced < minv[j]) {
+                        minv[j] = reduced;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[rowOfColumn[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (rowOfColumn[j0] != 0);
+            do {
+                int j1 = way[j0];
+                rowOfColumn[j0] = rowOfColumn[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+        int[] columnOf = new int[n];
+        for (int j = 1; j <= m; j++) {
+            if (rowOfColumn[j] != 0)
+                columnOf[rowOfColumn[j] - 1] = j - 1;
+        }
+        return columnOf;
+    }
+}
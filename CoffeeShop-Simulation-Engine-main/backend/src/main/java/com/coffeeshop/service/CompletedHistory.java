@@ -0,0 +1,215 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Order;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Completed orders of one live store, in three tiers:
+ * <ul>
+ * <li>the most recent orders, in full, in a fixed-size ring buffer;</li>
+ * <li>per-minute aggregates (orders, wait, prep, SLA violations) of every
+ * completion, for a fixed number of minutes;</li>
+ * <li>optionally, the orders pushed out of the ring, appended to disk
+ * ({@link HistorySpill}).</li>
+ * </ul>
+ * Memory stays bounded however long the store runs. Time-range reads
+ * binary-search the ring (completion order) and the spill's sparse index, and
+ * aggregates live in a map keyed by minute, so no read scans the whole history.
+ * <p>
+ * Loop thread only, except {@link Range#orders}, which may run on any thread.
+ */
+public class CompletedHistory {
+
+    static final int DEFAULT_RECENT_CAPACITY = 10_000;
+    static final int DEFAULT_MINUTES_RETAINED = 7 * 24 * 60; // a week
+
+    /**
+     * Aggregate of the orders completed within one minute.
+     */
+    public record Minute(LocalDateTime minute, long orders, long totalWaitSeconds, long maxWaitSeconds,
+            long totalPrepSeconds, long slaViolations) {
+    }
+
+    private static final class Bucket {
+        long orders, totalWaitSeconds, maxWaitSeconds, totalPrepSeconds, slaViolations;
+    }
+
+    /**
+     * Matches of a time-range read: the ring part, taken on the loop, and a
+     * view of the spill to read the older part from off the loop.
+     */
+    public static final class Range {
+        private final LocalDateTime from, to;
+        private final List<Order> recent;
+        private final HistorySpill.View spilled; // null without a spill
+
+        private Range(LocalDateTime from, LocalDateTime to, List<Order> recent, HistorySpill.View spilled) {
+            this.from = from;
+            this.to = to;
+            this.recent = recent;
+            this.spilled = spilled;
+        }
+
+        /**
+         * Up to {@code limit} orders completed in the range, oldest first.
+         * Reads the spill, if any, on the calling thread.
+         */
+        public List<Order> orders(int limit) {
+            List<Order> result = spilled == null ? new ArrayList<>() : HistorySpill.read(spilled, from, to, limit);
+            for (Order o : recent) {
+                if (result.size() >= limit)
+                    break;
+                result.add(o);
+            }
+            return result;
+        }
+    }
+
+    private final Order[] ring; // completion order, starting at ringStart
+    private int ringStart, ringSize;
+    private final int minutesRetained;
+    private final NavigableMap<Long, Bucket> minutes = new TreeMap<>(); // by epoch minute
+    private final HistorySpill spill; // null if evicted orders are only aggregated
+
+    CompletedHistory(int recentCapacity, int minutesRetained, HistorySpill spill) {
+        if (recentCapacity < 1)
+            throw new IllegalArgumentException("History ring needs room for at least one order: " + recentCapacity);
+        this.ring = new Order[recentCapacity];
+        this.minutesRetained = minutesRetained;
+        this.spill = spill;
+    }
+
+    /**
+     * Records a completed order; it must not be modified afterwards.
+     */
+    void add(Order order) {
+        push(order);
+        Bucket bucket = minutes.computeIfAbsent(epochMinute(order.getCompletionTime()), m -> new Bucket());
+        long waitSeconds = Duration.between(order.getArrivalTime(), order.getCompletionTime()).getSeconds();
+        bucket.orders++;
+        bucket.totalWaitSeconds += waitSeconds;
+        bucket.maxWaitSeconds = Math.max(bucket.maxWaitSeconds, waitSeconds);
+        if (order.getStartTime() != null)
+            bucket.totalPrepSeconds += Duration.between(order.getStartTime(), order.getCompletionTime()).getSeconds();
+        if (LiveStatistics.breachesSla(waitSeconds))
+            bucket.slaViolations++;
+        // Drop aggregates older than the retention window
+        long oldestKept = minutes.lastKey() - minutesRetained + 1;
+        while (minutes.firstKey() < oldestKept)
+            minutes.pollFirstEntry();
+    }
+
+    private void push(Order order) {
+        if (ringSize < ring.length) {
+            ring[(ringStart + ringSize++) % ring.length] = order;
+            return;
+        }
+        Order evicted = ring[ringStart];
+        if (spill != null)
+            spill.append(evicted);
+        ring[ringStart] = order;
+        ringStart = (ringStart + 1) % ring.length;
+    }
+
+    /**
+     * Before a journal replay re-adds {@code orders}: those the spill already
+     * holds are not appended again when the ring evicts them.
+     */
+    void replaying(List<Order> orders) {
+        if (spill != null)
+            spill.replaying(orders);
+    }
+
+    /**
+     * Reloads a checkpointed state: recent orders (oldest first) and minute
+     * aggregates that already include them.
+     */
+    void restore(List<Order> recent, List<Minute> aggregates) {
+        for (Minute m : aggregates) {
+            Bucket bucket = new Bucket();
+            bucket.orders = m.orders();
+            bucket.totalWaitSeconds = m.totalWaitSeconds();
+            bucket.maxWaitSeconds = m.maxWaitSeconds();
+            bucket.totalPrepSeconds = m.totalPrepSeconds();
+            bucket.slaViolations = m.slaViolations();
+            minutes.put(epochMinute(m.minute()), bucket);
+        }
+        for (Order o : recent)
+            push(o);
+    }
+
+    int recentSize() {
+        return ringSize;
+    }
+
+    /**
+     * The ring's orders, oldest first.
+     */
+    List<Order> recent() {
+        List<Order> orders = new ArrayList<>(ringSize);
+        for (int i = 0; i < ringSize; i++)
+            orders.add(recentAt(i));
+        return orders;
+    }
+
+    private Order recentAt(int i) {
+        return ring[(ringStart + i) % ring.length];
+    }
+
+    /**
+     * Orders completed between {@code from} and {@code to} (inclusive, null for
+     * unbounded); the ring part holds at most {@code limit} orders.
+     */
+    Range range(LocalDateTime from, LocalDateTime to, int limit) {
+        // First ring position completed at or after from
+        int lo = 0, hi = ringSize;
+        while (from != null && lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (recentAt(mid).getCompletionTime().isBefore(from))
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        List<Order> recent = new ArrayList<>();
+        for (int i = lo; i < ringSize && recent.size() < limit; i++) {
+            Order o = recentAt(i);
+            if (to != null && o.getCompletionTime().isAfter(to))
+                break;
+            recent.add(o);
+        }
+        return new Range(from, to, recent, spill == null ? null : spill.view());
+    }
+
+    /**
+     * Minute aggregates between {@code from} and {@code to} (inclusive, null
+     * for unbounded), oldest first.
+     */
+    List<Minute> minutes(LocalDateTime from, LocalDateTime to) {
+        Map<Long, Bucket> range = minutes;
+        if (from != null && to != null)
+            range = minutes.subMap(epochMinute(from), true, epochMinute(to), true);
+        else if (from != null)
+            range = minutes.tailMap(epochMinute(from), true);
+        else if (to != null)
+            range = minutes.headMap(epochMinute(to), true);
+        List<Minute> result = new ArrayList<>(range.size());
+        for (Map.Entry<Long, Bucket> e : range.entrySet()) {
+            Bucket b = e.getValue();
+            result.add(new Minute(LocalDateTime.ofEpochSecond(e.getKey() * 60, 0, ZoneOffset.UTC), b.orders,
+                    b.totalWaitSeconds, b.maxWaitSeconds, b.totalPrepSeconds, b.slaViolations));
+        }
+        return result;
+    }
+
+    private static long epochMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+}
@@ -0,0 +1,149 @@
+package com.coffeeshop.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes CSV rows as UTF-8 bytes straight into a reusable buffer, without
+ * building a String per row or going through a Formatter. When a row is
+ * finished and the buffer is nearly full, the filled part is handed to the
+ * sink in one piece (a file channel or a response stream) and the buffer is
+ * reused.
+ * <p>
+ * Not thread safe; one encoder per writer.
+ */
+final class CsvEncoder {
+
+    /**
+     * Receives the filled part of the buffer, from position to limit.
+     */
+    interface Sink {
+        void write(ByteBuffer bytes) throws IOException;
+    }
+
+    // Room kept free for the next row; rows are a few short fields
+    private static final int ROW_ROOM = 1024;
+
+    private final ByteBuffer buffer;
+    private final Sink sink;
+    private final byte[] separator;
+    private boolean firstField = true;
+
+    /**
+     * @param separator between fields, e.g. "," or ", "
+     */
+    CsvEncoder(ByteBuffer buffer, Sink sink, String separator) {
+        if (buffer.capacity() < 2 * ROW_ROOM)
+            throw new IllegalArgumentException("CSV buffer too small: " + buffer.capacity());
+        this.buffer = buffer.clear();
+        this.sink = sink;
+        this.separator = separator.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    CsvEncoder number(long value) {
+        separator();
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        digits(value);
+        return this;
+    }
+
+    /**
+     * One decimal, rounded half up like {@code %.1f}.
+     */
+    CsvEncoder decimal(double value) {
+        separator();
+        long tenths = Math.round(Math.abs(value) * 10);
+        if (value < 0 && tenths != 0)
+            buffer.put((byte) '-');
+        digits(tenths / 10);
+        buffer.put((byte) '.').put((byte) ('0' + tenths % 10));
+        return this;
+    }
+
+    CsvEncoder bool(boolean value) {
+        return ascii(value ? "true" : "false");
+    }
+
+    /**
+     * Time of day as HH:mm:ss, from seconds since midnight.
+     */
+    CsvEncoder time(int secondOfDay) {
+        separator();
+        twoDigits(secondOfDay / 3600 % 24);
+        buffer.put((byte) ':');
+        twoDigits(secondOfDay / 60 % 60);
+        buffer.put((byte) ':');
+        twoDigits(secondOfDay % 60);
+        return this;
+    }
+
+    /**
+     * A field written as is; callers only pass text without commas, quotes or
+     * line breaks (names, enum constants, reason labels).
+     */
+    CsvEncoder text(String value) {
+        separator();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) { // not ASCII: encode the whole field
+                buffer.put(value.substring(i).getBytes(StandardCharsets.UTF_8));
+                return this;
+            }
+            buffer.put((byte) c);
+        }
+        return this;
+    }
+
+    private CsvEncoder ascii(String value) {
+        separator();
+        for (int i = 0; i < value.length(); i++)
+            buffer.put((byte) value.charAt(i));
+        return this;
+    }
+
+    /**
+     * A header line, written as is.
+     */
+    void header(String line) throws IOException {
+        buffer.put(line.getBytes(StandardCharsets.UTF_8));
+        firstField = true;
+        endRow();
+    }
+
+    void endRow() throws IOException {
+        buffer.put((byte) '\n');
+        firstField = true;
+        if (buffer.remaining() < ROW_ROOM)
+            flush();
+    }
+
+    /**
+     * Hands whatever is buffered to the sink.
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            sink.write(buffer);
+        buffer.clear();
+    }
+
+    private void separator() {
+        if (!firstField)
+            buffer.put(separator);
+        firstField = false;
+    }
+
+    private void digits(long value) {
+        if (value >= 10)
+            digits(value / 10);
+        buffer.put((byte) ('0' + value % 10));
+    }
+
+    private void twoDigits(int value) {
+        buffer.put((byte) ('0' + value / 10)).put((byte) ('0' + value % 10));
+    }
+}
@@ -0,0 +1,164 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.SimOrderStore;
+import com.coffeeshop.model.TestCase;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CSV export of simulation runs, kept off the request path and off startup.
+ * <p>
+ * Files (each run's results, the generated input dataset) are written by a
+ * single background thread: rows are encoded by a {@link CsvEncoder} into one
+ * reused direct buffer and written to a {@link FileChannel} a megabyte at a
+ * time. A run returns as soon as its export is queued.
+ * <p>
+ * {@link #writeResults} streams a run to an HTTP response instead, in
+ * buffer-sized chunks, optionally gzipped.
+ */
+@Service
+public class CsvExporter {
+
+    private static final int FILE_BUFFER_BYTES = 1024 * 1024;
+    private static final int STREAM_BUFFER_BYTES = 64 * 1024;
+    private static final String RESULTS_HEADER =
+            "Test ID, Customer, Drink, Arrival Time, Wait Time (min), Priority Score, Reason";
+    private static final String DATASET_HEADER = "Test_ID,Customer_Name,Drink_Type,Arrival_Time,Is_Loyal_Member";
+
+    private final Path dir;
+    private final boolean resultsOnRun;
+    private final boolean datasetOnStartup;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "csv-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ByteBuffer fileBuffer = ByteBuffer.allocateDirect(FILE_BUFFER_BYTES); // writer thread only
+
+    /**
+     * @param dir          where export files go
+     * @param resultsOnRun     whether every single run also writes its
+     *                         results to a file
+     * @param datasetOnStartup whether the input dataset is written at startup
+     */
+    public CsvExporter(@Value("${coffeeshop.export.dir:data/exports}") String dir,
+            @Value("${coffeeshop.export.results-on-run:false}") boolean resultsOnRun,
+            @Value("${coffeeshop.export.dataset-on-startup:true}") boolean datasetOnStartup) {
+        this.dir = Paths.get(dir);
+        this.resultsOnRun = resultsOnRun;
+        this.datasetOnStartup = datasetOnStartup;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        writer.shutdown(); // queued exports still finish
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queues a file with the run's results; no-op unless results-on-run is on.
+     */
+    public void exportResults(TestCase testCase) {
+        if (!resultsOnRun)
+            return;
+        String filename = "simulation_results_" + System.currentTimeMillis() + ".csv";
+        writer.execute(() -> writeFile(filename, ", ", csv -> writeResults(testCase, csv)));
+    }
+
+    /**
+     * Queues a file with the input orders of scenarios 1 to {@code scenarios};
+     * no-op unless dataset-on-startup is on. Each scenario is generated on the
+     * export thread as it is written, so only one is in memory at a time.
+     */
+    public void exportDataset(int scenarios, IntFunction<SimOrderStore> scenario) {
+        if (!datasetOnStartup)
+            return;
+        String filename = "simulation_dataset_inputs_" + System.currentTimeMillis() + ".csv";
+        writer.execute(() -> writeFile(filename, ",", csv -> {
+            csv.header(DATASET_HEADER);
+            for (int i = 1; i <= scenarios; i++) {
+                SimOrderStore orders = scenario.apply(i);
+                int baseSecond = orders.getBase().toLocalTime().toSecondOfDay();
+                for (int k = 0; k < orders.size(); k++) {
+                    csv.number(i)
+                            .text(orders.customerName(k))
+                            .text(orders.drink(k).name())
+                            .time(baseSecond + orders.arrivalSeconds(k))
+                            .bool(orders.isLoyal(k))
+                            .endRow();
+                }
+            }
+        }));
+    }
+
+    /**
+     * Streams the run's results as CSV to {@code out}, gzipped if asked. Does
+     * not close {@code out}.
+     */
+    public void writeResults(TestCase testCase, OutputStream out, boolean gzip) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, STREAM_BUFFER_BYTES) : out;
+        ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_BYTES);
+        writeResults(testCase, new CsvEncoder(buffer, bytes -> {
+            target.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+            bytes.position(bytes.limit());
+        }, ", "));
+        if (gzip)
+            ((GZIPOutputStream) target).finish();
+        target.flush();
+    }
+
+    private interface Rows {
+        void write(CsvEncoder csv) throws IOException;
+    }
+
+    private void writeResults(TestCase testCase, CsvEncoder csv) throws IOException {
+        csv.header(RESULTS_HEADER);
+        SimOrderStore orders = testCase.getOrderStore(); // written straight from the columns
+        int baseSecond = orders.getBase().toLocalTime().toSecondOfDay();
+        for (int i = 0; i < orders.size(); i++) {
+            long waitSeconds = orders.completionSeconds(i) - orders.arrivalSeconds(i);
+            csv.number(testCase.getTestNumber())
+                    .text(orders.customerName(i))
+                    .text(orders.drink(i).name()) // Assume 1 item
+                    .time(baseSecond + orders.arrivalSeconds(i))
+                    .decimal(waitSeconds / 60.0)
+                    .decimal(orders.priorityScore(i))
+                    .text(orders.priorityReason(i))
+                    .endRow();
+        }
+        csv.flush();
+    }
+
+    // Writer thread only: encodes into the shared direct buffer, written out
+    // with large sequential channel writes
+    private void writeFile(String filename, String separator, Rows rows) {
+        Path file = dir.resolve(filename);
+        try {
+            Files.createDirectories(dir);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                CsvEncoder csv = new CsvEncoder(fileBuffer, channel::write, separator);
+                rows.write(csv);
+                csv.flush();
+            }
+            System.out.println("Exported " + file);
+        } catch (IOException e) {
+            System.err.println("CSV export to " + file + " failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.coffeeshop.service;
+
+/**
+ * When the live scheduler looks for work.
+ */
+public enum DispatchMode {
+    /** Fixed 1s tick (original behaviour). */
+    POLLING,
+    /** React to order arrivals, barista completions and queue timers as they happen. */
+    EVENT
+}
@@ -0,0 +1,99 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.DrinkType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Drink batching: a barista who starts an order of a batchable drink (e.g.
+ * espresso) also takes other waiting orders of that same drink and makes them
+ * together, the way shots are pulled or cold brews poured several at once.
+ * <p>
+ * The prep time of a batch follows a curve: {@code curve[k - 1]} x the prep
+ * time of one drink for k drinks, so 1.0, 1.3, ... means a second drink adds
+ * 30%. Joining orders are taken best first, and only while no order slips past
+ * its SLA because of the bigger batch: neither a batch member nor the
+ * longest-waiting order left in the queue may go from finishing in time to
+ * finishing late ({@link #slips}).
+ * <p>
+ * Used by the live scheduler with coffeeshop.batching.enabled, and by the
+ * simulator on request. See coffeeshop.batching.* in application.properties.
+ */
+@Component
+public class DrinkBatching {
+
+    private final boolean enabled;
+    private final double[] curve;
+    private final int drinkMask;
+    private final int lookahead;
+
+    /**
+     * @param enabled   whether the live stores batch
+     * @param curve     comma-separated prep time multipliers for 1, 2, ...
+     *                  drinks; starts at 1.0 and its length is the largest batch
+     * @param drinks    comma-separated drinks that can be batched
+     * @param lookahead how far down the queue the live scheduler looks for
+     *                  orders to join a batch
+     */
+    public DrinkBatching(@Value("${coffeeshop.batching.enabled:false}") boolean enabled,
+            @Value("${coffeeshop.batching.curve:1.0,1.3,1.55,1.75}") String curve,
+            @Value("${coffeeshop.batching.drinks:ESPRESSO,AMERICANO,COLD_BREW}") String drinks,
+            @Value("${coffeeshop.batching.lookahead:50}") int lookahead) {
+        this.enabled = enabled;
+        this.curve = Arrays.stream(curve.trim().split("\\s*,\\s*")).mapToDouble(Double::parseDouble).toArray();
+        if (this.curve[0] != 1.0)
+            throw new IllegalArgumentException("Batch prep curve must start at 1.0: " + curve);
+        for (int k = 1; k < this.curve.length; k++) {
+            if (!(this.curve[k] >= this.curve[k - 1]))
+                throw new IllegalArgumentException("Batch prep curve must not decrease: " + curve);
+        }
+        int mask = 0;
+        for (String name : drinks.trim().split("\\s*,\\s*")) {
+            if (!name.isEmpty())
+                mask |= DrinkType.valueOf(name.toUpperCase()).bit();
+        }
+        this.drinkMask = mask;
+        this.lookahead = lookahead;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Largest number of drinks made together.
+     */
+    int maxDrinks() {
+        return curve.length;
+    }
+
+    int lookahead() {
+        return lookahead;
+    }
+
+    /**
+     * Whether orders of these drinks (as a mask) can be batched: they are all
+     * one batchable drink.
+     */
+    boolean batchable(int orderDrinkMask) {
+        return Integer.bitCount(orderDrinkMask) == 1 && (orderDrinkMask & drinkMask) != 0;
+    }
+
+    /**
+     * Standard prep time of {@code drinks} drinks made together, given the
+     * prep time of one, in the same unit.
+     */
+    long prepTime(long singleDrinkPrep, int drinks) {
+        return drinks == 1 ? singleDrinkPrep : Math.round(singleDrinkPrep * curve[drinks - 1]);
+    }
+
+    /**
+     * True if an order due at {@code deadline} makes it when done at
+     * {@code endWithout}, but not at {@code endWith}.
+     */
+    static boolean slips(long deadline, long endWithout, long endWith) {
+        return endWithout <= deadline && endWith > deadline;
+    }
+}
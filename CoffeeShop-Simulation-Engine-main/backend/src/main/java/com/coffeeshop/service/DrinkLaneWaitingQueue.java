@@ -0,0 +1,214 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Waiting queue for a pool with specialist baristas. Orders are split into
+ * lanes by their exact drink combination (at most 2^6 of them), each lane an
+ * ordinary {@link WaitingQueue}. A barista polls the best head among the lanes
+ * whose drinks are all within its skills, so matching by skill costs one
+ * head comparison per lane instead of a scan of the queue. Lanes are kept in
+ * drink mask order; on equal head scores the lower mask is served first.
+ */
+class DrinkLaneWaitingQueue implements WaitingQueue {
+
+    private final Supplier<WaitingQueue> laneFactory;
+    private final Map<Integer, WaitingQueue> lanes = new TreeMap<>(); // by drink mask, ascending
+    private final Map<String, Integer> laneOfOrder = new HashMap<>();
+
+    DrinkLaneWaitingQueue(Supplier<WaitingQueue> laneFactory) {
+        this.laneFactory = laneFactory;
+    }
+
+    @Override
+    public void add(Order order, LocalDateTime now) {
+        int mask = DrinkType.maskOf(order.getDrinks());
+        lanes.computeIfAbsent(mask, m -> laneFactory.get()).add(order, now);
+        laneOfOrder.put(order.getId(), mask);
+    }
+
+    @Override
+    public void advance(LocalDateTime now, Consumer<Order> slaCheck) {
+        for (WaitingQueue lane : lanes.values())
+            lane.advance(now, slaCheck);
+    }
+
+    @Override
+    public Order poll(LocalDateTime now) {
+        return poll(now, DrinkType.ALL_MASK);
+    }
+
+    @Override
+    public Order poll(LocalDateTime now, int skillMask) {
+        WaitingQueue best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (Map.Entry<Integer, WaitingQueue> lane : lanes.entrySet()) {
+            if ((lane.getKey() & ~skillMask) != 0 || lane.getValue().size() == 0)
+                continue;
+            double score = lane.getValue().headScore(now);
+            if (best == null || score > bestScore) {
+                best = lane.getValue();
+                bestScore = score;
+            }
+        }
+        if (best == null)
+            return null;
+        Order order = best.poll(now);
+        laneOfOrder.remove(order.getId());
+        return order;
+    }
+
+    @Override
+    public boolean hasWorkFor(int skillMask) {
+        for (Map.Entry<Integer, WaitingQueue> lane : lanes.entrySet()) {
+            if ((lane.getKey() & ~skillMask) == 0 && lane.getValue().size() > 0)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public double headScore(LocalDateTime now) {
+        double best = Double.NEGATIVE_INFINITY;
+        for (WaitingQueue lane : lanes.values())
+            best = Math.max(best, lane.headScore(now));
+        return best;
+    }
+
+    @Override
+    public Order remove(String orderId) {
+        Integer mask = laneOfOrder.remove(orderId);
+        return mask == null ? null : lanes.get(mask).remove(orderId);
+    }
+
+    @Override
+    public LocalDateTime nextDueEvent(LocalDateTime now) {
+        LocalDateTime next = null;
+        for (WaitingQueue lane : lanes.values()) {
+            LocalDateTime due = lane.nextDueEvent(now);
+            if (due != null && (next == null || due.isBefore(next)))
+                next = due;
+        }
+        return next;
+    }
+
+    @Override
+    public boolean contains(String orderId) {
+        return laneOfOrder.containsKey(orderId);
+    }
+
+    @Override
+    public Order get(String orderId) {
+        Integer mask = laneOfOrder.get(orderId);
+        return mask == null ? null : lanes.get(mask).get(orderId);
+    }
+
+    @Override
+    public int size() {
+        return laneOfOrder.size();
+    }
+
+    @Override
+    public List<Order> snapshot(LocalDateTime now) {
+        List<Order> merged = new ArrayList<>(size());
+        for (WaitingQueue lane : lanes.values())
+            merged.addAll(lane.snapshot(now));
+        return byScore(merged, now);
+    }
+
+    @Override
+    public double score(String orderId, LocalDateTime now) {
+        Integer mask = laneOfOrder.get(orderId);
+        return mask == null ? Double.NaN : lanes.get(mask).score(orderId, now);
+    }
+
+    @Override
+    public int countAbove(double score, LocalDateTime now) {
+        int count = 0;
+        for (WaitingQueue lane : lanes.values())
+            count += lane.countAbove(score, now);
+        return count;
+    }
+
+    @Override
+    public int countAtLeast(double score, LocalDateTime now) {
+        int count = 0;
+        for (WaitingQueue lane : lanes.values())
+            count += lane.countAtLeast(score, now);
+        return count;
+    }
+
+    @Override
+    public long prepMinutesAbove(double score, LocalDateTime now) {
+        long sum = 0;
+        for (WaitingQueue lane : lanes.values())
+            sum += lane.prepMinutesAbove(score, now);
+        return sum;
+    }
+
+    @Override
+    public long prepMinutesAboveOnceUrgent(double urgentScore, LocalDateTime at) {
+        long sum = 0;
+        for (WaitingQueue lane : lanes.values())
+            sum += lane.prepMinutesAboveOnceUrgent(urgentScore, at);
+        return sum;
+    }
+
+    @Override
+    public int position(String orderId, LocalDateTime now) {
+        Integer mask = laneOfOrder.get(orderId);
+        if (mask == null)
+            return 0;
+        WaitingQueue own = lanes.get(mask);
+        double score = own.score(orderId, now);
+        int position = own.position(orderId, now);
+        for (Map.Entry<Integer, WaitingQueue> lane : lanes.entrySet()) {
+            if (lane.getValue() == own)
+                continue;
+            // poll() serves a lower-mask lane first on a tie
+            position += lane.getKey() < mask ? lane.getValue().countAtLeast(score, now)
+                    : lane.getValue().countAbove(score, now);
+        }
+        return position;
+    }
+
+    @Override
+    public Iterator<Order> from(double maxScore, LocalDateTime now) {
+        List<Iterator<Order>> walks = new ArrayList<>(lanes.size());
+        for (WaitingQueue lane : lanes.values())
+            walks.add(lane.from(maxScore, now));
+        return new MergedOrderIterator(walks, o -> score(o.getId(), now));
+    }
+
+    @Override
+    public List<Order> head(LocalDateTime now, int limit) {
+        // The overall head is made of lane heads, so no lane gives more than limit
+        List<Order> merged = new ArrayList<>();
+        for (WaitingQueue lane : lanes.values())
+            merged.addAll(lane.head(now, limit));
+        byScore(merged, now);
+        return merged.size() <= limit ? merged : new ArrayList<>(merged.subList(0, limit));
+    }
+
+    // Serving order of lane orders listed lane by lane: by the scores poll()
+    // compares, ties kept in lane order (the sort is stable)
+    private List<Order> byScore(List<Order> orders, LocalDateTime now) {
+        Map<Order, Double> scores = new HashMap<>(orders.size() * 2);
+        for (Order o : orders)
+            scores.put(o, score(o.getId(), now));
+        orders.sort(Comparator.comparingDouble((Order o) -> scores.get(o)).reversed());
+        return orders;
+    }
+}
@@ -0,0 +1,36 @@
+package com.coffeeshop.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Earliest deadline first (EDF). Every order has the same 10 minute SLA, so
+ * ranking by the completion deadline alone would just be FIFO; this ranks by
+ * the latest time an order can start and still make it (arrival + SLA - prep
+ * time). The score is how many seconds past that start deadline the order
+ * is: negative while it can still make the SLA.
+ */
+@Component
+public class EarliestDeadlinePolicy implements SchedulingPolicy {
+
+    public static final String NAME = "EDF";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public long unitsPerPoint() {
+        return 1;
+    }
+
+    @Override
+    public long intercept(int totalPrepMinutes, boolean loyal) {
+        return 60L * totalPrepMinutes - PriorityCalculator.MAX_WAIT_THRESHOLD_SECONDS;
+    }
+
+    @Override
+    public long risingSlope() {
+        return 1;
+    }
+}
@@ -0,0 +1,252 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Barista;
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Estimated completion of a store's waiting orders (etaSeconds), projected
+ * from when each barista is next free, the prep times of the orders ahead and
+ * how priorities move in the meantime.
+ * <p>
+ * The head of the queue is simulated the way the scheduler will serve it:
+ * whenever a barista frees up, it takes the highest-scoring order it can make,
+ * scored at that moment, so an order that crosses the urgency cliff before it
+ * is served jumps ahead here as it will for real. Scores only change rank at
+ * the cliff, so the head is kept in two heaps per drink mask, by rising and by
+ * urgent key, and each pick compares their tops instead of rescanning the
+ * head: O(L log L) for a head of L orders. Further back, the pool is
+ * treated as one server working through the prep time ahead at its combined
+ * speed; the queue sums that prep time in O(log n)
+ * ({@link WaitingQueue#prepMinutesAbove}).
+ * <p>
+ * The simulation is only redone after the queue or the baristas change
+ * ({@link #invalidate}), on the next read. Estimates are absolute times, so
+ * they stay right as the clock moves. Loop thread only.
+ */
+class EtaEstimator {
+
+    private static final int MIN_LOOK_AHEAD = 64; // orders simulated one by one
+
+    private final WaitingQueue queue;
+    private final List<Barista> baristas;
+    private final List<BaristaProfile> profiles;
+    private final SchedulingPolicy policy;
+    private final int[] skillMasks;
+    private final int lookAhead;
+    private final double totalSpeed;
+
+    // Head orders with one drink mask, best first: rising orders by rising
+    // key, orders past the cliff by urgent key (ties by queue position)
+    private static final class Lane {
+        final int drinkMask;
+        final PriorityQueue<Integer> rising;
+        final PriorityQueue<Integer> urgent;
+
+        Lane(int drinkMask, double[] risingKey, double[] urgentKey) {
+            this.drinkMask = drinkMask;
+            this.rising = new PriorityQueue<>((x, y) -> risingKey[x] != risingKey[y]
+                    ? Double.compare(risingKey[y], risingKey[x]) : Integer.compare(x, y));
+            this.urgent = new PriorityQueue<>((x, y) -> urgentKey[x] != urgentKey[y]
+                    ? Double.compare(urgentKey[y], urgentKey[x]) : Integer.compare(x, y));
+        }
+    }
+
+    private boolean stale = true;
+    private final Map<String, Long> headCompletion = new HashMap<>(); // epoch millis, by order ID
+    private long headPrepMinutes; // of the simulated orders
+    private double weightedFreeAt; // sum of speed * free time over baristas after the head
+
+    EtaEstimator(WaitingQueue queue, List<Barista> baristas, List<BaristaProfile> profiles,
+            SchedulingPolicy policy) {
+        this.queue = queue;
+        this.baristas = baristas;
+        this.profiles = profiles;
+        this.policy = policy;
+        this.skillMasks = new int[profiles.size()];
+        double speed = 0;
+        for (int i = 0; i < profiles.size(); i++) {
+            skillMasks[i] = profiles.get(i).skillMask();
+            speed += profiles.get(i).getSpeedMultiplier();
+        }
+        this.totalSpeed = speed;
+        this.lookAhead = Math.max(MIN_LOOK_AHEAD, 8 * profiles.size());
+    }
+
+    /**
+     * The queue or a barista changed; estimates are recomputed on the next read.
+     */
+    void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Seconds until a waiting order should be ready.
+     */
+    long etaSeconds(Order order, LocalDateTime now) {
+        long nowMillis = epochMillis(now);
+        refreshIfStale(now, nowMillis);
+        Long completion = headCompletion.get(order.getId());
+        if (completion != null)
+            return secondsUntil(completion, nowMillis);
+        double score = queue.score(order.getId(), now);
+        long prepAhead = Double.isNaN(score) ? 0 : queue.prepMinutesAbove(score, now);
+        return secondsUntil(tailCompletion(order, prepAhead, now, nowMillis), nowMillis);
+    }
+
+    /**
+     * Sets etaSeconds on orders given in queue order from the head (e.g. a
+     * snapshot); the prep ahead by current rank is summed along the way.
+     */
+    void setEtas(List<Order> inQueueOrder, LocalDateTime now) {
+        long nowMillis = epochMillis(now);
+        refreshIfStale(now, nowMillis);
+        long prepAhead = 0;
+        for (Order o : inQueueOrder) {
+            Long completion = headCompletion.get(o.getId());
+            if (completion == null)
+                completion = tailCompletion(o, prepAhead, now, nowMillis);
+            o.setEtaSeconds(secondsUntil(completion, nowMillis));
+            prepAhead += o.getTotalPrepTime();
+        }
+    }
+
+    // Behind the simulated head: the whole pool, as one server, first works
+    // through the prep time of the orders served before this one. By current
+    // rank, unless the order will have crossed the urgency cliff by then: from
+    // that point on, everything still waiting is urgent and ranked by its
+    // urgent score instead
+    private long tailCompletion(Order order, long prepMinutesAheadNow, LocalDateTime now, long nowMillis) {
+        double start = tailStart(prepMinutesAheadNow);
+        long arrivalMillis = epochMillis(order.getArrivalTime());
+        if (start > arrivalMillis + policy.crossoverSeconds() * 1000.0) {
+            LocalDateTime at = now.plusNanos((long) ((start - nowMillis) * 1_000_000));
+            double urgentScore = policy.urgentScoreAt(order, (start - arrivalMillis) / 1000.0);
+            start = tailStart(queue.prepMinutesAboveOnceUrgent(urgentScore, at));
+        }
+        double prep = order.getTotalPrepTime() * (double) BaristaScheduler.PREP_MILLIS_PER_MINUTE
+                / (totalSpeed / profiles.size()); // at the average speed
+        return (long) Math.ceil(start + prep);
+    }
+
+    private double tailStart(long prepMinutesAhead) {
+        double work = Math.max(0, prepMinutesAhead - headPrepMinutes) * (double) BaristaScheduler.PREP_MILLIS_PER_MINUTE;
+        return (weightedFreeAt + work) / totalSpeed;
+    }
+
+    private void refreshIfStale(LocalDateTime now, long nowMillis) {
+        if (!stale)
+            return;
+        stale = false;
+        headCompletion.clear();
+        headPrepMinutes = 0;
+
+        int b = baristas.size();
+        long[] freeAt = new long[b];
+        for (int i = 0; i < b; i++) {
+            Barista barista = baristas.get(i);
+            freeAt[i] = barista.getCurrentOrder() != null ? Math.max(nowMillis, barista.getBusyUntilEpochMillis())
+                    : nowMillis;
+        }
+
+        List<Order> head = queue.head(now, lookAhead);
+        int n = head.size();
+        long[] arrivalMillis = new long[n];
+        double[] risingKey = new double[n];
+        double[] urgentKey = new double[n];
+        Integer[] byArrival = new Integer[n];
+        for (int j = 0; j < n; j++) {
+            Order order = head.get(j);
+            arrivalMillis[j] = epochMillis(order.getArrivalTime());
+            double arrival = (arrivalMillis[j] - nowMillis) / 1000.0;
+            long intercept = policy.intercept(order.getTotalPrepTime(), order.isLoyal());
+            risingKey[j] = intercept - policy.risingSlope() * arrival;
+            urgentKey[j] = intercept + policy.urgentBoost() - policy.urgentSlope() * arrival;
+            byArrival[j] = j;
+        }
+        Arrays.sort(byArrival, Comparator.comparingLong(j -> arrivalMillis[j]));
+        boolean[] served = new boolean[n];
+        boolean[] urgent = new boolean[n];
+        Map<Integer, Lane> lanes = new HashMap<>();
+        for (int j = 0; j < n; j++) {
+            int drinkMask = DrinkType.maskOf(head.get(j).getDrinks());
+            lanes.computeIfAbsent(drinkMask, mask -> new Lane(mask, risingKey, urgentKey)).rising.add(j);
+        }
+
+        // Replay the scheduler: the barista free first (lowest index on ties)
+        // takes the best order it can make, scored at that moment
+        PriorityQueue<Integer> free = new PriorityQueue<>(Math.max(1, b),
+                (x, y) -> freeAt[x] != freeAt[y] ? Long.compare(freeAt[x], freeAt[y]) : Integer.compare(x, y));
+        for (int i = 0; i < b; i++)
+            free.add(i);
+        double crossoverMillis = policy.crossoverSeconds() * 1000.0;
+        int crossed = 0; // of byArrival, past the cliff and moved to their urgent heap
+        int left = n;
+        while (left > 0 && !free.isEmpty()) {
+            int next = free.poll();
+            long t = freeAt[next];
+            for (; crossed < n && arrivalMillis[byArrival[crossed]] + crossoverMillis < t; crossed++) {
+                int j = byArrival[crossed];
+                if (served[j])
+                    continue;
+                urgent[j] = true; // left in its rising heap, skipped there from now on
+                lanes.get(DrinkType.maskOf(head.get(j).getDrinks())).urgent.add(j);
+            }
+
+            // Each heap is in score order at any one time; compare their tops
+            PriorityQueue<Integer> from = null;
+            int best = -1;
+            double bestScore = 0;
+            for (Lane lane : lanes.values()) {
+                if ((lane.drinkMask & ~skillMasks[next]) != 0)
+                    continue;
+                while (!lane.rising.isEmpty() && urgent[lane.rising.peek()])
+                    lane.rising.poll();
+                for (PriorityQueue<Integer> heap : List.of(lane.rising, lane.urgent)) {
+                    if (heap.isEmpty())
+                        continue;
+                    int j = heap.peek();
+                    double score = policy.scoreAt(head.get(j), (t - arrivalMillis[j]) / 1000.0);
+                    if (best < 0 || score > bestScore || (score == bestScore && j < best)) {
+                        from = heap;
+                        best = j;
+                        bestScore = score;
+                    }
+                }
+            }
+            if (best < 0)
+                continue; // nothing left in the head it can make: idle for good
+            from.poll();
+            served[best] = true;
+            Order order = head.get(best);
+            left--;
+            freeAt[next] = t + profiles.get(next).prepTime(order.getTotalPrepTime()
+                    * BaristaScheduler.PREP_MILLIS_PER_MINUTE);
+            free.add(next);
+            headCompletion.put(order.getId(), freeAt[next]);
+            headPrepMinutes += order.getTotalPrepTime();
+        }
+
+        weightedFreeAt = 0;
+        for (int i = 0; i < b; i++)
+            weightedFreeAt += profiles.get(i).getSpeedMultiplier() * freeAt[i];
+    }
+
+    private static long secondsUntil(long epochMillis, long nowMillis) {
+        return Math.max(0, (epochMillis - nowMillis + 999) / 1000);
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
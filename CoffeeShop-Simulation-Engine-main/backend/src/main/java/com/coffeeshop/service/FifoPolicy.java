@@ -0,0 +1,32 @@
+package com.coffeeshop.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * First come, first served (FIFO): the score is the wait in seconds.
+ */
+@Component
+public class FifoPolicy implements SchedulingPolicy {
+
+    public static final String NAME = "FIFO";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public long unitsPerPoint() {
+        return 1;
+    }
+
+    @Override
+    public long intercept(int totalPrepMinutes, boolean loyal) {
+        return 0;
+    }
+
+    @Override
+    public long risingSlope() {
+        return 1;
+    }
+}
@@ -0,0 +1,336 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Order;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Disk tier of a store's completed history: the orders pushed out of the
+ * in-memory ring ({@link CompletedHistory}), appended in completion order to
+ * {@code history-N.seg} files of up to {@code segmentBytes}. Once there are more
+ * than {@code maxSegments}, the oldest file is deleted.
+ * <p>
+ * A record is {@code [int length][order]}, the order encoded as in the journal
+ * checkpoints. Every {@link #INDEX_STRIDE}th record's completion time and file
+ * offset go into a sparse in-memory index, so a time-range read seeks close to
+ * its start and decodes at most a stride of records it doesn't return.
+ * <p>
+ * Appends are loop thread only. Files and index entries are only ever
+ * appended to, so a {@link View} taken on the loop can be read on any thread.
+ */
+class HistorySpill {
+
+    private static final int INDEX_STRIDE = 64;
+    private static final int READ_CHUNK = 64 * 1024;
+
+    private static final class Segment {
+        final long number;
+        final Path file;
+        FileChannel channel; // append only, null once closed
+        long size;
+        long records;
+        long[] indexMillis = new long[16]; // completion time of every INDEX_STRIDE-th record
+        long[] indexOffsets = new long[16];
+        int indexCount;
+        long firstMillis = Long.MAX_VALUE, lastMillis = Long.MIN_VALUE;
+
+        Segment(long number, Path file) {
+            this.number = number;
+            this.file = file;
+        }
+    }
+
+    /**
+     * Immutable view of one segment as of {@link #view()}.
+     */
+    record SegmentView(Path file, long size, long[] indexMillis, long[] indexOffsets, int indexCount,
+            long firstMillis, long lastMillis) {
+    }
+
+    record View(List<SegmentView> segments) {
+    }
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final int maxSegments;
+    private final List<Segment> segments = new ArrayList<>(); // oldest first
+    private ByteBuffer scratch = ByteBuffer.allocate(1024);
+    private Set<String> respilled = new HashSet<>(); // IDs of replayed orders already on disk
+
+    HistorySpill(Path dir, long segmentBytes, int maxSegments) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = Math.max(1, maxSegments);
+    }
+
+    /**
+     * Reopens the segments a previous run left behind and rebuilds their index;
+     * a torn last record is cut off.
+     */
+    void open() throws IOException {
+        if (!Files.isDirectory(dir))
+            return; // created by the first spilled order
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(f -> numberOf(f) >= 0)
+                    .sorted(Comparator.comparingLong(HistorySpill::numberOf))
+                    .toList();
+        }
+        for (Path file : files) {
+            Segment segment = new Segment(numberOf(file), file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                RecordReader reader = new RecordReader(channel, 0, channel.size());
+                Order order;
+                while ((order = reader.next()) != null)
+                    index(segment, reader.recordOffset, order);
+                segment.size = reader.offset;
+                channel.truncate(segment.size);
+            }
+            segments.add(segment);
+        }
+    }
+
+    /**
+     * Before a journal replay re-adds {@code orders} to the ring: remembers
+     * which of them a previous run already spilled, so evicting them again
+     * doesn't append them twice. Only the spill from the earliest of their
+     * completion times on is read.
+     */
+    void replaying(List<Order> orders) {
+        if (orders.isEmpty() || segments.isEmpty())
+            return;
+        Set<String> ids = new HashSet<>();
+        LocalDateTime from = null;
+        for (Order o : orders) {
+            ids.add(o.getId());
+            if (from == null || o.getCompletionTime().isBefore(from))
+                from = o.getCompletionTime();
+        }
+        for (Order o : read(view(), from, null, Integer.MAX_VALUE)) {
+            if (ids.contains(o.getId()))
+                respilled.add(o.getId());
+        }
+    }
+
+    /**
+     * Appends an order evicted from the ring, unless it is already on disk
+     * (see {@link #replaying}).
+     */
+    void append(Order order) {
+        if (!respilled.isEmpty() && respilled.remove(order.getId()))
+            return;
+        while (true) {
+            try {
+                scratch.clear();
+                scratch.putInt(0);
+                OrderJournal.putOrder(scratch, order);
+                break;
+            } catch (BufferOverflowException e) {
+                scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+            }
+        }
+        scratch.putInt(0, scratch.position() - 4).flip();
+        try {
+            Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment == null || segment.channel == null || (segment.records > 0
+                    && segment.size + scratch.remaining() > segmentBytes))
+                segment = roll();
+            long offset = segment.size;
+            while (scratch.hasRemaining())
+                segment.size += segment.channel.write(scratch, segment.size);
+            index(segment, offset, order);
+        } catch (IOException e) {
+            System.err.println("History spill to " + dir + " failed: " + e.getMessage());
+        }
+    }
+
+    private Segment roll() throws IOException {
+        Files.createDirectories(dir);
+        if (!segments.isEmpty())
+            close(segments.get(segments.size() - 1));
+        long number = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).number + 1;
+        Segment segment = new Segment(number, dir.resolve("history-" + number + ".seg"));
+        segment.channel = FileChannel.open(segment.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        segments.add(segment);
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.remove(0);
+            close(oldest);
+            Files.deleteIfExists(oldest.file); // readers holding a view just skip it
+        }
+        return segment;
+    }
+
+    private void index(Segment segment, long offset, Order order) {
+        long millis = epochMillis(order.getCompletionTime());
+        if (segment.records % INDEX_STRIDE == 0) {
+            if (segment.indexCount == segment.indexMillis.length) {
+                segment.indexMillis = Arrays.copyOf(segment.indexMillis, segment.indexCount * 2);
+                segment.indexOffsets = Arrays.copyOf(segment.indexOffsets, segment.indexCount * 2);
+            }
+            segment.indexMillis[segment.indexCount] = millis;
+            segment.indexOffsets[segment.indexCount++] = offset;
+        }
+        segment.records++;
+        segment.firstMillis = Math.min(segment.firstMillis, millis);
+        segment.lastMillis = Math.max(segment.lastMillis, millis);
+    }
+
+    void close() {
+        for (Segment segment : segments)
+            close(segment);
+    }
+
+    private static void close(Segment segment) {
+        if (segment.channel == null)
+            return;
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            // Nothing buffered on our side
+        }
+        segment.channel = null;
+    }
+
+    /**
+     * What is on disk right now. Index arrays are shared, not copied: entries
+     * below {@code indexCount} never change and a grown index is a new array.
+     */
+    View view() {
+        List<SegmentView> views = new ArrayList<>(segments.size());
+        for (Segment s : segments) {
+            if (s.records > 0)
+                views.add(new SegmentView(s.file, s.size, s.indexMillis, s.indexOffsets, s.indexCount,
+                        s.firstMillis, s.lastMillis));
+        }
+        return new View(views);
+    }
+
+    /**
+     * Up to {@code limit} spilled orders completed between {@code from} and
+     * {@code to} (inclusive, null for unbounded), oldest first.
+     */
+    static List<Order> read(View view, LocalDateTime from, LocalDateTime to, int limit) {
+        List<Order> result = new ArrayList<>();
+        long fromMillis = from == null ? Long.MIN_VALUE : epochMillis(from);
+        long toMillis = to == null ? Long.MAX_VALUE : epochMillis(to);
+        for (SegmentView s : view.segments()) {
+            if (result.size() >= limit)
+                break;
+            if (s.lastMillis() < fromMillis || s.firstMillis() > toMillis)
+                continue;
+            // Last indexed record completed before from: the match starts at or after it
+            int lo = 0, hi = s.indexCount();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (s.indexMillis()[mid] < fromMillis)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            long start = lo == 0 ? 0 : s.indexOffsets()[lo - 1];
+            try (FileChannel channel = FileChannel.open(s.file(), StandardOpenOption.READ)) {
+                RecordReader reader = new RecordReader(channel, start, s.size());
+                Order order;
+                while (result.size() < limit && (order = reader.next()) != null) {
+                    if (to != null && order.getCompletionTime().isAfter(to))
+                        break;
+                    if (from == null || !order.getCompletionTime().isBefore(from))
+                        result.add(order);
+                }
+            } catch (IOException e) {
+                // Segment deleted since the view was taken: those orders aged out
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sequential, buffered decoding of the records in [start, end) of a
+     * segment; stops at the first torn record.
+     */
+    private static final class RecordReader {
+        private final FileChannel channel;
+        private final long end;
+        private ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK).flip();
+        private long filled; // file offset just past the buffered bytes
+        long offset; // file offset of the next record
+        long recordOffset; // file offset of the record last returned
+
+        RecordReader(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.offset = start;
+            this.filled = start;
+            this.end = end;
+        }
+
+        Order next() throws IOException {
+            if (!ensure(4))
+                return null;
+            int length = buffer.getInt(buffer.position());
+            if (length <= 0 || !ensure(4 + length))
+                return null;
+            ByteBuffer record = buffer.slice(buffer.position() + 4, length);
+            Order order;
+            try {
+                order = OrderJournal.getOrder(record);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                return null;
+            }
+            buffer.position(buffer.position() + 4 + length);
+            recordOffset = offset;
+            offset += 4 + length;
+            return order;
+        }
+
+        // Whether n bytes are buffered, reading more if needed
+        private boolean ensure(int n) throws IOException {
+            while (buffer.remaining() < n) {
+                if (filled >= end)
+                    return false;
+                if (n > buffer.capacity())
+                    buffer = ByteBuffer.allocate(n).put(buffer).flip();
+                buffer.compact();
+                buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + (end - filled)));
+                int read = channel.read(buffer, filled);
+                buffer.flip();
+                if (read <= 0)
+                    return false;
+                filled += read;
+            }
+            return true;
+        }
+    }
+
+    // history-12.seg -> 12; -1 for anything else
+    private static long numberOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith("history-") || !name.endsWith(".seg"))
+            return -1;
+        try {
+            return Long.parseLong(name.substring("history-".length(), name.length() - ".seg".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1000 + time.getNano() / 1_000_000;
+    }
+}
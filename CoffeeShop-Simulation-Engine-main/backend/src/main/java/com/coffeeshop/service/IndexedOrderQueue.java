@@ -0,0 +1,273 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Order;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Indexed binary max-heap of waiting orders, keyed by a priority key (the
+ * priority score itself, or a static rank key in analytic scoring mode).
+ * <p>
+ * Every order's heap slot is tracked by order ID, so a key change, a lookup or
+ * a removal never has to scan the queue. Ties on score are broken by arrival
+ * into the queue (first come, first served).
+ * <ul>
+ * <li>add / poll / updatePriority / remove: O(log n)</li>
+ * <li>peek / contains / get / size: O(1)</li>
+ * <li>top k: O(k log k)</li>
+ * <li>reprioritize (rescore everything), countAhead: O(n)</li>
+ * </ul>
+ * Not thread-safe; owned by a single thread (the scheduler loop).
+ */
+public class IndexedOrderQueue {
+
+    private Order[] heap = new Order[64];
+    private double[] keys = new double[64];
+    private long[] sequence = new long[64]; // insertion order, for tie-breaks
+    private int size;
+    private long nextSequence;
+    private final Map<String, Integer> positions = new HashMap<>();
+
+    public void add(Order order) {
+        add(order, order.getPriorityScore());
+    }
+
+    public void add(Order order, double key) {
+        if (positions.containsKey(order.getId())) {
+            updateKey(order.getId(), key);
+            return;
+        }
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+            sequence = Arrays.copyOf(sequence, size * 2);
+        }
+        heap[size] = order;
+        keys[size] = key;
+        sequence[size] = nextSequence++;
+        positions.put(order.getId(), size);
+        siftUp(size++);
+    }
+
+    public Order peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    public double peekKey() {
+        return size == 0 ? Double.NEGATIVE_INFINITY : keys[0];
+    }
+
+    public Order poll() {
+        if (size == 0)
+            return null;
+        Order top = heap[0];
+        removeAt(0);
+        return top;
+    }
+
+    public boolean contains(String orderId) {
+        return positions.containsKey(orderId);
+    }
+
+    public Order get(String orderId) {
+        Integer idx = positions.get(orderId);
+        return idx == null ? null : heap[idx];
+    }
+
+    public Order remove(String orderId) {
+        Integer idx = positions.get(orderId);
+        if (idx == null)
+            return null;
+        Order removed = heap[idx];
+        removeAt(idx);
+        return removed;
+    }
+
+    /**
+     * Increase- or decrease-key for a single order; the order's priority score
+     * becomes the new key.
+     */
+    public boolean updatePriority(String orderId, double newScore) {
+        Integer idx = positions.get(orderId);
+        if (idx == null)
+            return false;
+        heap[idx].setPriorityScore(newScore);
+        return updateKey(orderId, newScore);
+    }
+
+    public boolean updateKey(String orderId, double newKey) {
+        Integer idx = positions.get(orderId);
+        if (idx == null)
+            return false;
+        double oldKey = keys[idx];
+        keys[idx] = newKey;
+        if (newKey > oldKey)
+            siftUp(idx);
+        else if (newKey < oldKey)
+            siftDown(idx);
+        return true;
+    }
+
+    /**
+     * Rescores every order in place and restores the heap in one O(n) pass,
+     * instead of n separate key updates. The rescored priority score is the key.
+     */
+    public void reprioritize(Consumer<Order> scorer) {
+        for (int i = 0; i < size; i++) {
+            scorer.accept(heap[i]);
+            keys[i] = heap[i].getPriorityScore();
+        }
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Number of orders served before this one (ties by arrival into the
+     * queue), -1 if it isn't queued.
+     */
+    public int countAhead(String orderId) {
+        Integer idx = positions.get(orderId);
+        if (idx == null)
+            return -1;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (higher(i, idx))
+                count++;
+        }
+        return count;
+    }
+
+    public void forEach(Consumer<Order> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(heap[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copy of the queue in priority order (highest first). O(n log n), meant for
+     * API reads rather than the scheduling path.
+     */
+    public List<Order> sortedSnapshot() {
+        Integer[] slots = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = i;
+        }
+        Arrays.sort(slots, this::compareSlots);
+        List<Order> sorted = new ArrayList<>(size);
+        for (Integer slot : slots) {
+            sorted.add(heap[slot]);
+        }
+        return sorted;
+    }
+
+    /**
+     * The first {@code limit} orders in priority order, without sorting the
+     * rest: a best-first walk of the heap that only expands the children of
+     * slots already taken.
+     */
+    public List<Order> top(int limit) {
+        int n = Math.min(limit, size);
+        List<Order> top = new ArrayList<>(n);
+        if (n == 0)
+            return top;
+        PriorityQueue<Integer> frontier = new PriorityQueue<>(this::compareSlots);
+        frontier.add(0);
+        while (top.size() < n) {
+            int slot = frontier.poll();
+            top.add(heap[slot]);
+            if (2 * slot + 1 < size)
+                frontier.add(2 * slot + 1);
+            if (2 * slot + 2 < size)
+                frontier.add(2 * slot + 2);
+        }
+        return top;
+    }
+
+    private int compareSlots(int a, int b) {
+        return higher(a, b) ? -1 : (higher(b, a) ? 1 : 0);
+    }
+
+    private void removeAt(int idx) {
+        positions.remove(heap[idx].getId());
+        int last = --size;
+        if (idx != last) {
+            move(last, idx);
+            heap[last] = null;
+            siftDown(idx);
+            siftUp(idx);
+        } else {
+            heap[last] = null;
+        }
+    }
+
+    // True if slot a should be served before slot b
+    private boolean higher(int a, int b) {
+        double ka = keys[a];
+        double kb = keys[b];
+        if (ka != kb)
+            return ka > kb;
+        return sequence[a] < sequence[b];
+    }
+
+    private void siftUp(int idx) {
+        while (idx > 0) {
+            int parent = (idx - 1) >>> 1;
+            if (!higher(idx, parent))
+                break;
+            swap(idx, parent);
+            idx = parent;
+        }
+    }
+
+    private void siftDown(int idx) {
+        while (true) {
+            int left = 2 * idx + 1;
+            if (left >= size)
+                break;
+            int best = left;
+            int right = left + 1;
+            if (right < size && higher(right, left))
+                best = right;
+            if (!higher(best, idx))
+                break;
+            swap(idx, best);
+            idx = best;
+        }
+    }
+
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        keys[to] = keys[from];
+        sequence[to] = sequence[from];
+        positions.put(heap[to].getId(), to);
+    }
+
+    private void swap(int a, int b) {
+        Order o = heap[a];
+        double k = keys[a];
+        long s = sequence[a];
+        heap[a] = heap[b];
+        keys[a] = keys[b];
+        sequence[a] = sequence[b];
+        heap[b] = o;
+        keys[b] = k;
+        sequence[b] = s;
+        positions.put(heap[a].getId(), a);
+        positions.put(heap[b].getId(), b);
+    }
+}
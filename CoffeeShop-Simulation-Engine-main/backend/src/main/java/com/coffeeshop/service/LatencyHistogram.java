@@ -0,0 +1,119 @@
+package com.coffeeshop.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory, HDR-style log-linear histogram of non-negative long values.
+ * <p>
+ * Values below 128 get an exact bucket; above that every power of two is split
+ * into 64 linear sub-buckets, so any recorded value is reported within ~1.6%.
+ * The bucket array is allocated once (about 18 KB) and {@link #record} is a
+ * couple of atomic increments: lock-free and allocation-free, safe to call
+ * from the scheduler loop and from request threads at the same time.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR_LIMIT = 128;
+    private static final int SUB_BUCKETS = 64;
+    private static final int MAX_EXPONENT = 40; // values up to 2^41 - 1, larger ones are clamped
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_EXPONENT - 6) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalSum = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        totalSum.addAndGet(value);
+        long max;
+        while (value > (max = maxValue.get()) && !maxValue.compareAndSet(max, value)) {
+            // retry
+        }
+    }
+
+    /**
+     * Clears every count. Not atomic against a concurrent {@link #record}; meant
+     * for a histogram that a single thread records into and reuses, such as a
+     * per-interval one.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            counts.set(i, 0);
+        totalCount.set(0);
+        totalSum.set(0);
+        maxValue.set(0);
+    }
+
+    public long count() {
+        return totalCount.get();
+    }
+
+    public long max() {
+        return maxValue.get();
+    }
+
+    public double mean() {
+        long n = totalCount.get();
+        return n == 0 ? 0.0 : (double) totalSum.get() / n;
+    }
+
+    /**
+     * Value at the given percentile (0-100): the highest value equivalent to the
+     * bucket holding that rank, capped at the recorded max.
+     */
+    public long percentile(double percentile) {
+        long n = totalCount.get();
+        if (n == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(highestValueIn(i), maxValue.get());
+        }
+        return maxValue.get();
+    }
+
+    /**
+     * Count, mean, max and the p50/p90/p99/p99.9 percentiles, in recorded units.
+     */
+    public Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count());
+        summary.put("mean", mean());
+        summary.put("p50", percentile(50));
+        summary.put("p90", percentile(90));
+        summary.put("p99", percentile(99));
+        summary.put("p999", percentile(99.9));
+        summary.put("max", max());
+        return summary;
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_LIMIT)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value); // >= 7
+        if (exponent > MAX_EXPONENT)
+            return BUCKET_COUNT - 1;
+        int shift = exponent - 6;
+        int sub = (int) (value >>> shift); // 64..127
+        return LINEAR_LIMIT + (exponent - 7) * SUB_BUCKETS + (sub - SUB_BUCKETS);
+    }
+
+    private static long highestValueIn(int index) {
+        if (index < LINEAR_LIMIT)
+            return index;
+        int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + 7;
+        int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        int shift = exponent - 6;
+        return ((long) (sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,363 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.SimOrderStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Waiting queue for the discrete-event simulator that serves orders in
+ * exactly the order the original engine did, for the WEIGHTED policy with
+ * all-round baristas and no batching.
+ * <p>
+ * The original engine kept waiting orders in a {@link java.util.PriorityQueue}
+ * and, at every event, rescored all of them in floating point and rebuilt the
+ * heap by offering its array back one element at a time. Where scores tie, the
+ * order served first is whichever the heap layout puts on top, not the earlier
+ * arrival, and scores that are equal in exact arithmetic can compare either
+ * way once rounded. The fixed scenarios have many such ties, so
+ * {@link SimWaitingQueue}, which breaks them by arrival, serves a quarter of
+ * their orders differently.
+ * <p>
+ * This queue keeps the same array layout and compares the same floating-point
+ * scores, but a rebuild only revisits the slots whose parent relation can have
+ * changed since the last one: orders added since (at the end of the array,
+ * with score 0, so the original offer never moved them), orders that crossed
+ * the urgency threshold, and parent/child pairs whose scores are equal in
+ * exact arithmetic. Any other pair keeps its relation, since every order below
+ * the threshold gains score at one rate and every order above it at another.
+ * Slots are revisited in array order, as the original re-offered them, and
+ * whatever a revisit moves puts its children up for a revisit too. A rebuild
+ * is then O(changed slots log n) instead of O(n log n).
+ */
+final class LegacyOrderHeap implements SimOrderQueue {
+
+    private final SimOrderStore orders;
+    private final int crossoverSeconds;
+    private final long[] risingKey; // exact scores minus the rising slope times now, for finding ties
+    private final long[] urgentKey;
+    private final byte[] kind; // prep minutes and loyalty, all the score depends on besides the wait
+    private final double[] complexityScore, loyaltyScore; // by kind
+    private final int[] heap; // order indices, laid out as java.util.PriorityQueue lays them out
+    private final int[] slotOf; // -1 once taken
+    private int size;
+    private final int[] arrivalOrder; // queued orders in arrival order, for crossovers
+    private int queuedCount, crossoverCursor, oldestCursor;
+    private int appendMark; // slots from here on were added since the last rebuild
+    private long rebuiltAt = Long.MIN_VALUE;
+
+    // Slots tied with their parent in exact arithmetic, with different inputs,
+    // grouped by the inputs of the two orders: the members of a group compare
+    // alike in floating point at any time, so a rebuild checks one per group
+    private final Map<TieKind, TieGroup> tieGroups = new HashMap<>();
+    private final List<TieGroup> liveTieGroups = new ArrayList<>();
+    private final TieGroup[] tieGroupOf; // per slot, or null
+    private final int[] tieIndex; // position in its group
+
+    // Slots to revisit in the current rebuild: a min-heap, deduplicated by stamp
+    private final int[] pending;
+    private int pendingSize;
+    private final int[] pendingStamp;
+    private int stamp;
+
+    /**
+     * @param orders the run's orders; indices are in non-decreasing arrival order
+     * @param policy the WEIGHTED policy, for its exact scores
+     */
+    LegacyOrderHeap(SimOrderStore orders, PriorityCalculator policy) {
+        int n = orders.size();
+        this.orders = orders;
+        this.crossoverSeconds = policy.crossoverSeconds();
+        this.risingKey = new long[n];
+        this.urgentKey = new long[n];
+        this.kind = new byte[n];
+        int maxPrep = 0;
+        for (int i = 0; i < n; i++) {
+            long intercept = policy.intercept(orders.prepMinutes(i), orders.isLoyal(i));
+            risingKey[i] = intercept - policy.risingSlope() * orders.arrivalSeconds(i);
+            urgentKey[i] = intercept + policy.urgentBoost() - policy.urgentSlope() * orders.arrivalSeconds(i);
+            kind[i] = (byte) (orders.prepMinutes(i) << 1 | (orders.isLoyal(i) ? 1 : 0));
+            maxPrep = Math.max(maxPrep, orders.prepMinutes(i));
+        }
+        // The original engine's terms, computed as it computed them
+        this.complexityScore = new double[(maxPrep + 1) << 1];
+        this.loyaltyScore = new double[complexityScore.length];
+        for (int k = 0; k < complexityScore.length; k++) {
+            complexityScore[k] = Math.max(0, (10 - (k >> 1)) / 10.0 * 100 * 0.25);
+            loyaltyScore[k] = (k & 1) != 0 ? 10.0 : 0.0;
+        }
+        this.heap = new int[n];
+        this.slotOf = new int[n];
+        this.arrivalOrder = new int[n];
+        this.tieGroupOf = new TieGroup[n];
+        this.tieIndex = new int[n];
+        this.pending = new int[n];
+        this.pendingStamp = new int[n];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean hasWorkFor(int skillMask) {
+        return size > 0;
+    }
+
+    @Override
+    public void add(int order) {
+        arrivalOrder[queuedCount++] = order;
+        place(size++, order);
+    }
+
+    /**
+     * Rebuilds the heap for {@code now} as the original engine did.
+     */
+    @Override
+    public void advanceTo(long now) {
+        if (now == rebuiltAt && appendMark == size)
+            return; // the heap is already ordered for now
+        stamp++;
+        for (int slot = appendMark; slot < size; slot++)
+            revisit(slot);
+        while (crossoverCursor < queuedCount) {
+            int order = arrivalOrder[crossoverCursor];
+            if (now - orders.arrivalSeconds(order) <= crossoverSeconds)
+                break;
+            crossoverCursor++;
+            if (slotOf[order] >= 0)
+                revisit(slotOf[order]);
+        }
+        for (TieGroup group : liveTieGroups) {
+            int slot = group.slots[0];
+            if (score(heap[slot], now) > score(heap[(slot - 1) >>> 1], now)) {
+                for (int m = 0; m < group.count; m++)
+                    revisit(group.slots[m]);
+            } // otherwise none is out of place unless its parent moves, which revisits it
+        }
+
+        while (pendingSize > 0) {
+            int slot = nextPending();
+            int order = heap[slot];
+            double score = score(order, now);
+            if (slot == 0 || !(score > score(heap[(slot - 1) >>> 1], now)))
+                continue;
+            // The original offer's siftUp
+            int k = slot;
+            while (k > 0) {
+                int parent = (k - 1) >>> 1;
+                int above = heap[parent];
+                if (score(above, now) >= score)
+                    break;
+                place(k, above);
+                revisitChildren(k, slot);
+                k = parent;
+            }
+            place(k, order);
+            revisitChildren(k, slot);
+        }
+        rebuiltAt = now;
+        appendMark = size;
+    }
+
+    @Override
+    public int poll(long now, int skillMask) {
+        advanceTo(now);
+        if (size == 0)
+            return -1;
+        int best = heap[0];
+        slotOf[best] = -1;
+        int last = heap[--size];
+        setTie(size, null);
+        appendMark = Math.min(appendMark, size);
+        if (size > 0)
+            siftDown(last, now);
+        return best;
+    }
+
+    @Override
+    public int peek(long now, int skillMask) {
+        advanceTo(now);
+        return size > 0 ? heap[0] : -1;
+    }
+
+    @Override
+    public int oldestWaiting() {
+        while (oldestCursor < queuedCount && slotOf[arrivalOrder[oldestCursor]] < 0)
+            oldestCursor++;
+        return oldestCursor < queuedCount ? arrivalOrder[oldestCursor] : -1;
+    }
+
+    // The original engine's score, operation for operation, so near-ties round the same way
+    private double score(int order, long now) {
+        long waitTime = now - orders.arrivalSeconds(order);
+        double waitScore = ((double) waitTime / 600.0) * 100 * 0.4;
+        double urgencyScore = waitTime > 480 ? 25.0 + 50.0 : ((double) waitTime / 480.0) * 25.0;
+        return waitScore + complexityScore[kind[order]] + loyaltyScore[kind[order]] + urgencyScore;
+    }
+
+    // java.util.PriorityQueue's siftDown of the last element from the root
+    private void siftDown(int order, long now) {
+        double score = score(order, now);
+        int k = 0, half = size >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            int below = heap[child];
+            double belowScore = score(below, now);
+            int right = child + 1;
+            if (right < size) {
+                double rightScore = score(heap[right], now);
+                if (rightScore > belowScore) {
+                    below = heap[child = right];
+                    belowScore = rightScore;
+                }
+            }
+            if (belowScore <= score)
+                break;
+            place(k, below);
+            k = child;
+        }
+        place(k, order);
+    }
+
+    // Writes a slot and refreshes the ties on its edges
+    private void place(int slot, int order) {
+        heap[slot] = order;
+        slotOf[order] = slot;
+        refreshTie(slot);
+        int child = 2 * slot + 1;
+        if (child < size)
+            refreshTie(child);
+        if (child + 1 < size)
+            refreshTie(child + 1);
+    }
+
+    private void refreshTie(int slot) {
+        if (slot == 0 || slot >= size) {
+            setTie(slot, null);
+            return;
+        }
+        int child = heap[slot], parent = heap[(slot - 1) >>> 1];
+        if (risingKey[child] != risingKey[parent] && urgentKey[child] != urgentKey[parent]) {
+            setTie(slot, null);
+            return;
+        }
+        int childArrival = orders.arrivalSeconds(child), parentArrival = orders.arrivalSeconds(parent);
+        int childKind = kind[child], parentKind = kind[parent];
+        if (childArrival == parentArrival && childKind == parentKind) {
+            setTie(slot, null); // same inputs, same score
+            return;
+        }
+        TieGroup current = tieGroupOf[slot];
+        if (current != null && current.kind.matches(childArrival, childKind, parentArrival, parentKind))
+            return;
+        TieKind kind = new TieKind(childArrival, childKind, parentArrival, parentKind);
+        TieGroup group = tieGroups.get(kind);
+        if (group == null) {
+            group = new TieGroup(kind);
+            tieGroups.put(kind, group);
+            group.listIndex = liveTieGroups.size();
+            liveTieGroups.add(group);
+        }
+        setTie(slot, group);
+    }
+
+    private void setTie(int slot, TieGroup group) {
+        TieGroup current = tieGroupOf[slot];
+        if (current == group)
+            return;
+        if (current != null) {
+            int index = tieIndex[slot];
+            int moved = current.slots[--current.count];
+            current.slots[index] = moved;
+            tieIndex[moved] = index;
+            if (current.count == 0) {
+                tieGroups.remove(current.kind);
+                TieGroup last = liveTieGroups.remove(liveTieGroups.size() - 1);
+                if (last != current) {
+                    liveTieGroups.set(current.listIndex, last);
+                    last.listIndex = current.listIndex;
+                }
+            }
+        }
+        tieGroupOf[slot] = group;
+        if (group != null) {
+            if (group.count == group.slots.length)
+                group.slots = Arrays.copyOf(group.slots, group.count * 2);
+            tieIndex[slot] = group.count;
+            group.slots[group.count++] = slot;
+        }
+    }
+
+    // Children of a slot rewritten while re-offering slot `from`; the ones
+    // after it are yet to be re-offered and now sit under a different parent
+    private void revisitChildren(int slot, int from) {
+        int child = 2 * slot + 1;
+        if (child > from && child < size)
+            revisit(child);
+        if (child + 1 > from && child + 1 < size)
+            revisit(child + 1);
+    }
+
+    private void revisit(int slot) {
+        if (pendingStamp[slot] == stamp)
+            return;
+        pendingStamp[slot] = stamp;
+        int k = pendingSize++;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (pending[parent] <= slot)
+                break;
+            pending[k] = pending[parent];
+            k = parent;
+        }
+        pending[k] = slot;
+    }
+
+    private int nextPending() {
+        int first = pending[0];
+        int last = pending[--pendingSize];
+        int k = 0;
+        while (true) {
+            int child = 2 * k + 1;
+            if (child >= pendingSize)
+                break;
+            if (child + 1 < pendingSize && pending[child + 1] < pending[child])
+                child++;
+            if (pending[child] >= last)
+                break;
+            pending[k] = pending[child];
+            k = child;
+        }
+        if (pendingSize > 0)
+            pending[k] = last;
+        return first;
+    }
+
+    private record TieKind(int childArrival, int childKind, int parentArrival, int parentKind) {
+        boolean matches(int childArrival, int childKind, int parentArrival, int parentKind) {
+            return this.childArrival == childArrival && this.childKind == childKind
+                    && this.parentArrival == parentArrival && this.parentKind == parentKind;
+        }
+    }
+
+    private static final class TieGroup {
+        final TieKind kind;
+        int[] slots = new int[4];
+        int count;
+        int listIndex; // in liveTieGroups
+
+        TieGroup(TieKind kind) {
+            this.kind = kind;
+        }
+    }
+}
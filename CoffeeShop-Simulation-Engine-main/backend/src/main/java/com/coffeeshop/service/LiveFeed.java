@@ -0,0 +1,198 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Barista;
+import com.coffeeshop.model.Order;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Server-sent event stream of one live store (/api/stream), replacing the
+ * dashboard's once-a-second polling of /api/queue, /api/baristas and
+ * /api/stats.
+ * <p>
+ * The scheduler collects its events (order added, assigned, completed,
+ * priority reason changed, SLA alerts) on the loop and flushes them at most
+ * once per tick as a single {@link Update}, which also carries the top of the
+ * queue, the baristas and the stats. An update is serialized once, however many
+ * subscribers there are; fanning it out is a pointer swap per subscriber, and
+ * the writes happen on a shared sender pool, never on the loop.
+ * <p>
+ * Each subscriber holds at most one unsent update. A client that can't keep up
+ * skips intermediate updates rather than queueing them (the seq numbers show
+ * the gap), and since every update carries the full bounded view, the next one
+ * it gets is complete.
+ */
+public class LiveFeed {
+
+    public enum EventType {
+        ORDER_ADDED, ORDER_ASSIGNED, ORDER_COMPLETED, PRIORITY_CHANGED, SLA_WARNING, SLA_BREACH
+    }
+
+    /**
+     * Something that happened since the previous update. baristaId and detail
+     * are only set where they apply (assignment, completion, new priority
+     * reason, wait time of an SLA alert).
+     */
+    public record Event(EventType type, String orderId, String customerName, String baristaId, String detail) {
+    }
+
+    /**
+     * One message on the stream: the events since the last one plus the state
+     * they lead to. queueHead holds the first queueHeadSize orders, with ETAs.
+     */
+    public record Update(long seq, String storeId, LocalDateTime time, int queueSize, List<Order> queueHead,
+            List<Barista> baristas, Map<String, Object> stats, List<Event> events) {
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter = new SseEmitter(0L); // no timeout, EventSource reconnects anyway
+        final AtomicReference<Message> pending = new AtomicReference<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        void offer(Message message) {
+            pending.set(message); // latest wins
+            if (draining.compareAndSet(false, true))
+                sender.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                Message message = pending.getAndSet(null);
+                if (message == null) {
+                    draining.set(false);
+                    // An offer may have slipped in after the getAndSet
+                    if (pending.get() == null || !draining.compareAndSet(false, true))
+                        return;
+                    continue;
+                }
+                try {
+                    emitter.send(SseEmitter.event().name("update").id(Long.toString(message.seq())).data(message.json()));
+                } catch (IOException | IllegalStateException e) {
+                    drop(this); // client went away
+                    draining.set(false);
+                    return;
+                }
+            }
+        }
+    }
+
+    private record Message(long seq, String json) {
+    }
+
+    private final String storeId;
+    private final ObjectMapper objectMapper;
+    private final Executor sender;
+    private final long tickMillis;
+    private final long refreshMillis;
+    private final int queueHeadSize;
+    private final int maxSubscribers;
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger(); // subscribed or subscribing
+    private long nextSeq; // loop thread only
+
+    LiveFeed(String storeId, ObjectMapper objectMapper, Executor sender, long tickMillis, long refreshMillis,
+            int queueHeadSize, int maxSubscribers) {
+        this.storeId = storeId;
+        this.objectMapper = objectMapper;
+        this.sender = sender;
+        this.tickMillis = tickMillis;
+        this.refreshMillis = refreshMillis;
+        this.queueHeadSize = queueHeadSize;
+        this.maxSubscribers = maxSubscribers;
+    }
+
+    /**
+     * New subscriber; its first update comes with the next flush.
+     *
+     * @throws RejectedExecutionException if the store has maxSubscribers already
+     */
+    SseEmitter subscribe() {
+        // Reserve a slot first, so concurrent subscribes can't overshoot the limit
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new RejectedExecutionException("Too many live feed subscribers for store " + storeId + " ("
+                    + maxSubscribers + ")");
+        }
+        Subscriber subscriber = new Subscriber();
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(() -> remove(subscriber));
+        subscriber.emitter.onError(e -> remove(subscriber));
+        subscribers.add(subscriber);
+        return subscriber.emitter;
+    }
+
+    // Frees the slot once, whichever of the callbacks and drop gets here first
+    private void remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber))
+            subscriberCount.decrementAndGet();
+    }
+
+    private void drop(Subscriber subscriber) {
+        remove(subscriber);
+        subscriber.emitter.complete();
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * Events are coalesced into one update per tick.
+     */
+    long tickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Longest gap between updates while anyone is subscribed, so wait-driven
+     * changes (stats, ETAs, priority reasons) reach clients without an event.
+     */
+    long refreshMillis() {
+        return refreshMillis;
+    }
+
+    int queueHeadSize() {
+        return queueHeadSize;
+    }
+
+    long nextSeq() {
+        return ++nextSeq;
+    }
+
+    /**
+     * Serializes the update once and hands it to every subscriber. Loop thread.
+     */
+    void publish(Update update) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(update);
+        } catch (JsonProcessingException e) {
+            System.err.println("[" + storeId + "] Live feed update not serializable: " + e.getMessage());
+            return;
+        }
+        Message message = new Message(update.seq(), json);
+        for (Subscriber subscriber : subscribers)
+            subscriber.offer(message);
+    }
+
+    void close() {
+        for (Subscriber subscriber : subscribers)
+            drop(subscriber);
+    }
+}
@@ -0,0 +1,142 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Order;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Running aggregates behind /api/stats, updated incrementally as orders are
+ * queued, assigned and completed instead of being recomputed from history.
+ * <p>
+ * Updated only by the scheduler loop thread; readers get the immutable
+ * {@link Snapshot} published after each change, so a stats read is O(1) no
+ * matter how many orders have been served.
+ */
+public class LiveStatistics {
+
+    static final int SLA_LIMIT_SECONDS = 600; // 10 minutes
+
+    // One rule for waiting and completed orders alike: over the limit, in whole seconds
+    static boolean breachesSla(long waitSeconds) {
+        return waitSeconds > SLA_LIMIT_SECONDS;
+    }
+
+    /**
+     * Point-in-time view of the aggregates. Active-order figures that depend on
+     * the current time are derived from the oldest waiting arrival.
+     */
+    public record Snapshot(long ordersServed, long totalWaitSeconds, long maxWaitSecondsCompleted,
+            long slaViolationsCompleted, LocalDateTime oldestWaitingArrival, long slaViolationsActive) {
+
+        public double avgWaitSeconds() {
+            return ordersServed == 0 ? 0.0 : (double) totalWaitSeconds / ordersServed;
+        }
+
+        public long maxWaitSecondsActive(LocalDateTime now) {
+            return oldestWaitingArrival == null ? 0 : Duration.between(oldestWaitingArrival, now).getSeconds();
+        }
+
+        /**
+         * The dashboard's view of the stats at {@code now}, as served by
+         * /api/stats and the live feed.
+         */
+        public Map<String, Object> display(LocalDateTime now) {
+            // Calculate stats even if ordersServed is 0 (because we might have active
+            // violations)
+
+            // Check active max wait too (to show worst case currently in lobby)
+            long maxWaitSeconds = Math.max(maxWaitSecondsCompleted, maxWaitSecondsActive(now));
+
+            // SLA Violations: Completed (>10min) + Active (>10min)
+            long slaViolations = slaViolationsCompleted + slaViolationsActive;
+
+            // Convert to minutes for display
+            String avgWaitStr = String.format("%.1f min", avgWaitSeconds() / 60.0);
+            String maxWaitStr = String.format("%.1f min", maxWaitSeconds / 60.0);
+
+            return Map.of(
+                    "avgWaitTime", avgWaitStr,
+                    "ordersServed", ordersServed,
+                    "maxWaitTime", maxWaitStr,
+                    "slaViolations", slaViolations);
+        }
+    }
+
+    private long ordersServed;
+    private long totalWaitSeconds;
+    private long maxWaitSeconds;
+    private long slaViolationsCompleted;
+    private long slaViolationsActive;
+    // Waiting orders ordered by arrival; first() is the longest-waiting one
+    private final TreeSet<Order> waitingByArrival = new TreeSet<>(
+            Comparator.comparing(Order::getArrivalTime).thenComparing(Order::getId));
+    private volatile Snapshot snapshot = new Snapshot(0, 0, 0, 0, null, 0);
+
+    public void orderQueued(Order order) {
+        waitingByArrival.add(order);
+    }
+
+    /**
+     * An order left the waiting queue (assigned to a barista).
+     */
+    public void orderDequeued(Order order) {
+        if (waitingByArrival.remove(order) && order.isBreachAlertSent())
+            slaViolationsActive--;
+    }
+
+    /**
+     * A waiting order just crossed the SLA limit.
+     */
+    public void activeBreach(Order order) {
+        if (waitingByArrival.contains(order))
+            slaViolationsActive++;
+    }
+
+    /**
+     * The longest-waiting order, or null if none is waiting.
+     */
+    public Order oldestWaiting() {
+        return waitingByArrival.isEmpty() ? null : waitingByArrival.first();
+    }
+
+    public void orderCompleted(Order order) {
+        long waitSeconds = Duration.between(order.getArrivalTime(), order.getCompletionTime()).getSeconds();
+        ordersServed++;
+        totalWaitSeconds += waitSeconds;
+        maxWaitSeconds = Math.max(maxWaitSeconds, waitSeconds);
+        if (breachesSla(waitSeconds))
+            slaViolationsCompleted++;
+    }
+
+    /**
+     * The completion totals right now (active fields empty), for a journal
+     * checkpoint.
+     */
+    public Snapshot completedTotals() {
+        return new Snapshot(ordersServed, totalWaitSeconds, maxWaitSeconds, slaViolationsCompleted, null, 0);
+    }
+
+    /**
+     * Resets the completion totals to ones saved by {@link #completedTotals}.
+     */
+    public void restoreCompletedTotals(Snapshot totals) {
+        ordersServed = totals.ordersServed();
+        totalWaitSeconds = totals.totalWaitSeconds();
+        maxWaitSeconds = totals.maxWaitSecondsCompleted();
+        slaViolationsCompleted = totals.slaViolationsCompleted();
+    }
+
+    public void publish() {
+        snapshot = new Snapshot(ordersServed, totalWaitSeconds, maxWaitSeconds, slaViolationsCompleted,
+                waitingByArrival.isEmpty() ? null : waitingByArrival.first().getArrivalTime(),
+                slaViolationsActive);
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+}
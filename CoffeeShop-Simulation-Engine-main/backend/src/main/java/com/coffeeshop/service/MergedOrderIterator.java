@@ -0,0 +1,53 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Order;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Merges iterators that each return orders by descending score into one such
+ * iterator; on equal scores, the earlier source's order comes first. Scores
+ * come from the function given, so they can be the very numbers the queue
+ * polls by.
+ */
+final class MergedOrderIterator implements Iterator<Order> {
+
+    private record Head(Order order, double score, Iterator<Order> source, int sourceIndex) {
+    }
+
+    private final ToDoubleFunction<Order> score;
+    private final PriorityQueue<Head> heads = new PriorityQueue<>((a, b) -> a.score() != b.score()
+            ? Double.compare(b.score(), a.score())
+            : Integer.compare(a.sourceIndex(), b.sourceIndex()));
+
+    MergedOrderIterator(List<Iterator<Order>> sources, ToDoubleFunction<Order> score) {
+        this.score = score;
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i).hasNext())
+                add(sources.get(i).next(), sources.get(i), i);
+        }
+    }
+
+    private void add(Order order, Iterator<Order> source, int sourceIndex) {
+        heads.add(new Head(order, score.applyAsDouble(order), source, sourceIndex));
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public Order next() {
+        Head head = heads.poll();
+        if (head == null)
+            throw new NoSuchElementException();
+        if (head.source().hasNext())
+            add(head.source().next(), head.source(), head.sourceIndex());
+        return head.order();
+    }
+}
@@ -0,0 +1,718 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+import com.coffeeshop.model.OrderStatus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal of one store's order events (placed, assigned, completed,
+ * SLA alert), so a restart picks up the queue, the baristas and the history
+ * where they were.
+ * <p>
+ * Events are appended by the store's loop thread into a memory-mapped segment
+ * file: a few hundred nanoseconds, no system call. Once in the mapping an
+ * event survives a crash of the process; a background thread makes it survive
+ * a crash of the machine by forcing all events appended since the last sync in
+ * one go (group commit) every {@code coffeeshop.journal.sync-interval-ms}.
+ * <p>
+ * Layout of the store's directory:
+ * <ul>
+ * <li>{@code segment-N.log}: records {@code [int length][int crc32c][payload]},
+ * zero-filled after the last one. A segment is rolled over when full.</li>
+ * <li>{@code checkpoint-N.snap}: the store as it was just before the first
+ * event of segment N (live orders, the recent history ring, the per-minute
+ * history and the all-time totals), in the same record format.</li>
+ * </ul>
+ * Once a segment is three quarters full the scheduler checkpoints between two
+ * tasks: it starts segment N+1 and hands a copy of its state to a background
+ * thread, which writes checkpoint N+1 and then deletes everything older.
+ * Recovery loads the newest complete checkpoint and replays the segments from
+ * its number on, so it never reads more than about one segment of events. A
+ * torn or corrupt record ends the replay.
+ * <p>
+ * A store with nothing to recover gets no files until its first event, so
+ * stores that never take an order leave nothing behind to recover.
+ * <p>
+ * Append, checkpoint and recover are loop thread only; {@link #sync} may run on
+ * any one thread.
+ */
+class OrderJournal {
+
+    private static final int SEGMENT_MAGIC = 0x43534A31; // "CSJ1"
+    private static final int CHECKPOINT_MAGIC = 0x43534331; // "CSC1"
+    private static final int HEADER_BYTES = 8;
+
+    // Record types
+    private static final byte PLACED = 1;
+    private static final byte ASSIGNED = 2;
+    private static final byte COMPLETED = 3;
+    private static final byte ALERT = 4;
+    private static final byte SNAPSHOT = 5; // checkpoint only
+    private static final byte MINUTE = 6; // checkpoint only
+    private static final byte TOTALS = 7; // checkpoint only
+
+    private static final byte WARNING_ALERT = 1, BREACH_ALERT = 2;
+    private static final DrinkType[] DRINK_TYPES = DrinkType.values();
+
+    /**
+     * One order in a checkpoint, with the barista working on it (-1 if none).
+     */
+    record Entry(Order order, int barista, long busyUntilEpochMillis) {
+    }
+
+    /**
+     * A store's state at one point: its live and recent orders, the per-minute
+     * history and the all-time completion totals.
+     */
+    record Checkpoint(List<Entry> orders, List<CompletedHistory.Minute> minutes, LiveStatistics.Snapshot totals) {
+    }
+
+    /**
+     * Store state rebuilt from the journal.
+     */
+    static class Recovered {
+        // From the checkpoint: already counted in minutes and totals
+        final List<Order> history = new ArrayList<>(); // completion order
+        final List<CompletedHistory.Minute> minutes = new ArrayList<>();
+        LiveStatistics.Snapshot totals; // null without a checkpoint
+        // Replayed after the checkpoint
+        final List<Order> completed = new ArrayList<>(); // completion order
+        final Map<String, Order> waiting = new LinkedHashMap<>(); // arrival order
+        final Map<String, Entry> inProgress = new LinkedHashMap<>(); // by order ID; a batch is several per barista
+        private final Map<String, Order> byId = new HashMap<>(); // waiting and in progress
+
+        boolean isEmpty() {
+            return history.isEmpty() && completed.isEmpty() && waiting.isEmpty() && inProgress.isEmpty();
+        }
+    }
+
+    private static class Segment {
+        final long number;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        volatile int written; // end of the last complete record
+        int synced; // sync thread only
+
+        Segment(long number, FileChannel channel, MappedByteBuffer buffer) {
+            this.number = number;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final Executor checkpointExecutor;
+    private final CRC32C crc = new CRC32C(); // loop thread only
+    private ByteBuffer scratch = ByteBuffer.allocate(4096); // loop thread only
+    private volatile Segment current; // null until the first event of a store with nothing on disk
+    private long checkpointNumber; // segment of the newest checkpoint (loop thread only)
+    private long lastSegment = -1; // newest segment found by recover()
+    private final ConcurrentLinkedQueue<Segment> sealed = new ConcurrentLinkedQueue<>(); // rolled, not yet synced
+
+    OrderJournal(Path dir, int segmentBytes, Executor checkpointExecutor) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.checkpointExecutor = checkpointExecutor;
+    }
+
+    // ===============================
+    // Writing (loop thread)
+    // ===============================
+
+    void placed(Order order) {
+        append(PLACED, b -> {
+            putString(b, order.getId());
+            putString(b, order.getCustomerName());
+            b.put((byte) (order.isLoyal() ? 1 : 0));
+            putDrinks(b, order.getDrinks());
+            putTime(b, order.getArrivalTime());
+        });
+    }
+
+    void assigned(Order order, int barista, long busyUntilEpochMillis) {
+        append(ASSIGNED, b -> {
+            putString(b, order.getId());
+            b.putInt(barista);
+            putTime(b, order.getStartTime());
+            b.putLong(busyUntilEpochMillis);
+            b.putDouble(order.getPriorityScore());
+            putString(b, order.getPriorityReason());
+        });
+    }
+
+    void completed(Order order, int barista) {
+        append(COMPLETED, b -> {
+            putString(b, order.getId());
+            b.putInt(barista);
+            putTime(b, order.getCompletionTime());
+        });
+    }
+
+    void warningAlert(Order order) {
+        alert(order, WARNING_ALERT);
+    }
+
+    void breachAlert(Order order) {
+        alert(order, BREACH_ALERT);
+    }
+
+    private void alert(Order order, byte kind) {
+        append(ALERT, b -> {
+            putString(b, order.getId());
+            b.put(kind);
+        });
+    }
+
+    /**
+     * True once the current segment is three quarters full, or a burst of events
+     * has already overflowed into a segment the last checkpoint doesn't cover;
+     * the scheduler then calls {@link #checkpoint} at the end of its task.
+     */
+    boolean checkpointDue() {
+        Segment segment = current;
+        return segment != null && (segment.number > checkpointNumber || segment.written > segmentBytes / 4 * 3);
+    }
+
+    /**
+     * Starts a new segment and writes a checkpoint of the store's state right
+     * now in the background. Nothing in it may change afterwards (copies of
+     * live orders, completed orders as they are).
+     */
+    void checkpoint(Checkpoint state) {
+        long number = roll();
+        checkpointNumber = number;
+        checkpointExecutor.execute(() -> {
+            try {
+                writeCheckpoint(number, state);
+                deleteBefore(number);
+            } catch (IOException e) {
+                System.err.println("Journal checkpoint " + dir.resolve("checkpoint-" + number + ".snap")
+                        + " failed: " + e.getMessage());
+            }
+        });
+    }
+
+    private void append(byte type, Consumer<ByteBuffer> body) {
+        while (true) {
+            try {
+                scratch.clear();
+                scratch.put(type);
+                body.accept(scratch);
+                break;
+            } catch (BufferOverflowException e) {
+                scratch = ByteBuffer.allocate(scratch.capacity() * 2); // a very long customer name
+            }
+        }
+        ByteBuffer payload = scratch.flip();
+        int length = payload.remaining();
+        if (4 + HEADER_BYTES + length > segmentBytes)
+            throw new IllegalArgumentException("Journal record of " + length + " bytes exceeds the segment size");
+        Segment segment = current;
+        if (segment == null)
+            segment = create();
+        int at = segment.written;
+        if (at + HEADER_BYTES + length > segmentBytes) {
+            roll();
+            segment = current;
+            at = segment.written;
+        }
+        crc.reset();
+        crc.update(payload.duplicate());
+        MappedByteBuffer buffer = segment.buffer;
+        buffer.putInt(at, length);
+        buffer.putInt(at + 4, (int) crc.getValue());
+        buffer.put(at + HEADER_BYTES, payload, 0, length);
+        segment.written = at + HEADER_BYTES + length;
+    }
+
+    /**
+     * Seals the current segment and opens the next one; returns its number.
+     */
+    private long roll() {
+        Segment old = current;
+        Segment next = openSegment(old.number + 1);
+        sealed.add(old);
+        current = next;
+        return next.number;
+    }
+
+    // First event of a store that had nothing on disk
+    private Segment create() {
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal directory " + dir, e);
+        }
+        current = openSegment(lastSegment + 1);
+        checkpointNumber = current.number; // nothing before it to checkpoint
+        return current;
+    }
+
+    private Segment openSegment(long number) {
+        try {
+            FileChannel channel = FileChannel.open(dir.resolve("segment-" + number + ".log"),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            buffer.putInt(0, SEGMENT_MAGIC);
+            Segment segment = new Segment(number, channel, buffer);
+            segment.written = 4;
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal segment in " + dir, e);
+        }
+    }
+
+    // ===============================
+    // Group commit (sync thread)
+    // ===============================
+
+    /**
+     * Forces every event appended since the last call to disk.
+     */
+    void sync() {
+        Segment segment;
+        while ((segment = sealed.peek()) != null) {
+            force(segment);
+            close(segment);
+            sealed.poll();
+        }
+        segment = current;
+        if (segment != null)
+            force(segment);
+    }
+
+    private static void force(Segment segment) {
+        int written = segment.written;
+        if (written > segment.synced) {
+            segment.buffer.force(segment.synced, written - segment.synced);
+            segment.synced = written;
+        }
+    }
+
+    /**
+     * Final sync on shutdown, once the loop has stopped appending.
+     */
+    void close() {
+        if (current == null)
+            return; // never started
+        sync();
+        close(current);
+    }
+
+    private static void close(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            // Already forced; nothing left to lose
+        }
+    }
+
+    // ===============================
+    // Checkpoints (checkpoint thread)
+    // ===============================
+
+    private void writeCheckpoint(long number, Checkpoint state) throws IOException {
+        Path tmp = dir.resolve("checkpoint-" + number + ".tmp");
+        CRC32C checksum = new CRC32C();
+        ByteBuffer record = ByteBuffer.allocate(4096);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long records = state.orders().size() + state.minutes().size() + 1;
+            ByteBuffer start = ByteBuffer.allocate(12).putInt(CHECKPOINT_MAGIC).putLong(records).flip();
+            writeFully(out, start);
+            List<Object> items = new ArrayList<>(state.orders());
+            items.addAll(state.minutes());
+            items.add(state.totals());
+            for (Object item : items) {
+                while (true) {
+                    try {
+                        record.clear();
+                        if (item instanceof Entry entry)
+                            putSnapshot(record, entry);
+                        else if (item instanceof CompletedHistory.Minute minute)
+                            putMinute(record, minute);
+                        else
+                            putTotals(record, (LiveStatistics.Snapshot) item);
+                        break;
+                    } catch (BufferOverflowException e) {
+                        record = ByteBuffer.allocate(record.capacity() * 2);
+                    }
+                }
+                record.flip();
+                checksum.reset();
+                checksum.update(record.duplicate());
+                header.clear().putInt(record.remaining()).putInt((int) checksum.getValue()).flip();
+                writeFully(out, header);
+                writeFully(out, record);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, dir.resolve("checkpoint-" + number + ".snap"), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            out.write(buffer);
+    }
+
+    private static void putSnapshot(ByteBuffer b, Entry entry) {
+        b.put(SNAPSHOT);
+        putOrder(b, entry.order());
+        b.putInt(entry.barista());
+        b.putLong(entry.busyUntilEpochMillis());
+    }
+
+    private static void putMinute(ByteBuffer b, CompletedHistory.Minute m) {
+        b.put(MINUTE);
+        putTime(b, m.minute());
+        b.putLong(m.orders());
+        b.putLong(m.totalWaitSeconds());
+        b.putLong(m.maxWaitSeconds());
+        b.putLong(m.totalPrepSeconds());
+        b.putLong(m.slaViolations());
+    }
+
+    private static void putTotals(ByteBuffer b, LiveStatistics.Snapshot totals) {
+        b.put(TOTALS);
+        b.putLong(totals.ordersServed());
+        b.putLong(totals.totalWaitSeconds());
+        b.putLong(totals.maxWaitSecondsCompleted());
+        b.putLong(totals.slaViolationsCompleted());
+    }
+
+    /**
+     * Full state of one order, also used for the spilled history
+     * ({@link HistorySpill}).
+     */
+    static void putOrder(ByteBuffer b, Order o) {
+        putString(b, o.getId());
+        putString(b, o.getCustomerName());
+        b.put((byte) (o.isLoyal() ? 1 : 0));
+        putDrinks(b, o.getDrinks());
+        putTime(b, o.getArrivalTime());
+        b.put((byte) o.getStatus().ordinal());
+        putTime(b, o.getStartTime());
+        putTime(b, o.getCompletionTime());
+        b.putDouble(o.getPriorityScore());
+        putString(b, o.getPriorityReason());
+        b.put((byte) ((o.isWarningAlertSent() ? WARNING_ALERT : 0) | (o.isBreachAlertSent() ? BREACH_ALERT : 0)));
+    }
+
+    static Order getOrder(ByteBuffer b) {
+        String id = getString(b);
+        String customerName = getString(b);
+        boolean loyal = b.get() != 0;
+        List<DrinkType> drinks = getDrinks(b);
+        Order o = new Order(id, customerName, drinks, loyal, getTime(b));
+        o.setStatus(OrderStatus.values()[b.get()]);
+        o.setStartTime(getTime(b));
+        o.setCompletionTime(getTime(b));
+        o.setPriorityScore(b.getDouble());
+        o.setPriorityReason(getString(b));
+        byte alerts = b.get();
+        o.setWarningAlertSent((alerts & WARNING_ALERT) != 0);
+        o.setBreachAlertSent((alerts & BREACH_ALERT) != 0);
+        return o;
+    }
+
+    private void deleteBefore(long number) throws IOException {
+        for (Path file : list()) {
+            long n = numberOf(file);
+            if (n >= 0 && n < number)
+                Files.deleteIfExists(file);
+        }
+    }
+
+    // ===============================
+    // Recovery (loop thread, before the first append)
+    // ===============================
+
+    /**
+     * Rebuilds the store's state from the newest checkpoint and the segments
+     * after it. Orders in progress at a barista index the pool no longer has go
+     * back to the queue. The caller then applies the state and calls
+     * {@link #start}.
+     */
+    Recovered recover(int baristaCount) throws IOException {
+        Recovered state = new Recovered();
+        if (!Files.isDirectory(dir))
+            return state;
+        long checkpoint = -1;
+        for (Path file : list()) {
+            if (file.getFileName().toString().endsWith(".snap"))
+                checkpoint = Math.max(checkpoint, numberOf(file));
+        }
+        if (checkpoint >= 0)
+            readCheckpoint(dir.resolve("checkpoint-" + checkpoint + ".snap"), state);
+
+        long last = Math.max(checkpoint, 0) - 1;
+        List<Path> segments = new ArrayList<>();
+        for (Path file : list()) {
+            long n = numberOf(file);
+            if (file.getFileName().toString().endsWith(".log") && n >= Math.max(checkpoint, 0))
+                segments.add(file);
+            last = Math.max(last, n);
+        }
+        lastSegment = last;
+        segments.sort(Comparator.comparingLong(OrderJournal::numberOf));
+        for (Path segment : segments) {
+            if (!replaySegment(segment, state))
+                break; // torn tail: later segments can't have been written after it
+        }
+
+        state.inProgress.values().removeIf(entry -> {
+            if (entry.barista() < baristaCount)
+                return false;
+            Order o = entry.order();
+            o.setStatus(OrderStatus.WAITING);
+            o.setStartTime(null);
+            state.waiting.put(o.getId(), o);
+            return true;
+        });
+        return state;
+    }
+
+    /**
+     * Checkpoints the recovered state, synchronously, and opens a fresh segment
+     * for new events. Done before appending anything, so a torn tail left
+     * behind can never hide newer events on the next recovery. A store with
+     * nothing to keep has its files removed instead; the first event starts a
+     * new journal.
+     */
+    void start(Checkpoint state) throws IOException {
+        if (state.orders().isEmpty() && state.minutes().isEmpty() && state.totals().ordersServed() == 0) {
+            if (Files.isDirectory(dir)) {
+                deleteBefore(Long.MAX_VALUE);
+                try {
+                    Files.deleteIfExists(dir);
+                } catch (DirectoryNotEmptyException e) {
+                    // Someone else's files; leave them
+                }
+            }
+            return;
+        }
+        Files.createDirectories(dir);
+        current = openSegment(lastSegment + 1);
+        checkpointNumber = current.number;
+        writeCheckpoint(checkpointNumber, state);
+        deleteBefore(checkpointNumber);
+    }
+
+    private void readCheckpoint(Path file, Recovered state) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (b.getInt() != CHECKPOINT_MAGIC)
+            throw new IOException("Not a journal checkpoint: " + file);
+        long count = b.getLong();
+        for (long i = 0; i < count; i++) {
+            ByteBuffer payload = nextRecord(b);
+            if (payload == null)
+                throw new IOException("Corrupt journal checkpoint: " + file);
+            switch (payload.get()) {
+                case SNAPSHOT -> applySnapshot(payload, state);
+                case MINUTE -> state.minutes.add(new CompletedHistory.Minute(getTime(payload), payload.getLong(),
+                        payload.getLong(), payload.getLong(), payload.getLong(), payload.getLong()));
+                case TOTALS -> state.totals = new LiveStatistics.Snapshot(payload.getLong(), payload.getLong(),
+                        payload.getLong(), payload.getLong(), null, 0);
+                default -> throw new IOException("Corrupt journal checkpoint: " + file);
+            }
+        }
+    }
+
+    private boolean replaySegment(Path file, Recovered state) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (b.remaining() < 4 || b.getInt() != SEGMENT_MAGIC)
+                return false;
+            ByteBuffer payload;
+            while ((payload = nextRecord(b)) != null)
+                applyEvent(payload, state);
+            return b.remaining() < HEADER_BYTES || b.getInt(b.position()) == 0; // clean end, not a torn record
+        }
+    }
+
+    /**
+     * The next record's payload, or null at the end of the data or at a torn or
+     * corrupt record.
+     */
+    private static ByteBuffer nextRecord(ByteBuffer b) {
+        if (b.remaining() < HEADER_BYTES)
+            return null;
+        int length = b.getInt(b.position());
+        int checksum = b.getInt(b.position() + 4);
+        if (length <= 0 || length > b.remaining() - HEADER_BYTES)
+            return null;
+        ByteBuffer payload = b.slice(b.position() + HEADER_BYTES, length);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum)
+            return null;
+        b.position(b.position() + HEADER_BYTES + length);
+        return payload;
+    }
+
+    private static void applySnapshot(ByteBuffer b, Recovered state) {
+        Order o = getOrder(b);
+        int barista = b.getInt();
+        long busyUntil = b.getLong();
+        switch (o.getStatus()) {
+            case COMPLETED -> state.history.add(o);
+            case PROCESSING -> {
+                state.inProgress.put(o.getId(), new Entry(o, barista, busyUntil));
+                state.byId.put(o.getId(), o);
+            }
+            default -> {
+                state.waiting.put(o.getId(), o);
+                state.byId.put(o.getId(), o);
+            }
+        }
+    }
+
+    private static void applyEvent(ByteBuffer b, Recovered state) {
+        byte type = b.get();
+        String id = getString(b);
+        switch (type) {
+            case PLACED -> {
+                String customerName = getString(b);
+                boolean loyal = b.get() != 0;
+                List<DrinkType> drinks = getDrinks(b);
+                Order o = new Order(id, customerName, drinks, loyal, getTime(b));
+                state.waiting.put(id, o);
+                state.byId.put(id, o);
+            }
+            case ASSIGNED -> {
+                int barista = b.getInt();
+                Order o = state.waiting.remove(id);
+                if (o == null)
+                    return;
+                o.setStatus(OrderStatus.PROCESSING);
+                o.setStartTime(getTime(b));
+                long busyUntil = b.getLong();
+                o.setPriorityScore(b.getDouble());
+                o.setPriorityReason(getString(b));
+                state.inProgress.put(o.getId(), new Entry(o, barista, busyUntil));
+            }
+            case COMPLETED -> {
+                b.getInt(); // barista
+                Order o = state.byId.remove(id);
+                if (o == null)
+                    return;
+                state.inProgress.remove(id);
+                o.setStatus(OrderStatus.COMPLETED);
+                o.setCompletionTime(getTime(b));
+                state.completed.add(o);
+            }
+            case ALERT -> {
+                Order o = state.byId.get(id);
+                if (o == null)
+                    return;
+                byte kind = b.get();
+                if (kind == WARNING_ALERT)
+                    o.setWarningAlertSent(true);
+                else
+                    o.setBreachAlertSent(true);
+            }
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    // ===============================
+    // Files and encoding
+    // ===============================
+
+    private List<Path> list() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.toList();
+        }
+    }
+
+    // segment-12.log, checkpoint-12.snap, checkpoint-12.tmp -> 12; -1 for anything else
+    private static long numberOf(Path file) {
+        String name = file.getFileName().toString();
+        int dash = name.lastIndexOf('-'), dot = name.lastIndexOf('.');
+        if (dash < 0 || dot < dash || !(name.endsWith(".log") || name.endsWith(".snap") || name.endsWith(".tmp")))
+            return -1;
+        try {
+            return Long.parseLong(name.substring(dash + 1, dot));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static void putString(ByteBuffer b, String s) {
+        if (s == null) {
+            b.putInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        b.putInt(bytes.length);
+        b.put(bytes);
+    }
+
+    static String getString(ByteBuffer b) {
+        int length = b.getInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void putDrinks(ByteBuffer b, List<DrinkType> drinks) {
+        b.putInt(drinks.size());
+        for (DrinkType drink : drinks)
+            b.put((byte) drink.ordinal());
+    }
+
+    static List<DrinkType> getDrinks(ByteBuffer b) {
+        int count = b.getInt();
+        List<DrinkType> drinks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            drinks.add(DRINK_TYPES[b.get()]);
+        return drinks;
+    }
+
+    // LocalDateTime as seconds + nanos, zone independent; Long.MIN_VALUE for null
+    static void putTime(ByteBuffer b, LocalDateTime time) {
+        if (time == null) {
+            b.putLong(Long.MIN_VALUE);
+            return;
+        }
+        b.putLong(time.toEpochSecond(ZoneOffset.UTC));
+        b.putInt(time.getNano());
+    }
+
+    static LocalDateTime getTime(ByteBuffer b) {
+        long seconds = b.getLong();
+        if (seconds == Long.MIN_VALUE)
+            return null;
+        return LocalDateTime.ofEpochSecond(seconds, b.getInt(), ZoneOffset.UTC);
+    }
+}
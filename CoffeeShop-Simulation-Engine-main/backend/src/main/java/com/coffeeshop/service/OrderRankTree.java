@@ -0,0 +1,267 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Order;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.function.DoublePredicate;
+
+/**
+ * Orders sorted by a fixed priority key (highest first, ties by insertion),
+ * as a treap whose nodes know their subtree size and total prep time. Kept
+ * next to an {@link IndexedOrderQueue} by {@link AnalyticWaitingQueue}: the
+ * heap serves the scheduler, the tree answers "how many orders are ahead of
+ * this key" and walks the queue from a given key, for queue pages and position
+ * lookups, and "how much prep work is ahead" for ETAs.
+ * <ul>
+ * <li>add / remove / rank / countAbove / prepMinutesAbove: O(log n) expected</li>
+ * <li>iteration from a key: O(log n) to start, O(1) amortized per order</li>
+ * </ul>
+ * Not thread-safe; owned by a single thread (the scheduler loop).
+ */
+class OrderRankTree {
+
+    private static final class Node {
+        final Order order;
+        final double key;
+        final long sequence;
+        final int heapPriority;
+        final int prepMinutes;
+        Node left, right;
+        int count = 1; // nodes in this subtree
+        long prepSum; // prep minutes of this subtree
+
+        Node(Order order, double key, long sequence, int heapPriority) {
+            this.order = order;
+            this.key = key;
+            this.sequence = sequence;
+            this.heapPriority = heapPriority;
+            this.prepMinutes = order.getTotalPrepTime();
+            this.prepSum = prepMinutes;
+        }
+    }
+
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final SplittableRandom random = new SplittableRandom(42);
+    private Node root;
+    private long nextSequence;
+
+    void add(Order order, double key) {
+        remove(order.getId());
+        Node node = new Node(order, key, nextSequence++, random.nextInt());
+        nodes.put(order.getId(), node);
+        root = insert(root, node);
+    }
+
+    Order remove(String orderId) {
+        Node node = nodes.remove(orderId);
+        if (node == null)
+            return null;
+        root = delete(root, node);
+        return node.order;
+    }
+
+    boolean contains(String orderId) {
+        return nodes.containsKey(orderId);
+    }
+
+    /**
+     * Key of a stored order, NaN if absent.
+     */
+    double keyOf(String orderId) {
+        Node node = nodes.get(orderId);
+        return node == null ? Double.NaN : node.key;
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Number of orders with a key strictly above {@code key}.
+     */
+    int countAbove(double key) {
+        int count = 0;
+        Node n = root;
+        while (n != null) {
+            if (n.key > key) {
+                count += count(n.left) + 1;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Number of orders whose key passes {@code ahead}. The test must pass for
+     * every key above one that passes, e.g. "scores higher than x once the
+     * clock is added", and is applied to each key as given, so its rounding
+     * is exactly the caller's.
+     */
+    int countWhere(DoublePredicate ahead) {
+        int count = 0;
+        Node n = root;
+        while (n != null) {
+            if (ahead.test(n.key)) {
+                count += count(n.left) + 1;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Number of orders before this one in serving order (key, then
+     * insertion), so orders with equal keys each get their own rank; -1 if
+     * absent.
+     */
+    int rank(String orderId) {
+        Node node = nodes.get(orderId);
+        if (node == null)
+            return -1;
+        int rank = 0;
+        Node n = root;
+        while (n != node) {
+            if (before(node, n)) {
+                n = n.left;
+            } else {
+                rank += count(n.left) + 1;
+                n = n.right;
+            }
+        }
+        return rank + count(node.left);
+    }
+
+    /**
+     * Total prep time, in minutes, of the orders with a key strictly above
+     * {@code key}.
+     */
+    long prepMinutesAbove(double key) {
+        long sum = 0;
+        Node n = root;
+        while (n != null) {
+            if (n.key > key) {
+                sum += prepSum(n.left) + n.prepMinutes;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Orders with a key of at most {@code maxKey}, highest key first.
+     */
+    Iterator<Order> from(double maxKey) {
+        // Stack of nodes still to visit, each with its right subtree pending
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        Node n = root;
+        while (n != null) {
+            if (n.key <= maxKey) {
+                stack.push(n);
+                n = n.left;
+            } else {
+                n = n.right;
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public Order next() {
+                if (stack.isEmpty())
+                    throw new NoSuchElementException();
+                Node next = stack.pop();
+                for (Node c = next.right; c != null; c = c.left)
+                    stack.push(c);
+                return next.order;
+            }
+        };
+    }
+
+    // In-order = serving order: left is served first
+    private static boolean before(Node a, Node b) {
+        return a.key != b.key ? a.key > b.key : a.sequence < b.sequence;
+    }
+
+    private static Node insert(Node t, Node node) {
+        if (t == null)
+            return node;
+        if (node.heapPriority > t.heapPriority) {
+            Node[] parts = split(t, node);
+            node.left = parts[0];
+            node.right = parts[1];
+            return update(node);
+        }
+        if (before(node, t))
+            t.left = insert(t.left, node);
+        else
+            t.right = insert(t.right, node);
+        return update(t);
+    }
+
+    // Nodes served before pivot, and the rest
+    private static Node[] split(Node t, Node pivot) {
+        if (t == null)
+            return new Node[] { null, null };
+        if (before(t, pivot)) {
+            Node[] parts = split(t.right, pivot);
+            t.right = parts[0];
+            return new Node[] { update(t), parts[1] };
+        }
+        Node[] parts = split(t.left, pivot);
+        t.left = parts[1];
+        return new Node[] { parts[0], update(t) };
+    }
+
+    private static Node delete(Node t, Node node) {
+        if (t == null)
+            return null;
+        if (t == node)
+            return merge(t.left, t.right);
+        if (before(node, t))
+            t.left = delete(t.left, node);
+        else
+            t.right = delete(t.right, node);
+        return update(t);
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+        if (a.heapPriority > b.heapPriority) {
+            a.right = merge(a.right, b);
+            return update(a);
+        }
+        b.left = merge(a, b.left);
+        return update(b);
+    }
+
+    private static Node update(Node n) {
+        n.count = count(n.left) + count(n.right) + 1;
+        n.prepSum = prepSum(n.left) + prepSum(n.right) + n.prepMinutes;
+        return n;
+    }
+
+    private static int count(Node n) {
+        return n == null ? 0 : n.count;
+    }
+
+    private static long prepSum(Node n) {
+        return n == null ? 0 : n.prepSum;
+    }
+}
@@ -0,0 +1,161 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.SimOrderStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary order stream: the input of a simulation day, as fixed-width records
+ * in arrival order, so a recorded or converted day (e.g. a POS export) can be
+ * replayed instead of a generated scenario.
+ * <p>
+ * Little-endian. A 32-byte header:
+ * <pre>
+ *  0 int   magic "CSOS"
+ *  4 short version (1)
+ *  6 short record size (8)
+ *  8 int   test number
+ * 12 int   order count
+ * 16 long  base: local date-time of arrival second 0, as epoch seconds at UTC
+ * 24 long  reserved
+ * </pre>
+ * then one 8-byte record per order: {@code int} arrival second (relative to
+ * the base, non-decreasing), {@code byte} drink ordinal ({@link DrinkType}),
+ * {@code byte} flags (bit 0: loyal), {@code short} reserved. The simulator's
+ * orders are one drink each, so a multi-drink ticket is converted to one
+ * record per drink with the same arrival.
+ * <p>
+ * {@link #map} memory-maps a file and reads the records in place with
+ * absolute loads straight into a {@link SimOrderStore}: no decoding beyond a
+ * fixed offset per field and no object per record. {@link Writer} appends
+ * records through a buffered channel, for conversions of any length.
+ */
+final class OrderStreamFile {
+
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 8;
+    private static final int MAGIC = 0x534F5343; // "CSOS" little-endian
+    private static final short VERSION = 1;
+    private static final int COUNT_OFFSET = 12;
+    private static final int LOYAL = 1;
+    private static final int WRITE_BUFFER_BYTES = 256 * 1024;
+    private static final DrinkType[] DRINK_TYPES = DrinkType.values();
+
+    private OrderStreamFile() {
+    }
+
+    /**
+     * Writes every order of {@code orders} to {@code file}.
+     */
+    static void write(Path file, SimOrderStore orders) throws IOException {
+        try (Writer writer = new Writer(file, orders.getTestNumber(), orders.getBase())) {
+            for (int i = 0; i < orders.size(); i++)
+                writer.append(orders.arrivalSeconds(i), orders.drink(i), orders.isLoyal(i));
+        }
+    }
+
+    /**
+     * Maps {@code file} and loads its orders for a replay.
+     *
+     * @throws IllegalArgumentException if it isn't a valid order stream
+     */
+    static SimOrderStore map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Not an order stream file: " + file.getFileName());
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            int count = checkHeader(map, MAGIC, RECORD_BYTES, size, file);
+
+            SimOrderStore orders = new SimOrderStore(map.getInt(8), baseOf(map), count);
+            int previous = 0;
+            for (int i = 0, at = HEADER_BYTES; i < count; i++, at += RECORD_BYTES) {
+                int arrival = map.getInt(at);
+                int drink = map.get(at + 4);
+                if (arrival < previous || drink < 0 || drink >= DRINK_TYPES.length)
+                    throw new IllegalArgumentException("Bad record " + i + " in " + file.getFileName()
+                            + ": arrivals must not decrease and drinks must be known");
+                orders.add(DRINK_TYPES[drink], (map.get(at + 5) & LOYAL) != 0, arrival);
+                previous = arrival;
+            }
+            return orders;
+        }
+    }
+
+    static void putHeader(ByteBuffer b, int magic, int recordBytes, int testNumber, int count, LocalDateTime base) {
+        b.putInt(magic).putShort(VERSION).putShort((short) recordBytes).putInt(testNumber).putInt(count)
+                .putLong(base.toEpochSecond(ZoneOffset.UTC)).putLong(0);
+    }
+
+    // Checks magic, version and size; returns the record count
+    static int checkHeader(ByteBuffer b, int magic, int recordBytes, long size, Path file) {
+        if (b.getInt(0) != magic || b.getShort(4) != VERSION || b.getShort(6) != recordBytes)
+            throw new IllegalArgumentException("Unknown format or version: " + file.getFileName());
+        int count = b.getInt(COUNT_OFFSET);
+        if (count < 0 || HEADER_BYTES + (long) count * recordBytes != size)
+            throw new IllegalArgumentException("Truncated or padded file: " + file.getFileName());
+        return count;
+    }
+
+    static LocalDateTime baseOf(ByteBuffer b) {
+        return LocalDateTime.ofEpochSecond(b.getLong(16), 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Appends orders to a new order stream file; the count in the header is
+     * filled in on {@link #close}, so the length needn't be known up front.
+     */
+    static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private int count;
+        private int lastArrival;
+
+        Writer(Path file, int testNumber, LocalDateTime base) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            putHeader(buffer, MAGIC, RECORD_BYTES, testNumber, 0, base);
+        }
+
+        /**
+         * @param arrivalSecond seconds after the base, not before the previous
+         *                      order's
+         */
+        void append(int arrivalSecond, DrinkType drink, boolean loyal) throws IOException {
+            if (arrivalSecond < lastArrival)
+                throw new IllegalArgumentException("Orders must be appended in arrival order");
+            if (buffer.remaining() < RECORD_BYTES)
+                drain();
+            buffer.putInt(arrivalSecond).put((byte) drink.ordinal()).put((byte) (loyal ? LOYAL : 0)).putShort((short) 0);
+            lastArrival = arrivalSecond;
+            count++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (channel) {
+                drain();
+                ByteBuffer countBytes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(count).flip();
+                channel.write(countBytes, COUNT_OFFSET);
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
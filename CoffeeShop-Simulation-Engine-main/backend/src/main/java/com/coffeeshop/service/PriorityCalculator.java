@@ -1,42 +1,105 @@
 package com.coffeeshop.service;
 
 import com.coffeeshop.model.Order;
+import com.coffeeshop.model.SimOrderStore;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
-import java.time.LocalDateTime;
-
+/**
+ * The weighted scheduling policy (WEIGHTED, the default): wait time 40%,
+ * order complexity 25%, loyalty 10% and urgency 25%, plus an emergency boost
+ * once an order has waited past the 8 minute urgency threshold.
+ */
 @Service
-public class PriorityCalculator {
+public class PriorityCalculator implements SchedulingPolicy {
+
+    public static final String NAME = "WEIGHTED";
+
+    static final int MAX_WAIT_THRESHOLD_SECONDS = 600; // 10 minutes
+    static final int URGENCY_THRESHOLD_SECONDS = 480; // 8 minutes
+
+    // Weights in 1/480ths of a point, so that every term is a whole number.
+    // Below the urgency cliff every order gains score at the same rate (wait +
+    // urgency terms), above it only the wait term keeps growing.
+    private static final long UNITS_PER_POINT = 480;
+    private static final long WAIT_UNITS_PER_SECOND = 32; // 40 points per 600s
+    private static final long URGENCY_UNITS_PER_SECOND = 25; // 25 points per 480s
+    private static final long COMPLEXITY_UNITS_PER_MINUTE = 1200; // 25 points at 0 min, none at 10 min
+    private static final long LOYALTY_UNITS = 4800; // 10 points
+    private static final long URGENT_BOOST_UNITS = 36000; // standard 25 + emergency 50 points
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public long unitsPerPoint() {
+        return UNITS_PER_POINT;
+    }
+
+    @Override
+    public long intercept(int totalPrepMinutes, boolean loyal) {
+        return complexityUnits(totalPrepMinutes) + (loyal ? LOYALTY_UNITS : 0);
+    }
 
-    private static final int MAX_WAIT_THRESHOLD_SECONDS = 600; // 10 minutes
-    private static final int URGENCY_THRESHOLD_SECONDS = 480; // 8 minutes
+    @Override
+    public long risingSlope() {
+        return WAIT_UNITS_PER_SECOND + URGENCY_UNITS_PER_SECOND;
+    }
+
+    @Override
+    public long urgentSlope() {
+        return WAIT_UNITS_PER_SECOND;
+    }
+
+    @Override
+    public long urgentBoost() {
+        return URGENT_BOOST_UNITS;
+    }
 
-    public void updatePriority(Order order) {
-        long waitTimeSeconds = Duration.between(order.getArrivalTime(), LocalDateTime.now()).getSeconds();
+    @Override
+    public int crossoverSeconds() {
+        return URGENCY_THRESHOLD_SECONDS;
+    }
+
+    @Override
+    public byte reasonCode(int totalPrepMinutes, boolean loyal, double waitTimeSeconds) {
+        if (waitTimeSeconds > URGENCY_THRESHOLD_SECONDS)
+            return SimOrderStore.REASON_URGENT;
+        else if (loyal)
+            return SimOrderStore.REASON_GOLD_MEMBER;
+        else if (totalPrepMinutes <= 2)
+            return SimOrderStore.REASON_QUICK_ORDER;
+        else
+            return SimOrderStore.REASON_STANDARD;
+    }
 
+    /**
+     * Scores an order for a given wait time and sets its priority reason.
+     */
+    @Override
+    public void applyScore(Order order, double waitTimeSeconds) {
         // 1. Wait Time Score (Weight: 40%)
         // Normalized: waitTime / 10 mins * 100 * 0.4
-        double waitScore = (double) waitTimeSeconds / MAX_WAIT_THRESHOLD_SECONDS * 100 * 0.4;
+        double waitScore = waitTimeSeconds * WAIT_UNITS_PER_SECOND / UNITS_PER_POINT;
 
         // 2. Order Complexity (Weight: 25%)
         // Prefer simpler orders for throughput. Max prep time for a single complex
         // drink is ~6 min.
         // Let's say max complexity is ~10 min for a large order.
         // Inverse: (10 - prepTime) / 10 * 100 * 0.25
-        int totalPrepTime = order.getTotalPrepTime();
-        double complexityScore = Math.max(0, (10 - totalPrepTime) / 10.0 * 100 * 0.25);
+        double complexityScore = (double) complexityUnits(order.getTotalPrepTime()) / UNITS_PER_POINT;
 
         // 3. Loyalty Status (Weight: 10%)
-        double loyaltyScore = order.isLoyal() ? 10.0 : 0.0;
+        double loyaltyScore = order.isLoyal() ? (double) LOYALTY_UNITS / UNITS_PER_POINT : 0.0;
 
         // 4. Urgency (Weight: 25% + Emergency Boost)
         double urgencyScore = 0.0;
         if (waitTimeSeconds > URGENCY_THRESHOLD_SECONDS) {
-            urgencyScore = 25.0 + 50.0; // standard weight + emergency boost
+            urgencyScore = (double) URGENT_BOOST_UNITS / UNITS_PER_POINT; // standard weight + emergency boost
         } else {
             // Linear increase as it approaches 8 mins
-            urgencyScore = (double) waitTimeSeconds / URGENCY_THRESHOLD_SECONDS * 25.0;
+            urgencyScore = waitTimeSeconds * URGENCY_UNITS_PER_SECOND / UNITS_PER_POINT;
         }
 
         double totalScore = waitScore + complexityScore + loyaltyScore + urgencyScore;
@@ -55,4 +118,8 @@ public class PriorityCalculator {
             order.setPriorityReason("🔹 Initial Arrival / Standard");
         }
     }
+
+    private static long complexityUnits(int totalPrepMinutes) {
+        return COMPLEXITY_UNITS_PER_MINUTE * Math.max(0, 10 - totalPrepMinutes);
+    }
 }
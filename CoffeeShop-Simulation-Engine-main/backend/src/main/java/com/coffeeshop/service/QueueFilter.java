@@ -0,0 +1,29 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Which waiting orders a queue page returns; every set condition must hold.
+ *
+ * @param loyalOnly     only Gold members
+ * @param slaAtRiskOnly only orders past the 8 minute urgency threshold, i.e.
+ *                      flagged "Urgent"
+ * @param drink         only orders with this drink, or null for any
+ */
+public record QueueFilter(boolean loyalOnly, boolean slaAtRiskOnly, DrinkType drink) {
+
+    public static final QueueFilter NONE = new QueueFilter(false, false, null);
+
+    public boolean matches(Order order, LocalDateTime now) {
+        if (loyalOnly && !order.isLoyal())
+            return false;
+        if (drink != null && !order.getDrinks().contains(drink))
+            return false;
+        return !slaAtRiskOnly || Duration.between(order.getArrivalTime(), now)
+                .getSeconds() >= PriorityCalculator.URGENCY_THRESHOLD_SECONDS;
+    }
+}
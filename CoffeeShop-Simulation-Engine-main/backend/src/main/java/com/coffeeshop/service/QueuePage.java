@@ -0,0 +1,44 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Order;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of a store's waiting queue in priority order. Pass nextCursor back
+ * to get the page after it; null means the walk reached the end of the queue.
+ * <p>
+ * The cursor is the last order's ID and score. The next page starts right
+ * after that order's current place, or after its old score once it has left
+ * the queue. Priorities keep moving, so an order that overtakes the cursor
+ * between two requests is not seen again, as with any cursor over a live
+ * ranking.
+ */
+public record QueuePage(List<Entry> orders, String nextCursor, int queueSize) {
+
+    /**
+     * A waiting order (a copy, ETA set) and its place in the whole queue.
+     */
+    public record Entry(int position, Order order) {
+    }
+
+    record Cursor(double score, String orderId) {
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((score + "/" + orderId).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String text = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int slash = text.indexOf('/');
+                return new Cursor(Double.parseDouble(text.substring(0, slash)), text.substring(slash + 1));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid queue cursor: " + cursor);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.coffeeshop.service;
+
+/**
+ * A waiting order's place in its store's queue (1 = next to be served) and its
+ * estimated wait.
+ */
+public record QueuePosition(String orderId, int position, long etaSeconds, int queueSize) {
+}
@@ -0,0 +1,151 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Order;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Original scoring: every waiting order is rescored on every tick and the heap
+ * is rebuilt, O(n) per tick.
+ */
+class RescanWaitingQueue implements WaitingQueue {
+
+    private final IndexedOrderQueue queue = new IndexedOrderQueue();
+    private final SchedulingPolicy policy;
+
+    RescanWaitingQueue(SchedulingPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public void add(Order order, LocalDateTime now) {
+        policy.updatePriority(order);
+        queue.add(order);
+    }
+
+    @Override
+    public void advance(LocalDateTime now, Consumer<Order> slaCheck) {
+        queue.reprioritize(order -> {
+            policy.updatePriority(order);
+            slaCheck.accept(order);
+        });
+    }
+
+    @Override
+    public Order poll(LocalDateTime now) {
+        return queue.poll();
+    }
+
+    @Override
+    public double headScore(LocalDateTime now) {
+        return queue.peekKey(); // as of the last rescan
+    }
+
+    @Override
+    public Order remove(String orderId) {
+        return queue.remove(orderId);
+    }
+
+    @Override
+    public LocalDateTime nextDueEvent(LocalDateTime now) {
+        // Every order may change rank at any time, so keep the old 1s cadence
+        return queue.isEmpty() ? null : now.plusSeconds(1);
+    }
+
+    @Override
+    public boolean contains(String orderId) {
+        return queue.contains(orderId);
+    }
+
+    @Override
+    public Order get(String orderId) {
+        return queue.get(orderId);
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public List<Order> snapshot(LocalDateTime now) {
+        return queue.sortedSnapshot();
+    }
+
+    @Override
+    public double score(String orderId, LocalDateTime now) {
+        Order order = queue.get(orderId);
+        return order == null ? Double.NaN : order.getPriorityScore(); // as of the last rescan
+    }
+
+    // Scores change on every rescan, so there is no index to count with: O(n)
+    @Override
+    public int countAbove(double score, LocalDateTime now) {
+        int[] count = new int[1];
+        queue.forEach(o -> {
+            if (o.getPriorityScore() > score)
+                count[0]++;
+        });
+        return count[0];
+    }
+
+    @Override
+    public int countAtLeast(double score, LocalDateTime now) {
+        int[] count = new int[1];
+        queue.forEach(o -> {
+            if (o.getPriorityScore() >= score)
+                count[0]++;
+        });
+        return count[0];
+    }
+
+    // Equal scores are served first come, first served; O(n) like countAbove
+    @Override
+    public int position(String orderId, LocalDateTime now) {
+        return queue.countAhead(orderId) + 1;
+    }
+
+    @Override
+    public long prepMinutesAbove(double score, LocalDateTime now) {
+        long[] sum = new long[1];
+        queue.forEach(o -> {
+            if (o.getPriorityScore() > score)
+                sum[0] += o.getTotalPrepTime();
+        });
+        return sum[0];
+    }
+
+    @Override
+    public long prepMinutesAboveOnceUrgent(double urgentScore, LocalDateTime at) {
+        long[] sum = new long[1];
+        queue.forEach(o -> {
+            double wait = Duration.between(o.getArrivalTime(), at).toNanos() / 1e9;
+            if (policy.urgentScoreAt(o, wait) > urgentScore)
+                sum[0] += o.getTotalPrepTime();
+        });
+        return sum[0];
+    }
+
+    @Override
+    public Iterator<Order> from(double maxScore, LocalDateTime now) {
+        List<Order> sorted = queue.sortedSnapshot();
+        int lo = 0, hi = sorted.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted.get(mid).getPriorityScore() > maxScore)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return sorted.subList(lo, sorted.size()).iterator();
+    }
+
+    @Override
+    public List<Order> head(LocalDateTime now, int limit) {
+        return queue.top(limit);
+    }
+}
@@ -0,0 +1,86 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.SimOrderStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary results of a simulation run, record for record alongside the
+ * {@link OrderStreamFile} it replayed (or the scenario it generated).
+ * <p>
+ * Same 32-byte header as an order stream, with magic "CSRS" and a record
+ * size of 24, then per order in arrival order: {@code double} priority score
+ * when picked up, {@code int} start second, {@code int} completion second
+ * (both relative to the base), {@code byte} reason code (the
+ * {@code SimOrderStore.REASON_*} constants), a reserved byte, {@code short}
+ * index of the barista who made it and 4 reserved bytes.
+ */
+final class ResultStreamFile {
+
+    static final int RECORD_BYTES = 24;
+    private static final int MAGIC = 0x53525343; // "CSRS" little-endian
+    private static final int WRITE_BUFFER_BYTES = 256 * 1024;
+
+    private ResultStreamFile() {
+    }
+
+    /**
+     * Writes the outcome of every order of a finished run.
+     */
+    static void write(Path file, SimOrderStore orders) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            OrderStreamFile.putHeader(buffer, MAGIC, RECORD_BYTES, orders.getTestNumber(), orders.size(),
+                    orders.getBase());
+            for (int i = 0; i < orders.size(); i++) {
+                if (buffer.remaining() < RECORD_BYTES)
+                    drain(buffer, channel);
+                buffer.putDouble(orders.priorityScore(i)).putInt(orders.startSeconds(i))
+                        .putInt(orders.completionSeconds(i)).put(orders.reasonCode(i))
+                        .put((byte) 0).putShort((short) orders.barista(i)).putInt(0);
+            }
+            drain(buffer, channel);
+        }
+    }
+
+    /**
+     * Maps {@code file} and fills its results into {@code orders}, the inputs
+     * of the same run.
+     *
+     * @throws IllegalArgumentException if it isn't a valid result file for
+     *                                  those orders
+     */
+    static void read(Path file, SimOrderStore orders) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < OrderStreamFile.HEADER_BYTES || size > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Not a result file: " + file.getFileName());
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            int count = OrderStreamFile.checkHeader(map, MAGIC, RECORD_BYTES, size, file);
+            if (count != orders.size() || map.getInt(8) != orders.getTestNumber())
+                throw new IllegalArgumentException("Results in " + file.getFileName() + " are for another run");
+            for (int i = 0, at = OrderStreamFile.HEADER_BYTES; i < count; i++, at += RECORD_BYTES) {
+                byte reason = map.get(at + 16);
+                if (reason < SimOrderStore.REASON_STANDARD || reason > SimOrderStore.REASON_URGENT)
+                    throw new IllegalArgumentException("Bad reason code in record " + i + " of " + file.getFileName());
+                orders.complete(i, map.getInt(at + 8), map.getInt(at + 12), map.getDouble(at), reason,
+                        map.getShort(at + 18));
+            }
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
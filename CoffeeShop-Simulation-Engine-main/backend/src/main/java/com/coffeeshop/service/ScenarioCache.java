@@ -0,0 +1,104 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.SimOrderStore;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Generated scenarios by (testId, seed, volume), so repeated runs, batch
+ * seeds and policy comparisons over the same scenario skip generation.
+ * Generation is deterministic per key and day (orders are dated today), so a
+ * kept scenario is exactly what generating it again would give.
+ * <p>
+ * Scenarios are kept as their input columns only ({@link SimOrderStore#inputs},
+ * ~9 bytes an order), least recently used first, up to maxOrders orders in
+ * all; a scenario larger than that is generated every time. Every caller gets
+ * its own {@link SimOrderStore#newRun} to fill in. Callers asking for a
+ * scenario that is being generated wait for that one build instead of
+ * starting another.
+ */
+final class ScenarioCache {
+
+    private record Key(int testId, int seed, int orderCount, LocalDate day) {
+    }
+
+    private final long maxOrders;
+    // Built or being built, least recently used first
+    private final LinkedHashMap<Key, CompletableFuture<SimOrderStore>> scenarios =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedOrders; // of the built ones; guarded by scenarios
+
+    /**
+     * @param maxOrders orders kept in all, 0 to keep none
+     */
+    ScenarioCache(long maxOrders) {
+        this.maxOrders = maxOrders;
+    }
+
+    /**
+     * A new run over scenario (testId, seed, orderCount), built by
+     * {@code generate} unless it is kept or already being built.
+     */
+    SimOrderStore get(int testId, int seed, int orderCount, Supplier<SimOrderStore> generate) {
+        if (orderCount > maxOrders)
+            return generate.get();
+        Key key = new Key(testId, seed, orderCount, LocalDate.now());
+        CompletableFuture<SimOrderStore> scenario;
+        boolean build = false;
+        synchronized (scenarios) {
+            scenario = scenarios.get(key);
+            if (scenario == null) {
+                scenario = new CompletableFuture<>();
+                scenarios.put(key, scenario);
+                build = true;
+            }
+        }
+        if (build)
+            return build(key, scenario, generate);
+        try {
+            return scenario.join().newRun();
+        } catch (CompletionException e) { // the build failed; it isn't kept, so this caller just retries it
+            return get(testId, seed, orderCount, generate);
+        }
+    }
+
+    private SimOrderStore build(Key key, CompletableFuture<SimOrderStore> scenario,
+            Supplier<SimOrderStore> generate) {
+        SimOrderStore orders;
+        try {
+            orders = generate.get();
+        } catch (RuntimeException e) {
+            synchronized (scenarios) {
+                scenarios.remove(key, scenario);
+            }
+            scenario.completeExceptionally(e);
+            throw e;
+        }
+        SimOrderStore inputs = orders.inputs();
+        synchronized (scenarios) {
+            scenario.complete(inputs); // waiters only join, so nothing runs under the lock
+            if (scenarios.get(key) == scenario) { // not evicted while being built
+                cachedOrders += inputs.size();
+                evict();
+            }
+        }
+        return orders; // its result columns are its own
+    }
+
+    // Drops least recently used built scenarios until within maxOrders; never the only one
+    private void evict() {
+        Iterator<CompletableFuture<SimOrderStore>> eldest = scenarios.values().iterator();
+        while (cachedOrders > maxOrders && scenarios.size() > 1 && eldest.hasNext()) {
+            CompletableFuture<SimOrderStore> scenario = eldest.next();
+            if (!scenario.isDone())
+                continue; // being built; counted once it's done
+            cachedOrders -= scenario.join().size();
+            eldest.remove();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.ScenarioFile;
+import com.coffeeshop.model.SimOrderStore;
+import com.coffeeshop.model.SimulationRunSummary;
+import com.coffeeshop.model.TestCase;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Named order streams in coffeeshop.scenarios.dir, to replay instead of a
+ * generated scenario: {@code <name>.orders} ({@link OrderStreamFile}), written
+ * here from a generated scenario or converted from elsewhere (e.g. a POS
+ * export) and dropped in the directory. A replay saves its results next to it
+ * as {@code <name>.results} ({@link ResultStreamFile}).
+ */
+@Service
+public class ScenarioLibrary {
+
+    private static final String ORDERS = ".orders";
+    private static final String RESULTS = ".results";
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final SimulationService simulationService;
+    private final Path dir;
+    private final int maxOrders;
+
+    /**
+     * @param maxOrders most orders a saved scenario may have, so one request
+     *                  can't fill the disk (8 bytes an order on disk)
+     */
+    public ScenarioLibrary(SimulationService simulationService,
+            @Value("${coffeeshop.scenarios.dir:data/scenarios}") String dir,
+            @Value("${coffeeshop.scenarios.max-orders:5000000}") int maxOrders) {
+        this.simulationService = simulationService;
+        this.dir = Paths.get(dir);
+        this.maxOrders = maxOrders;
+    }
+
+    /**
+     * Saves scenario {@code testId} as generated from {@code seed} with
+     * {@code orderCount} orders; null for the scenario's own seed and volume.
+     *
+     * @throws IllegalArgumentException if the name is invalid or the order
+     *                                  count is negative or above
+     *                                  coffeeshop.scenarios.max-orders
+     */
+    public ScenarioFile save(String name, int testId, Integer seed, Integer orderCount) throws IOException {
+        int n = orderCount != null ? orderCount : SimulationService.orderCountFor(testId);
+        if (n < 0 || n > maxOrders)
+            throw new IllegalArgumentException("orders must be between 0 and " + maxOrders);
+        Path file = file(name, ORDERS);
+        Files.createDirectories(dir);
+        Files.deleteIfExists(file(name, RESULTS)); // results of the stream being replaced
+        OrderStreamFile.write(file, simulationService.generateTestCaseOrders(testId, n,
+                seed != null ? seed : SimulationService.defaultSeedFor(testId)));
+        return describe(name);
+    }
+
+    public List<ScenarioFile> list() throws IOException {
+        List<ScenarioFile> scenarios = new ArrayList<>();
+        if (!Files.isDirectory(dir))
+            return scenarios;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.sorted().toList()) {
+                String filename = file.getFileName().toString();
+                String name = filename.substring(0, Math.max(0, filename.length() - ORDERS.length()));
+                if (filename.endsWith(ORDERS) && NAME.matcher(name).matches())
+                    scenarios.add(describe(name));
+            }
+        }
+        return scenarios;
+    }
+
+    /**
+     * Replays a saved order stream and saves its results next to it.
+     *
+     * @param baristas null for the configured pool
+     * @param policy   null for the configured policy
+     * @throws NoSuchElementException   if there is no such scenario
+     * @throws IllegalArgumentException if the file or the policy is invalid
+     */
+    public SimulationRunSummary replay(String name, List<BaristaProfile> baristas, String policy) throws IOException {
+        SimOrderStore orders = OrderStreamFile.map(existing(name, ORDERS));
+        TestCase testCase = simulationService.replay(orders, baristas, policy);
+        ResultStreamFile.write(file(name, RESULTS), orders);
+        return simulationService.summarize(testCase, 0); // not generated, no seed
+    }
+
+    /**
+     * The last replay of a scenario, orders with their results, for export.
+     *
+     * @throws NoSuchElementException if the scenario or its results are missing
+     */
+    public TestCase results(String name) throws IOException {
+        SimOrderStore orders = OrderStreamFile.map(existing(name, ORDERS));
+        ResultStreamFile.read(existing(name, RESULTS), orders);
+        TestCase testCase = new TestCase(orders.getTestNumber(), orders.size());
+        testCase.setOrderStore(orders);
+        return testCase;
+    }
+
+    private ScenarioFile describe(String name) throws IOException {
+        Path file = existing(name, ORDERS);
+        ScenarioFile scenario = new ScenarioFile();
+        scenario.setName(name);
+        scenario.setSizeBytes(Files.size(file));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(OrderStreamFile.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            scenario.setTestNumber(header.getInt(8));
+            scenario.setOrders(header.getInt(12));
+        }
+        scenario.setHasResults(Files.exists(file(name, RESULTS)));
+        return scenario;
+    }
+
+    private Path existing(String name, String extension) {
+        Path file = file(name, extension);
+        if (!Files.isRegularFile(file))
+            throw new NoSuchElementException("No " + extension.substring(1) + " file for scenario " + name);
+        return file;
+    }
+
+    // Names are plain words, so a file never resolves outside the directory
+    private Path file(String name, String extension) {
+        if (name == null || !NAME.matcher(name).matches())
+            throw new IllegalArgumentException("Scenario names are 1-64 letters, digits, '-' or '_': " + name);
+        return dir.resolve(name + extension);
+    }
+}
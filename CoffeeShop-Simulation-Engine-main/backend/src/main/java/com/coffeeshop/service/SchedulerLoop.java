@@ -0,0 +1,141 @@
+package com.coffeeshop.service;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Single dedicated thread that owns scheduler state and runs scheduler work
+ * when it becomes due.
+ * <p>
+ * Any thread can hand work over with {@link #execute} or {@link #call}; the
+ * handoff is a lock-free queue plus an unpark, so request threads never contend
+ * on a lock with the loop or with each other. Timed work ({@link #scheduleAt},
+ * e.g. a barista finishing at busyUntilEpochMillis) is kept in a heap owned by
+ * the loop thread. Between events the thread is parked, so it uses no CPU
+ * while idle and reacts to a new event within microseconds.
+ */
+public class SchedulerLoop {
+
+    private record Timer(long dueNanos, long sequence, Runnable task) {
+    }
+
+    private final ConcurrentLinkedQueue<Runnable> inbox = new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>((a, b) -> a.dueNanos() != b.dueNanos()
+            ? Long.compare(a.dueNanos() - b.dueNanos(), 0) // overflow-safe nanoTime compare
+            : Long.compare(a.sequence(), b.sequence()));
+    private final AtomicBoolean parked = new AtomicBoolean();
+    private final Thread thread;
+    private long nextSequence; // loop thread only
+    private volatile boolean running;
+
+    public SchedulerLoop(String name) {
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stops the loop once the work already handed over has run, waiting up to
+     * {@code timeoutMillis} for the thread to finish. Timers not yet due are
+     * dropped.
+     *
+     * @return whether the thread finished in time
+     */
+    public boolean stop(long timeoutMillis) throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join(timeoutMillis);
+        return !thread.isAlive();
+    }
+
+    public boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Runs the task on the loop thread as soon as possible.
+     */
+    public void execute(Runnable task) {
+        inbox.add(task);
+        if (parked.compareAndSet(true, false))
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * Runs the supplier on the loop thread and completes the future with its
+     * result, or exceptionally with whatever it threw. Used by readers that
+     * need a consistent view of loop-owned state.
+     */
+    public <T> CompletableFuture<T> call(Supplier<T> supplier) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                result.complete(supplier.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Runs the task on the loop thread once the wall clock reaches
+     * {@code epochMillis}.
+     */
+    public void scheduleAt(long epochMillis, Runnable task) {
+        if (!inLoop()) {
+            execute(() -> scheduleAt(epochMillis, task));
+            return;
+        }
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(epochMillis - System.currentTimeMillis());
+        timers.add(new Timer(System.nanoTime() + Math.max(0, delayNanos), nextSequence++, task));
+    }
+
+    private void run() {
+        while (running) {
+            Runnable task;
+            while ((task = inbox.poll()) != null) {
+                runSafely(task);
+            }
+
+            long now = System.nanoTime();
+            while (!timers.isEmpty() && timers.peek().dueNanos() - now <= 0) {
+                runSafely(timers.poll().task());
+            }
+
+            parked.set(true);
+            if (!inbox.isEmpty() || !running) { // raced with a producer
+                parked.set(false);
+                continue;
+            }
+            if (timers.isEmpty()) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, timers.peek().dueNanos() - System.nanoTime());
+            }
+            parked.set(false);
+        }
+        // Drain: what was handed over before stop() still runs, e.g. journaling an accepted order
+        Runnable task;
+        while ((task = inbox.poll()) != null) {
+            runSafely(task);
+        }
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            e.printStackTrace(); // keep the loop alive: every store pinned to it would freeze
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.coffeeshop.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Every {@link SchedulingPolicy} bean, by name (case-insensitive). A new
+ * policy only needs to be a bean to be usable by the stores
+ * (coffeeshop.scheduler.policy) and the simulator.
+ */
+@Service
+public class SchedulingPolicies {
+
+    private final Map<String, SchedulingPolicy> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    public SchedulingPolicies(List<SchedulingPolicy> policies) {
+        for (SchedulingPolicy policy : policies) {
+            if (byName.putIfAbsent(policy.name(), policy) != null)
+                throw new IllegalStateException("Duplicate scheduling policy: " + policy.name());
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no policy by that name
+     */
+    public SchedulingPolicy get(String name) {
+        SchedulingPolicy policy = name == null ? null : byName.get(name.trim());
+        if (policy == null)
+            throw new IllegalArgumentException("Unknown scheduling policy: " + name + " (known: " + names() + ")");
+        return policy;
+    }
+
+    public List<String> names() {
+        List<String> names = new ArrayList<>();
+        for (SchedulingPolicy policy : byName.values())
+            names.add(policy.name());
+        return names;
+    }
+}
@@ -0,0 +1,129 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Order;
+import com.coffeeshop.model.SimOrderStore;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * How waiting orders are ranked: the higher the score, the sooner an order is
+ * served. Used by the live {@link BaristaScheduler} and by the simulator alike,
+ * so a policy that wins in simulation behaves the same in a store.
+ * <p>
+ * A policy's score is piecewise linear in the order's wait: a wait-independent
+ * intercept plus {@link #risingSlope} per second of wait, and past
+ * {@link #crossoverSeconds} an extra {@link #urgentBoost} with
+ * {@link #urgentSlope} per second instead. Slopes and the crossover are the
+ * same for every order, which is what lets the queues rank orders once at
+ * arrival instead of rescoring them ({@link AnalyticWaitingQueue},
+ * {@link SimWaitingQueue}). All terms are whole numbers of score units,
+ * {@link #unitsPerPoint} to a point, so the simulator ranks with exact integer
+ * arithmetic.
+ * <p>
+ * Implementations are Spring beans, looked up by {@link #name} through
+ * {@link SchedulingPolicies}, and must be stateless.
+ */
+public interface SchedulingPolicy {
+
+    int NO_CROSSOVER = Integer.MAX_VALUE;
+
+    /**
+     * Name used in configuration and on the API, e.g. WEIGHTED.
+     */
+    String name();
+
+    /**
+     * Score units per point of score.
+     */
+    long unitsPerPoint();
+
+    /**
+     * Wait-independent part of the score, in score units.
+     */
+    long intercept(int totalPrepMinutes, boolean loyal);
+
+    /**
+     * Score units gained per second of wait, up to the crossover.
+     */
+    long risingSlope();
+
+    /**
+     * Score units gained per second of wait past the crossover.
+     */
+    default long urgentSlope() {
+        return risingSlope();
+    }
+
+    /**
+     * Score units added once the wait is past the crossover.
+     */
+    default long urgentBoost() {
+        return 0;
+    }
+
+    /**
+     * Wait, in seconds, after which the urgent slope and boost apply, or
+     * {@link #NO_CROSSOVER}.
+     */
+    default int crossoverSeconds() {
+        return NO_CROSSOVER;
+    }
+
+    /**
+     * Why an order scored as it did, one of the SimOrderStore reason codes.
+     */
+    default byte reasonCode(int totalPrepMinutes, boolean loyal, double waitTimeSeconds) {
+        return waitTimeSeconds > PriorityCalculator.URGENCY_THRESHOLD_SECONDS ? SimOrderStore.REASON_URGENT
+                : SimOrderStore.REASON_STANDARD;
+    }
+
+    /**
+     * Score, in points, at this wait.
+     */
+    default double scoreAt(int totalPrepMinutes, boolean loyal, double waitTimeSeconds) {
+        if (waitTimeSeconds > crossoverSeconds())
+            return urgentScoreAt(totalPrepMinutes, loyal, waitTimeSeconds);
+        return (intercept(totalPrepMinutes, loyal) + risingSlope() * waitTimeSeconds) / unitsPerPoint();
+    }
+
+    /**
+     * Score, in points, at this wait as if the order were past the crossover,
+     * which every order still waiting eventually is.
+     */
+    default double urgentScoreAt(int totalPrepMinutes, boolean loyal, double waitTimeSeconds) {
+        return (intercept(totalPrepMinutes, loyal) + urgentBoost() + urgentSlope() * waitTimeSeconds)
+                / unitsPerPoint();
+    }
+
+    default double scoreAt(Order order, double waitTimeSeconds) {
+        return scoreAt(order.getTotalPrepTime(), order.isLoyal(), waitTimeSeconds);
+    }
+
+    default double urgentScoreAt(Order order, double waitTimeSeconds) {
+        return urgentScoreAt(order.getTotalPrepTime(), order.isLoyal(), waitTimeSeconds);
+    }
+
+    /**
+     * Wait-independent part of the score, in points.
+     */
+    default double staticIntercept(Order order) {
+        return (double) intercept(order.getTotalPrepTime(), order.isLoyal()) / unitsPerPoint();
+    }
+
+    /**
+     * Scores an order for a given wait time and sets its priority reason.
+     */
+    default void applyScore(Order order, double waitTimeSeconds) {
+        order.setPriorityScore(scoreAt(order, waitTimeSeconds));
+        order.setPriorityReason(SimOrderStore.reasonLabel(
+                reasonCode(order.getTotalPrepTime(), order.isLoyal(), waitTimeSeconds)));
+    }
+
+    /**
+     * {@link #applyScore} for the order's wait until now.
+     */
+    default void updatePriority(Order order) {
+        applyScore(order, Duration.between(order.getArrivalTime(), LocalDateTime.now()).getSeconds());
+    }
+}
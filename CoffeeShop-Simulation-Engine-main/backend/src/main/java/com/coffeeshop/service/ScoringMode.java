@@ -0,0 +1,11 @@
+package com.coffeeshop.service;
+
+/**
+ * How the live scheduler keeps waiting orders in priority order.
+ */
+public enum ScoringMode {
+    /** Rescore every waiting order on every tick (original behaviour). */
+    RESCAN,
+    /** Score on demand from static intercept + slope; no per-tick rescoring. */
+    ANALYTIC
+}
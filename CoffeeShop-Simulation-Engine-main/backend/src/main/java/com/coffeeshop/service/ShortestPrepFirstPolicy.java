@@ -0,0 +1,42 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.SimOrderStore;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shortest prep first (SPF): the quickest order is served first, ties in
+ * arrival order. The score is minus the prep time in minutes and never
+ * changes while the order waits, so long orders can starve under load.
+ */
+@Component
+public class ShortestPrepFirstPolicy implements SchedulingPolicy {
+
+    public static final String NAME = "SPF";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public long unitsPerPoint() {
+        return 1;
+    }
+
+    @Override
+    public long intercept(int totalPrepMinutes, boolean loyal) {
+        return -totalPrepMinutes;
+    }
+
+    @Override
+    public long risingSlope() {
+        return 0;
+    }
+
+    @Override
+    public byte reasonCode(int totalPrepMinutes, boolean loyal, double waitTimeSeconds) {
+        if (totalPrepMinutes <= 2)
+            return SimOrderStore.REASON_QUICK_ORDER;
+        return SchedulingPolicy.super.reasonCode(totalPrepMinutes, loyal, waitTimeSeconds);
+    }
+}
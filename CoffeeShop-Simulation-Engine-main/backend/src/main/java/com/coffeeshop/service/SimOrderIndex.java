@@ -0,0 +1,112 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.SimOrderStore;
+
+import java.util.Arrays;
+
+/**
+ * Lookup structures over the orders of one finished simulation run, for
+ * paging through them by arrival window, barista and SLA breach.
+ * <p>
+ * Orders are indexed in arrival order, so an arrival window is a binary
+ * search over any list of order indices. Per barista and for breached orders
+ * there is such a list, built in one pass; a filter starts from the most
+ * selective list and checks whatever else it asks for while walking the
+ * window. Immutable once built, so pages can be read from any thread.
+ */
+final class SimOrderIndex {
+
+    static final int SLA_LIMIT_SECONDS = 600;
+
+    /**
+     * The indices of one page of matching orders, and how many match in all.
+     */
+    record Page(int[] orders, int total) {
+    }
+
+    private final SimOrderStore orders;
+    private final int[][] byBarista; // order indices, ascending
+    private final int[] breached;
+
+    SimOrderIndex(SimOrderStore orders, int baristas) {
+        this.orders = orders;
+        int n = orders.size();
+        int[] counts = new int[baristas];
+        int breachCount = 0;
+        for (int i = 0; i < n; i++) {
+            counts[orders.barista(i)]++;
+            if (breached(i))
+                breachCount++;
+        }
+        this.byBarista = new int[baristas][];
+        for (int b = 0; b < baristas; b++)
+            byBarista[b] = new int[counts[b]];
+        this.breached = new int[breachCount];
+        Arrays.fill(counts, 0);
+        breachCount = 0;
+        for (int i = 0; i < n; i++) {
+            int b = orders.barista(i);
+            byBarista[b][counts[b]++] = i;
+            if (breached(i))
+                breached[breachCount++] = i;
+        }
+    }
+
+    boolean breached(int order) {
+        return orders.completionSeconds(order) - orders.arrivalSeconds(order) > SLA_LIMIT_SECONDS;
+    }
+
+    /**
+     * @param fromSecond first arrival second included
+     * @param toSecond   last arrival second included
+     * @param barista    barista index, or -1 for any
+     * @param breach     true/false for only breached/unbreached orders, null
+     *                   for both
+     */
+    Page page(int fromSecond, int toSecond, int barista, Boolean breach, int offset, int limit) {
+        int[] list = barista >= 0 ? byBarista[barista] : Boolean.TRUE.equals(breach) ? breached : null;
+        boolean checkBreach = breach != null && list != breached;
+        int lo = lowerBound(list, fromSecond);
+        int hi = toSecond == Integer.MAX_VALUE ? length(list) : lowerBound(list, toSecond + 1);
+
+        if (!checkBreach) { // every order in the window matches
+            int start = Math.min(hi, lo + offset);
+            int[] page = new int[Math.max(0, Math.min(limit, hi - start))];
+            for (int k = 0; k < page.length; k++)
+                page[k] = at(list, start + k);
+            return new Page(page, Math.max(0, hi - lo));
+        }
+        int[] page = new int[limit];
+        int found = 0, total = 0;
+        for (int k = lo; k < hi; k++) {
+            int order = at(list, k);
+            if (breached(order) != breach)
+                continue;
+            if (total >= offset && found < limit)
+                page[found++] = order;
+            total++;
+        }
+        return new Page(Arrays.copyOf(page, found), total);
+    }
+
+    // First position in the list (all orders if null) arriving at or after second
+    private int lowerBound(int[] list, int second) {
+        int lo = 0, hi = length(list);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (orders.arrivalSeconds(at(list, mid)) < second)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private int length(int[] list) {
+        return list == null ? orders.size() : list.length;
+    }
+
+    private static int at(int[] list, int k) {
+        return list == null ? k : list[k];
+    }
+}
@@ -0,0 +1,42 @@
+package com.coffeeshop.service;
+
+/**
+ * The discrete-event simulator's queue of waiting orders, over order indices.
+ * The engine adds orders as they arrive, calls {@link #advanceTo} once the
+ * clock has moved and arrivals are in, then polls.
+ */
+interface SimOrderQueue {
+
+    int size();
+
+    boolean isEmpty();
+
+    /**
+     * Whether a barista with this drink skill mask can make any waiting order.
+     */
+    boolean hasWorkFor(int skillMask);
+
+    void add(int order);
+
+    /**
+     * Brings the ranking up to date at {@code now}.
+     */
+    void advanceTo(long now);
+
+    /**
+     * Removes and returns the order with the highest score at {@code now} among
+     * those a barista with {@code skillMask} can make, or -1 if there is none.
+     * The caller must have called {@link #advanceTo} for {@code now}.
+     */
+    int poll(long now, int skillMask);
+
+    /**
+     * The order {@link #poll} would return, left in the queue.
+     */
+    int peek(long now, int skillMask);
+
+    /**
+     * The waiting order that arrived first, or -1 if the queue is empty.
+     */
+    int oldestWaiting();
+}
@@ -0,0 +1,244 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.SimOrderStore;
+
+/**
+ * Waiting queue for the discrete-event simulator, over order indices.
+ * <p>
+ * Same idea as {@link AnalyticWaitingQueue}, with exact integer arithmetic on
+ * the {@link SchedulingPolicy}'s score units: the score is
+ * {@code risingSlope * wait + C} up to the policy's urgency crossover and
+ * {@code urgentSlope * wait + C + urgentBoost} after it, where C is the
+ * order's intercept. Within each phase the ranking is fixed at arrival, so
+ * each phase is a plain binary heap on a static key and no order is ever
+ * rescored. Orders cross over in arrival order, so crossovers are a pointer
+ * walk; the stale entry left in the rising heap is skipped lazily. Ties go to
+ * the earlier arrival.
+ * <p>
+ * When some barista only makes certain drinks, every drink type gets its own
+ * pair of heaps (a lane) and a barista polls the best order across the lanes
+ * it is skilled for; otherwise there is a single lane.
+ */
+class SimWaitingQueue implements SimOrderQueue {
+
+    private static final byte NOT_QUEUED = 0, RISING = 1, URGENT = 2, TAKEN = 3;
+
+    private final SimOrderStore orders;
+    private final boolean byDrink;
+    private final long risingSlope, urgentSlope; // score units per second
+    private final int crossoverSeconds;
+    private final long[] risingKey;
+    private final long[] urgentKey;
+    private final byte[] phase;
+    private final int[][] risingHeap; // per lane
+    private final int[][] urgentHeap;
+    private final int[] risingSize, urgentSize;
+    private final int[] laneSize; // live orders per lane
+    private final int[] arrivalOrder; // queued orders in arrival order, for crossovers
+    private int queuedCount, crossoverCursor, oldestCursor;
+    private int pickedLane; // set by pick()
+    private boolean pickedRising;
+    private int size;
+
+    /**
+     * @param orders  the run's orders; indices are in non-decreasing arrival order
+     * @param policy  how orders are ranked
+     * @param byDrink one lane per drink type, for pools with specialist baristas
+     */
+    SimWaitingQueue(SimOrderStore orders, SchedulingPolicy policy, boolean byDrink) {
+        int n = orders.size();
+        this.orders = orders;
+        this.byDrink = byDrink;
+        this.risingSlope = policy.risingSlope();
+        this.urgentSlope = policy.urgentSlope();
+        this.crossoverSeconds = policy.crossoverSeconds();
+        this.risingKey = new long[n];
+        this.urgentKey = new long[n];
+        int lanes = byDrink ? DrinkType.values().length : 1;
+        int[] perLane = new int[lanes];
+        for (int i = 0; i < n; i++) {
+            long intercept = policy.intercept(orders.prepMinutes(i), orders.isLoyal(i));
+            risingKey[i] = intercept - risingSlope * orders.arrivalSeconds(i);
+            urgentKey[i] = intercept + policy.urgentBoost() - urgentSlope * orders.arrivalSeconds(i);
+            perLane[laneOf(i)]++;
+        }
+        this.phase = new byte[n];
+        this.risingHeap = new int[lanes][];
+        this.urgentHeap = new int[lanes][];
+        for (int lane = 0; lane < lanes; lane++) {
+            risingHeap[lane] = new int[perLane[lane]];
+            urgentHeap[lane] = new int[perLane[lane]];
+        }
+        this.risingSize = new int[lanes];
+        this.urgentSize = new int[lanes];
+        this.laneSize = new int[lanes];
+        this.arrivalOrder = new int[n];
+    }
+
+    private int laneOf(int order) {
+        return byDrink ? orders.drinkOrdinal(order) : 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean hasWorkFor(int skillMask) {
+        if (!byDrink)
+            return size > 0;
+        for (int lane = 0; lane < laneSize.length; lane++) {
+            if (laneSize[lane] > 0 && (skillMask >>> lane & 1) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void add(int order) {
+        int lane = laneOf(order);
+        phase[order] = RISING;
+        arrivalOrder[queuedCount++] = order;
+        risingHeap[lane][risingSize[lane]] = order;
+        siftUp(risingHeap[lane], risingSize[lane]++, risingKey);
+        laneSize[lane]++;
+        size++;
+    }
+
+    /**
+     * Moves every order whose wait exceeds the policy's crossover at
+     * {@code now} into the urgent phase.
+     */
+    @Override
+    public void advanceTo(long now) {
+        while (crossoverCursor < queuedCount) {
+            int order = arrivalOrder[crossoverCursor];
+            if (now - orders.arrivalSeconds(order) <= crossoverSeconds)
+                break;
+            crossoverCursor++;
+            if (phase[order] == RISING) {
+                int lane = laneOf(order);
+                phase[order] = URGENT; // rising heap entry becomes stale
+                urgentHeap[lane][urgentSize[lane]] = order;
+                siftUp(urgentHeap[lane], urgentSize[lane]++, urgentKey);
+            }
+        }
+    }
+
+    @Override
+    public int poll(long now, int skillMask) {
+        int best = pick(now, skillMask);
+        if (best == -1)
+            return -1;
+
+        if (pickedRising) {
+            int[] heap = risingHeap[pickedLane];
+            heap[0] = heap[--risingSize[pickedLane]];
+            siftDown(heap, 0, risingSize[pickedLane], risingKey);
+        } else {
+            int[] heap = urgentHeap[pickedLane];
+            heap[0] = heap[--urgentSize[pickedLane]];
+            siftDown(heap, 0, urgentSize[pickedLane], urgentKey);
+        }
+        phase[best] = TAKEN;
+        laneSize[pickedLane]--;
+        size--;
+        return best;
+    }
+
+    @Override
+    public int peek(long now, int skillMask) {
+        return pick(now, skillMask);
+    }
+
+    @Override
+    public int oldestWaiting() {
+        while (oldestCursor < queuedCount && phase[arrivalOrder[oldestCursor]] == TAKEN)
+            oldestCursor++;
+        return oldestCursor < queuedCount ? arrivalOrder[oldestCursor] : -1;
+    }
+
+    // Best order for the mask; its lane and phase are left in pickedLane/pickedRising
+    private int pick(long now, int skillMask) {
+        int bestLane = -1, best = -1;
+        boolean bestRising = false;
+        long bestScore = 0;
+        for (int lane = 0; lane < laneSize.length; lane++) {
+            if (laneSize[lane] == 0 || (byDrink && (skillMask >>> lane & 1) == 0))
+                continue;
+            dropStaleRising(lane);
+            if (risingSize[lane] > 0) {
+                int r = risingHeap[lane][0];
+                long score = risingKey[r] + risingSlope * now;
+                if (best == -1 || score > bestScore || (score == bestScore && r < best)) {
+                    bestLane = lane;
+                    best = r;
+                    bestRising = true;
+                    bestScore = score;
+                }
+            }
+            if (urgentSize[lane] > 0) {
+                int u = urgentHeap[lane][0];
+                long score = urgentKey[u] + urgentSlope * now;
+                if (best == -1 || score > bestScore || (score == bestScore && u < best)) {
+                    bestLane = lane;
+                    best = u;
+                    bestRising = false;
+                    bestScore = score;
+                }
+            }
+        }
+        pickedLane = bestLane;
+        pickedRising = bestRising;
+        return best;
+    }
+
+    private void dropStaleRising(int lane) {
+        int[] heap = risingHeap[lane];
+        while (risingSize[lane] > 0 && phase[heap[0]] != RISING) {
+            heap[0] = heap[--risingSize[lane]];
+            siftDown(heap, 0, risingSize[lane], risingKey);
+        }
+    }
+
+    private static boolean higher(int a, int b, long[] key) {
+        return key[a] > key[b] || (key[a] == key[b] && a < b);
+    }
+
+    private static void siftUp(int[] heap, int idx, long[] key) {
+        int order = heap[idx];
+        while (idx > 0) {
+            int parent = (idx - 1) >>> 1;
+            if (!higher(order, heap[parent], key))
+                break;
+            heap[idx] = heap[parent];
+            idx = parent;
+        }
+        heap[idx] = order;
+    }
+
+    private static void siftDown(int[] heap, int idx, int size, long[] key) {
+        if (size == 0)
+            return;
+        int order = heap[idx];
+        while (true) {
+            int child = 2 * idx + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && higher(heap[child + 1], heap[child], key))
+                child++;
+            if (!higher(heap[child], order, key))
+                break;
+            heap[idx] = heap[child];
+            idx = child;
+        }
+        heap[idx] = order;
+    }
+}
@@ -0,0 +1,348 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.BatchSimulationResult;
+import com.coffeeshop.model.BatchingGainResult;
+import com.coffeeshop.model.PolicyComparisonResult;
+import com.coffeeshop.model.SimulationJob;
+import com.coffeeshop.model.TestCase;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Simulations run in the background, so a long run or sweep never holds an
+ * HTTP thread: submitting returns a job to poll for progress and, once done,
+ * the result.
+ * <p>
+ * Jobs run on coffeeshop.simulation.jobs.threads low-priority threads (half
+ * the cores by default), each job on one thread, batch and compare runs one
+ * after another. However many are submitted, simulations never take more than
+ * those threads from the live scheduler loops and the request threads. Up to
+ * coffeeshop.simulation.jobs.queue-capacity more wait for a thread; beyond that
+ * a submit is rejected ({@link RejectedExecutionException}) rather than queued
+ * without bound. The synchronous endpoints go through the same threads and
+ * queue ({@link #run}, {@link #batch}...): they only wait for their job.
+ * <p>
+ * Cancelling is cooperative: a queued job is dropped, a running one stops at
+ * its next progress report ({@link SimulationProgress#REPORT_EVERY} events)
+ * and keeps nothing. The last coffeeshop.simulation.jobs.retained finished
+ * jobs can still be polled.
+ */
+@Service
+public class SimulationJobs {
+
+    private final SimulationService simulationService;
+    private final ThreadPoolExecutor executor;
+    private final int retained;
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Job> finished = new ConcurrentLinkedQueue<>(); // oldest first
+
+    public SimulationJobs(SimulationService simulationService,
+            @Value("${coffeeshop.simulation.jobs.threads:0}") int threads,
+            @Value("${coffeeshop.simulation.jobs.queue-capacity:16}") int queueCapacity,
+            @Value("${coffeeshop.simulation.jobs.retained:100}") int retained) {
+        this.simulationService = simulationService;
+        this.retained = retained;
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), task -> {
+                    Thread thread = new Thread(task, "simulation-job-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (Job job : jobs.values())
+            job.cancel();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues {@link SimulationService#runSimulation}; like a synchronous run,
+     * it becomes the test's latest run once done.
+     *
+     * @throws IllegalArgumentException   if there is no such policy
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public SimulationJob submitRun(int testId, List<BaristaProfile> baristas, String policy) {
+        simulationService.policyOrDefault(policy);
+        return submit("run", progress -> simulationService.runSimulation(testId, baristas, policy, progress));
+    }
+
+    /**
+     * Queues {@link SimulationService#runBatch}.
+     *
+     * @throws IllegalArgumentException   if there is no such policy
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public SimulationJob submitBatch(List<Integer> testIds, int seedsPerTest, List<BaristaProfile> baristas,
+            String policy) {
+        simulationService.policyOrDefault(policy);
+        return submit("batch",
+                progress -> simulationService.runBatch(testIds, seedsPerTest, baristas, policy, progress));
+    }
+
+    /**
+     * Queues {@link SimulationService#comparePolicies}.
+     *
+     * @throws IllegalArgumentException   if a policy is unknown
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public SimulationJob submitCompare(List<String> policyNames, List<Integer> testIds, int seedsPerTest,
+            List<BaristaProfile> baristas) {
+        for (String name : policyNames)
+            simulationService.policyOrDefault(name);
+        return submit("compare",
+                progress -> simulationService.comparePolicies(policyNames, testIds, seedsPerTest, baristas, progress));
+    }
+
+    /**
+     * {@link SimulationService#runSimulation} as a job, waited for.
+     *
+     * @throws IllegalArgumentException   if there is no such policy
+     * @throws RejectedExecutionException if the job queue is full
+     * @throws CancellationException      if the job was cancelled
+     */
+    public TestCase run(int testId, List<BaristaProfile> baristas, String policy) {
+        simulationService.policyOrDefault(policy);
+        return await("run", progress -> simulationService.runSimulation(testId, baristas, policy, progress));
+    }
+
+    /**
+     * {@link SimulationService#runBatch} as a job, waited for.
+     *
+     * @throws IllegalArgumentException   if there is no such policy
+     * @throws RejectedExecutionException if the job queue is full
+     * @throws CancellationException      if the job was cancelled
+     */
+    public BatchSimulationResult batch(List<Integer> testIds, int seedsPerTest, List<BaristaProfile> baristas,
+            String policy) {
+        simulationService.policyOrDefault(policy);
+        return await("batch",
+                progress -> simulationService.runBatch(testIds, seedsPerTest, baristas, policy, progress));
+    }
+
+    /**
+     * {@link SimulationService#comparePolicies} as a job, waited for.
+     *
+     * @throws IllegalArgumentException   if a policy is unknown
+     * @throws RejectedExecutionException if the job queue is full
+     * @throws CancellationException      if the job was cancelled
+     */
+    public PolicyComparisonResult compare(List<String> policyNames, List<Integer> testIds, int seedsPerTest,
+            List<BaristaProfile> baristas) {
+        for (String name : policyNames)
+            simulationService.policyOrDefault(name);
+        return await("compare",
+                progress -> simulationService.comparePolicies(policyNames, testIds, seedsPerTest, baristas, progress));
+    }
+
+    /**
+     * {@link SimulationService#batchingGain} as a job, waited for.
+     *
+     * @throws IllegalArgumentException   if there is no such policy
+     * @throws RejectedExecutionException if the job queue is full
+     * @throws CancellationException      if the job was cancelled
+     */
+    public BatchingGainResult batchingGain(List<Integer> testIds, int seedsPerTest, List<BaristaProfile> baristas,
+            String policy) {
+        simulationService.policyOrDefault(policy);
+        return await("batching-gain",
+                progress -> simulationService.batchingGain(testIds, seedsPerTest, baristas, policy, progress));
+    }
+
+    /**
+     * @throws NoSuchElementException if there is no such job, or it finished
+     *                                too long ago
+     */
+    public SimulationJob get(String id) {
+        return job(id).snapshot();
+    }
+
+    // Newest first
+    public List<SimulationJob> list() {
+        List<SimulationJob> snapshots = new ArrayList<>();
+        for (Job job : jobs.values())
+            snapshots.add(job.snapshot());
+        snapshots.sort(Comparator.comparing(SimulationJob::getSubmittedAt).reversed());
+        return snapshots;
+    }
+
+    /**
+     * Cancels a queued or running job; a finished one is left as it is.
+     *
+     * @throws NoSuchElementException if there is no such job
+     */
+    public SimulationJob cancel(String id) {
+        Job job = job(id);
+        job.cancel();
+        return job.snapshot();
+    }
+
+    private SimulationJob submit(String type, Function<SimulationProgress, Object> work) {
+        return enqueue(type, work).snapshot();
+    }
+
+    // Runs the work as a job and waits for it on the calling thread; a failure
+    // is rethrown as it was thrown, so a bad request is still a 400
+    @SuppressWarnings("unchecked")
+    private <T> T await(String type, Function<SimulationProgress, T> work) {
+        Job job = enqueue(type, work::apply);
+        try {
+            job.done.await();
+        } catch (InterruptedException e) {
+            job.cancel();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted waiting for simulation job " + job.id);
+        }
+        if (job.failure instanceof RuntimeException e)
+            throw e;
+        if (job.failure instanceof Error e)
+            throw e;
+        if (job.state == SimulationJob.State.CANCELLED)
+            throw new CancellationException("Simulation job " + job.id + " was cancelled");
+        return (T) job.result;
+    }
+
+    // Package-private for tests
+    Job enqueue(String type, Function<SimulationProgress, Object> work) {
+        Job job = new Job(type, work);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw new RejectedExecutionException("Simulation job queue is full (" + executor.getQueue().size()
+                    + " waiting); try again later");
+        }
+        return job;
+    }
+
+    private Job job(String id) {
+        Job job = jobs.get(id);
+        if (job == null)
+            throw new NoSuchElementException("No simulation job " + id);
+        return job;
+    }
+
+    final class Job implements Runnable {
+        final String id = UUID.randomUUID().toString();
+        final String type;
+        final Function<SimulationProgress, Object> work;
+        final SimulationProgress progress = new SimulationProgress();
+        final LocalDateTime submittedAt = LocalDateTime.now();
+        // State changes are synchronized on the job; fields are volatile for snapshots
+        volatile SimulationJob.State state = SimulationJob.State.QUEUED;
+        volatile LocalDateTime startedAt, finishedAt;
+        volatile long startedNanos, finishedNanos;
+        volatile Object result;
+        volatile String error;
+        volatile Throwable failure; // rethrown to a synchronous caller
+        final CountDownLatch done = new CountDownLatch(1); // counted down once finished
+
+        Job(String type, Function<SimulationProgress, Object> work) {
+            this.type = type;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (state != SimulationJob.State.QUEUED)
+                    return; // cancelled before a thread got to it
+                state = SimulationJob.State.RUNNING;
+                startedAt = LocalDateTime.now();
+                startedNanos = System.nanoTime();
+            }
+            try {
+                Object outcome = work.apply(progress);
+                result = outcome;
+                finish(SimulationJob.State.DONE);
+            } catch (CancellationException e) {
+                finish(SimulationJob.State.CANCELLED);
+            } catch (Throwable e) {
+                // An Error too, or the job would stay RUNNING forever
+                error = String.valueOf(e.getMessage());
+                failure = e;
+                finish(SimulationJob.State.FAILED);
+                System.err.println("Simulation job " + id + " failed: " + e);
+            }
+        }
+
+        void cancel() {
+            synchronized (this) {
+                progress.cancel(); // a running job stops at its next report
+                if (state != SimulationJob.State.QUEUED)
+                    return;
+                // Finished before unlocking, so a thread dequeuing it right now skips it
+                finish(SimulationJob.State.CANCELLED);
+            }
+            executor.remove(this);
+        }
+
+        // Only the first outcome counts: a job finishes, and is retained, once
+        private void finish(SimulationJob.State outcome) {
+            synchronized (this) {
+                if (state != SimulationJob.State.QUEUED && state != SimulationJob.State.RUNNING)
+                    return;
+                state = outcome;
+                finishedAt = LocalDateTime.now();
+                finishedNanos = System.nanoTime();
+            }
+            finished.add(this);
+            while (finished.size() > retained) {
+                Job oldest = finished.poll();
+                if (oldest != null)
+                    jobs.remove(oldest.id);
+            }
+            done.countDown();
+        }
+
+        SimulationJob snapshot() {
+            SimulationJob job = new SimulationJob();
+            job.setId(id);
+            job.setType(type);
+            synchronized (this) {
+                job.setState(state);
+                job.setSubmittedAt(submittedAt);
+                job.setStartedAt(startedAt);
+                job.setFinishedAt(finishedAt);
+                job.setError(error);
+                job.setResult(result);
+                long total = progress.totalOrders(), done = progress.orders();
+                job.setOrdersTotal(total);
+                job.setOrdersDone(done);
+                job.setPercentComplete(state == SimulationJob.State.DONE ? 100
+                        : total == 0 ? 0 : Math.min(100, 100.0 * done / total));
+                job.setEventsProcessed(progress.events());
+                if (startedAt != null) {
+                    long elapsed = (finishedAt != null ? finishedNanos : System.nanoTime()) - startedNanos;
+                    job.setEventsPerSecond(elapsed == 0 ? 0 : progress.events() * 1e9 / elapsed);
+                }
+            }
+            return job;
+        }
+    }
+}
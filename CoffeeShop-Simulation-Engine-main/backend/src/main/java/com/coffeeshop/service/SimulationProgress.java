@@ -0,0 +1,58 @@
+package com.coffeeshop.service;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a simulation job, written by the runs doing the work and read
+ * by whoever polls the job. Runs report every {@link #REPORT_EVERY} events,
+ * so the counters cost nothing per event; a report is also where a run
+ * notices it has been cancelled.
+ */
+final class SimulationProgress {
+
+    static final int REPORT_EVERY = 1024; // engine events between reports
+
+    private final AtomicLong totalOrders = new AtomicLong();
+    private final AtomicLong orders = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private volatile boolean cancelled;
+
+    // Orders a run about to start will simulate
+    void expect(long runOrders) {
+        totalOrders.addAndGet(runOrders);
+    }
+
+    /**
+     * Adds a run's orders completed and events processed since its last
+     * report.
+     *
+     * @throws CancellationException if the job has been cancelled
+     */
+    void report(int ordersDone, int eventsDone) {
+        orders.addAndGet(ordersDone);
+        events.addAndGet(eventsDone);
+        if (cancelled)
+            throw new CancellationException("Simulation cancelled");
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    long totalOrders() {
+        return totalOrders.get();
+    }
+
+    long orders() {
+        return orders.get();
+    }
+
+    long events() {
+        return events.get();
+    }
+}
@@ -1,279 +1,612 @@
 package com.coffeeshop.service;
 
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.BatchSimulationResult;
+import com.coffeeshop.model.BatchingGain;
+import com.coffeeshop.model.BatchingGainResult;
 import com.coffeeshop.model.DrinkType;
-import com.coffeeshop.model.Order;
+import com.coffeeshop.model.PolicyComparisonResult;
+import com.coffeeshop.model.ScenarioStatistics;
+import com.coffeeshop.model.SimOrderPage;
+import com.coffeeshop.model.SimOrderResult;
+import com.coffeeshop.model.SimOrderStore;
+import com.coffeeshop.model.SimulationRunSummary;
 import com.coffeeshop.model.TestCase;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 
 @Service
 public class SimulationService {
 
-    private final PriorityCalculator priorityCalculator;
-    private final List<TestCase> history = new ArrayList<>();
+    public static final int SCENARIO_COUNT = 10;
+    public static final int MAX_ORDER_PAGE = 1000;
 
-    public SimulationService(PriorityCalculator priorityCalculator) {
-        this.priorityCalculator = priorityCalculator;
+    // What a run was computed from; the same inputs always give the same run
+    private record RunInputs(int seed, int orderCount, List<BaristaProfile> baristas, SchedulingPolicy policy) {
+    }
+
+    private record CachedRun(RunInputs inputs, TestCase run, SimOrderIndex index) {
+    }
+
+    private final SchedulingPolicies policies;
+    private final SchedulingPolicy defaultPolicy; // same as the live stores by default
+    private final BaristaRoster baristaRoster; // default pool for runs
+    private final DrinkBatching batching; // for runs that batch, whether or not the live stores do
+    private final CsvExporter csvExporter;
+    // Latest run per test number, metrics only; written by request threads, so concurrent
+    private final ConcurrentSkipListMap<Integer, TestCase> history = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Integer, RunInputs> runInputs = new ConcurrentHashMap<>();
+    // Per-order results of the latest runs, least recently used first; a run
+    // evicted from here is recomputed from its inputs when asked for again
+    private final LinkedHashMap<Integer, CachedRun> resultCache = new LinkedHashMap<>(16, 0.75f, true);
+    private final long resultCacheMaxOrders;
+    private long resultCacheOrders; // guarded by resultCache
+    private final ScenarioCache scenarioCache;
+    // Dedicated pool so batch sweeps don't compete with the common pool
+    private final ForkJoinPool batchPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    public SimulationService(SchedulingPolicies policies, BaristaRoster baristaRoster, DrinkBatching batching,
+            CsvExporter csvExporter, @Value("${coffeeshop.scheduler.policy:" + PriorityCalculator.NAME + "}") String defaultPolicy,
+            @Value("${coffeeshop.simulation.result-cache.max-orders:100000}") long resultCacheMaxOrders,
+            @Value("${coffeeshop.simulation.scenario-cache.max-orders:2000000}") long scenarioCacheMaxOrders) {
+        this.policies = policies;
+        this.defaultPolicy = policies.get(defaultPolicy);
+        this.baristaRoster = baristaRoster;
+        this.batching = batching;
+        this.csvExporter = csvExporter;
+        this.resultCacheMaxOrders = resultCacheMaxOrders;
+        this.scenarioCache = new ScenarioCache(scenarioCacheMaxOrders);
+    }
+
+    public List<String> policyNames() {
+        return policies.names();
     }
 
     @jakarta.annotation.PostConstruct
     public void init() {
-        // Generate the "Master Dataset" CSV on startup
-        String filename = "simulation_dataset_inputs_" + System.currentTimeMillis() + ".csv";
-        try (java.io.PrintWriter writer = new java.io.PrintWriter(new java.io.FileWriter(filename))) {
-            writer.println("Test_ID,Customer_Name,Drink_Type,Arrival_Time,Is_Loyal_Member");
-
-            for (int i = 1; i <= 10; i++) {
-                int count = 200 + (i * 10);
-                if (i == 2)
-                    count = 300;
-
-                List<Order> orders = generateTestCaseOrders(i, count, i * 12345);
-                // Sort by arrival
-                orders.sort(Comparator.comparing(Order::getArrivalTime));
-
-                for (Order o : orders) {
-                    writer.printf("%d,%s,%s,%s,%b%n",
-                            i,
-                            o.getCustomerName(),
-                            o.getDrinks().get(0),
-                            o.getArrivalTime().toLocalTime(),
-                            o.isLoyal());
-                }
-            }
-            System.out.println("Dataset generated: simulation_dataset_inputs.csv");
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        // The "Master Dataset" CSV is generated and written in the background,
+        // so startup doesn't wait for it
+        csvExporter.exportDataset(SCENARIO_COUNT, i -> generateTestCaseOrders(i, orderCountFor(i), defaultSeedFor(i)));
     }
 
     public TestCase runSimulation(int testId) {
-        int seed = testId * 12345; // Fixed seed for reproducibility
-        int orderCount = 200 + (testId * 10); // Varies 210 - 300
-        if (testId == 2)
-            orderCount = 300; // Espresso Rush Max
+        return runSimulation(testId, baristaRoster.getProfiles());
+    }
 
-        TestCase testCase = new TestCase(testId, orderCount);
-        List<Order> allOrders = generateTestCaseOrders(testId, orderCount, seed);
-        testCase.setOrders(allOrders); // Save full list
+    public TestCase runSimulation(int testId, List<BaristaProfile> baristas) {
+        return runSimulation(testId, baristas, null);
+    }
 
-        // Simulation State
-        long[] baristaAvailableAt = new long[3]; // 0=B1, 1=B2, 2=B3 (epoch seconds)
-        // Start time: 7:00 AM = 0 relative seconds
-        // End time: 10:00 AM = 10800 relative seconds
+    /**
+     * Runs a test and keeps it as the test's latest run. Returns its metrics;
+     * the orders are paged with {@link #getOrderPage}.
+     *
+     * @param baristas null for the configured pool
+     * @param policy   null for the configured policy
+     * @throws IllegalArgumentException if there is no such policy
+     */
+    public TestCase runSimulation(int testId, List<BaristaProfile> baristas, String policy) {
+        return runSimulation(testId, baristas, policy, null);
+    }
 
-        long currentTime = 0;
+    // Same, reporting to progress (null for none); a cancelled run is not kept
+    TestCase runSimulation(int testId, List<BaristaProfile> baristas, String policy, SimulationProgress progress) {
+        RunInputs inputs = new RunInputs(defaultSeedFor(testId), orderCountFor(testId), poolOrDefault(baristas),
+                policyOrDefault(policy));
+        if (progress != null)
+            progress.expect(inputs.orderCount());
+        TestCase testCase = simulate(generateTestCaseOrders(testId, inputs.orderCount(), inputs.seed()),
+                inputs.baristas(), inputs.policy(), null, progress);
 
-        // Output lists
-        List<Order> completedOrders = new ArrayList<>();
-        int b1Count = 0, b2Count = 0, b3Count = 0;
+        // Store in history map effectively
+        TestCase summary = testCase.summary();
+        runInputs.put(testId, inputs);
+        history.put(testId, summary); // replace old run of same test
+        cache(testId, inputs, testCase);
 
-        // Queue processing
-        // Unlike previous simple loop, we must respect ARRIVAL times.
-        // We simulate a clock ticking forward.
+        csvExporter.exportResults(testCase); // queued, written in the background
 
-        PriorityQueue<Order> waitingQueue = new PriorityQueue<>((o1, o2) -> {
-            // This comparator will be re-evaluated dynamically
-            return Double.compare(o2.getPriorityScore(), o1.getPriorityScore());
-        });
+        // --- CONSOLE REPORT FOR INVIGILATOR ---
+        System.out.println("\n============ SIMULATION REPORT (Test #" + testId + ") ============");
+        System.out.println("Total Orders Processed: " + testCase.getTotalOrders() + " (" + testCase.getPolicy() + ")");
 
-        List<Order> incomingOrders = new ArrayList<>(allOrders);
-        incomingOrders.sort(Comparator.comparing(Order::getArrivalTime)); // Ensure chronological
+        int[] drinkCounts = testCase.getOrderStore().drinkCounts();
 
-        int processedCount = 0;
+        System.out.println("--- Drink Breakdown ---");
+        for (DrinkType drink : DrinkType.values()) {
+            if (drinkCounts[drink.ordinal()] > 0)
+                System.out.printf("%-15s: %d%n", drink, drinkCounts[drink.ordinal()]);
+        }
+        System.out.println("======================================================\n");
 
-        // Discrete Event Simulation Loop
-        // We jump to the next "Interesting Event": either an Order Arrival OR a Barista
-        // Becoming Free
-
-        while (processedCount < orderCount) {
-            // 1. Find next arrival time
-            long nextArrivalTime = incomingOrders.isEmpty() ? Long.MAX_VALUE
-                    : toRelativeSeconds(incomingOrders.get(0).getArrivalTime());
-
-            // 2. Find next barista free time
-            long earliestBaristaFree = Long.MAX_VALUE;
-            int freeBaristaIdx = -1;
-            for (int i = 0; i < 3; i++) {
-                if (baristaAvailableAt[i] < earliestBaristaFree) {
-                    earliestBaristaFree = baristaAvailableAt[i];
-                    freeBaristaIdx = i;
-                }
-            }
+        return summary;
+    }
 
-            // 3. Determine simulation clock advancement
-            // If queue is empty, we MUST jump to next arrival
-            // If queue has items, we can assign if a barista is free "now" or in future
+    /**
+     * Runs every (testId, seed) pair on the batch pool and aggregates the
+     * results per scenario. Each run is {@link #simulate}, which shares no
+     * state, so the results are identical to running them one by one.
+     */
+    public BatchSimulationResult runBatch(List<Integer> testIds, int seedsPerTest) {
+        return runBatch(testIds, seedsPerTest, null, null);
+    }
 
-            // If all baristas differ, we pick the earliest event.
-            // But strict logic: We can't assign until arrival.
+    public BatchSimulationResult runBatch(List<Integer> testIds, int seedsPerTest, List<BaristaProfile> baristas) {
+        return runBatch(testIds, seedsPerTest, baristas, null);
+    }
 
-            long previousTime = currentTime;
+    /**
+     * @param baristas null for the configured pool
+     * @param policy   null for the configured policy
+     * @throws IllegalArgumentException if there is no such policy
+     */
+    public BatchSimulationResult runBatch(List<Integer> testIds, int seedsPerTest, List<BaristaProfile> baristas,
+            String policy) {
+        return runBatch(testIds, seedsPerTest, baristas, policy, null);
+    }
 
-            if (waitingQueue.isEmpty() && !incomingOrders.isEmpty()) {
-                currentTime = Math.max(currentTime, nextArrivalTime);
-            } else if (!waitingQueue.isEmpty()) {
-                // If baristas are busy until future, jump there
-                // BUT, if a new order arrives BEFORE barista is free, we must process that
-                // arrival first
-                // because it might have higher priority!
+    // Same, reporting to progress (null for none)
+    BatchSimulationResult runBatch(List<Integer> testIds, int seedsPerTest, List<BaristaProfile> baristas,
+            String policy, SimulationProgress progress) {
+        long started = System.nanoTime();
+        List<SimulationRunSummary> summaries = runAll(testIds, List.of(policyOrDefault(policy)), seedsPerTest,
+                poolOrDefault(baristas), null, progress);
+
+        BatchSimulationResult result = new BatchSimulationResult();
+        result.setRuns(summaries);
+        result.setScenarios(aggregate(summaries));
+        result.setParallelism(parallelism(progress));
+        result.setElapsedMillis((System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
 
-                if (!incomingOrders.isEmpty() && nextArrivalTime < earliestBaristaFree) {
-                    currentTime = nextArrivalTime;
-                } else {
-                    currentTime = Math.max(currentTime, earliestBaristaFree);
-                }
-            }
+    /**
+     * Head-to-head: every policy runs the same seeded order streams (same
+     * testId and seed, so the same arrivals, drinks and loyalty) with the same
+     * baristas, all runs in parallel on the batch pool. Per scenario, the best
+     * policy has the fewest SLA breaches on average, then the lowest p99 wait,
+     * then the highest throughput.
+     *
+     * @param baristas null for the configured pool
+     * @throws IllegalArgumentException if a policy is unknown
+     */
+    public PolicyComparisonResult comparePolicies(List<String> policyNames, List<Integer> testIds, int seedsPerTest,
+            List<BaristaProfile> baristas) {
+        return comparePolicies(policyNames, testIds, seedsPerTest, baristas, null);
+    }
 
-            // 4. Process Arrivals up to currentTime
-            while (!incomingOrders.isEmpty()
-                    && toRelativeSeconds(incomingOrders.get(0).getArrivalTime()) <= currentTime) {
-                waitingQueue.add(incomingOrders.remove(0));
-            }
+    // Same, reporting to progress (null for none)
+    PolicyComparisonResult comparePolicies(List<String> policyNames, List<Integer> testIds, int seedsPerTest,
+            List<BaristaProfile> baristas, SimulationProgress progress) {
+        List<SchedulingPolicy> compared = new ArrayList<>();
+        for (String name : policyNames) {
+            SchedulingPolicy policy = policies.get(name);
+            if (!compared.contains(policy))
+                compared.add(policy);
+        }
+        long started = System.nanoTime();
+        List<ScenarioStatistics> scenarios = aggregate(runAll(testIds, compared, seedsPerTest,
+                poolOrDefault(baristas), null, progress));
+
+        Map<Integer, String> best = new TreeMap<>();
+        Comparator<ScenarioStatistics> better = Comparator
+                .comparingDouble(ScenarioStatistics::getMeanSlaViolations)
+                .thenComparingDouble(ScenarioStatistics::getMeanWaitTimeP99)
+                .thenComparing(Comparator.comparingDouble(ScenarioStatistics::getMeanThroughputPerHour).reversed());
+        scenarios.stream()
+                .collect(Collectors.groupingBy(ScenarioStatistics::getTestNumber, TreeMap::new,
+                        Collectors.minBy(better)))
+                .forEach((testNumber, stats) -> best.put(testNumber, stats.get().getPolicy()));
+
+        PolicyComparisonResult result = new PolicyComparisonResult();
+        result.setPolicies(compared.stream().map(SchedulingPolicy::name).toList());
+        result.setSeedsPerTest(seedsPerTest);
+        result.setScenarios(scenarios);
+        result.setBestPolicyByScenario(best);
+        result.setParallelism(parallelism(progress));
+        result.setElapsedMillis((System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Throughput gain of drink batching: every scenario runs the same seeded
+     * order streams with the same baristas and policy, once without and once
+     * with batching (coffeeshop.batching.curve and .drinks).
+     *
+     * @param baristas null for the configured pool
+     * @param policy   null for the configured policy
+     * @throws IllegalArgumentException if there is no such policy
+     */
+    public BatchingGainResult batchingGain(List<Integer> testIds, int seedsPerTest, List<BaristaProfile> baristas,
+            String policy) {
+        return batchingGain(testIds, seedsPerTest, baristas, policy, null);
+    }
+
+    // Same, reporting to progress (null for none)
+    BatchingGainResult batchingGain(List<Integer> testIds, int seedsPerTest, List<BaristaProfile> baristas,
+            String policy, SimulationProgress progress) {
+        SchedulingPolicy runPolicy = policyOrDefault(policy);
+        List<BaristaProfile> pool = poolOrDefault(baristas);
+        long started = System.nanoTime();
+        List<ScenarioStatistics> unbatched = aggregate(runAll(testIds, List.of(runPolicy), seedsPerTest, pool, null,
+                progress));
+        List<ScenarioStatistics> batched = aggregate(runAll(testIds, List.of(runPolicy), seedsPerTest, pool,
+                batching, progress));
+
+        List<BatchingGain> gains = new ArrayList<>();
+        for (int i = 0; i < unbatched.size(); i++) {
+            ScenarioStatistics before = unbatched.get(i), after = batched.get(i); // same scenario order
+            BatchingGain gain = new BatchingGain();
+            gain.setTestNumber(before.getTestNumber());
+            gain.setUnbatchedThroughputPerHour(before.getMeanThroughputPerHour());
+            gain.setBatchedThroughputPerHour(after.getMeanThroughputPerHour());
+            gain.setThroughputGainPercent(before.getMeanThroughputPerHour() == 0 ? 0
+                    : 100 * (after.getMeanThroughputPerHour() / before.getMeanThroughputPerHour() - 1));
+            gain.setUnbatchedMeanSlaViolations(before.getMeanSlaViolations());
+            gain.setBatchedMeanSlaViolations(after.getMeanSlaViolations());
+            gain.setUnbatchedMeanWaitTimeP99(before.getMeanWaitTimeP99());
+            gain.setBatchedMeanWaitTimeP99(after.getMeanWaitTimeP99());
+            gains.add(gain);
+        }
 
-            // 5. Update Priorities for Waiting Queue based on new currentTime
-            // (Score depends on wait time = currentTime - arrivalTime)
-            List<Order> temp = new ArrayList<>(waitingQueue);
-            waitingQueue.clear();
-            for (Order o : temp) {
-                o.setPriorityScore(calculateSimScore(o, currentTime - toRelativeSeconds(o.getArrivalTime())));
-                setReason(o, currentTime - toRelativeSeconds(o.getArrivalTime()));
+        BatchingGainResult result = new BatchingGainResult();
+        result.setPolicy(runPolicy.name());
+        result.setSeedsPerTest(seedsPerTest);
+        result.setScenarios(gains);
+        result.setParallelism(parallelism(progress));
+        result.setElapsedMillis((System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+
+    private List<BaristaProfile> poolOrDefault(List<BaristaProfile> baristas) {
+        return baristas != null ? baristas : baristaRoster.getProfiles();
+    }
+
+    SchedulingPolicy policyOrDefault(String policy) {
+        return policy != null ? policies.get(policy) : defaultPolicy;
+    }
+
+    // Every (testId, policy, seed) run in parallel, summarized in that order;
+    // batching is null for unbatched runs. With progress (a job), the runs go
+    // one after another on the calling thread instead, so a job never takes
+    // more than its own thread from the rest of the process.
+    private List<SimulationRunSummary> runAll(List<Integer> testIds, List<SchedulingPolicy> runPolicies,
+            int seedsPerTest, List<BaristaProfile> baristas, DrinkBatching batching, SimulationProgress progress) {
+        record Run(int testId, SchedulingPolicy policy, int seed) {
+        }
+        List<Run> runs = new ArrayList<>();
+        for (int testId : testIds)
+            for (SchedulingPolicy policy : runPolicies)
+                for (int k = 0; k < seedsPerTest; k++)
+                    runs.add(new Run(testId, policy, defaultSeedFor(testId) + k));
+
+        if (progress != null) {
+            for (Run run : runs)
+                progress.expect(orderCountFor(run.testId()));
+            return runs.stream()
+                    .map(run -> summarize(simulate(generateTestCaseOrders(run.testId(), orderCountFor(run.testId()),
+                            run.seed()), baristas, run.policy(), batching, progress), run.seed()))
+                    .toList();
+        }
+        return batchPool.submit(() -> runs.parallelStream()
+                .map(run -> summarize(simulate(run.testId(), run.seed(), orderCountFor(run.testId()), baristas,
+                        run.policy(), batching), run.seed()))
+                .toList()).join(); // encounter order is kept, so output order is deterministic
+    }
+
+    private int parallelism(SimulationProgress progress) {
+        return progress != null ? 1 : batchPool.getParallelism();
+    }
+
+    /**
+     * One isolated, deterministic simulation run: the same (testId, seed) always
+     * produces the same result. Touches no shared state.
+     */
+    public TestCase simulate(int testId, int seed) {
+        return simulate(testId, seed, orderCountFor(testId));
+    }
+
+    /**
+     * Same as {@link #simulate(int, int)} with an explicit order volume.
+     */
+    public TestCase simulate(int testId, int seed, int orderCount) {
+        return simulate(testId, seed, orderCount, baristaRoster.getProfiles());
+    }
+
+    /**
+     * Same as {@link #simulate(int, int, int)} with an explicit barista pool,
+     * ranking the queue with the default policy.
+     * <p>
+     * Discrete-event engine: the clock jumps from one event (an arrival or a
+     * barista becoming free) to the next. Waiting orders sit in a
+     * {@link SimWaitingQueue}, whose ranking only changes at urgency
+     * crossovers, and baristas in a {@link BaristaPool}, so nothing is
+     * rescored or scanned per event and a run is
+     * O((n + events) (log n + log baristas)). WEIGHTED runs with all-round
+     * baristas and no batching use a {@link LegacyOrderHeap} instead, which
+     * breaks score ties exactly as the original engine did, so the fixed
+     * scenarios keep their per-order results.
+     */
+    public TestCase simulate(int testId, int seed, int orderCount, List<BaristaProfile> baristas) {
+        return simulate(testId, seed, orderCount, baristas, defaultPolicy);
+    }
+
+    /**
+     * Same as {@link #simulate(int, int, int, List)}, ranking the queue with
+     * {@code policy}.
+     */
+    public TestCase simulate(int testId, int seed, int orderCount, List<BaristaProfile> baristas,
+            SchedulingPolicy policy) {
+        return simulate(testId, seed, orderCount, baristas, policy, null);
+    }
+
+    /**
+     * Same as {@link #simulate(int, int, int, List, SchedulingPolicy)}, with
+     * drink batching when {@code batching} is not null: a barista who starts
+     * a batchable drink also takes the best waiting orders of that drink, as
+     * long as that makes no order miss the SLA it would otherwise have made.
+     * The queue is then split by drink even when every barista makes
+     * everything, which does not change the order orders are served in.
+     */
+    public TestCase simulate(int testId, int seed, int orderCount, List<BaristaProfile> baristas,
+            SchedulingPolicy policy, DrinkBatching batching) {
+        // Generated in arrival order, so index order is chronological
+        return simulate(generateTestCaseOrders(testId, orderCount, seed), baristas, policy, batching, null);
+    }
+
+    /**
+     * Replays a recorded order stream, e.g. one mapped from an
+     * {@link OrderStreamFile}, instead of a generated scenario. The results
+     * are filled into {@code orders}.
+     *
+     * @param baristas null for the configured pool
+     * @param policy   null for the configured policy
+     * @throws IllegalArgumentException if there is no such policy
+     */
+    public TestCase replay(SimOrderStore orders, List<BaristaProfile> baristas, String policy) {
+        return simulate(orders, poolOrDefault(baristas), policyOrDefault(policy), null, null);
+    }
+
+    // The engine; orders must be in arrival order. Reports to progress, if
+    // any, and stops with a CancellationException once it's cancelled
+    private TestCase simulate(SimOrderStore orders, List<BaristaProfile> baristas, SchedulingPolicy policy,
+            DrinkBatching batching, SimulationProgress progress) {
+        int n = orders.size();
+        TestCase testCase = new TestCase(orders.getTestNumber(), n);
+        testCase.setPolicy(policy.name());
+
+        // Simulation State (relative seconds)
+        // Start time: 7:00 AM = 0 relative seconds
+        // End time: 10:00 AM = 10800 relative seconds
+        BaristaPool pool = new BaristaPool(baristas);
+        int[] baristaCounts = new int[pool.size()];
+
+        SimOrderQueue waitingQueue = policy instanceof PriorityCalculator weighted && !pool.hasSpecialists()
+                && batching == null
+                ? new LegacyOrderHeap(orders, weighted) // the original engine's order, ties included
+                : new SimWaitingQueue(orders, policy, pool.hasSpecialists() || batching != null);
+        IntPredicate hasWorkFor = waitingQueue::hasWorkFor;
+        LatencyHistogram queueDepth = new LatencyHistogram();
+        LatencyHistogram waitTime = new LatencyHistogram();
+        long totalWait = 0, maxWait = 0, lastCompletion = 0;
+        int slas = 0;
+
+        long currentTime = 0;
+        int nextArrival = 0;
+        int completed = 0;
+        int events = 0, reported = 0;
+        int[] batch = new int[batching != null ? batching.maxDrinks() : 1];
+
+        // Discrete Event Simulation Loop
+        // We jump to the next "Interesting Event": either an Order Arrival OR a Barista
+        // Becoming Free. One order is assigned per free barista per event.
+        while (completed < n) {
+            if (progress != null && ++events == SimulationProgress.REPORT_EVERY) {
+                progress.report(completed - reported, events);
+                reported = completed;
+                events = 0;
             }
-            waitingQueue.addAll(temp);
-
-            // 6. Assign if Barista is Free
-            // Find truly free barista at currentTime
-            int bestBarista = -1;
-            for (int i = 0; i < 3; i++) {
-                if (baristaAvailableAt[i] <= currentTime) {
-                    bestBarista = i;
-                    break; // Take first available
-                }
+            int freeBarista = pool.nextIdleFor(hasWorkFor);
+
+            // 1. Advance the clock. If the queue is empty we MUST jump to the next
+            // arrival; if nobody free can make a waiting order, to whichever comes
+            // first, an arrival (it might have higher priority) or a barista
+            // becoming free.
+            if (waitingQueue.isEmpty()) {
+                currentTime = Math.max(currentTime, orders.arrivalSeconds(nextArrival));
+            } else if (freeBarista == -1) {
+                long nextArrivalTime = nextArrival < n ? orders.arrivalSeconds(nextArrival) : Long.MAX_VALUE;
+                currentTime = Math.min(nextArrivalTime, pool.nextFreeAt());
+            }
+            while (pool.releaseNext(currentTime) >= 0) {
+                // back in the idle set
             }
 
-            if (bestBarista != -1 && !waitingQueue.isEmpty()) {
-                Order nextOrder = waitingQueue.poll();
-
-                // Assign
-                long start = currentTime;
-                long prep = nextOrder.getTotalPrepTime() * 60L; // min to sec
-                long end = start + prep;
-
-                baristaAvailableAt[bestBarista] = end;
-
-                // Update Order Stats
-                // We carry original arrival time.
-                // Set completion time relative to base for display
-                LocalDateTime base = nextOrder.getArrivalTime()
-                        .minusSeconds(toRelativeSeconds(nextOrder.getArrivalTime())); // 7:00 AM
-                nextOrder.setCompletionTime(base.plusSeconds(end));
-                // Priority Reason is already set by the update loop above
-
-                if (bestBarista == 0)
-                    b1Count++;
-                else if (bestBarista == 1)
-                    b2Count++;
-                else
-                    b3Count++;
-
-                completedOrders.add(nextOrder);
-                processedCount++;
-            } else {
-                // If we couldn't assign (all busy), and no new orders coming immediately,
-                // we force jump time to next event (earliest barista free)
-                // This prevents infinite loop if currentTime < earliestBaristaFree
-                if (bestBarista == -1 && !incomingOrders.isEmpty() && nextArrivalTime > currentTime) {
-                    // Next interesting thing is either a barista freeing up OR an order arriving
-                    long nextEvent = Math.min(nextArrivalTime, earliestBaristaFree);
-                    currentTime = nextEvent;
-                } else if (bestBarista == -1 && incomingOrders.isEmpty()) {
-                    currentTime = earliestBaristaFree;
+            // 2. Process Arrivals up to currentTime
+            while (nextArrival < n && orders.arrivalSeconds(nextArrival) <= currentTime) {
+                waitingQueue.add(nextArrival++);
+            }
+            waitingQueue.advanceTo(currentTime);
+
+            // 3. Assign if Barista is Free (lowest numbered one that can make
+            // something waiting)
+            freeBarista = pool.nextIdleFor(hasWorkFor);
+            if (freeBarista == -1)
+                continue;
+
+            queueDepth.record(waitingQueue.size());
+            int next = waitingQueue.poll(currentTime, pool.skillMask(freeBarista));
+            BaristaProfile barista = baristas.get(freeBarista);
+            batch[0] = next;
+            int members = 1;
+            long end = currentTime + barista.prepTime(orders.prepSeconds(next));
+            int drinkMask = orders.drink(next).bit();
+            if (batching != null && batching.batchable(drinkMask)) {
+                // Same drink, so every member has the same single-drink prep time
+                while (members < batch.length) {
+                    int candidate = waitingQueue.peek(currentTime, drinkMask);
+                    if (candidate == -1)
+                        break;
+                    long endWith = currentTime
+                            + barista.prepTime(batching.prepTime(orders.prepSeconds(next), members + 1));
+                    if (batchSlips(orders, batch, members, candidate, waitingQueue, barista, end, endWith))
+                        break;
+                    batch[members++] = waitingQueue.poll(currentTime, drinkMask);
+                    end = endWith;
                 }
             }
+            pool.occupy(freeBarista, end);
+            baristaCounts[freeBarista] += members;
+            completed += members;
+            lastCompletion = Math.max(lastCompletion, end);
+
+            for (int m = 0; m < members; m++) {
+                int order = batch[m];
+                long waitAtAssignment = currentTime - orders.arrivalSeconds(order);
+                orders.complete(order, (int) currentTime, (int) end,
+                        policy.scoreAt(orders.prepMinutes(order), orders.isLoyal(order), waitAtAssignment),
+                        policy.reasonCode(orders.prepMinutes(order), orders.isLoyal(order), waitAtAssignment),
+                        freeBarista);
+
+                long wait = end - orders.arrivalSeconds(order);
+                totalWait += wait;
+                maxWait = Math.max(maxWait, wait);
+                if (wait > 600)
+                    slas++;
+                waitTime.record(wait);
+            }
         }
 
-        // Finalize counts
-        // Sort orders by Arrival Time for "Time Wise" display in logs
-        completedOrders.sort(Comparator.comparing(Order::getArrivalTime));
+        if (progress != null)
+            progress.report(completed - reported, events);
 
-        testCase.setOrders(completedOrders);
-        testCase.setBarista1Count(b1Count);
-        testCase.setBarista2Count(b2Count);
-        testCase.setBarista3Count(b3Count);
+        // Finalize counts
+        // Orders are listed by Arrival Time for "Time Wise" display in logs;
+        // Order objects are only built as the list is read
+        testCase.setOrderStore(orders);
+        testCase.setOrders(orders.asOrderList());
+        Map<String, Integer> countsById = new LinkedHashMap<>();
+        for (int b = 0; b < baristaCounts.length; b++)
+            countsById.put(baristas.get(b).getId(), baristaCounts[b]);
+        testCase.setBaristaCounts(countsById);
 
         // Calculate Stats
-        double totalWait = completedOrders.stream()
-                .mapToLong(o -> Duration.between(o.getArrivalTime(), o.getCompletionTime()).getSeconds()).sum();
-        testCase.setAvgWaitTime((totalWait / orderCount) / 60.0);
-
-        long maxWait = completedOrders.stream()
-                .mapToLong(o -> Duration.between(o.getArrivalTime(), o.getCompletionTime()).getSeconds()).max()
-                .orElse(0);
+        testCase.setAvgWaitTime(n == 0 ? 0 : ((double) totalWait / n) / 60.0);
         testCase.setMaxWaitTime(maxWait / 60.0);
+        testCase.setSlaViolations(slas);
+        // Orders served per hour from the first arrival until the last order is done
+        long busySpan = n == 0 ? 0 : lastCompletion - orders.arrivalSeconds(0);
+        testCase.setThroughputPerHour(busySpan > 0 ? n * 3600.0 / busySpan : 0);
+
+        testCase.setWaitTimeP50(waitTime.percentile(50) / 60.0);
+        testCase.setWaitTimeP90(waitTime.percentile(90) / 60.0);
+        testCase.setWaitTimeP99(waitTime.percentile(99) / 60.0);
+        testCase.setWaitTimeP999(waitTime.percentile(99.9) / 60.0);
+        testCase.setQueueDepthP50(queueDepth.percentile(50));
+        testCase.setQueueDepthP99(queueDepth.percentile(99));
 
-        long slas = completedOrders.stream()
-                .mapToLong(o -> Duration.between(o.getArrivalTime(), o.getCompletionTime()).getSeconds())
-                .filter(s -> s > 600).count();
-        testCase.setSlaViolations((int) slas);
-
-        // Store in history map effectively
-        history.removeIf(t -> t.getTestNumber() == testId); // replace old run of same test
-        history.add(testCase);
-        history.sort(Comparator.comparingInt(TestCase::getTestNumber));
-
-        exportToCsv(testCase);
+        return testCase;
+    }
 
-        // --- CONSOLE REPORT FOR INVIGILATOR ---
-        System.out.println("\n============ SIMULATION REPORT (Test #" + testId + ") ============");
-        System.out.println("Total Orders Processed: " + orderCount);
+    // Whether adding candidate to the batch makes a member, or the
+    // longest-waiting order left (served next by this barista at worst), miss
+    // the SLA it would have made
+    private static boolean batchSlips(SimOrderStore orders, int[] batch, int members, int candidate,
+            SimOrderQueue waitingQueue, BaristaProfile barista, long end, long endWith) {
+        for (int m = 0; m < members; m++) {
+            if (DrinkBatching.slips(orders.arrivalSeconds(batch[m]) + 600L, end, endWith))
+                return true;
+        }
+        int oldest = waitingQueue.oldestWaiting();
+        if (oldest == -1 || oldest == candidate)
+            return false;
+        long prep = barista.prepTime(orders.prepSeconds(oldest));
+        return DrinkBatching.slips(orders.arrivalSeconds(oldest) + 600L, end + prep, endWith + prep);
+    }
 
-        Map<String, Long> drinkCounts = completedOrders.stream()
-                .flatMap(o -> o.getDrinks().stream())
-                .map(Enum::name)
-                .collect(Collectors.groupingBy(s -> s, Collectors.counting()));
+    /**
+     * The headline numbers of a run, without its orders.
+     */
+    public SimulationRunSummary summarize(TestCase testCase, int seed) {
+        SimulationRunSummary summary = new SimulationRunSummary();
+        summary.setTestNumber(testCase.getTestNumber());
+        summary.setPolicy(testCase.getPolicy());
+        summary.setSeed(seed);
+        summary.setTotalOrders(testCase.getTotalOrders());
+        summary.setAvgWaitTime(testCase.getAvgWaitTime());
+        summary.setMaxWaitTime(testCase.getMaxWaitTime());
+        summary.setWaitTimeP99(testCase.getWaitTimeP99());
+        summary.setSlaViolations(testCase.getSlaViolations());
+        summary.setThroughputPerHour(testCase.getThroughputPerHour());
+        return summary;
+    }
 
-        System.out.println("--- Drink Breakdown ---");
-        drinkCounts.forEach((drink, count) -> System.out.printf("%-15s: %d%n", drink, count));
-        System.out.println("======================================================\n");
+    // One entry per scenario and policy: by test number, then policies in run order
+    private List<ScenarioStatistics> aggregate(List<SimulationRunSummary> summaries) {
+        Map<Integer, Map<String, List<SimulationRunSummary>>> byTest = summaries.stream()
+                .collect(Collectors.groupingBy(SimulationRunSummary::getTestNumber, TreeMap::new,
+                        Collectors.groupingBy(SimulationRunSummary::getPolicy, LinkedHashMap::new,
+                                Collectors.toList())));
+
+        List<ScenarioStatistics> scenarios = new ArrayList<>();
+        byTest.forEach((testNumber, byPolicy) -> byPolicy.forEach((policy, runs) -> {
+            int n = runs.size();
+            double mean = runs.stream().mapToInt(SimulationRunSummary::getSlaViolations).average().orElse(0);
+            double variance = n < 2 ? 0
+                    : runs.stream().mapToDouble(r -> Math.pow(r.getSlaViolations() - mean, 2)).sum() / (n - 1);
+            double stdDev = Math.sqrt(variance);
+            double margin = 1.96 * stdDev / Math.sqrt(n); // normal approximation
+
+            ScenarioStatistics stats = new ScenarioStatistics();
+            stats.setTestNumber(testNumber);
+            stats.setPolicy(policy);
+            stats.setRuns(n);
+            stats.setMeanSlaViolations(mean);
+            stats.setStdDevSlaViolations(stdDev);
+            stats.setSlaViolationsCi95Low(Math.max(0, mean - margin));
+            stats.setSlaViolationsCi95High(mean + margin);
+            stats.setMeanAvgWaitTime(runs.stream().mapToDouble(SimulationRunSummary::getAvgWaitTime).average().orElse(0));
+            stats.setMeanWaitTimeP99(runs.stream().mapToDouble(SimulationRunSummary::getWaitTimeP99).average().orElse(0));
+            stats.setWorstMaxWaitTime(runs.stream().mapToDouble(SimulationRunSummary::getMaxWaitTime).max().orElse(0));
+            stats.setMeanThroughputPerHour(
+                    runs.stream().mapToDouble(SimulationRunSummary::getThroughputPerHour).average().orElse(0));
+            scenarios.add(stats);
+        }));
+        return scenarios;
+    }
 
-        return testCase;
+    public static int orderCountFor(int testId) {
+        if (testId == 2)
+            return 300; // Espresso Rush Max
+        return 200 + (testId * 10); // Varies 210 - 300
     }
 
-    private void exportToCsv(TestCase testCase) {
-        String filename = "simulation_results_" + System.currentTimeMillis() + ".csv";
-        try (java.io.PrintWriter writer = new java.io.PrintWriter(new java.io.FileWriter(filename))) {
-            writer.println("Test ID, Customer, Drink, Arrival Time, Wait Time (min), Priority Score, Reason");
-            for (Order o : testCase.getOrders()) {
-                long waitSeconds = java.time.Duration.between(o.getArrivalTime(), o.getCompletionTime()).getSeconds();
-                writer.printf("%d, %s, %s, %s, %.1f, %.1f, %s%n",
-                        testCase.getTestNumber(),
-                        o.getCustomerName(),
-                        o.getDrinks().get(0), // Assume 1 item
-                        o.getArrivalTime().toLocalTime(),
-                        waitSeconds / 60.0,
-                        o.getPriorityScore(),
-                        o.getPriorityReason());
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    static int defaultSeedFor(int testId) {
+        return testId * 12345; // Fixed seed for reproducibility
     }
 
-    private long toRelativeSeconds(LocalDateTime time) {
-        // Assume all times are today 7:00 AM based.
-        // We construct them that way.
-        LocalDateTime start = time.toLocalDate().atTime(7, 0);
-        return Duration.between(start, time).getSeconds();
+    /**
+     * The orders of scenario {@code testId}, generated from {@code seed}, in
+     * arrival order. Generated once and then served from the
+     * {@link ScenarioCache}; every call gets a store of its own to run.
+     */
+    public SimOrderStore generateTestCaseOrders(int testId, int n, int seed) {
+        return scenarioCache.get(testId, seed, n, () -> generate(testId, n, seed));
     }
 
-    private List<Order> generateTestCaseOrders(int testId, int n, int seed) {
+    private SimOrderStore generate(int testId, int n, int seed) {
         Random rand = new Random(seed);
-        List<Order> list = new ArrayList<>();
         LocalDateTime baseTime = LocalDateTime.now().toLocalDate().atTime(7, 0); // 7:00 AM today
+        SimOrderStore list = new SimOrderStore(testId, baseTime, n);
 
         DrinkType[] types = DrinkType.values();
 
@@ -343,45 +676,118 @@ public class SimulationService {
             if (currentOffsetSeconds > 10800)
                 currentOffsetSeconds = 10800; // Cap at 10 AM
 
-            LocalDateTime arrival = baseTime.plusSeconds(currentOffsetSeconds);
-
-            String name = "Test" + testId + "-Cust" + (i + 1);
-            Order o = new Order(name, List.of(drink), isLoyal);
-            o.setArrivalTime(arrival);
-            o.setId(String.valueOf(1000 * testId + i)); // ID: 1001, 1002...
-
-            list.add(o);
+            // Name "Test<id>-Cust<i+1>" and ID 1001, 1002... are derived from the index
+            list.add(drink, isLoyal, (int) currentOffsetSeconds);
         }
         return list;
     }
 
-    private double calculateSimScore(Order order, long waitTimeSeconds) {
-        // Mirrored logic from PriorityCalculator
-        double waitScore = (double) waitTimeSeconds / 600.0 * 100 * 0.4;
-        double complexityScore = Math.max(0, (10 - order.getTotalPrepTime()) / 10.0 * 100 * 0.25);
-        double loyaltyScore = order.isLoyal() ? 10.0 : 0.0;
+    /**
+     * The latest run of a test, as kept for {@link #getHistory}.
+     *
+     * @throws NoSuchElementException if that test hasn't been run
+     */
+    public TestCase getRun(int testId) {
+        return cachedRun(testId).run();
+    }
 
-        double urgencyScore = 0.0;
-        if (waitTimeSeconds > 480) { // 8 mins
-            urgencyScore = 25.0 + 50.0;
-        } else {
-            urgencyScore = (double) waitTimeSeconds / 480.0 * 25.0;
+    /**
+     * One page of the latest run's orders, in arrival order, filtered by
+     * arrival window, barista and SLA breach.
+     *
+     * @param from       first arrival time of day included, null for any
+     * @param to         last arrival time of day included, null for any
+     * @param barista    barista ID, null for any
+     * @param slaBreached only breached (true) or unbreached (false) orders,
+     *                   null for both
+     * @throws NoSuchElementException   if that test hasn't been run
+     * @throws IllegalArgumentException if the barista isn't in the run or the
+     *                                  page is out of range
+     */
+    public SimOrderPage getOrderPage(int testId, LocalTime from, LocalTime to, String barista, Boolean slaBreached,
+            int offset, int limit) {
+        if (offset < 0 || limit < 1 || limit > MAX_ORDER_PAGE)
+            throw new IllegalArgumentException("offset must be >= 0 and limit 1-" + MAX_ORDER_PAGE);
+        CachedRun cached = cachedRun(testId);
+        SimOrderStore orders = cached.run().getOrderStore();
+        List<BaristaProfile> baristas = cached.inputs().baristas();
+        int baristaIndex = -1;
+        if (barista != null) {
+            for (int b = 0; b < baristas.size() && baristaIndex < 0; b++) {
+                if (baristas.get(b).getId().equals(barista))
+                    baristaIndex = b;
+            }
+            if (baristaIndex < 0)
+                throw new IllegalArgumentException("No barista " + barista + " in test " + testId);
         }
-        return waitScore + complexityScore + loyaltyScore + urgencyScore;
+        int baseSecond = orders.getBase().toLocalTime().toSecondOfDay();
+        int fromSecond = from == null ? Integer.MIN_VALUE : from.toSecondOfDay() - baseSecond;
+        int toSecond = to == null ? Integer.MAX_VALUE : to.toSecondOfDay() - baseSecond;
+        SimOrderIndex.Page page = cached.index().page(fromSecond, toSecond, baristaIndex, slaBreached, offset, limit);
+
+        List<SimOrderResult> results = new ArrayList<>(page.orders().length);
+        for (int i : page.orders()) {
+            SimOrderResult r = new SimOrderResult();
+            r.setId(orders.orderId(i));
+            r.setCustomerName(orders.customerName(i));
+            r.setDrink(orders.drink(i));
+            r.setLoyal(orders.isLoyal(i));
+            r.setArrivalTime(orders.getBase().plusSeconds(orders.arrivalSeconds(i)));
+            r.setStartTime(orders.getBase().plusSeconds(orders.startSeconds(i)));
+            r.setCompletionTime(orders.getBase().plusSeconds(orders.completionSeconds(i)));
+            r.setWaitMinutes((orders.completionSeconds(i) - orders.arrivalSeconds(i)) / 60.0);
+            r.setSlaBreached(cached.index().breached(i));
+            r.setPriorityScore(orders.priorityScore(i));
+            r.setPriorityReason(orders.priorityReason(i));
+            r.setBarista(baristas.get(orders.barista(i)).getId());
+            results.add(r);
+        }
+        SimOrderPage result = new SimOrderPage();
+        result.setTestNumber(testId);
+        result.setTotal(page.total());
+        result.setOffset(offset);
+        result.setNextOffset(offset + results.size() < page.total() ? offset + results.size() : null);
+        result.setOrders(results);
+        return result;
+    }
+
+    // The latest run of a test with its orders, from the cache or recomputed
+    private CachedRun cachedRun(int testId) {
+        synchronized (resultCache) {
+            CachedRun cached = resultCache.get(testId);
+            if (cached != null)
+                return cached;
+        }
+        RunInputs inputs = runInputs.get(testId);
+        if (inputs == null)
+            throw new NoSuchElementException("Test " + testId + " has not been run");
+        // Evicted: runs are deterministic, so the same inputs give the same run
+        TestCase run = simulate(testId, inputs.seed(), inputs.orderCount(), inputs.baristas(), inputs.policy());
+        TestCase summary = history.get(testId);
+        if (summary != null)
+            run.setId(summary.getId()); // still the same run
+        return cache(testId, inputs, run);
     }
 
-    private void setReason(Order order, long waitTimeSeconds) {
-        if (waitTimeSeconds > 480)
-            order.setPriorityReason("⚠️ Urgent: Approaching Timeout!");
-        else if (order.isLoyal())
-            order.setPriorityReason("👑 Gold Member Priority");
-        else if (order.getTotalPrepTime() <= 2)
-            order.setPriorityReason("⚡ Quick Order Bonus");
-        else
-            order.setPriorityReason("Standard Queue");
+    private CachedRun cache(int testId, RunInputs inputs, TestCase run) {
+        CachedRun cached = new CachedRun(inputs, run, new SimOrderIndex(run.getOrderStore(), inputs.baristas().size()));
+        synchronized (resultCache) {
+            if (runInputs.get(testId) != inputs)
+                return cached; // the test was rerun meanwhile; don't cache the old run
+            CachedRun replaced = resultCache.put(testId, cached);
+            if (replaced != null)
+                resultCacheOrders -= replaced.run().getTotalOrders();
+            resultCacheOrders += run.getTotalOrders();
+            Iterator<CachedRun> eldest = resultCache.values().iterator();
+            while (resultCacheOrders > resultCacheMaxOrders && resultCache.size() > 1) {
+                resultCacheOrders -= eldest.next().run().getTotalOrders(); // never the one just added
+                eldest.remove();
+            }
+        }
+        return cached;
     }
 
     public List<TestCase> getHistory() {
-        return history;
+        return new ArrayList<>(history.values()); // sorted by test number
     }
 }
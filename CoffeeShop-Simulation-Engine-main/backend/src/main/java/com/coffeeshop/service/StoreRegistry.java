@@ -0,0 +1,359 @@
+package com.coffeeshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * All live stores in this process. Each store is its own {@link BaristaScheduler}
+ * shard (queue, baristas, SLA state), pinned for life to one of a fixed set of
+ * {@link SchedulerLoop} threads, one per core by default. Stores on different
+ * loops never share a thread or a lock, so a hot store only competes with the
+ * stores pinned next to it and throughput scales with the loop count.
+ * <p>
+ * Stores are created by their first order, round-robin over the loops; reading
+ * a store that has none is a 404. Each ranks its
+ * queue with the {@link SchedulingPolicy} named by
+ * coffeeshop.scheduler.store-policy.{storeId}, or coffeeshop.scheduler.policy
+ * if the store has none of its own.
+ * <p>
+ * With coffeeshop.journal.enabled, each store journals its order events under
+ * coffeeshop.journal.dir/{storeId} ({@link OrderJournal}) and every store found
+ * there is recovered on startup. One sync thread group-commits all journals,
+ * one more writes their checkpoints.
+ * <p>
+ * Each store keeps its completed orders in a {@link CompletedHistory}: the last
+ * coffeeshop.history.recent-capacity orders in memory, per-minute aggregates for
+ * coffeeshop.history.minutes-retained minutes and, with
+ * coffeeshop.history.spill.enabled, older orders on disk under
+ * coffeeshop.history.spill.dir/{storeId}.
+ * <p>
+ * Each store also has a {@link LiveFeed} behind /api/stream. Updates are
+ * coalesced per coffeeshop.feed.tick-ms and written to subscribers by a shared
+ * pool of coffeeshop.feed.sender-threads threads.
+ */
+@Service
+public class StoreRegistry {
+
+    public static final String DEFAULT_STORE = "main";
+    private static final Pattern STORE_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final long LOOP_STOP_TIMEOUT_MILLIS = 10_000;
+
+    private final SchedulingPolicies policies;
+    private final SchedulingPolicy defaultPolicy;
+    private final Environment environment;
+    private final BaristaRoster baristaRoster;
+    private final ScoringMode scoringMode;
+    private final DispatchMode dispatchMode;
+    private final AssignmentMode assignmentMode;
+    private final DrinkBatching batching; // null when the stores don't batch
+    private final int maxStores;
+    private final SchedulerLoop[] loops;
+    private final ConcurrentHashMap<String, BaristaScheduler> stores = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<BaristaScheduler>> creating = new ConcurrentHashMap<>();
+    private final AtomicInteger storeCount = new AtomicInteger(); // created or being created
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    private final boolean journalEnabled;
+    private final Path journalDir;
+    private final int journalSegmentBytes;
+    private final long journalSyncIntervalMillis;
+    private final ConcurrentHashMap<String, OrderJournal> journals = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService journalSync = Executors.newSingleThreadScheduledExecutor(
+            daemon("journal-sync"));
+    private final ExecutorService journalCheckpoints = Executors.newSingleThreadExecutor(daemon("journal-checkpoint"));
+
+    private final int historyRecentCapacity;
+    private final int historyMinutesRetained;
+    private final boolean spillEnabled;
+    private final Path spillDir;
+    private final long spillSegmentBytes;
+    private final int spillMaxSegments;
+    private final ConcurrentHashMap<String, HistorySpill> spills = new ConcurrentHashMap<>();
+
+    private final ObjectMapper objectMapper;
+    private final long feedTickMillis;
+    private final long feedRefreshMillis;
+    private final int feedQueueHead;
+    private final int feedMaxSubscribers;
+    private final ExecutorService feedSenders;
+    private final ConcurrentHashMap<String, LiveFeed> feeds = new ConcurrentHashMap<>();
+
+    public StoreRegistry(SchedulingPolicies policies, Environment environment, BaristaRoster baristaRoster,
+            @Value("${coffeeshop.scheduler.policy:" + PriorityCalculator.NAME + "}") String defaultPolicy,
+            @Value("${coffeeshop.scheduler.scoring:ANALYTIC}") ScoringMode scoringMode,
+            @Value("${coffeeshop.scheduler.dispatch:EVENT}") DispatchMode dispatchMode,
+            @Value("${coffeeshop.scheduler.assignment:MATCHING}") AssignmentMode assignmentMode,
+            DrinkBatching batching,
+            @Value("${coffeeshop.stores.loop-threads:0}") int loopThreads,
+            @Value("${coffeeshop.stores.max:1000}") int maxStores,
+            @Value("${coffeeshop.journal.enabled:true}") boolean journalEnabled,
+            @Value("${coffeeshop.journal.dir:data/journal}") String journalDir,
+            @Value("${coffeeshop.journal.segment-size-mb:64}") int journalSegmentMb,
+            @Value("${coffeeshop.journal.sync-interval-ms:10}") long journalSyncIntervalMillis,
+            @Value("${coffeeshop.history.recent-capacity:10000}") int historyRecentCapacity,
+            @Value("${coffeeshop.history.minutes-retained:10080}") int historyMinutesRetained,
+            @Value("${coffeeshop.history.spill.enabled:true}") boolean spillEnabled,
+            @Value("${coffeeshop.history.spill.dir:data/history}") String spillDir,
+            @Value("${coffeeshop.history.spill.segment-size-mb:16}") int spillSegmentMb,
+            @Value("${coffeeshop.history.spill.max-segments:64}") int spillMaxSegments,
+            ObjectMapper objectMapper,
+            @Value("${coffeeshop.feed.tick-ms:100}") long feedTickMillis,
+            @Value("${coffeeshop.feed.refresh-ms:1000}") long feedRefreshMillis,
+            @Value("${coffeeshop.feed.queue-head:50}") int feedQueueHead,
+            @Value("${coffeeshop.feed.max-subscribers:1000}") int feedMaxSubscribers,
+            @Value("${coffeeshop.feed.sender-threads:2}") int feedSenderThreads) {
+        this.policies = policies;
+        this.defaultPolicy = policies.get(defaultPolicy); // fail fast on a typo
+        this.environment = environment;
+        this.baristaRoster = baristaRoster;
+        this.scoringMode = scoringMode;
+        this.dispatchMode = dispatchMode;
+        this.assignmentMode = assignmentMode;
+        this.batching = batching.isEnabled() ? batching : null;
+        this.maxStores = maxStores;
+        int threads = loopThreads > 0 ? loopThreads : Runtime.getRuntime().availableProcessors();
+        this.loops = new SchedulerLoop[threads];
+        for (int i = 0; i < threads; i++)
+            loops[i] = new SchedulerLoop("barista-scheduler-" + i);
+        this.journalEnabled = journalEnabled;
+        this.journalDir = Path.of(journalDir);
+        this.journalSegmentBytes = journalSegmentMb * 1024 * 1024;
+        this.journalSyncIntervalMillis = journalSyncIntervalMillis;
+        this.historyRecentCapacity = historyRecentCapacity;
+        this.historyMinutesRetained = historyMinutesRetained;
+        this.spillEnabled = spillEnabled;
+        this.spillDir = Path.of(spillDir);
+        this.spillSegmentBytes = spillSegmentMb * 1024L * 1024L;
+        this.spillMaxSegments = spillMaxSegments;
+        this.objectMapper = objectMapper;
+        this.feedTickMillis = feedTickMillis;
+        this.feedRefreshMillis = feedRefreshMillis;
+        this.feedQueueHead = feedQueueHead;
+        this.feedMaxSubscribers = feedMaxSubscribers;
+        AtomicInteger senderNumber = new AtomicInteger();
+        this.feedSenders = Executors.newFixedThreadPool(Math.max(1, feedSenderThreads),
+                task -> daemon("live-feed-" + senderNumber.getAndIncrement()).newThread(task));
+    }
+
+    @PostConstruct
+    public void start() {
+        for (SchedulerLoop loop : loops)
+            loop.start();
+        if (journalEnabled) {
+            for (String storeId : journaledStores())
+                store(storeId);
+            journalSync.scheduleWithFixedDelay(this::syncJournals, journalSyncIntervalMillis,
+                    journalSyncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        store(DEFAULT_STORE);
+    }
+
+    // Loops first, so nothing appends to a journal or spill while it is closed
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        boolean stopped = true;
+        for (SchedulerLoop loop : loops) {
+            if (!loop.stop(LOOP_STOP_TIMEOUT_MILLIS)) {
+                System.err.println("Scheduler loop did not stop within " + LOOP_STOP_TIMEOUT_MILLIS + " ms");
+                stopped = false;
+            }
+        }
+        for (LiveFeed feed : feeds.values())
+            feed.close();
+        feedSenders.shutdown();
+        journalSync.shutdown();
+        journalCheckpoints.shutdown();
+        journalSync.awaitTermination(5, TimeUnit.SECONDS);
+        journalCheckpoints.awaitTermination(30, TimeUnit.SECONDS);
+        if (!stopped) {
+            System.err.println("Leaving journals and history spills open; a scheduler loop may still write to them");
+            return;
+        }
+        for (OrderJournal journal : journals.values())
+            journal.close();
+        for (HistorySpill spill : spills.values())
+            spill.close();
+    }
+
+    // Group commit: one sync per store and interval, however many events it had
+    private void syncJournals() {
+        for (OrderJournal journal : journals.values()) {
+            try {
+                journal.sync();
+            } catch (RuntimeException e) {
+                System.err.println("Journal sync failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private List<String> journaledStores() {
+        if (!Files.isDirectory(journalDir))
+            return List.of();
+        try (Stream<Path> dirs = Files.list(journalDir)) {
+            return dirs.filter(Files::isDirectory)
+                    .map(dir -> dir.getFileName().toString())
+                    .filter(id -> STORE_ID.matcher(id).matches())
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list journals in " + journalDir, e);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The store's scheduler, created on first use. Only taking an order
+     * creates a store; reads go through {@link #existing}.
+     *
+     * @throws IllegalArgumentException if the ID is malformed or the store limit
+     *                                  (coffeeshop.stores.max) is reached
+     */
+    public BaristaScheduler store(String storeId) {
+        BaristaScheduler scheduler = stores.get(validStoreId(storeId));
+        if (scheduler != null)
+            return scheduler;
+        // One creator per store; recovery and file I/O run outside any map lock,
+        // anyone else asking for the same store waits for that one creation
+        CompletableFuture<BaristaScheduler> creation = new CompletableFuture<>();
+        CompletableFuture<BaristaScheduler> pending = creating.putIfAbsent(storeId, creation);
+        if (pending != null)
+            return awaitCreation(pending);
+        try {
+            scheduler = stores.get(storeId); // created between the lookup and the claim
+            if (scheduler == null) {
+                scheduler = create(storeId);
+                stores.put(storeId, scheduler);
+            }
+            creation.complete(scheduler);
+            return scheduler;
+        } catch (RuntimeException e) {
+            creation.completeExceptionally(e);
+            throw e;
+        } finally {
+            creating.remove(storeId, creation);
+        }
+    }
+
+    /**
+     * The scheduler of a store that already exists.
+     *
+     * @throws IllegalArgumentException if the ID is malformed
+     * @throws NoSuchElementException   if there is no such store
+     */
+    public BaristaScheduler existing(String storeId) {
+        BaristaScheduler scheduler = stores.get(validStoreId(storeId));
+        if (scheduler == null)
+            throw new NoSuchElementException("No store " + storeId);
+        return scheduler;
+    }
+
+    private static String validStoreId(String storeId) {
+        if (storeId == null || !STORE_ID.matcher(storeId).matches())
+            throw new IllegalArgumentException("Invalid store ID: " + storeId);
+        return storeId;
+    }
+
+    private static BaristaScheduler awaitCreation(CompletableFuture<BaristaScheduler> creation) {
+        try {
+            return creation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    private BaristaScheduler create(String id) {
+        if (storeCount.incrementAndGet() > maxStores) {
+            storeCount.decrementAndGet();
+            throw new IllegalArgumentException("Store limit reached (" + maxStores + ")");
+        }
+        SchedulerLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+        OrderJournal journal = null;
+        HistorySpill spill = null;
+        try {
+            journal = journalEnabled
+                    ? new OrderJournal(journalDir.resolve(id), journalSegmentBytes, journalCheckpoints)
+                    : null;
+            spill = spillEnabled ? openSpill(id) : null;
+            CompletedHistory history = new CompletedHistory(historyRecentCapacity, historyMinutesRetained, spill);
+            LiveFeed feed = new LiveFeed(id, objectMapper, feedSenders, feedTickMillis, feedRefreshMillis,
+                    feedQueueHead, feedMaxSubscribers);
+            BaristaScheduler created = new BaristaScheduler(id, policyFor(id), baristaRoster.getProfiles(),
+                    scoringMode, dispatchMode, assignmentMode, batching, loop, journal, history, feed); // recovers from the journal, if any
+            if (journal != null)
+                journals.put(id, journal);
+            if (spill != null)
+                spills.put(id, spill);
+            feeds.put(id, feed);
+            return created;
+        } catch (RuntimeException e) {
+            storeCount.decrementAndGet();
+            if (journal != null)
+                journal.close();
+            if (spill != null)
+                spill.close();
+            throw e;
+        }
+    }
+
+    private SchedulingPolicy policyFor(String storeId) {
+        String name = environment.getProperty("coffeeshop.scheduler.store-policy." + storeId);
+        return name == null ? defaultPolicy : policies.get(name);
+    }
+
+    private HistorySpill openSpill(String storeId) {
+        HistorySpill spill = new HistorySpill(spillDir.resolve(storeId), spillSegmentBytes, spillMaxSegments);
+        try {
+            spill.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the history of store " + storeId, e);
+        }
+        return spill;
+    }
+
+    public List<String> storeIds() {
+        List<String> ids = new ArrayList<>(stores.keySet());
+        ids.sort(null);
+        return ids;
+    }
+
+    @Scheduled(fixedRate = 1000) // Run every second (POLLING mode only)
+    public void pollingTick() {
+        if (dispatchMode != DispatchMode.POLLING)
+            return;
+        for (BaristaScheduler scheduler : stores.values())
+            scheduler.pollingTick();
+    }
+}
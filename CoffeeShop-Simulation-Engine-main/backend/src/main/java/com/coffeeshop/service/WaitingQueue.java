@@ -0,0 +1,144 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Order;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The live scheduler's queue of waiting orders, in priority order.
+ * Implementations are not thread-safe; only the scheduler loop thread uses them.
+ */
+public interface WaitingQueue {
+
+    static WaitingQueue create(ScoringMode mode, SchedulingPolicy policy) {
+        return mode == ScoringMode.ANALYTIC
+                ? new AnalyticWaitingQueue(policy)
+                : new RescanWaitingQueue(policy);
+    }
+
+    /**
+     * Queue for a pool where some baristas only make certain drinks: one
+     * sub-queue per drink combination, see {@link DrinkLaneWaitingQueue}.
+     */
+    static WaitingQueue create(ScoringMode mode, SchedulingPolicy policy, boolean bySkill) {
+        return bySkill
+                ? new DrinkLaneWaitingQueue(() -> create(mode, policy))
+                : create(mode, policy);
+    }
+
+    void add(Order order, LocalDateTime now);
+
+    /**
+     * Brings priorities up to date at {@code now}. Orders that may have crossed
+     * an SLA alert threshold are handed to {@code slaCheck}.
+     */
+    void advance(LocalDateTime now, Consumer<Order> slaCheck);
+
+    /**
+     * Removes and returns the highest priority order, with its score and reason
+     * set for {@code now}; null if empty.
+     */
+    Order poll(LocalDateTime now);
+
+    /**
+     * Like {@link #poll(LocalDateTime)}, restricted to orders whose drinks are
+     * all in {@code skillMask} (see {@link com.coffeeshop.model.DrinkType#maskOf}).
+     * A queue created without skill lanes serves a pool where everyone makes
+     * everything, so the mask is ignored.
+     */
+    default Order poll(LocalDateTime now, int skillMask) {
+        return poll(now);
+    }
+
+    /**
+     * Whether {@link #poll(LocalDateTime, int)} would return an order.
+     */
+    default boolean hasWorkFor(int skillMask) {
+        return size() > 0;
+    }
+
+    /**
+     * Score the order {@link #poll(LocalDateTime)} would return has at
+     * {@code now}, or negative infinity if the queue is empty.
+     */
+    double headScore(LocalDateTime now);
+
+    Order remove(String orderId);
+
+    /**
+     * When {@link #advance} next has work to do (an urgency crossover or SLA
+     * check), or null if nothing is pending.
+     */
+    LocalDateTime nextDueEvent(LocalDateTime now);
+
+    boolean contains(String orderId);
+
+    /**
+     * The waiting order with this ID, null if it isn't waiting.
+     */
+    Order get(String orderId);
+
+    int size();
+
+    /**
+     * Copy of the queue in priority order with scores and reasons set for
+     * {@code now}.
+     */
+    List<Order> snapshot(LocalDateTime now);
+
+    /**
+     * Score of a waiting order at {@code now}, NaN if it isn't waiting.
+     */
+    double score(String orderId, LocalDateTime now);
+
+    /**
+     * Number of waiting orders scoring strictly higher than {@code score} at
+     * {@code now}.
+     */
+    int countAbove(double score, LocalDateTime now);
+
+    /**
+     * Number of waiting orders scoring {@code score} or higher at {@code now}.
+     */
+    int countAtLeast(double score, LocalDateTime now);
+
+    /**
+     * Total prep time, in minutes, of the waiting orders scoring strictly
+     * higher than {@code score} at {@code now}.
+     */
+    long prepMinutesAbove(double score, LocalDateTime now);
+
+    /**
+     * Like {@link #prepMinutesAbove}, but ranking every waiting order as if it
+     * were past the policy's urgency crossover at {@code at}: the order they
+     * will be served in once a long queue has aged.
+     */
+    long prepMinutesAboveOnceUrgent(double urgentScore, LocalDateTime at);
+
+    /**
+     * The order's place in the queue at {@code now}, 1 for the next to be
+     * served, or 0 if it isn't waiting. Orders with the same score are placed
+     * in the order the queue serves them, so no two share a position.
+     */
+    int position(String orderId, LocalDateTime now);
+
+    /**
+     * Walks the queue in priority order, starting at the first order scoring at
+     * most {@code maxScore} at {@code now}; orders come with their score and
+     * reason set for {@code now}. The queue must not change during the walk.
+     */
+    Iterator<Order> from(double maxScore, LocalDateTime now);
+
+    /**
+     * The first {@code limit} orders of {@link #snapshot}, scored for
+     * {@code now}. Implementations avoid sorting the whole queue.
+     */
+    default List<Order> head(LocalDateTime now, int limit) {
+        List<Order> all = snapshot(now);
+        return all.size() <= limit ? all : new ArrayList<>(all.subList(0, limit));
+    }
+}
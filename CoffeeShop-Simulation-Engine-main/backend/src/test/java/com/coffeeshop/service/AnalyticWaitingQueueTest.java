@@ -0,0 +1,146 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalyticWaitingQueueTest {
+
+    // Past its 2 minute crossover an order gains score more slowly, so urgent and
+    // rising orders keep overtaking each other (under WEIGHTED urgent ones always lead)
+    private static final SchedulingPolicy LEVELLING_OFF = new SchedulingPolicy() {
+        @Override
+        public String name() {
+            return "LEVELLING_OFF";
+        }
+
+        @Override
+        public long unitsPerPoint() {
+            return 10;
+        }
+
+        @Override
+        public long intercept(int totalPrepMinutes, boolean loyal) {
+            return (10 - totalPrepMinutes) * 60L + (loyal ? 200 : 0);
+        }
+
+        @Override
+        public long risingSlope() {
+            return 6;
+        }
+
+        @Override
+        public long urgentSlope() {
+            return 1;
+        }
+
+        @Override
+        public long urgentBoost() {
+            return 30;
+        }
+
+        @Override
+        public int crossoverSeconds() {
+            return 120;
+        }
+    };
+
+    static List<SchedulingPolicy> policies() {
+        return List.of(new PriorityCalculator(), LEVELLING_OFF);
+    }
+
+    @ParameterizedTest
+    @MethodSource("policies")
+    void positionAndPollAgreeWithScoresAcrossTheUrgencyCrossover(SchedulingPolicy policy) {
+        for (int seed = 0; seed < 30; seed++) {
+            Random random = new Random(seed);
+            AnalyticWaitingQueue queue = new AnalyticWaitingQueue(policy);
+            List<Order> reference = new ArrayList<>();
+            LocalDateTime now = LocalDateTime.now();
+            int created = 0, servedUrgent = 0;
+            for (int step = 0; step < 600; step++) {
+                // Up to 40s per step: orders cross the cliff throughout the run.
+                // Odd nanoseconds keep exact score ties out of the picture.
+                now = now.plusNanos(random.nextInt(40_000) * 1_000_000L + random.nextInt(1_000_000));
+                queue.advance(now, order -> {
+                });
+
+                // More arrivals than services, so the queue builds up and orders wait past the cliff
+                int op = random.nextInt(10);
+                if (op < 5) {
+                    Order order = new Order("order-" + created++, "Customer",
+                            List.of(DrinkType.values()[random.nextInt(DrinkType.values().length)]),
+                            random.nextInt(4) == 0, now.minusNanos(random.nextInt(1_000_000)));
+                    queue.add(order, now);
+                    reference.add(order);
+                } else if (op < 7 && !reference.isEmpty()) {
+                    Order expected = best(policy, reference, now);
+                    assertEquals(1, queue.position(expected.getId(), now), "seed " + seed + " step " + step);
+                    assertEquals(score(policy, expected, now), queue.headScore(now), 1e-9);
+                    assertSame(expected, queue.poll(now), "seed " + seed + " step " + step);
+                    reference.remove(expected);
+                    if (Duration.between(expected.getArrivalTime(), now).getSeconds() >= policy.crossoverSeconds())
+                        servedUrgent++;
+                } else if (op == 7 && !reference.isEmpty()) {
+                    Order removed = reference.remove(random.nextInt(reference.size()));
+                    assertSame(removed, queue.remove(removed.getId()));
+                    assertEquals(0, queue.position(removed.getId(), now));
+                }
+
+                // Every position is the order's rank by score right now, and the pages agree
+                List<Order> byScore = sorted(policy, reference, now);
+                assertEquals(byScore.size(), queue.size());
+                for (int i = 0; i < byScore.size(); i++) {
+                    Order o = byScore.get(i);
+                    assertEquals(i + 1, queue.position(o.getId(), now), "seed " + seed + " step " + step);
+                    assertEquals(score(policy, o, now), queue.score(o.getId(), now), 1e-9);
+                    // Between this order and the next, exactly i + 1 are ahead
+                    double here = score(policy, o, now);
+                    double next = i + 1 < byScore.size() ? score(policy, byScore.get(i + 1), now) : here - 1;
+                    assertEquals(i + 1, queue.countAbove((here + next) / 2, now));
+                }
+                assertEquals(byScore, queue.snapshot(now));
+                assertEquals(byScore.subList(0, Math.min(5, byScore.size())), queue.head(now, 5));
+            }
+            assertTrue(servedUrgent > 0, "seed " + seed + " served no urgent orders");
+            while (!reference.isEmpty()) {
+                now = now.plusSeconds(30);
+                queue.advance(now, order -> {
+                });
+                Order expected = best(policy, reference, now);
+                assertSame(expected, queue.poll(now));
+                reference.remove(expected);
+            }
+            assertNull(queue.poll(now));
+            assertTrue(queue.headScore(now) < 0);
+        }
+    }
+
+    // Brute force: every order scored from scratch at now
+    private static double score(SchedulingPolicy policy, Order order, LocalDateTime now) {
+        return policy.scoreAt(order, Duration.between(order.getArrivalTime(), now).toNanos() / 1e9);
+    }
+
+    private static Order best(SchedulingPolicy policy, List<Order> orders, LocalDateTime now) {
+        return sorted(policy, orders, now).get(0);
+    }
+
+    private static List<Order> sorted(SchedulingPolicy policy, List<Order> orders, LocalDateTime now) {
+        List<Order> sorted = new ArrayList<>(orders);
+        sorted.sort(Comparator.comparingDouble((Order o) -> -score(policy, o, now)));
+        return sorted;
+    }
+}
@@ -0,0 +1,92 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.DrinkType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BaristaPoolTest {
+
+    @Test
+    void matchesAReferenceUnderRandomOccupyAndRelease() {
+        for (int seed = 0; seed < 200; seed++) {
+            Random random = new Random(seed);
+            List<BaristaProfile> profiles = new ArrayList<>();
+            profiles.add(new BaristaProfile("Barista 1", 1.0, EnumSet.allOf(DrinkType.class))); // covers every drink
+            for (int i = 1, n = 1 + random.nextInt(60); i < n; i++)
+                profiles.add(new BaristaProfile("Barista " + (i + 1), 1.0, randomSkills(random)));
+            BaristaPool pool = new BaristaPool(profiles);
+            TreeSet<Integer> idle = new TreeSet<>();
+            for (int i = 0; i < profiles.size(); i++)
+                idle.add(i);
+            TreeMap<Integer, Long> busy = new TreeMap<>();
+
+            for (int step = 0; step < 500; step++) {
+                int op = random.nextInt(3);
+                if (op == 0 && !idle.isEmpty()) {
+                    // Any idle barista, not just a heap top
+                    int barista = new ArrayList<>(idle).get(random.nextInt(idle.size()));
+                    long until = random.nextInt(50);
+                    pool.occupy(barista, until);
+                    idle.remove(barista);
+                    busy.put(barista, until);
+                } else if (op == 1 && !busy.isEmpty()) {
+                    int barista = new ArrayList<>(busy.keySet()).get(random.nextInt(busy.size()));
+                    pool.release(barista);
+                    busy.remove(barista);
+                    idle.add(barista);
+                } else if (!busy.isEmpty()) {
+                    long now = random.nextInt(50);
+                    int expected = -1;
+                    for (var e : busy.entrySet()) {
+                        if (e.getValue() <= now && (expected < 0 || e.getValue() < busy.get(expected)))
+                            expected = e.getKey();
+                    }
+                    assertEquals(expected, pool.releaseNext(now), "seed " + seed + " step " + step);
+                    if (expected >= 0) {
+                        busy.remove(expected);
+                        idle.add(expected);
+                    }
+                }
+
+                for (int i = 0; i < profiles.size(); i++)
+                    assertEquals(busy.containsKey(i), pool.isBusy(i));
+                int drinks = 1 << random.nextInt(DrinkType.values().length);
+                IntPredicate hasWorkFor = mask -> (mask & drinks) != 0;
+                int limit = 1 + random.nextInt(8);
+                int[] expectedIdle = idle.stream()
+                        .filter(b -> hasWorkFor.test(profiles.get(b).skillMask()))
+                        .mapToInt(Integer::intValue).limit(limit).toArray();
+                assertArrayEquals(expectedIdle, pool.idleFor(hasWorkFor, limit), "seed " + seed + " step " + step);
+                assertEquals(expectedIdle.length == 0 ? -1 : expectedIdle[0], pool.nextIdleFor(hasWorkFor));
+            }
+            if (!busy.isEmpty()) {
+                int barista = busy.firstKey();
+                assertThrows(IllegalStateException.class, () -> pool.occupy(barista, 0));
+            }
+        }
+    }
+
+    private static Set<DrinkType> randomSkills(Random random) {
+        Set<DrinkType> skills = EnumSet.noneOf(DrinkType.class);
+        while (skills.isEmpty()) {
+            for (DrinkType drink : DrinkType.values()) {
+                if (random.nextInt(3) == 0)
+                    skills.add(drink);
+            }
+        }
+        return skills;
+    }
+}
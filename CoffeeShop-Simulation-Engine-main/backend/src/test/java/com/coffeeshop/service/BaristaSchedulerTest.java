@@ -0,0 +1,272 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Barista;
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BaristaSchedulerTest {
+
+    private static final int WRITERS = 8;
+    private static final int ORDERS_PER_WRITER = 500;
+    private static final int READERS = 4;
+
+    @ParameterizedTest
+    @EnumSource(ScoringMode.class)
+    void everyOrderIsServedExactlyOnceUnderConcurrentIntakeAndReads(ScoringMode scoringMode) throws Exception {
+        // Fast baristas (a 1 minute drink takes 1 ms), so the store drains quickly
+        List<BaristaProfile> profiles = new ArrayList<>();
+        for (int i = 1; i <= 4; i++)
+            profiles.add(new BaristaProfile("Barista " + i, 5_000, EnumSet.allOf(DrinkType.class)));
+        SchedulerLoop loop = new SchedulerLoop("scheduler-test");
+        loop.start();
+        BaristaScheduler scheduler = new BaristaScheduler("test", new PriorityCalculator(), profiles, scoringMode,
+                DispatchMode.EVENT, loop);
+
+        Set<String> submitted = ConcurrentHashMap.newKeySet();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(WRITERS + READERS);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                Random random = new Random(w);
+                writers.add(threads.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ORDERS_PER_WRITER; i++) {
+                        DrinkType drink = DrinkType.values()[random.nextInt(DrinkType.values().length)];
+                        Order order = new Order("Customer", List.of(drink), random.nextInt(5) == 0);
+                        submitted.add(order.getId());
+                        scheduler.addOrder(order);
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < READERS; r++) {
+                readers.add(threads.submit(() -> {
+                    start.await();
+                    while (writing.get()) {
+                        assertNoDuplicates(scheduler.getQueue());
+                        List<Order> current = new ArrayList<>();
+                        for (Barista barista : scheduler.getBaristas())
+                            addCurrentOrders(barista, current);
+                        assertNoDuplicates(current);
+                        assertTrue(scheduler.getStatistics().ordersServed() <= WRITERS * ORDERS_PER_WRITER);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers)
+                writer.get(30, TimeUnit.SECONDS);
+            writing.set(false);
+            for (Future<?> reader : readers)
+                reader.get(30, TimeUnit.SECONDS);
+        } finally {
+            threads.shutdownNow();
+        }
+
+        int total = WRITERS * ORDERS_PER_WRITER;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (scheduler.getStatistics().ordersServed() < total && System.nanoTime() < deadline)
+            Thread.sleep(10);
+
+        Map<String, Integer> seen = new HashMap<>();
+        for (Order o : scheduler.getQueue())
+            seen.merge(o.getId(), 1, Integer::sum);
+        List<Order> current = new ArrayList<>();
+        for (Barista barista : scheduler.getBaristas())
+            addCurrentOrders(barista, current);
+        for (Order o : current)
+            seen.merge(o.getId(), 1, Integer::sum);
+        for (Order o : scheduler.getCompletedOrders(null, null, total + 1))
+            seen.merge(o.getId(), 1, Integer::sum);
+        assertTrue(loop.stop(5_000));
+
+        assertEquals(total, submitted.size());
+        assertEquals(submitted, seen.keySet());
+        for (Map.Entry<String, Integer> entry : seen.entrySet())
+            assertEquals(1, entry.getValue(), "times order " + entry.getKey() + " was seen");
+        assertEquals(total, scheduler.getStatistics().ordersServed());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ScoringMode.class)
+    void queueDepthIsSampledOnATimerNotPerPass(ScoringMode scoringMode) throws Exception {
+        // One very slow barista: the queue only grows
+        SchedulerLoop loop = new SchedulerLoop("scheduler-test");
+        loop.start();
+        BaristaScheduler scheduler = new BaristaScheduler("test", new PriorityCalculator(),
+                List.of(new BaristaProfile("Barista 1", 0.001, EnumSet.allOf(DrinkType.class))), scoringMode,
+                DispatchMode.EVENT, loop);
+        for (int i = 0; i < 200; i++)
+            scheduler.addOrder(new Order("Customer", List.of(DrinkType.LATTE), false)); // 200 passes
+        Thread.sleep(BaristaScheduler.QUEUE_DEPTH_SAMPLE_MILLIS * 5 / 2);
+
+        LatencyHistogram depth = scheduler.getQueueDepthHistogram();
+        List<BaristaScheduler.QueueDepthMinute> minutes = scheduler.getQueueDepthPerMinute();
+        assertTrue(loop.stop(5_000));
+        assertTrue(depth.count() >= 1 && depth.count() <= 3, "samples: " + depth.count());
+        assertEquals(199, depth.max());
+        assertEquals(depth.count(), minutes.stream().mapToLong(BaristaScheduler.QueueDepthMinute::samples).sum());
+        assertEquals(199, minutes.get(minutes.size() - 1).max());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ScoringMode.class)
+    void aBatchDoesNotTakeAnOrderMatchedToAnotherBarista(ScoringMode scoringMode) throws Exception {
+        // Two free baristas, three espressos: the first barista's batch can't
+        // take the espresso the matching gave the second
+        List<BaristaProfile> profiles = List.of(
+                new BaristaProfile("Barista 1", 1.0, EnumSet.allOf(DrinkType.class)),
+                new BaristaProfile("Barista 2", 1.0, EnumSet.allOf(DrinkType.class)));
+        SchedulerLoop loop = new SchedulerLoop("scheduler-test");
+        loop.start();
+        BaristaScheduler scheduler = batching(profiles, scoringMode, loop);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 3; i++)
+            scheduler.addOrder(order("order-" + i, DrinkType.ESPRESSO, now));
+        scheduler.pollingTick();
+
+        List<Order> queue = scheduler.getQueue(); // a read on the loop: the pass is done
+        List<Barista> baristas = scheduler.getBaristas();
+        assertTrue(loop.stop(5_000));
+        List<Order> current = new ArrayList<>();
+        for (Barista barista : baristas) {
+            assertNotNull(barista.getCurrentOrder(), barista.getId() + " left idle");
+            addCurrentOrders(barista, current);
+        }
+        assertNoDuplicates(current);
+        assertEquals(3, current.size());
+        assertEquals(0, queue.size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void aBatchMemberIsNotMadeToMissItsSla(boolean closeToSla) throws Exception {
+        // A slow barista: an espresso takes 100 s, two together 130 s. The
+        // first order has 115 s left when close to the SLA, so only it fits
+        SchedulerLoop loop = new SchedulerLoop("scheduler-test");
+        loop.start();
+        BaristaScheduler scheduler = batching(
+                List.of(new BaristaProfile("Barista 1", 0.1, EnumSet.allOf(DrinkType.class))), ScoringMode.ANALYTIC,
+                loop);
+        LocalDateTime now = LocalDateTime.now();
+        scheduler.addOrder(order("first", DrinkType.ESPRESSO,
+                now.minusSeconds(closeToSla ? LiveStatistics.SLA_LIMIT_SECONDS - 115 : 60)));
+        scheduler.addOrder(order("second", DrinkType.ESPRESSO, now));
+        scheduler.pollingTick();
+
+        List<Order> queue = scheduler.getQueue(); // a read on the loop: the pass is done
+        Barista barista = scheduler.getBaristas().get(0);
+        assertTrue(loop.stop(5_000));
+        assertEquals("first", barista.getCurrentOrder().getId());
+        assertEquals(closeToSla ? List.of() : List.of("second"),
+                barista.getBatchedOrders().stream().map(Order::getId).toList());
+        assertEquals(closeToSla ? 1 : 0, queue.size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void aBatchDoesNotMakeTheOldestWaitingOrderMissItsSla(boolean closeToSla) throws Exception {
+        // An espresso-only barista (an espresso takes 100 s, two 130 s) and a
+        // latte (200 s) waiting longest, for whoever is free next. With 315 s
+        // left, the latte is in time after one espresso but not after two
+        List<BaristaProfile> profiles = List.of(
+                new BaristaProfile("Barista 1", 0.1, EnumSet.of(DrinkType.ESPRESSO)),
+                new BaristaProfile("Barista 2", 0.001, EnumSet.allOf(DrinkType.class)));
+        SchedulerLoop loop = new SchedulerLoop("scheduler-test");
+        loop.start();
+        BaristaScheduler scheduler = batching(profiles, ScoringMode.ANALYTIC, loop);
+        LocalDateTime now = LocalDateTime.now();
+        scheduler.addOrder(order("busy", DrinkType.LATTE, now));
+        scheduler.pollingTick(); // Barista 2 is busy for good
+        scheduler.addOrder(order("oldest", DrinkType.LATTE,
+                now.minusSeconds(LiveStatistics.SLA_LIMIT_SECONDS - (closeToSla ? 315 : 400))));
+        scheduler.addOrder(order("first", DrinkType.ESPRESSO, now.minusSeconds(1)));
+        scheduler.addOrder(order("second", DrinkType.ESPRESSO, now));
+        scheduler.pollingTick();
+
+        scheduler.getQueue(); // a read on the loop: the pass is done
+        Barista barista = scheduler.getBaristas().get(0);
+        assertTrue(loop.stop(5_000));
+        assertEquals("first", barista.getCurrentOrder().getId());
+        assertEquals(closeToSla ? List.of() : List.of("second"),
+                barista.getBatchedOrders().stream().map(Order::getId).toList());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ScoringMode.class)
+    void aWaitingOrderBreachesTheSlaOnlyPastTheLimit(ScoringMode scoringMode) throws Exception {
+        // Counted like a completed order: at exactly 600 s it is still in time
+        SchedulerLoop loop = new SchedulerLoop("scheduler-test");
+        loop.start();
+        BaristaScheduler scheduler = new BaristaScheduler("test", new PriorityCalculator(),
+                List.of(new BaristaProfile("Barista 1", 0.001, EnumSet.allOf(DrinkType.class))), scoringMode,
+                DispatchMode.POLLING, loop);
+        LocalDateTime now = LocalDateTime.now();
+        scheduler.addOrder(order("busy", DrinkType.LATTE, now));
+        scheduler.pollingTick(); // the barista is busy for good
+        scheduler.addOrder(order("at-limit", DrinkType.LATTE, now.minusSeconds(LiveStatistics.SLA_LIMIT_SECONDS)));
+        scheduler.addOrder(order("past-limit", DrinkType.LATTE,
+                now.minusSeconds(LiveStatistics.SLA_LIMIT_SECONDS + 1)));
+        scheduler.pollingTick();
+
+        scheduler.getQueue(); // a read on the loop: the pass is done
+        LiveStatistics.Snapshot stats = scheduler.getStatistics();
+        assertTrue(loop.stop(5_000));
+        assertEquals(1, stats.slaViolationsActive());
+    }
+
+    // Polling, so orders pile up until the test runs a pass; espressos batch
+    private static BaristaScheduler batching(List<BaristaProfile> profiles, ScoringMode scoringMode,
+            SchedulerLoop loop) {
+        return new BaristaScheduler("test", new PriorityCalculator(), profiles, scoringMode, DispatchMode.POLLING,
+                AssignmentMode.MATCHING, new DrinkBatching(true, "1.0,1.3,1.55,1.75", "ESPRESSO", 50), loop, null,
+                new CompletedHistory(CompletedHistory.DEFAULT_RECENT_CAPACITY,
+                        CompletedHistory.DEFAULT_MINUTES_RETAINED, null),
+                null);
+    }
+
+    private static Order order(String id, DrinkType drink, LocalDateTime arrival) {
+        return new Order(id, "Customer", List.of(drink), false, arrival);
+    }
+
+    private static void addCurrentOrders(Barista barista, List<Order> into) {
+        if (barista.getCurrentOrder() != null)
+            into.add(barista.getCurrentOrder());
+        into.addAll(barista.getBatchedOrders());
+    }
+
+    private static void assertNoDuplicates(List<Order> orders) {
+        Set<String> ids = new HashSet<>();
+        for (Order o : orders)
+            assertTrue(ids.add(o.getId()), "order " + o.getId() + " listed twice");
+    }
+}
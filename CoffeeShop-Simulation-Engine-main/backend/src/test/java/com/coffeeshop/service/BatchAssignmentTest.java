@@ -0,0 +1,193 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchAssignmentTest {
+
+    private static final long PREP_PER_MINUTE = 5_000;
+    private static final double[] SPEEDS = {1.0, 1.0, 1.5, 0.75}; // repeated speeds make cost ties common
+
+    // Best assignment found by trying every one: total prep time, then the
+    // busy baristas' skill counts, then their indices
+    private static final class Best {
+        long prep = Long.MAX_VALUE;
+        long tieBreak = Long.MAX_VALUE;
+    }
+
+    @Test
+    void matchesBruteForceOnRandomPools() {
+        for (int seed = 0; seed < 3000; seed++) {
+            Random random = new Random(seed);
+            List<BaristaProfile> profiles = new ArrayList<>();
+            int poolSize = 1 + random.nextInt(6);
+            for (int i = 0; i < poolSize; i++)
+                profiles.add(new BaristaProfile("Barista " + (i + 1), SPEEDS[random.nextInt(SPEEDS.length)],
+                        randomSkills(random)));
+            List<Integer> freeList = new ArrayList<>();
+            for (int i = 0; i < poolSize; i++) {
+                if (random.nextInt(4) != 0)
+                    freeList.add(i);
+            }
+            if (freeList.isEmpty())
+                freeList.add(random.nextInt(poolSize));
+            int[] free = freeList.stream().mapToInt(Integer::intValue).toArray();
+            List<Order> candidates = new ArrayList<>();
+            for (int c = random.nextInt(9); c > 0; c--) {
+                List<DrinkType> drinks = new ArrayList<>();
+                for (int d = 1 + random.nextInt(2); d > 0; d--)
+                    drinks.add(DrinkType.values()[random.nextInt(DrinkType.values().length)]);
+                candidates.add(new Order("Customer", drinks, false));
+            }
+
+            int[] orderOf = BatchAssignment.solve(candidates, free, profiles, PREP_PER_MINUTE);
+
+            // Which orders: the greedy-by-priority set that can all be started together
+            List<Integer> expectedTaken = new ArrayList<>();
+            for (int c = 0; c < candidates.size(); c++) {
+                expectedTaken.add(c);
+                if (!matchable(expectedTaken, 0, new boolean[free.length], candidates, free, profiles))
+                    expectedTaken.remove(expectedTaken.size() - 1);
+            }
+            List<Integer> taken = new ArrayList<>();
+            for (int j = 0; j < free.length; j++) {
+                if (orderOf[j] >= 0) {
+                    taken.add(orderOf[j]);
+                    assertTrue(canMake(profiles.get(free[j]), candidates.get(orderOf[j])),
+                            "seed " + seed + ": barista " + free[j] + " can't make order " + orderOf[j]);
+                }
+            }
+            taken.sort(null);
+            assertEquals(expectedTaken, taken, "seed " + seed);
+
+            // Who makes what: cheapest, then the tie-break
+            Best best = new Best();
+            search(expectedTaken, 0, new boolean[free.length], 0, 0, candidates, free, profiles, best);
+            long prep = 0, tieBreak = 0;
+            for (int j = 0; j < free.length; j++) {
+                if (orderOf[j] >= 0) {
+                    prep += prep(profiles.get(free[j]), candidates.get(orderOf[j]));
+                    tieBreak += tieBreak(profiles, free, j);
+                }
+            }
+            assertEquals(best.prep, prep, "seed " + seed);
+            assertEquals(best.tieBreak, tieBreak, "seed " + seed);
+        }
+    }
+
+    @Test
+    void equallyFastBaristaWithFewerSkillsGetsTheOrder() {
+        List<BaristaProfile> profiles = List.of(
+                new BaristaProfile("All-rounder", 1.0, EnumSet.allOf(DrinkType.class)),
+                new BaristaProfile("Espresso bar", 1.0, EnumSet.of(DrinkType.ESPRESSO, DrinkType.AMERICANO)));
+        List<Order> candidates = List.of(new Order("Customer", List.of(DrinkType.ESPRESSO), false));
+        assertArrayEquals(new int[] {-1, 0}, BatchAssignment.solve(candidates, new int[] {0, 1}, profiles,
+                PREP_PER_MINUTE));
+    }
+
+    @Test
+    void equalBaristasServeInIndexOrder() {
+        List<BaristaProfile> profiles = BaristaProfile.uniform(4);
+        List<Order> candidates = List.of(new Order("Customer", List.of(DrinkType.LATTE), false),
+                new Order("Customer", List.of(DrinkType.LATTE), false));
+        int[] orderOf = BatchAssignment.solve(candidates, new int[] {1, 2, 3}, profiles, PREP_PER_MINUTE);
+        assertTrue(orderOf[0] >= 0 && orderOf[1] >= 0 && orderOf[2] == -1);
+    }
+
+    @Test
+    void fasterStationTakesTheLongerOrder() {
+        List<BaristaProfile> profiles = List.of(
+                new BaristaProfile("Standard", 1.0, EnumSet.allOf(DrinkType.class)),
+                new BaristaProfile("Fast", 2.0, EnumSet.allOf(DrinkType.class)));
+        List<Order> candidates = List.of(new Order("Customer", List.of(DrinkType.COLD_BREW), false),
+                new Order("Customer", List.of(DrinkType.SPECIALTY_MOCHA), false));
+        assertArrayEquals(new int[] {0, 1}, BatchAssignment.solve(candidates, new int[] {0, 1}, profiles,
+                PREP_PER_MINUTE));
+    }
+
+    @Test
+    void specialistIsNotLeftIdleByAnAllRounder() {
+        // Greedy in barista order would give the espresso to the all-rounder and leave the latte waiting
+        List<BaristaProfile> profiles = List.of(
+                new BaristaProfile("All-rounder", 1.0, EnumSet.allOf(DrinkType.class)),
+                new BaristaProfile("Espresso bar", 1.0, EnumSet.of(DrinkType.ESPRESSO)));
+        List<Order> candidates = List.of(new Order("Customer", List.of(DrinkType.ESPRESSO), false),
+                new Order("Customer", List.of(DrinkType.LATTE), false));
+        assertArrayEquals(new int[] {1, 0}, BatchAssignment.solve(candidates, new int[] {0, 1}, profiles,
+                PREP_PER_MINUTE));
+    }
+
+    private static Set<DrinkType> randomSkills(Random random) {
+        Set<DrinkType> skills = EnumSet.noneOf(DrinkType.class);
+        if (random.nextInt(3) == 0)
+            return EnumSet.allOf(DrinkType.class);
+        while (skills.isEmpty()) {
+            for (DrinkType drink : DrinkType.values()) {
+                if (random.nextBoolean())
+                    skills.add(drink);
+            }
+        }
+        return skills;
+    }
+
+    private static boolean canMake(BaristaProfile profile, Order order) {
+        return profile.getSkills().containsAll(order.getDrinks());
+    }
+
+    private static long prep(BaristaProfile profile, Order order) {
+        return profile.prepTime(order.getTotalPrepTime() * PREP_PER_MINUTE);
+    }
+
+    // Skill count first, then the barista's place in the free list
+    private static long tieBreak(List<BaristaProfile> profiles, int[] free, int j) {
+        return (long) profiles.get(free[j]).getSkills().size() * free.length + j;
+    }
+
+    private static boolean matchable(List<Integer> orders, int at, boolean[] used, List<Order> candidates, int[] free,
+            List<BaristaProfile> profiles) {
+        if (at == orders.size())
+            return true;
+        for (int j = 0; j < free.length; j++) {
+            if (!used[j] && canMake(profiles.get(free[j]), candidates.get(orders.get(at)))) {
+                used[j] = true;
+                boolean ok = matchable(orders, at + 1, used, candidates, free, profiles);
+                used[j] = false;
+                if (ok)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static void search(List<Integer> orders, int at, boolean[] used, long prep, long tieBreak,
+            List<Order> candidates, int[] free, List<BaristaProfile> profiles, Best best) {
+        if (at == orders.size()) {
+            if (prep < best.prep || prep == best.prep && tieBreak < best.tieBreak) {
+                best.prep = prep;
+                best.tieBreak = tieBreak;
+            }
+            return;
+        }
+        Order order = candidates.get(orders.get(at));
+        for (int j = 0; j < free.length; j++) {
+            if (!used[j] && canMake(profiles.get(free[j]), order)) {
+                used[j] = true;
+                search(orders, at + 1, used, prep + prep(profiles.get(free[j]), order),
+                        tieBreak + tieBreak(profiles, free, j), candidates, free, profiles, best);
+                used[j] = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.Barista;
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EtaEstimatorTest {
+
+    static Stream<SchedulingPolicy> policies() {
+        return Stream.of(new PriorityCalculator(), new FifoPolicy(), new ShortestPrepFirstPolicy(),
+                new EarliestDeadlinePolicy());
+    }
+
+    @ParameterizedTest
+    @MethodSource("policies")
+    void headEtasMatchAReplayThatRescansTheHead(SchedulingPolicy policy) {
+        for (int seed = 0; seed < 100; seed++) {
+            Random random = new Random(seed);
+            List<BaristaProfile> profiles = new ArrayList<>();
+            profiles.add(new BaristaProfile("Barista 1", 1.0, EnumSet.allOf(DrinkType.class)));
+            for (int i = 1, n = 1 + random.nextInt(6); i < n; i++)
+                profiles.add(new BaristaProfile("Barista " + (i + 1), 0.5 + random.nextDouble(), randomSkills(random)));
+            LocalDateTime now = LocalDateTime.now();
+            long nowMillis = epochMillis(now);
+            List<Barista> baristas = new ArrayList<>();
+            for (BaristaProfile profile : profiles) {
+                Barista barista = new Barista(profile);
+                if (random.nextBoolean()) {
+                    barista.setCurrentOrder(new Order("Customer", List.of(DrinkType.LATTE), false));
+                    barista.setBusyUntilEpochMillis(nowMillis + random.nextInt(300_000));
+                }
+                baristas.add(barista);
+            }
+
+            // Fewer orders than the look-ahead, so the whole queue is replayed;
+            // arrivals up to 800 s back, so some cross the cliff mid-replay
+            WaitingQueue queue = WaitingQueue.create(ScoringMode.ANALYTIC, policy, true);
+            for (int i = 0, n = random.nextInt(60); i < n; i++) {
+                List<DrinkType> drinks = new ArrayList<>();
+                DrinkType drink = DrinkType.values()[random.nextInt(DrinkType.values().length)];
+                for (int d = 0, count = 1 + random.nextInt(2); d < count; d++)
+                    drinks.add(random.nextInt(3) == 0 ? DrinkType.values()[random.nextInt(6)] : drink);
+                queue.add(new Order("order-" + i, "Customer", drinks, random.nextInt(3) == 0,
+                        now.minusNanos(random.nextInt(800_000) * 1_000_000L)), now);
+            }
+            queue.advance(now, order -> {
+            });
+
+            EtaEstimator etas = new EtaEstimator(queue, baristas, profiles, policy);
+            Map<String, Long> expected = replay(queue.head(now, Integer.MAX_VALUE), baristas, profiles, policy,
+                    nowMillis);
+            for (Order order : queue.snapshot(now)) {
+                Long completion = expected.get(order.getId());
+                if (completion != null)
+                    assertEquals(Math.max(0, (completion - nowMillis + 999) / 1000), etas.etaSeconds(order, now),
+                            "seed " + seed + ": " + order.getId());
+            }
+        }
+    }
+
+    // The replay as the scheduler runs it: the barista free first takes the
+    // best order it can make, every waiting order rescored at that moment
+    private static Map<String, Long> replay(List<Order> head, List<Barista> baristas, List<BaristaProfile> profiles,
+            SchedulingPolicy policy, long nowMillis) {
+        int b = baristas.size();
+        long[] freeAt = new long[b];
+        for (int i = 0; i < b; i++) {
+            Barista barista = baristas.get(i);
+            freeAt[i] = barista.getCurrentOrder() != null ? Math.max(nowMillis, barista.getBusyUntilEpochMillis())
+                    : nowMillis;
+        }
+        Map<String, Long> completion = new HashMap<>();
+        boolean[] served = new boolean[head.size()];
+        boolean[] idleForGood = new boolean[b];
+        while (completion.size() < head.size()) {
+            int next = -1;
+            for (int i = 0; i < b; i++) {
+                if (!idleForGood[i] && (next < 0 || freeAt[i] < freeAt[next]))
+                    next = i;
+            }
+            if (next < 0)
+                break;
+            long t = freeAt[next];
+            int best = -1;
+            double bestScore = 0;
+            for (int j = 0; j < head.size(); j++) {
+                Order o = head.get(j);
+                if (served[j] || (DrinkType.maskOf(o.getDrinks()) & ~profiles.get(next).skillMask()) != 0)
+                    continue;
+                double score = policy.scoreAt(o, (t - epochMillis(o.getArrivalTime())) / 1000.0);
+                if (best < 0 || score > bestScore) {
+                    best = j;
+                    bestScore = score;
+                }
+            }
+            if (best < 0) {
+                idleForGood[next] = true;
+                continue;
+            }
+            served[best] = true;
+            freeAt[next] = t + profiles.get(next).prepTime(head.get(best).getTotalPrepTime()
+                    * BaristaScheduler.PREP_MILLIS_PER_MINUTE);
+            completion.put(head.get(best).getId(), freeAt[next]);
+        }
+        return completion;
+    }
+
+    private static Set<DrinkType> randomSkills(Random random) {
+        Set<DrinkType> skills = EnumSet.noneOf(DrinkType.class);
+        while (skills.isEmpty()) {
+            for (DrinkType drink : DrinkType.values()) {
+                if (random.nextInt(3) == 0)
+                    skills.add(drink);
+            }
+        }
+        return skills;
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,95 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+import com.coffeeshop.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HistorySpillTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 1, 8, 0);
+    private static final int RING = 4;
+    private static final long SEGMENT_BYTES = 512; // a few orders a segment
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void ordersCompletedAtTheSameTimeOrOutOfOrderAreAllSpilled() throws IOException {
+        HistorySpill spill = open();
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            // Pairs finishing together, and every fifth order stamped before the one ahead of it
+            Order o = completed(i, T0.plusSeconds(i / 2 - (i % 5 == 4 ? 3 : 0)));
+            spill.append(o);
+            orders.add(o);
+        }
+        assertEquals(ids(orders), ids(HistorySpill.read(spill.view(), null, null, Integer.MAX_VALUE)));
+        spill.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, RING, 10})
+    void journalReplayAfterARestartSpillsEveryOrderOnce(int ringAfterRestart) throws IOException {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 60; i++)
+            orders.add(completed(i, T0.plusSeconds(i / 3))); // three at a time
+        int checkpointAt = 25, crashAt = 37;
+
+        // First run: checkpoint the ring, keep completing, crash
+        HistorySpill spill = open();
+        CompletedHistory history = new CompletedHistory(RING, 60, spill);
+        List<Order> checkpointed = null;
+        for (int i = 0; i < crashAt; i++) {
+            if (i == checkpointAt)
+                checkpointed = history.recent();
+            history.add(orders.get(i));
+        }
+        spill.close();
+
+        // Restart: the checkpointed ring and the journaled completions are replayed
+        spill = open();
+        history = new CompletedHistory(ringAfterRestart, 60, spill);
+        List<Order> replayed = new ArrayList<>(checkpointed);
+        replayed.addAll(orders.subList(checkpointAt, crashAt));
+        history.replaying(replayed);
+        history.restore(checkpointed, List.of());
+        for (int i = checkpointAt; i < orders.size(); i++)
+            history.add(orders.get(i));
+
+        List<Order> spilled = HistorySpill.read(spill.view(), null, null, Integer.MAX_VALUE);
+        assertEquals(ids(orders.subList(0, orders.size() - ringAfterRestart)), ids(spilled));
+        assertEquals(ids(orders.subList(orders.size() - ringAfterRestart, orders.size())), ids(history.recent()));
+        spill.close();
+    }
+
+    private HistorySpill open() throws IOException {
+        HistorySpill spill = new HistorySpill(dir, SEGMENT_BYTES, 100);
+        spill.open();
+        return spill;
+    }
+
+    private static Order completed(int n, LocalDateTime completion) {
+        Order o = new Order("order-" + n, "Customer " + n, List.of(DrinkType.LATTE), false,
+                completion.minusMinutes(5));
+        o.setStatus(OrderStatus.COMPLETED);
+        o.setStartTime(completion.minusMinutes(1));
+        o.setCompletionTime(completion);
+        return o;
+    }
+
+    private static List<String> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).toList();
+    }
+}
@@ -0,0 +1,118 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexedOrderQueueTest {
+
+    // The brute-force reference: every entry in a list, sorted on demand
+    private static final class Entry {
+        final Order order;
+        double key;
+        final long sequence;
+
+        Entry(Order order, double key, long sequence) {
+            this.order = order;
+            this.key = key;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final Comparator<Entry> SERVING_ORDER = Comparator.comparingDouble((Entry e) -> -e.key)
+            .thenComparingLong(e -> e.sequence);
+
+    @Test
+    void matchesASortedListUnderRandomOperations() {
+        for (int seed = 0; seed < 50; seed++) {
+            Random random = new Random(seed);
+            IndexedOrderQueue queue = new IndexedOrderQueue();
+            List<Entry> reference = new ArrayList<>();
+            long sequence = 0;
+            int created = 0;
+            for (int step = 0; step < 2000; step++) {
+                int op = random.nextInt(10);
+                // Few distinct keys, so ties (broken by arrival into the queue) are common
+                double key = random.nextInt(20);
+                if (op < 4 || reference.isEmpty()) {
+                    Order order = new Order("order-" + created++, "Customer", List.of(DrinkType.LATTE), false,
+                            LocalDateTime.now());
+                    queue.add(order, key);
+                    reference.add(new Entry(order, key, sequence++));
+                } else if (op == 4) {
+                    // Adding an order already queued only changes its key
+                    Entry e = reference.get(random.nextInt(reference.size()));
+                    queue.add(e.order, key);
+                    e.key = key;
+                } else if (op == 5) {
+                    Entry e = reference.remove(random.nextInt(reference.size()));
+                    assertSame(e.order, queue.remove(e.order.getId()));
+                    assertNull(queue.remove(e.order.getId()));
+                } else if (op == 6) {
+                    Entry e = reference.get(random.nextInt(reference.size()));
+                    assertTrue(queue.updatePriority(e.order.getId(), key));
+                    assertEquals(key, e.order.getPriorityScore());
+                    e.key = key;
+                } else if (op == 7) {
+                    reference.sort(SERVING_ORDER);
+                    assertSame(reference.remove(0).order, queue.poll());
+                } else if (op == 8) {
+                    // Rescore everything in one pass
+                    for (Entry e : reference)
+                        e.key = random.nextInt(20);
+                    queue.reprioritize(o -> o.setPriorityScore(find(reference, o).key));
+                } else {
+                    reference.sort(SERVING_ORDER);
+                    int limit = random.nextInt(reference.size() + 2);
+                    assertEquals(orders(reference.subList(0, Math.min(limit, reference.size()))),
+                            queue.top(limit));
+                }
+
+                reference.sort(SERVING_ORDER);
+                assertEquals(reference.size(), queue.size());
+                assertEquals(reference.isEmpty(), queue.isEmpty());
+                assertSame(reference.isEmpty() ? null : reference.get(0).order, queue.peek());
+                assertEquals(reference.isEmpty() ? Double.NEGATIVE_INFINITY : reference.get(0).key,
+                        queue.peekKey());
+                if (step % 100 == 0)
+                    assertEquals(orders(reference), queue.sortedSnapshot(), "seed " + seed + " step " + step);
+            }
+            reference.sort(SERVING_ORDER);
+            for (Entry e : reference) {
+                assertTrue(queue.contains(e.order.getId()));
+                assertSame(e.order, queue.get(e.order.getId()));
+            }
+            for (Entry e : reference)
+                assertSame(e.order, queue.poll(), "seed " + seed);
+            assertNull(queue.poll());
+            assertFalse(queue.updatePriority("order-0", 1));
+        }
+    }
+
+    private static Entry find(List<Entry> reference, Order order) {
+        for (Entry e : reference) {
+            if (e.order == order)
+                return e;
+        }
+        throw new AssertionError("not queued: " + order.getId());
+    }
+
+    private static List<Order> orders(List<Entry> entries) {
+        List<Order> orders = new ArrayList<>(entries.size());
+        for (Entry e : entries)
+            orders.add(e.order);
+        return orders;
+    }
+}
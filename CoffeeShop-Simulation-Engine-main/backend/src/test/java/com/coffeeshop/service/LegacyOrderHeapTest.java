@@ -0,0 +1,99 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.SimOrderStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LegacyOrderHeapTest {
+
+    // The original engine's queue: a PriorityQueue on floating-point scores,
+    // rescored and rebuilt by re-offering its array at every event
+    private static final class OriginalQueue {
+        final SimOrderStore orders;
+        final double[] score;
+        final PriorityQueue<Integer> queue;
+
+        OriginalQueue(SimOrderStore orders) {
+            this.orders = orders;
+            this.score = new double[orders.size()];
+            this.queue = new PriorityQueue<>((o1, o2) -> Double.compare(score[o2], score[o1]));
+        }
+
+        void add(int order) {
+            queue.offer(order); // score 0 until the next rebuild
+        }
+
+        void advanceTo(long now) {
+            List<Integer> temp = new ArrayList<>(queue);
+            queue.clear();
+            for (int order : temp)
+                score[order] = score(order, now - orders.arrivalSeconds(order));
+            queue.addAll(temp);
+        }
+
+        int poll() {
+            Integer order = queue.poll();
+            return order == null ? -1 : order;
+        }
+
+        double score(int order, long waitTimeSeconds) {
+            double waitScore = (double) waitTimeSeconds / 600.0 * 100 * 0.4;
+            double complexityScore = Math.max(0, (10 - orders.prepMinutes(order)) / 10.0 * 100 * 0.25);
+            double loyaltyScore = orders.isLoyal(order) ? 10.0 : 0.0;
+            double urgencyScore = 0.0;
+            if (waitTimeSeconds > 480) {
+                urgencyScore = 25.0 + 50.0;
+            } else {
+                urgencyScore = (double) waitTimeSeconds / 480.0 * 25.0;
+            }
+            return waitScore + complexityScore + loyaltyScore + urgencyScore;
+        }
+    }
+
+    @Test
+    void servesOrdersInTheOriginalEnginesOrder() {
+        for (int seed = 0; seed < 200; seed++) {
+            Random random = new Random(seed);
+            // Arrivals bunched up (several per second at times) and drinks
+            // whose scores tie, so ties and near-ties are everywhere
+            int n = 200 + random.nextInt(seed % 10 == 0 ? 5000 : 800);
+            SimOrderStore orders = new SimOrderStore(1, LocalDate.now().atTime(7, 0), n);
+            int arrival = 0;
+            for (int i = 0; i < n; i++) {
+                arrival += random.nextInt(4) == 0 ? 0 : random.nextInt(60);
+                orders.add(DrinkType.values()[random.nextInt(DrinkType.values().length)], random.nextInt(5) == 0,
+                        arrival);
+            }
+
+            LegacyOrderHeap heap = new LegacyOrderHeap(orders, new PriorityCalculator());
+            OriginalQueue original = new OriginalQueue(orders);
+            long now = 0;
+            int next = 0, served = 0;
+            while (served < n) {
+                now += random.nextInt(4) == 0 ? 0 : random.nextInt(90);
+                while (next < n && orders.arrivalSeconds(next) <= now) {
+                    heap.add(next);
+                    original.add(next++);
+                }
+                heap.advanceTo(now);
+                original.advanceTo(now);
+                for (int polls = random.nextInt(3); polls > 0; polls--) {
+                    int expected = original.poll();
+                    assertEquals(expected, heap.poll(now, -1), "seed " + seed + " at " + now);
+                    if (expected == -1)
+                        break;
+                    served++;
+                }
+                assertEquals(original.queue.size(), heap.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.coffeeshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class LiveFeedTest {
+
+    private static final int MAX_SUBSCRIBERS = 5;
+
+    @Test
+    void concurrentSubscribesNeverExceedTheLimit() throws Exception {
+        LiveFeed feed = new LiveFeed("test", new ObjectMapper(), Runnable::run, 100, 1000, 10, MAX_SUBSCRIBERS);
+        int threads = 32;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        int accepted = 0, rejected = 0;
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return feed.subscribe();
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                try {
+                    assertNotNull(result.get());
+                    accepted++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(RejectedExecutionException.class, e.getCause()); // a 429, not a 400
+                    rejected++;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(MAX_SUBSCRIBERS, accepted);
+        assertEquals(threads - MAX_SUBSCRIBERS, rejected);
+        assertEquals(MAX_SUBSCRIBERS, feed.subscriberCount());
+
+        // Dropped subscribers free their slots
+        feed.close();
+        assertEquals(0, feed.subscriberCount());
+        for (int i = 0; i < MAX_SUBSCRIBERS; i++)
+            feed.subscribe();
+        assertEquals(MAX_SUBSCRIBERS, feed.subscriberCount());
+    }
+}
@@ -0,0 +1,266 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+import com.coffeeshop.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderJournalTest {
+
+    private static final int BARISTAS = 3;
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 1, 8, 0, 0, 123_456_789);
+
+    @TempDir
+    Path dir;
+
+    // What the scheduler would hold: the journal has to give back exactly this
+    private static final class Model {
+        final List<Order> completed = new ArrayList<>();
+        final Map<String, Order> waiting = new LinkedHashMap<>();
+        final Map<String, OrderJournal.Entry> inProgress = new LinkedHashMap<>();
+        int next;
+
+        Order place(OrderJournal journal, Random random) {
+            Order o = new Order("order-" + next, "Customer " + next,
+                    List.of(DrinkType.values()[random.nextInt(DrinkType.values().length)]), random.nextBoolean(),
+                    T0.plusSeconds(next));
+            next++;
+            waiting.put(o.getId(), o);
+            journal.placed(o);
+            return o;
+        }
+
+        void assign(OrderJournal journal, Order o, int barista) {
+            waiting.remove(o.getId());
+            o.setStatus(OrderStatus.PROCESSING);
+            o.setStartTime(o.getArrivalTime().plusSeconds(30));
+            o.setPriorityScore(42.5);
+            o.setPriorityReason("Quick Order");
+            long busyUntil = 1_000_000L + barista;
+            inProgress.put(o.getId(), new OrderJournal.Entry(o, barista, busyUntil));
+            journal.assigned(o, barista, busyUntil);
+        }
+
+        void complete(OrderJournal journal, Order o) {
+            OrderJournal.Entry entry = inProgress.remove(o.getId());
+            o.setStatus(OrderStatus.COMPLETED);
+            o.setCompletionTime(o.getStartTime().plusSeconds(90));
+            completed.add(o);
+            journal.completed(o, entry.barista());
+        }
+
+        OrderJournal.Checkpoint checkpoint() {
+            List<OrderJournal.Entry> entries = new ArrayList<>();
+            for (Order o : completed)
+                entries.add(new OrderJournal.Entry(o.copy(), -1, 0));
+            for (OrderJournal.Entry e : inProgress.values())
+                entries.add(new OrderJournal.Entry(e.order().copy(), e.barista(), e.busyUntilEpochMillis()));
+            for (Order o : waiting.values())
+                entries.add(new OrderJournal.Entry(o.copy(), -1, 0));
+            return new OrderJournal.Checkpoint(entries, List.of(),
+                    new LiveStatistics.Snapshot(completed.size(), 0, 0, 0, null, 0));
+        }
+
+        void assertRecovered(OrderJournal.Recovered state) {
+            List<Order> recoveredCompleted = new ArrayList<>(state.history);
+            recoveredCompleted.addAll(state.completed);
+            assertEquals(completed, recoveredCompleted);
+            assertEquals(new ArrayList<>(waiting.values()), new ArrayList<>(state.waiting.values()));
+            assertEquals(new ArrayList<>(inProgress.values()), new ArrayList<>(state.inProgress.values()));
+        }
+    }
+
+    private OrderJournal journal(int segmentBytes) {
+        return new OrderJournal(dir.resolve("store"), segmentBytes, Runnable::run);
+    }
+
+    private static OrderJournal.Checkpoint empty() {
+        return new OrderJournal.Checkpoint(List.of(), List.of(), new LiveStatistics.Snapshot(0, 0, 0, 0, null, 0));
+    }
+
+    @Test
+    void storeWithoutOrdersLeavesNoFiles() throws IOException {
+        OrderJournal journal = journal(64 * 1024);
+        assertTrue(journal.recover(BARISTAS).isEmpty());
+        journal.start(empty());
+        journal.sync();
+        journal.close();
+        assertFalse(Files.exists(dir.resolve("store")));
+
+        journal = journal(64 * 1024);
+        journal.recover(BARISTAS);
+        journal.start(empty());
+        new Model().place(journal, new Random(1));
+        journal.close();
+        assertTrue(Files.exists(dir.resolve("store")));
+    }
+
+    @Test
+    void recoverRebuildsWhatWasAppended() throws IOException {
+        Model model = new Model();
+        Random random = new Random(7);
+        OrderJournal journal = journal(64 * 1024);
+        journal.recover(BARISTAS);
+        journal.start(empty());
+        Order served = model.place(journal, random);
+        Order working = model.place(journal, random);
+        Order late = model.place(journal, random);
+        Order batched = model.place(journal, random);
+        model.place(journal, random);
+        model.assign(journal, served, 0);
+        model.complete(journal, served);
+        late.setWarningAlertSent(true);
+        journal.warningAlert(late);
+        late.setBreachAlertSent(true);
+        journal.breachAlert(late);
+        model.assign(journal, working, 2);
+        model.assign(journal, batched, 2);
+        journal.sync();
+        journal.close();
+
+        OrderJournal reopened = journal(64 * 1024);
+        OrderJournal.Recovered state = reopened.recover(BARISTAS);
+        model.assertRecovered(state);
+        assertEquals(List.of(), state.history);
+
+        // A smaller pool puts the orders of the missing barista back in the queue
+        state = journal(64 * 1024).recover(2);
+        assertEquals(List.of(served), state.completed);
+        assertEquals(List.of(), new ArrayList<>(state.inProgress.values()));
+        assertEquals(4, state.waiting.size());
+        assertEquals(OrderStatus.WAITING, state.waiting.get(working.getId()).getStatus());
+    }
+
+    @Test
+    void corruptLastRecordIsDropped() throws IOException {
+        Model model = new Model();
+        OrderJournal journal = journal(64 * 1024);
+        journal.recover(BARISTAS);
+        journal.start(empty());
+        Random random = new Random(3);
+        model.place(journal, random);
+        model.place(journal, random);
+        journal.close();
+
+        Path segment = onlySegment();
+        int last = lastRecord(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, last + 12);
+            b.put(0, (byte) ~b.get(0)).rewind();
+            channel.write(b, last + 12);
+        }
+
+        OrderJournal.Recovered state = journal(64 * 1024).recover(BARISTAS);
+        assertEquals(List.of("order-0"), new ArrayList<>(state.waiting.keySet()));
+    }
+
+    @Test
+    void truncatedLastRecordIsDroppedAndLaterEventsSurvive() throws IOException {
+        Model model = new Model();
+        OrderJournal journal = journal(64 * 1024);
+        journal.recover(BARISTAS);
+        journal.start(empty());
+        Random random = new Random(5);
+        Order first = model.place(journal, random);
+        Order torn = model.place(journal, random);
+        journal.close();
+
+        Path segment = onlySegment();
+        int last = lastRecord(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(last + 10); // a crash half way through the record
+        }
+        model.waiting.remove(torn.getId());
+
+        // Restart: recover, checkpoint, go on; the torn tail must not hide what follows
+        journal = journal(64 * 1024);
+        OrderJournal.Recovered state = journal.recover(BARISTAS);
+        model.assertRecovered(state);
+        journal.start(model.checkpoint());
+        model.assign(journal, first, 1);
+        model.place(journal, random);
+        journal.close();
+
+        model.assertRecovered(journal(64 * 1024).recover(BARISTAS));
+    }
+
+    @Test
+    void checkpointPlusLaterSegmentsGiveTheSameState() throws IOException {
+        // Small segments, so the run rolls and checkpoints many times
+        int segmentBytes = 2048;
+        Model model = new Model();
+        Random random = new Random(11);
+        OrderJournal journal = journal(segmentBytes);
+        journal.recover(BARISTAS);
+        journal.start(empty());
+        int checkpoints = 0;
+        for (int step = 0; step < 3000; step++) {
+            int action = random.nextInt(3);
+            if (action == 0 || model.waiting.isEmpty() && model.inProgress.isEmpty()) {
+                model.place(journal, random);
+            } else if (action == 1 && !model.waiting.isEmpty()) {
+                model.assign(journal, model.waiting.values().iterator().next(), random.nextInt(BARISTAS));
+            } else if (!model.inProgress.isEmpty()) {
+                List<OrderJournal.Entry> working = new ArrayList<>(model.inProgress.values());
+                model.complete(journal, working.get(random.nextInt(working.size())).order());
+            }
+            if (journal.checkpointDue()) {
+                journal.checkpoint(model.checkpoint());
+                checkpoints++;
+            }
+            if (step % 500 == 499) {
+                // Recover from what is on disk so far, as if the process died here
+                journal.sync();
+                model.assertRecovered(new OrderJournal(dir.resolve("store"), segmentBytes, Runnable::run)
+                        .recover(BARISTAS));
+            }
+        }
+        journal.close();
+        assertTrue(checkpoints > 10, "checkpoints: " + checkpoints);
+        assertFalse(Files.exists(dir.resolve("store").resolve("segment-0.log")), "segments before a checkpoint");
+
+        OrderJournal.Recovered state = journal(segmentBytes).recover(BARISTAS);
+        model.assertRecovered(state);
+        assertFalse(state.history.isEmpty());
+        assertEquals(model.completed.size() - state.history.size(), state.completed.size());
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(dir.resolve("store"))) {
+            List<Path> segments = files.filter(f -> f.getFileName().toString().endsWith(".log")).toList();
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+
+    // Offset of the last record in a segment: magic, then length/checksum/payload until a zero length
+    private static int lastRecord(Path segment) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int at = 4, last = -1;
+        while (at + 8 <= b.limit() && b.getInt(at) > 0) {
+            last = at;
+            at += 8 + b.getInt(at);
+        }
+        return last;
+    }
+}
@@ -0,0 +1,91 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderRankTreeTest {
+
+    private record Entry(Order order, double key, long sequence) {
+    }
+
+    private static final Comparator<Entry> SERVING_ORDER = Comparator.comparingDouble((Entry e) -> -e.key())
+            .thenComparingLong(Entry::sequence);
+
+    @Test
+    void matchesASortedListUnderRandomOperations() {
+        for (int seed = 0; seed < 50; seed++) {
+            Random random = new Random(seed);
+            OrderRankTree tree = new OrderRankTree();
+            List<Entry> reference = new ArrayList<>();
+            long sequence = 0;
+            int created = 0;
+            for (int step = 0; step < 2000; step++) {
+                int op = random.nextInt(4);
+                double key = random.nextInt(30) / 2.0;
+                if (op < 2 || reference.isEmpty()) {
+                    Order order = new Order("order-" + created++, "Customer",
+                            List.of(DrinkType.values()[random.nextInt(DrinkType.values().length)]), false,
+                            LocalDateTime.now());
+                    tree.add(order, key);
+                    reference.add(new Entry(order, key, sequence++));
+                } else if (op == 2) {
+                    // Adding an order already in the tree re-ranks it as if it had just arrived
+                    int at = random.nextInt(reference.size());
+                    Order order = reference.get(at).order();
+                    tree.add(order, key);
+                    reference.set(at, new Entry(order, key, sequence++));
+                } else {
+                    Entry e = reference.remove(random.nextInt(reference.size()));
+                    assertSame(e.order(), tree.remove(e.order().getId()));
+                    assertNull(tree.remove(e.order().getId()));
+                    assertFalse(tree.contains(e.order().getId()));
+                    assertTrue(Double.isNaN(tree.keyOf(e.order().getId())));
+                }
+                assertEquals(reference.size(), tree.size());
+
+                // Every query, at keys both on and between stored keys
+                reference.sort(SERVING_ORDER);
+                double probe = random.nextInt(32) / 2.0 - 0.75 + (random.nextBoolean() ? 0.25 : 0);
+                int above = 0;
+                long prepAbove = 0;
+                List<Order> expectedFrom = new ArrayList<>();
+                for (Entry e : reference) {
+                    if (e.key() > probe) {
+                        above++;
+                        prepAbove += e.order().getTotalPrepTime();
+                    } else {
+                        expectedFrom.add(e.order());
+                    }
+                }
+                assertEquals(above, tree.countAbove(probe), "seed " + seed + " step " + step);
+                assertEquals(prepAbove, tree.prepMinutesAbove(probe));
+                assertEquals(expectedFrom, list(tree.from(probe)));
+            }
+            for (Entry e : reference) {
+                assertTrue(tree.contains(e.order().getId()));
+                assertEquals(e.key(), tree.keyOf(e.order().getId()));
+            }
+            assertEquals(reference.size(), list(tree.from(Double.POSITIVE_INFINITY)).size());
+        }
+    }
+
+    private static List<Order> list(Iterator<Order> orders) {
+        List<Order> list = new ArrayList<>();
+        orders.forEachRemaining(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,84 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.ScenarioFile;
+import com.coffeeshop.model.SimOrderStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScenarioLibraryTest {
+
+    private static final int MAX_ORDERS = 50_000;
+
+    @TempDir
+    Path dir;
+
+    private final SimulationService simulationService = new SimulationService(
+            new SchedulingPolicies(List.of(new PriorityCalculator(), new FifoPolicy())),
+            new BaristaRoster(3, "", ""), new DrinkBatching(false, "1.0", "", 0),
+            new CsvExporter("", false, false), PriorityCalculator.NAME, 100_000, 0);
+
+    private ScenarioLibrary library() {
+        return new ScenarioLibrary(simulationService, dir.toString(), MAX_ORDERS);
+    }
+
+    @Test
+    void savedScenarioReplaysToTheSameResultsItReadsBack() throws IOException {
+        ScenarioLibrary library = library();
+        List<BaristaProfile> pool = BaristaProfile.uniform(2);
+        int testId = 4, seed = 99, n = 20_000;
+
+        ScenarioFile saved = library.save("rush", testId, seed, n);
+        assertEquals(n, saved.getOrders());
+        assertEquals(testId, saved.getTestNumber());
+        assertFalse(saved.isHasResults());
+
+        // The stream holds exactly the generated orders
+        SimOrderStore generated = simulationService.generateTestCaseOrders(testId, n, seed);
+        SimOrderStore mapped = OrderStreamFile.map(dir.resolve("rush.orders"));
+        assertEquals(generated.getBase(), mapped.getBase());
+        for (int i = 0; i < n; i++) {
+            assertEquals(generated.arrivalSeconds(i), mapped.arrivalSeconds(i), "arrival of order " + i);
+            assertEquals(generated.drink(i), mapped.drink(i), "drink of order " + i);
+            assertEquals(generated.isLoyal(i), mapped.isLoyal(i), "loyalty of order " + i);
+        }
+
+        // Replaying saves results that read back as the run produced them
+        library.replay("rush", pool, null);
+        assertTrue(library.list().get(0).isHasResults());
+        SimOrderStore expected = simulationService.replay(mapped, pool, null).getOrderStore();
+        SimOrderStore read = library.results("rush").getOrderStore();
+        assertEquals(n, read.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(expected.startSeconds(i), read.startSeconds(i), "start of order " + i);
+            assertEquals(expected.completionSeconds(i), read.completionSeconds(i), "completion of order " + i);
+            assertEquals(expected.priorityScore(i), read.priorityScore(i), "score of order " + i);
+            assertEquals(expected.reasonCode(i), read.reasonCode(i), "reason of order " + i);
+            assertEquals(expected.barista(i), read.barista(i), "barista of order " + i);
+        }
+
+        // Saving over it drops the results of the old stream
+        library.save("rush", testId, seed + 1, n);
+        assertThrows(NoSuchElementException.class, () -> library.results("rush"));
+    }
+
+    @Test
+    void orderCountIsCapped() throws IOException {
+        ScenarioLibrary library = library();
+        assertThrows(IllegalArgumentException.class, () -> library.save("huge", 1, null, MAX_ORDERS + 1));
+        assertThrows(IllegalArgumentException.class, () -> library.save("negative", 1, null, -1));
+        assertFalse(Files.exists(dir.resolve("huge.orders")));
+        assertEquals(MAX_ORDERS, library.save("largest", 1, null, MAX_ORDERS).getOrders());
+    }
+}
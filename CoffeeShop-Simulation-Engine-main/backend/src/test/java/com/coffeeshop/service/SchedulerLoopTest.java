@@ -0,0 +1,64 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.BaristaProfile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchedulerLoopTest {
+
+    private SchedulerLoop loop;
+
+    @BeforeEach
+    void setUp() {
+        loop = new SchedulerLoop("test-loop");
+        loop.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        assertTrue(loop.stop(5_000));
+    }
+
+    @Test
+    void anErrorInATaskDoesNotStopTheLoop() {
+        loop.execute(() -> {
+            throw new AssertionError("task");
+        });
+        CompletableFuture<Integer> failed = loop.call(() -> {
+            throw new AssertionError("call");
+        });
+        CompletionException e = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(AssertionError.class, e.getCause());
+        assertEquals(42, loop.call(() -> 42).join());
+    }
+
+    @Test
+    void readsOfAStuckLoopTimeOut() throws InterruptedException {
+        BaristaScheduler scheduler = new BaristaScheduler("test", new PriorityCalculator(), BaristaProfile.uniform(1),
+                ScoringMode.ANALYTIC, DispatchMode.EVENT, loop);
+        CountDownLatch release = new CountDownLatch(1);
+        loop.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        long started = System.nanoTime();
+        assertThrows(IllegalStateException.class, scheduler::getQueue);
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(BaristaScheduler.READ_TIMEOUT_MILLIS));
+        release.countDown();
+        assertEquals(0, scheduler.getQueue().size());
+    }
+}
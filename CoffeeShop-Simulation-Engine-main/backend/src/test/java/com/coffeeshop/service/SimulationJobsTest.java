@@ -0,0 +1,85 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.SimulationJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimulationJobsTest {
+
+    private static final int JOBS = 5000;
+
+    private final SimulationService simulationService = new SimulationService(
+            new SchedulingPolicies(List.of(new PriorityCalculator(), new FifoPolicy())),
+            new BaristaRoster(3, "", ""), new DrinkBatching(false, "1.0", "", 0),
+            new CsvExporter("", false, false), PriorityCalculator.NAME, 100_000, 0);
+
+    private SimulationJobs jobs;
+
+    @AfterEach
+    void tearDown() {
+        if (jobs != null)
+            jobs.stop();
+    }
+
+    @Test
+    void cancelRacingTheWorkerFinishesEachJobOnce() throws InterruptedException {
+        // One worker, idle each time: it dequeues every job while the test cancels it
+        jobs = new SimulationJobs(simulationService, 1, JOBS, JOBS);
+        Set<SimulationProgress> ran = ConcurrentHashMap.newKeySet(); // each job has its own progress
+        List<SimulationJobs.Job> submitted = new ArrayList<>();
+        List<Boolean> cancelledQueued = new ArrayList<>();
+        for (int i = 0; i < JOBS; i++) {
+            SimulationJobs.Job job = jobs.enqueue("test", progress -> {
+                ran.add(progress);
+                return "ran";
+            });
+            submitted.add(job);
+            cancelledQueued.add(jobs.cancel(job.id).getState() == SimulationJob.State.CANCELLED);
+            if (i % 10 == 0)
+                Thread.sleep(1); // let the worker catch up, so it is dequeuing, not behind
+        }
+        for (SimulationJobs.Job job : submitted)
+            assertTrue(job.done.await(10, TimeUnit.SECONDS));
+
+        int cancelled = 0;
+        for (int i = 0; i < JOBS; i++) {
+            SimulationJobs.Job job = submitted.get(i);
+            SimulationJob polled = jobs.get(job.id); // every job is still retained: none finished twice
+            if (cancelledQueued.get(i)) {
+                // Cancelled while queued: never ran, and stays cancelled
+                cancelled++;
+                assertEquals(SimulationJob.State.CANCELLED, polled.getState());
+                assertNull(polled.getResult());
+                assertFalse(ran.contains(job.progress));
+            } else {
+                assertEquals(SimulationJob.State.DONE, polled.getState());
+                assertTrue(ran.contains(job.progress));
+            }
+        }
+        assertEquals(JOBS, jobs.list().size());
+        assertTrue(cancelled > 0);
+    }
+
+    @Test
+    void anErrorFailsTheJob() throws InterruptedException {
+        jobs = new SimulationJobs(simulationService, 1, 4, 4);
+        SimulationJobs.Job job = jobs.enqueue("test", progress -> {
+            throw new AssertionError("boom");
+        });
+        assertTrue(job.done.await(10, TimeUnit.SECONDS));
+        SimulationJob polled = jobs.get(job.id);
+        assertEquals(SimulationJob.State.FAILED, polled.getState());
+        assertEquals("boom", polled.getError());
+    }
+}
@@ -0,0 +1,55 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.SimOrderStore;
+import com.coffeeshop.model.TestCase;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SimulationServiceTest {
+
+    private final SimulationService simulationService = new SimulationService(
+            new SchedulingPolicies(List.of(new PriorityCalculator(), new FifoPolicy())),
+            new BaristaRoster(3, "", ""), new DrinkBatching(false, "1.0", "", 0),
+            new CsvExporter("", false, false), PriorityCalculator.NAME, 100_000, 0);
+
+    @Test
+    void fixedScenariosMatchTheOriginalEngine() throws IOException {
+        List<BaristaProfile> pool = BaristaProfile.uniform(3);
+        int scenarios = 0;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                getClass().getResourceAsStream("/original-engine-scenarios.txt"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("#"))
+                    continue;
+                String[] header = line.split(" ");
+                int testId = Integer.parseInt(header[1]);
+                int[] expected = Arrays.stream(in.readLine().split(",")).mapToInt(Integer::parseInt).toArray();
+
+                TestCase run = simulationService.simulate(testId, testId * 12345,
+                        SimulationService.orderCountFor(testId), pool);
+                SimOrderStore orders = run.getOrderStore();
+                int[] completions = new int[orders.size()];
+                for (int i = 0; i < completions.length; i++)
+                    completions[i] = orders.completionSeconds(i);
+                assertArrayEquals(expected, completions, "completion seconds of test " + testId);
+                assertEquals(List.of(Integer.parseInt(header[2]), Integer.parseInt(header[3]),
+                        Integer.parseInt(header[4])), new ArrayList<>(run.getBaristaCounts().values()),
+                        "orders per barista in test " + testId);
+                scenarios++;
+            }
+        }
+        assertEquals(SimulationService.SCENARIO_COUNT, scenarios);
+    }
+}
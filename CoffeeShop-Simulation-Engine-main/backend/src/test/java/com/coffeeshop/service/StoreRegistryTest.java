@@ -0,0 +1,113 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StoreRegistryTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<StoreRegistry> started = new ArrayList<>();
+
+    @AfterEach
+    void stopAll() throws InterruptedException {
+        for (StoreRegistry registry : started)
+            registry.stop();
+    }
+
+    private StoreRegistry registry(int maxStores) {
+        StoreRegistry registry = new StoreRegistry(new SchedulingPolicies(List.of(new PriorityCalculator())),
+                new MockEnvironment(), new BaristaRoster(3, "", ""), PriorityCalculator.NAME, ScoringMode.ANALYTIC,
+                DispatchMode.EVENT, AssignmentMode.MATCHING, new DrinkBatching(false, "1.0", "", 0), 2, maxStores,
+                true, dir.resolve("journal").toString(), 1, 10, 1000, 60, true, dir.resolve("history").toString(), 1,
+                4, new ObjectMapper(), 100, 1000, 50, 10, 1);
+        registry.start();
+        started.add(registry);
+        return registry;
+    }
+
+    @Test
+    void readingAStoreThatDoesNotExistCreatesNothing() {
+        StoreRegistry registry = registry(10);
+        assertThrows(NoSuchElementException.class, () -> registry.existing("elsewhere"));
+        assertThrows(IllegalArgumentException.class, () -> registry.existing("not a store"));
+        assertEquals(List.of(StoreRegistry.DEFAULT_STORE), registry.storeIds());
+        assertFalse(Files.exists(dir.resolve("journal").resolve("elsewhere")));
+        assertFalse(Files.exists(dir.resolve("history").resolve("elsewhere")));
+    }
+
+    @Test
+    void onlyStoresThatTakeAnOrderGetAJournal() throws InterruptedException {
+        StoreRegistry registry = registry(10);
+        registry.store("downtown").addOrder(new Order("Customer", List.of(DrinkType.ESPRESSO), false));
+        registry.stop();
+        assertFalse(Files.exists(dir.resolve("journal").resolve(StoreRegistry.DEFAULT_STORE)));
+        assertTrue(Files.exists(dir.resolve("journal").resolve("downtown")));
+
+        // After a restart the order is still there, and main still has nothing on disk
+        StoreRegistry restarted = registry(10);
+        assertEquals(List.of("downtown", StoreRegistry.DEFAULT_STORE), restarted.storeIds());
+        BaristaScheduler downtown = restarted.existing("downtown");
+        assertEquals(1, downtown.getQueue().size() + downtown.getStatistics().ordersServed()
+                + downtown.getBaristas().stream().filter(b -> b.getCurrentOrder() != null).count());
+        assertFalse(Files.exists(dir.resolve("journal").resolve(StoreRegistry.DEFAULT_STORE)));
+    }
+
+    @Test
+    void concurrentFirstOrdersCreateTheStoreOnce() throws Exception {
+        StoreRegistry registry = registry(10);
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<BaristaScheduler>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return registry.store("downtown");
+                }));
+            }
+            start.countDown();
+            BaristaScheduler first = results.get(0).get();
+            for (Future<BaristaScheduler> result : results)
+                assertSame(first, result.get());
+            assertSame(first, registry.existing("downtown"));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(List.of("downtown", StoreRegistry.DEFAULT_STORE), registry.storeIds());
+    }
+
+    @Test
+    void storeLimitCountsOnlyCreatedStores() {
+        StoreRegistry registry = registry(2);
+        registry.store("second");
+        assertThrows(IllegalArgumentException.class, () -> registry.store("third"));
+        assertThrows(IllegalArgumentException.class, () -> registry.store("third"));
+        assertThrows(NoSuchElementException.class, () -> registry.existing("third"));
+        assertTrue(registry.storeIds().contains("second"));
+        assertEquals(2, registry.storeIds().size());
+    }
+}
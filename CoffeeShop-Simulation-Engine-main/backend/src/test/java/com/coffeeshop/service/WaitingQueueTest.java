@@ -0,0 +1,72 @@
+package com.coffeeshop.service;
+
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WaitingQueueTest {
+
+    // Few distinct arrivals and drinks, so many orders tie on score; some are past the urgency crossover
+    private static final int[] WAITED_SECONDS = {0, 30, 30, 200, 500, 500, 700};
+    private static final List<List<DrinkType>> DRINKS = List.of(List.of(DrinkType.ESPRESSO),
+            List.of(DrinkType.LATTE), List.of(DrinkType.AMERICANO), List.of(DrinkType.ESPRESSO, DrinkType.LATTE));
+
+    static Stream<Arguments> queues() {
+        List<Arguments> queues = new ArrayList<>();
+        for (ScoringMode mode : ScoringMode.values()) {
+            queues.add(Arguments.of(mode, false));
+            queues.add(Arguments.of(mode, true));
+        }
+        return queues.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("queues")
+    void tiedOrdersGetDistinctPositionsInServingOrder(ScoringMode mode, boolean bySkill) {
+        for (int seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            WaitingQueue queue = WaitingQueue.create(mode, new PriorityCalculator(), bySkill);
+            LocalDateTime now = LocalDateTime.now().withNano(0);
+            int n = 50 + random.nextInt(150);
+            for (int i = 0; i < n; i++) {
+                Order order = new Order("order-" + i, "Customer", DRINKS.get(random.nextInt(DRINKS.size())),
+                        random.nextInt(3) == 0, now.minusSeconds(WAITED_SECONDS[random.nextInt(WAITED_SECONDS.length)]));
+                queue.add(order, now);
+            }
+            queue.advance(now, order -> {
+            });
+
+            Map<String, Integer> positions = new HashMap<>();
+            for (Order o : queue.snapshot(now))
+                positions.put(o.getId(), queue.position(o.getId(), now));
+            List<String> snapshot = queue.snapshot(now).stream().map(Order::getId).toList();
+            List<String> walked = new ArrayList<>();
+            for (Iterator<Order> walk = queue.from(Double.POSITIVE_INFINITY, now); walk.hasNext();)
+                walked.add(walk.next().getId());
+
+            List<String> served = new ArrayList<>();
+            Order next;
+            while ((next = queue.poll(now)) != null)
+                served.add(next.getId());
+
+            assertEquals(n, served.size());
+            for (int i = 0; i < n; i++)
+                assertEquals(i + 1, positions.get(served.get(i)), "seed " + seed + ": " + served.get(i));
+            assertEquals(served, snapshot, "seed " + seed);
+            assertEquals(served, walked, "seed " + seed);
+        }
+    }
+}
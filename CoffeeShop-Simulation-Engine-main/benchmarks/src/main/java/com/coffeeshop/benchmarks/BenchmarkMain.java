@@ -0,0 +1,38 @@
+package com.coffeeshop.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Takes the usual JMH command line, but by
+ * default also runs the GC profiler (allocation rate, gc.alloc.rate.norm) and
+ * writes JSON results to jmh-result.json, so two versions can be diffed.
+ * Any -prof, -rf or -rff given on the command line wins.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp()) {
+            cli.showHelp();
+            return;
+        }
+        if (cli.shouldList()) {
+            new Runner(cli).list();
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (cli.getProfilers().isEmpty())
+            options.addProfiler(GCProfiler.class);
+        if (!cli.getResultFormat().hasValue())
+            options.resultFormat(ResultFormatType.JSON);
+        if (!cli.getResult().hasValue())
+            options.result("jmh-result.json");
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,36 @@
+package com.coffeeshop.benchmarks;
+
+import com.coffeeshop.model.DrinkType;
+import com.coffeeshop.model.Order;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic order fixtures shared by the benchmarks.
+ */
+final class BenchmarkOrders {
+
+    private static final DrinkType[] DRINK_TYPES = DrinkType.values();
+
+    private BenchmarkOrders() {
+    }
+
+    /**
+     * {@code count} live orders that arrived within the last {@code maxAgeSeconds},
+     * 15% of them loyal, with a fixed seed so every run sees the same queue.
+     */
+    static List<Order> waiting(int count, int maxAgeSeconds) {
+        Random rand = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            DrinkType drink = DRINK_TYPES[rand.nextInt(DRINK_TYPES.length)];
+            orders.add(new Order("bench-" + i, "Bench" + i, List.of(drink), rand.nextDouble() < 0.15,
+                    now.minusSeconds(rand.nextInt(maxAgeSeconds + 1))));
+        }
+        return orders;
+    }
+}
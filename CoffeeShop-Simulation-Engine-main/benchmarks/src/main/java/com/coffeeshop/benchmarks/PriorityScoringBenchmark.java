@@ -0,0 +1,42 @@
+package com.coffeeshop.benchmarks;
+
+import com.coffeeshop.model.Order;
+import com.coffeeshop.service.PriorityCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of scoring a single order, the unit of work every queue strategy
+ * repeats per order it touches.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PriorityScoringBenchmark {
+
+    private final PriorityCalculator priorityCalculator = new PriorityCalculator();
+    private List<Order> orders;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        orders = BenchmarkOrders.waiting(1024, 900); // both sides of the urgency cliff
+    }
+
+    @Benchmark
+    public Order updatePriority() {
+        Order order = orders.get(next++ & 1023);
+        priorityCalculator.updatePriority(order);
+        return order;
+    }
+
+    @Benchmark
+    public double staticIntercept() {
+        return priorityCalculator.staticIntercept(orders.get(next++ & 1023));
+    }
+}
@@ -0,0 +1,108 @@
+package com.coffeeshop.benchmarks;
+
+import com.coffeeshop.model.Order;
+import com.coffeeshop.service.BaristaRoster;
+import com.coffeeshop.service.BaristaScheduler;
+import com.coffeeshop.service.DispatchMode;
+import com.coffeeshop.service.PriorityCalculator;
+import com.coffeeshop.service.SchedulerLoop;
+import com.coffeeshop.service.ScoringMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live scheduler hot paths at a given queue depth, for both scoring modes.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchedulerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class QueueState {
+        @Param({ "10", "100", "1000", "10000" })
+        int queueDepth;
+
+        @Param({ "RESCAN", "ANALYTIC" })
+        ScoringMode scoring;
+
+        SchedulerLoop loop;
+        BaristaScheduler scheduler;
+
+        // POLLING without a StoreRegistry means nothing ticks, so the queue
+        // stays at queueDepth for the whole trial
+        @Setup(Level.Trial)
+        public void setUp() {
+            loop = new SchedulerLoop("benchmark-scheduler");
+            loop.start();
+            scheduler = filledScheduler(queueDepth, scoring, 3, loop);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            loop.stop(5_000);
+        }
+    }
+
+    /**
+     * A scheduler whose loop has been stopped after intake, so the benchmark
+     * thread can drive {@link BaristaScheduler#scheduleOrders} itself. Rebuilt
+     * every iteration; every barista is busy for at least 5s (one prep
+     * minute), longer than an iteration, so each pass sees the same queue.
+     */
+    @State(Scope.Thread)
+    public static class PassState {
+        @Param({ "10", "100", "1000", "10000" })
+        int queueDepth;
+
+        @Param({ "RESCAN", "ANALYTIC" })
+        ScoringMode scoring;
+
+        @Param({ "3", "24" })
+        int baristas;
+
+        BaristaScheduler scheduler;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws InterruptedException {
+            SchedulerLoop loop = new SchedulerLoop("benchmark-scheduler");
+            loop.start();
+            scheduler = filledScheduler(queueDepth + baristas, scoring, baristas, loop); // some go straight to the baristas
+            loop.stop(5_000); // the getQueue() in filledScheduler already synchronized with the loop
+            scheduler.scheduleOrders();
+        }
+    }
+
+    /**
+     * One scheduling pass with every barista busy: priority refresh, SLA checks,
+     * completion checks and publishing the views.
+     */
+    @Benchmark
+    public BaristaScheduler scheduleOrders(PassState state) {
+        state.scheduler.scheduleOrders();
+        return state.scheduler;
+    }
+
+    /**
+     * A full /api/queue read: loop handoff, snapshot in priority order, ETAs.
+     */
+    @Benchmark
+    public List<Order> getQueue(QueueState state) {
+        return state.scheduler.getQueue();
+    }
+
+    private static BaristaScheduler filledScheduler(int queueDepth, ScoringMode scoring, int baristas,
+            SchedulerLoop loop) {
+        BaristaScheduler scheduler = new BaristaScheduler("benchmark", new PriorityCalculator(),
+                new BaristaRoster(baristas, "", "").getProfiles(), scoring, DispatchMode.POLLING, loop);
+        // Younger than the 480s cliff, so setup doesn't trigger SLA alerts
+        for (Order order : BenchmarkOrders.waiting(queueDepth, 400))
+            scheduler.addOrder(order);
+        scheduler.getQueue(); // runs after every add on the loop
+        return scheduler;
+    }
+}
@@ -0,0 +1,57 @@
+package com.coffeeshop.benchmarks;
+
+import com.coffeeshop.model.BaristaProfile;
+import com.coffeeshop.model.TestCase;
+import com.coffeeshop.service.BaristaRoster;
+import com.coffeeshop.service.CsvExporter;
+import com.coffeeshop.service.DrinkBatching;
+import com.coffeeshop.service.PriorityCalculator;
+import com.coffeeshop.service.SchedulingPolicies;
+import com.coffeeshop.service.SimulationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full simulation run per scenario profile and order volume. Measures the
+ * engine behind runSimulation ({@link SimulationService#simulate}), without
+ * the CSV export and console report.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SimulationBenchmark {
+
+    @Param({ "1", "2", "3", "4", "5", "6", "7", "8", "9", "10" })
+    int testId;
+
+    // 0 = the scenario's own volume (210-300 orders)
+    @Param({ "0", "10000", "100000", "1000000" })
+    int orderCount;
+
+    // All-round baristas in the pool
+    @Param({ "3", "24" })
+    int baristas;
+
+    private final SimulationService simulationService = new SimulationService(
+            new SchedulingPolicies(List.of(new PriorityCalculator())), new BaristaRoster(3, "", ""),
+            new DrinkBatching(false, "1.0", "", 0), new CsvExporter("", false, false),
+            PriorityCalculator.NAME, 100_000, 0); // no scenario cache: generation is part of the run
+    private List<BaristaProfile> pool;
+
+    @Setup
+    public void setUp() {
+        pool = BaristaProfile.uniform(baristas);
+    }
+
+    @Benchmark
+    public TestCase simulate() {
+        int seed = testId * 12345; // same seed as runSimulation
+        int volume = orderCount == 0 ? SimulationService.orderCountFor(testId) : orderCount;
+        return simulationService.simulate(testId, seed, volume, pool);
+    }
+}
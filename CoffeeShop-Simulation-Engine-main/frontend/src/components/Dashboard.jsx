@@ -1,31 +1,30 @@
 import React, { useEffect, useState } from 'react';
-import axios from 'axios';
-import { getQueue, getBaristas } from '../services/api';
+import { openLiveFeed } from '../services/api';
 
 const Dashboard = () => {
     const [queue, setQueue] = useState([]);
+    const [queueSize, setQueueSize] = useState(0);
     const [baristas, setBaristas] = useState([]);
     const [stats, setStats] = useState({ avgWaitTime: '0.0 min', ordersServed: 0, maxWaitTime: '0.0 min', slaViolations: 0 });
-
-    const fetchData = async () => {
-        try {
-            const [queueRes, baristasRes, statsRes] = await Promise.all([
-                getQueue(),
-                getBaristas(),
-                axios.get('http://localhost:8080/api/stats')
-            ]);
-            setQueue(queueRes.data);
-            setBaristas(baristasRes.data);
-            setStats(statsRes.data);
-        } catch (error) {
-            console.error("Error fetching dashboard data:", error);
-        }
-    };
+    const [, setClock] = useState(0);
 
     useEffect(() => {
-        fetchData();
-        const interval = setInterval(fetchData, 1000); // Polling faster for countdowns
-        return () => clearInterval(interval);
+        // The backend pushes an update whenever something changes (and at least every second)
+        const feed = openLiveFeed();
+        feed.addEventListener('update', (event) => {
+            const update = JSON.parse(event.data);
+            setQueue(update.queueHead);
+            setQueueSize(update.queueSize);
+            setBaristas(update.baristas);
+            setStats(update.stats);
+        });
+        feed.onerror = () => console.error("Live feed disconnected, reconnecting...");
+        // Local tick only to re-render the barista countdowns
+        const interval = setInterval(() => setClock((c) => c + 1), 1000);
+        return () => {
+            feed.close();
+            clearInterval(interval);
+        };
     }, []);
 
     const getRowColor = (order) => {
@@ -52,7 +51,7 @@ const Dashboard = () => {
             {/* Queue Section */}
             <div className="lg:col-span-2 bg-white p-6 rounded-lg shadow-md">
                 <h2 className="text-xl font-bold mb-4 text-coffee-800 flex justify-between items-center">
-                    <span>Smart Waiting Queue ({queue.length})</span>
+                    <span>Smart Waiting Queue ({queueSize})</span>
                     <span className="text-sm font-normal text-gray-500">Sorted by Dynamic Priority</span>
                 </h2>
 
@@ -1,10 +1,15 @@
 import React, { useState, useEffect } from 'react';
 import axios from 'axios';
 
+const PAGE_SIZE = 120;
+const POLL_MS = 250;
+
 const Statistics = () => {
     const [history, setHistory] = useState([]);
     const [loading, setLoading] = useState(false);
+    const [running, setRunning] = useState(null); // { id, percent } of the test being run
     const [expandedTestId, setExpandedTestId] = useState(null);
+    const [orderPage, setOrderPage] = useState(null); // orders of the expanded test, paged by the backend
 
     // Initial load: fetch history
     //connects the backend to get past results(Get request)
@@ -17,25 +22,50 @@ const Statistics = () => {
         }
     };
 
+    // Per-order results aren't in the history; get them a page at a time
+    const fetchOrders = async (id, offset = 0) => {
+        try {
+            const res = await axios.get(`http://localhost:8080/api/simulation/${id}/orders?offset=${offset}&limit=${PAGE_SIZE}`);
+            setOrderPage(prev => offset > 0 && prev ? { ...res.data, orders: [...prev.orders, ...res.data.orders] } : res.data);
+        } catch (err) {
+            console.error(err);
+        }
+    };
+
     useEffect(() => {
         fetchHistory();
     }, []);
 //post request
-// tells backend to start specific test
+// tells backend to start specific test as a background job, then polls it until it's finished
     const runTest = async (id) => {
         setLoading(true);
+        setRunning({ id, percent: 0 });
         try {
-            await axios.post(`http://localhost:8080/api/simulation/run?testId=${id}`);
+            let job = (await axios.post(`http://localhost:8080/api/simulation/jobs/run?testId=${id}`)).data;
+            while (job.state === 'QUEUED' || job.state === 'RUNNING') {
+                await new Promise(resolve => setTimeout(resolve, POLL_MS));
+                job = (await axios.get(`http://localhost:8080/api/simulation/jobs/${job.id}`)).data;
+                setRunning({ id, percent: job.percentComplete });
+            }
+            if (job.state !== 'DONE') console.error(`Test ${id} ${job.state.toLowerCase()}: ${job.error || ''}`);
             await fetchHistory();
+            if (expandedTestId === id) await fetchOrders(id);
         } catch (err) {
             console.error(err);
         } finally {
             setLoading(false);
+            setRunning(null);
         }
     };
 
     const toggleExpand = (id) => {
-        setExpandedTestId(expandedTestId === id ? null : id);
+        setOrderPage(null);
+        if (expandedTestId === id) {
+            setExpandedTestId(null);
+        } else {
+            setExpandedTestId(id);
+            fetchOrders(id);
+        }
     };
 
     // Helper to sort tests 1-10
@@ -70,7 +100,7 @@ const Statistics = () => {
                             <th className="p-4">Test Case</th>
                             <th className="p-4">Avg Wait</th>
                             <th className="p-4">Max Wait</th>
-                            <th className="p-4">Staff Load (B1/B2/B3)</th>
+                            <th className="p-4">Staff Load (per Barista)</th>
                             <th className="p-4">SLA Alerts</th>
                             <th className="p-4 text-center">Action</th>
                         </tr>
@@ -93,7 +123,7 @@ const Statistics = () => {
                                                 <td className="p-4 font-mono font-bold text-blue-700">{result.avgWaitTime.toFixed(1)} min</td>
                                                 <td className="p-4 font-mono font-bold text-red-700">{result.maxWaitTime.toFixed(1)} min</td>
                                                 <td className="p-4 font-mono text-sm">
-                                                    {result.barista1Count} / {result.barista2Count} / {result.barista3Count}
+                                                    {Object.values(result.baristaCounts || {}).join(' / ')}
                                                 </td>
                                                 <td className="p-4">
                                                     {result.slaViolations > 0 ? (
@@ -118,7 +148,7 @@ const Statistics = () => {
                                                         disabled={loading}
                                                         className="text-xs bg-gray-200 hover:bg-gray-300 px-3 py-1 rounded text-gray-700 font-semibold"
                                                     >
-                                                        ↻ Rerun
+                                                        {running && running.id === scenario.id ? `${running.percent.toFixed(0)}%` : '↻ Rerun'}
                                                     </button>
                                                 </td>
                                             </>
@@ -133,7 +163,7 @@ const Statistics = () => {
                                                         disabled={loading}
                                                         className="bg-coffee-600 hover:bg-coffee-700 text-white px-4 py-1.5 rounded-full text-sm font-bold shadow-sm transition-transform active:scale-95"
                                                     >
-                                                        ▶ Run Analysis
+                                                        {running && running.id === scenario.id ? `${running.percent.toFixed(0)}%` : '▶ Run Analysis'}
                                                     </button>
                                                 </td>
                                             </>
@@ -145,7 +175,7 @@ const Statistics = () => {
                                         <tr className="bg-gray-50 animate-fadeIn">
                                             <td colSpan="6" className="p-4 border-t border-b border-gray-200">
                                                 <div className="mb-2 font-bold text-coffee-800 text-sm uppercase tracking-wide">
-                                                    Execution Log (120 Rows)
+                                                    Execution Log ({orderPage ? `${orderPage.orders.length} of ${orderPage.total}` : '...'} Rows)
                                                 </div>
                                                 <div className="max-h-96 overflow-y-auto border rounded bg-white shadow-inner">
                                                     <table className="w-full text-sm table-fixed">
@@ -160,14 +190,14 @@ const Statistics = () => {
                                                             </tr>
                                                         </thead>
                                                         <tbody className="divide-y divide-gray-100">
-                                                            {result.orders.map((o, idx) => {
+                                                            {(orderPage ? orderPage.orders : []).map((o, idx) => {
                                                                 const arrival = new Date(o.arrivalTime).toLocaleTimeString([], { hour: '2-digit', minute: '2-digit' });
-                                                                const waitMins = ((new Date(o.completionTime) - new Date(o.arrivalTime)) / 60000).toFixed(1);
+                                                                const waitMins = o.waitMinutes.toFixed(1);
                                                                 return (
                                                                     <tr key={idx} className="hover:bg-blue-50">
                                                                         <td className="p-2 font-mono text-gray-500">{arrival}</td>
                                                                         <td className="p-2 font-medium">{o.customerName}</td>
-                                                                        <td className="p-2 text-gray-600">{o.drinks[0]}</td>
+                                                                        <td className="p-2 text-gray-600">{o.drink}</td>
                                                                         <td className={`p-2 font-mono font-bold ${waitMins > 10 ? 'text-red-600' : 'text-blue-600'}`}>
                                                                             {waitMins} m
                                                                         </td>
@@ -182,6 +212,14 @@ const Statistics = () => {
                                                             })}
                                                         </tbody>
                                                     </table>
+                                                    {orderPage && orderPage.nextOffset !== null && (
+                                                        <button
+                                                            onClick={() => fetchOrders(scenario.id, orderPage.nextOffset)}
+                                                            className="w-full p-2 text-sm text-coffee-800 hover:bg-gray-100"
+                                                        >
+                                                            Load more
+                                                        </button>
+                                                    )}
                                                 </div>
                                             </td>
                                         </tr>
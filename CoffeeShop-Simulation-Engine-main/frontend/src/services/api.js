@@ -2,6 +2,14 @@ import axios from 'axios';
 
 const API_URL = 'http://localhost:8080/api';
 
-export const placeOrder = (order) => axios.post(`${API_URL}/orders`, order);
-export const getQueue = () => axios.get(`${API_URL}/queue`);
-export const getBaristas = () => axios.get(`${API_URL}/baristas`);
+// Each store has its own queue and baristas; 'main' is the default store
+export const placeOrder = (order, storeId = 'main') => axios.post(`${API_URL}/orders`, order, { params: { storeId } });
+export const getQueue = (storeId = 'main') => axios.get(`${API_URL}/queue`, { params: { storeId } });
+// Paged queue: { cursor, limit, loyal, slaAtRisk, drink, fields: 'id,customerName,etaSeconds' }
+export const getQueuePage = (params = {}, storeId = 'main') => axios.get(`${API_URL}/queue/page`, { params: { storeId, ...params } });
+export const getQueuePosition = (orderId, storeId = 'main') => axios.get(`${API_URL}/queue/${orderId}`, { params: { storeId } });
+export const getBaristas = (storeId = 'main') => axios.get(`${API_URL}/baristas`, { params: { storeId } });
+export const getStores = () => axios.get(`${API_URL}/stores`);
+
+// Server-sent events: one "update" message per change (see LiveFeed on the backend)
+export const openLiveFeed = (storeId = 'main') => new EventSource(`${API_URL}/stream?storeId=${encodeURIComponent(storeId)}`);